@@ -5,6 +5,9 @@ import io.activej.inject.annotation.Inject;
 import io.activej.inject.annotation.Provides;
 import io.activej.launcher.Launcher;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static io.activej.config.converter.ConfigConverters.ofInteger;
 
 public class ByteBufPoolMultithreadedBenchmark extends Launcher {
@@ -48,7 +51,7 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 	}
 
 	private int allocationSize;
-	private int threads;
+	private int maxThreads;
 	private int iterations;
 	private int warmupRounds;
 	private int measureRounds;
@@ -56,32 +59,55 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 	@Override
 	protected void onStart() throws Exception {
 		this.allocationSize = config.get(ofInteger(), "benchmark.allocationSize", ALLOCATION_SIZE);
-		this.threads = config.get(ofInteger(), "benchmark.threads", THREADS);
+		this.maxThreads = config.get(ofInteger(), "benchmark.threads", THREADS);
 		this.iterations = config.get(ofInteger(), "benchmark.iterations", ITERATIONS);
 		this.warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
 		this.measureRounds = config.get(ofInteger(), "benchmark.measureRounds", BENCHMARK_ROUNDS);
 		super.onStart();
 	}
 
+	/**
+	 * Runs the benchmark for 1, 2, 4, ... up to {@code benchmark.threads} threads.
+	 * <p>
+	 * Launch it with {@code -DByteBufPool.threadCache=true} and without it
+	 * to compare thread-local caches with the shared slabs only.
+	 */
 	@Override
 	protected void run() throws Exception {
+		System.out.println("ByteBufPool thread cache: " + (ByteBufPool.USE_THREAD_CACHE ? "enabled" : "disabled"));
+		List<String> results = new ArrayList<>();
+		for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+			results.add(benchmark(threads));
+			if (threads == maxThreads) break;
+		}
+		System.out.println();
+		results.forEach(System.out::println);
+		if (ByteBufPool.USE_THREAD_CACHE) {
+			ByteBufPool.ByteBufPoolStats stats = ByteBufPool.getStats();
+			System.out.println("Thread cache hit rate: " + String.format("%.4f", stats.getThreadCacheHitRate()) +
+					"; refills: " + stats.getThreadCacheRefills() +
+					"; spills: " + stats.getThreadCacheSpills());
+		}
+	}
+
+	private String benchmark(int threads) throws InterruptedException {
 		long timeAllRounds = 0;
 		long bestTime = -1;
 		long worstTime = -1;
 
-		System.out.println("Warming up ...");
+		System.out.println("Warming up with " + threads + " threads ...");
 		for (int i = 0; i < warmupRounds; i++) {
-			double roundTime = round();
-			long rps = iterations * 1000L * THREADS / Math.round(roundTime);
+			double roundTime = round(threads);
+			long rps = iterations * 1000L * threads / Math.max(1, Math.round(roundTime));
 			System.out.println();
 			System.out.println("Round: " + (i + 1) + "; ROUND TIME: " + Math.round(roundTime) + " ms; " +
 					"RPS : " + rps);
 			System.out.println();
 		}
 
-		System.out.println("Start benchmarking ByteBuf Benchmark");
+		System.out.println("Start benchmarking ByteBuf Benchmark with " + threads + " threads");
 		for (int i = 0; i < measureRounds; i++) {
-			double roundTime = round();
+			double roundTime = round(threads);
 
 			timeAllRounds += roundTime;
 
@@ -92,7 +118,7 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 			if (worstTime == -1 || roundTime > worstTime) {
 				worstTime = (long) roundTime;
 			}
-			long rps = iterations * 1000L * threads / Math.round(roundTime);
+			long rps = iterations * 1000L * threads / Math.max(1, Math.round(roundTime));
 			System.out.println();
 			System.out.println("Round: " + (i + 1) + "; ROUND TIME: " + Math.round(roundTime) + " ms; " +
 					"RPS : " + rps);
@@ -100,12 +126,12 @@ public class ByteBufPoolMultithreadedBenchmark extends Launcher {
 		}
 
 		double avgTime = (double) timeAllRounds / measureRounds;
-		long avgRps = Math.round((iterations / avgTime * 1000L * threads));
-		System.out.println("Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
-				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + avgRps);
+		long avgRps = Math.round((iterations / Math.max(1, avgTime) * 1000L * threads));
+		return "Threads: " + threads + "; Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
+				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + avgRps;
 	}
 
-	private long round() throws InterruptedException {
+	private long round(int threads) throws InterruptedException {
 		long start = System.currentTimeMillis();
 		Thread[] abusers = new Thread[threads];
 		for (int i = 0; i < threads; ++i) {
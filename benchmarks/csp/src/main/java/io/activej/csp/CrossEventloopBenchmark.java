@@ -0,0 +1,80 @@
+package io.activej.csp;
+
+import io.activej.eventloop.Eventloop;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.activej.eventloop.Eventloop.initWithEventloop;
+
+/**
+ * Compares streaming of items from another eventloop with a task per item
+ * and with a ring buffer between eventloops
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CrossEventloopBenchmark {
+	private static final int ITEMS = 1_000_000;
+
+	@Param({"256", "4096"})
+	int bufferCapacity;
+
+	private List<Integer> items;
+	private Eventloop anotherEventloop;
+
+	@Setup
+	public void setup() {
+		items = IntStream.range(0, ITEMS).boxed().collect(Collectors.toList());
+		anotherEventloop = Eventloop.create();
+		anotherEventloop.keepAlive(true);
+		new Thread(anotherEventloop, "another").start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		anotherEventloop.execute(() -> anotherEventloop.keepAlive(false));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITEMS)
+	public void taskPerItem(Blackhole blackhole) {
+		Eventloop eventloop = Eventloop.create().withCurrentThread();
+		ChannelSupplier<Integer> anotherEventloopSupplier = initWithEventloop(anotherEventloop, () -> ChannelSupplier.ofIterable(items));
+		eventloop.post(() -> ChannelSupplier.ofAnotherEventloop(anotherEventloop, anotherEventloopSupplier)
+				.streamTo(ChannelConsumer.ofConsumer(blackhole::consume)));
+		eventloop.run();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ITEMS)
+	public void ringBuffer(Blackhole blackhole) {
+		Eventloop eventloop = Eventloop.create().withCurrentThread();
+		ChannelSupplier<Integer> anotherEventloopSupplier = initWithEventloop(anotherEventloop, () -> ChannelSupplier.ofIterable(items));
+		eventloop.post(() -> ChannelSupplier.ofAnotherEventloop(anotherEventloop, anotherEventloopSupplier, bufferCapacity)
+				.streamTo(ChannelConsumer.ofConsumer(blackhole::consume)));
+		eventloop.run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(CrossEventloopBenchmark.class.getSimpleName())
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(2L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(5L))
+				.build();
+
+		new Runner(opt).run();
+	}
+}
@@ -11,8 +11,9 @@ import io.activej.launcher.Launcher;
 import io.activej.promise.Promise;
 import io.activej.service.ServiceGraphModule;
 
-import java.util.function.Function;
+import java.util.List;
 
+import static io.activej.config.converter.ConfigConverters.ofBoolean;
 import static io.activej.config.converter.ConfigConverters.ofInteger;
 
 @SuppressWarnings("WeakerAccess")
@@ -20,6 +21,8 @@ public class CspBenchmark extends Launcher {
 	private static final int TOTAL_ELEMENTS = 50_000_000;
 	private static final int WARMUP_ROUNDS = 3;
 	private static final int BENCHMARK_ROUNDS = 10;
+	private static final int BUFFER_SIZE = 1024;
+	private static final boolean BATCHED = true;
 
 	static final class IntegerChannelSupplier extends AbstractChannelSupplier<Integer> {
 		private Integer integer;
@@ -34,6 +37,14 @@ public class CspBenchmark extends Launcher {
 		protected Promise<Integer> doGet() {
 			return Promise.of(integer < limit ? ++integer : null);
 		}
+
+		@Override
+		protected Promise<Void> doGetBatch(List<Integer> batch, int maxItems) {
+			for (int i = 0; i < maxItems && integer < limit; i++) {
+				batch.add(++integer);
+			}
+			return Promise.complete();
+		}
 	}
 
 	//region fields
@@ -80,12 +91,16 @@ public class CspBenchmark extends Launcher {
 	private int warmupRounds;
 	private int benchmarkRounds;
 	private int totalElements;
+	private int bufferSize;
+	private boolean batched;
 
 	@Override
 	protected void onStart() {
 		warmupRounds = config.get(ofInteger(), "benchmark.warmupRounds", WARMUP_ROUNDS);
 		benchmarkRounds = config.get(ofInteger(), "benchmark.benchmarkRounds", BENCHMARK_ROUNDS);
 		totalElements = config.get(ofInteger(), "benchmark.totalElements", TOTAL_ELEMENTS);
+		bufferSize = config.get(ofInteger(), "benchmark.bufferSize", BUFFER_SIZE);
+		batched = config.get(ofBoolean(), "benchmark.batched", BATCHED);
 	}
 
 	@Override
@@ -102,7 +117,7 @@ public class CspBenchmark extends Launcher {
 			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; OPS : " + rps);
 		}
 
-		System.out.println("Start benchmarking CSP Channel");
+		System.out.println("Start benchmarking CSP Channel" + (batched ? " in batches" : " item by item"));
 
 		for (int i = 0; i < benchmarkRounds; i++) {
 			long roundTime = round();
@@ -134,7 +149,15 @@ public class CspBenchmark extends Launcher {
 		ChannelSupplier<Integer> input = inputProvider.get();
 		ChannelConsumer<Integer> output = outputProvider.get();
 		long start = System.currentTimeMillis();
-		return input.map(Function.identity())
+		if (!batched) {
+			// hides batches of the supplier, so that items are streamed one by one
+			input = ChannelSupplier.of(input::get, input);
+		}
+		ChannelSupplier<Integer> buffered = ChannelSuppliers.prefetch(bufferSize, input);
+		if (!batched) {
+			buffered = ChannelSupplier.of(buffered::get, buffered);
+		}
+		return buffered
 				.streamTo(output)
 				.map($ -> System.currentTimeMillis() - start);
 	}
@@ -1,6 +1,8 @@
 package io.activej.http;
 
 import io.activej.async.callback.Callback;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
 import io.activej.config.Config;
 import io.activej.config.ConfigModule;
 import io.activej.eventloop.Eventloop;
@@ -9,13 +11,20 @@ import io.activej.inject.annotation.Named;
 import io.activej.inject.annotation.Provides;
 import io.activej.inject.module.Module;
 import io.activej.launcher.Launcher;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
+import io.activej.promise.Promises;
 import io.activej.promise.SettablePromise;
 import io.activej.service.ServiceGraphModule;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.stream.IntStream;
 
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.config.converter.ConfigConverters.*;
 import static io.activej.inject.module.Modules.combine;
 import static java.lang.Math.min;
@@ -27,6 +36,16 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	private static final int BENCHMARK_ROUNDS = 5;
 	private static final int ACTIVE_REQUESTS_MAX = 300;
 	private static final int ACTIVE_REQUESTS_MIN = 200;
+	private static final int PIPELINE_DEPTH = 0;
+	private static final int PIPELINED_CONNECTIONS = 100;
+	private static final int SERVER_MAX_PIPELINE_DEPTH = 16;
+	// along with Host and Connection, makes a typical request of 15 headers
+	private static final int EXTRA_HEADERS = 13;
+
+	private static final HttpHeader[] HEADERS = {
+			HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.CACHE_CONTROL,
+			HttpHeaders.COOKIE, HttpHeaders.DNT, HttpHeaders.REFERER, HttpHeaders.USER_AGENT, HttpHeaders.X_FORWARDED_FOR,
+			HttpHeaders.X_FORWARDED_PROTO, HttpHeaders.X_REAL_IP, HttpHeaders.X_REQUESTED_WITH, HttpHeaders.IF_NONE_MATCH};
 
 	private String address;
 	private int totalRequests;
@@ -34,6 +53,13 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	private int measureRounds;
 	private int activeRequestsMax;
 	private int activeRequestsMin;
+	private int pipelineDepth;
+	private int pipelinedConnections;
+	private int extraHeaders;
+	private byte[] pipelinedRequest;
+	private InetSocketAddress socketAddress;
+
+	private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
 
 	@Provides
 	@Named("server")
@@ -65,7 +91,8 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 		return AsyncHttpServer.create(serverEventloop,
 				request ->
 						HttpResponse.ok200().withPlainText("Response!!"))
-				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"));
+				.withListenAddresses(config.get(ofList(ofInetSocketAddress()), "address"))
+				.withMaxPipelineDepth(config.get(ofInteger(), "server.maxPipelineDepth", SERVER_MAX_PIPELINE_DEPTH));
 	}
 
 	@Provides
@@ -80,6 +107,7 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 		return Config.create()
 				.with("address", "0.0.0.0:9001")
 				.with("client.address", "http://127.0.0.1:9001/")
+				.with("client.socketAddress", "127.0.0.1:9001")
 				.overrideWith(Config.ofSystemProperties("config"));
 	}
 
@@ -99,6 +127,20 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 		this.measureRounds = config.get(ofInteger(), "benchmark.measureRounds", BENCHMARK_ROUNDS);
 		this.activeRequestsMax = config.get(ofInteger(), "benchmark.activeRequestsMax", ACTIVE_REQUESTS_MAX);
 		this.activeRequestsMin = config.get(ofInteger(), "benchmark.activeRequestsMin", ACTIVE_REQUESTS_MIN);
+		this.pipelineDepth = config.get(ofInteger(), "benchmark.pipelineDepth", PIPELINE_DEPTH);
+		this.pipelinedConnections = config.get(ofInteger(), "benchmark.pipelinedConnections", PIPELINED_CONNECTIONS);
+		this.extraHeaders = min(config.get(ofInteger(), "benchmark.extraHeaders", EXTRA_HEADERS), HEADERS.length);
+		this.socketAddress = config.get(ofInetSocketAddress(), "client.socketAddress");
+
+		StringBuilder sb = new StringBuilder("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n");
+		for (int i = 0; i < extraHeaders; i++) {
+			sb.append(HEADERS[i]).append(": ").append(headerValue(i)).append("\r\n");
+		}
+		this.pipelinedRequest = encodeAscii(sb.append("\r\n").toString());
+	}
+
+	private static String headerValue(int i) {
+		return "value-of-header-" + i;
 	}
 
 	@Override
@@ -114,9 +156,18 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + "ms; RPS : " + rps);
 		}
 
-		System.out.println("Start benchmarking GET Request");
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		long serverThreadId = serverEventloop.getEventloopThread().getId();
+		long allocatedAllRounds = 0;
+
+		System.out.println(pipelineDepth == 0 ?
+				"Start benchmarking GET Request" :
+				"Start benchmarking pipelined GET Requests, pipeline depth: " + pipelineDepth);
 		for (int i = 0; i < measureRounds; i++) {
+			long allocatedBefore = threadMXBean.getThreadAllocatedBytes(serverThreadId);
 			long roundTime = round();
+			long allocated = threadMXBean.getThreadAllocatedBytes(serverThreadId) - allocatedBefore;
+			allocatedAllRounds += allocated;
 			timeAllRounds += roundTime;
 
 			if (bestTime == -1 || roundTime < bestTime) {
@@ -128,17 +179,20 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 			}
 
 			long rps = totalRequests * 1000L / roundTime;
-			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; RPS : " + rps);
+			System.out.println("Round: " + (i + 1) + "; Round time: " + roundTime + " ms; RPS : " + rps +
+					"; Server allocation rate: " + allocated * 1000L / roundTime / (1 << 20) + " MB/s, " +
+					allocated / totalRequests + " bytes per request");
 		}
 
 		double avgTime = (double) timeAllRounds / measureRounds;
 		long requestsPerSecond = (long) (totalRequests / avgTime * 1000);
 		System.out.println("Time: " + timeAllRounds + "ms; Average time: " + avgTime + " ms; Best time: " +
-				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + requestsPerSecond);
+				bestTime + "ms; Worst time: " + worstTime + "ms; Requests per second: " + requestsPerSecond +
+				"; Server allocated bytes per request: " + allocatedAllRounds / ((long) totalRequests * measureRounds));
 	}
 
 	private long round() throws Exception {
-		return clientEventloop.submit(this::roundGet).get();
+		return clientEventloop.submit(pipelineDepth == 0 ? this::roundGet : this::roundPipelined).get();
 	}
 
 	int sent;
@@ -183,7 +237,51 @@ public class HttpServerWorkloadBenchmark extends Launcher {
 	}
 
 	private void doGet(Callback<HttpResponse> callback) {
-		client.request(HttpRequest.get(address)).whenComplete(callback);
+		HttpRequest request = HttpRequest.get(address);
+		for (int i = 0; i < extraHeaders; i++) {
+			request.addHeader(HEADERS[i], headerValue(i));
+		}
+		client.request(request).whenComplete(callback);
+	}
+
+	private Promise<Long> roundPipelined() {
+		long start = System.currentTimeMillis();
+		int requestsPerConnection = totalRequests / pipelinedConnections;
+		return Promises.all(IntStream.range(0, pipelinedConnections)
+				.mapToObj($ -> AsyncTcpSocketNio.connect(socketAddress)
+						.then(socket -> doPipelinedGets(socket, requestsPerConnection)
+								.whenComplete(socket::close))))
+				.map($ -> System.currentTimeMillis() - start);
+	}
+
+	private Promise<Void> doPipelinedGets(AsyncTcpSocket socket, int requests) {
+		return Promises.loop(requests,
+				remaining -> remaining != 0,
+				remaining -> {
+					int batch = min(pipelineDepth, remaining);
+					ByteBuf buf = ByteBufPool.allocate(batch * pipelinedRequest.length);
+					for (int i = 0; i < batch; i++) {
+						buf.put(pipelinedRequest);
+					}
+					return socket.write(buf)
+							.then(() -> readPipelinedResponses(socket, batch))
+							.map($ -> remaining - batch);
+				})
+				.toVoid();
+	}
+
+	// every response ends with a "Response!!" body, and there are no other '!' characters in it
+	private Promise<Void> readPipelinedResponses(AsyncTcpSocket socket, int responses) {
+		int[] marks = {responses * 2};
+		return Promises.repeat(() -> socket.read()
+				.then(buf -> {
+					if (buf == null) return Promise.ofException(new FailedRequestException());
+					for (int i = buf.head(); i < buf.tail(); i++) {
+						if (buf.at(i) == '!') marks[0]--;
+					}
+					buf.recycle();
+					return Promise.of(marks[0] != 0);
+				}));
 	}
 
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,96 @@
+package io.activej.promise;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.trace.Trace;
+import io.activej.eventloop.trace.Tracing;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures overhead of tracing on promise chains and eventloop tasks.
+ * <p>
+ * Benchmarks are run with tracing disabled, which is a default, and then with tracing enabled,
+ * where {@code traced*} benchmarks run within a trace.
+ */
+@State(Scope.Thread)
+public class TracingBenchmark {
+	private static final int TASKS = 1000;
+
+	private Eventloop eventloop;
+
+	@Setup
+	public void setup() {
+		eventloop = Eventloop.create().withCurrentThread();
+	}
+
+	@Benchmark
+	public void promiseChain(Blackhole blackhole) {
+		SettablePromise<Integer> promise = new SettablePromise<>();
+		promise.map(a -> a + a)
+				.then(a -> Promise.of(a + 1))
+				.whenComplete((result, e) -> blackhole.consume(result));
+		promise.set(10);
+	}
+
+	@Benchmark
+	public void tracedPromiseChain(Blackhole blackhole) {
+		Trace trace = Tracing.startTrace("promiseChain");
+		Trace previousTrace = Tracing.setCurrentTrace(trace);
+		try {
+			promiseChain(blackhole);
+		} finally {
+			Tracing.setCurrentTrace(previousTrace);
+			if (trace != null) trace.finish();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public void eventloopTasks(Blackhole blackhole) {
+		for (int i = 0; i < TASKS; i++) {
+			int value = i;
+			eventloop.post(() -> blackhole.consume(value));
+		}
+		eventloop.run();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public void tracedEventloopTasks(Blackhole blackhole) {
+		Trace trace = Tracing.startTrace("eventloopTasks");
+		Trace previousTrace = Tracing.setCurrentTrace(trace);
+		try {
+			eventloopTasks(blackhole);
+		} finally {
+			Tracing.setCurrentTrace(previousTrace);
+			if (trace != null) trace.finish();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder opt = new OptionsBuilder()
+				.include(TracingBenchmark.class.getSimpleName())
+				.forks(2)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(1L))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2L))
+				.mode(Mode.AverageTime)
+				.timeUnit(TimeUnit.NANOSECONDS);
+
+		new Runner(opt.build()).run();
+		new Runner(opt
+				.jvmArgsAppend(
+						"-Dio.activej.eventloop.trace.Tracing.enabled=true",
+						"-Dio.activej.eventloop.trace.TraceRecorder.samplingRate=1")
+				.build())
+				.run();
+	}
+}
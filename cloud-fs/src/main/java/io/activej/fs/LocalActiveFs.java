@@ -204,7 +204,7 @@ public final class LocalActiveFs implements ActiveFs, EventloopService, Eventloo
 					}
 					return channel;
 				}))
-				.map(channel -> ChannelFileReader.create(executor, channel)
+				.<ChannelSupplier<ByteBuf>>map(channel -> ChannelFileReader.create(executor, channel)
 						.withBufferSize(readerBufferSize)
 						.withOffset(offset)
 						.withLimit(limit)
@@ -18,6 +18,7 @@ package io.activej.fs.http;
 
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
 import io.activej.common.exception.UncheckedException;
 import io.activej.common.tuple.Tuple1;
 import io.activej.csp.ChannelConsumer;
@@ -154,6 +155,33 @@ public final class ActiveFsServlet {
 				.mapEx(errorHandler(Function.identity()));
 	}
 
+	/**
+	 * Creates a servlet which streams each file of a multipart request straight into
+	 * {@link ActiveFs#upload(String)}, under the name of the file, see {@link #multipartUpload(ActiveFs, MemSize, BiFunction)}
+	 */
+	public static AsyncServlet multipartUpload(ActiveFs fs, MemSize maxFileSize) {
+		return multipartUpload(fs, maxFileSize, ($, fileName) -> fileName);
+	}
+
+	/**
+	 * Creates a servlet which streams each file of a multipart request straight into
+	 * {@link ActiveFs#upload(String)}, so that files are never buffered in memory
+	 * and the request body is read only as fast as the files are written.
+	 * <p>
+	 * A file which exceeds the given size (zero means no limit) is not uploaded
+	 * and the request fails with 413 HTTP error. Other fields of the request are skipped.
+	 *
+	 * @param nameMapper maps field name and file name of a part to the name of uploaded file
+	 */
+	public static AsyncServlet multipartUpload(ActiveFs fs, MemSize maxFileSize, BiFunction<String, String, String> nameMapper) {
+		return request -> request.handleMultipart(
+				MultipartDataHandler.files((fieldName, fileName) -> fs.upload(nameMapper.apply(fieldName, fileName))),
+				maxFileSize)
+				.thenEx(($, e) -> e instanceof HttpException ?
+						Promise.<HttpResponse>ofException(e) :
+						Promise.of(ActiveFsServlet.<Void>errorHandler().apply($, e)));
+	}
+
 	private static String decodePath(HttpRequest request) {
 		String value = UrlParser.urlDecode(request.getRelativePath());
 		if (value == null) {
@@ -152,7 +152,7 @@ public final class ActiveFsServer extends AbstractServer<ActiveFsServer> {
 						return fs.download(name, offset, fixedLimit)
 								.then(supplier -> messaging.send(new DownloadSize(fixedLimit))
 										.whenException(supplier::closeEx)
-										.then(() -> supplier.streamTo(messaging.sendBinaryStream())))
+										.then(() -> messaging.sendBinaryStream(supplier)))
 								.whenComplete(toLogger(logger, "sending data", meta, offset, fixedLimit, this));
 					})
 					.whenComplete(downloadPromise.recordStats());
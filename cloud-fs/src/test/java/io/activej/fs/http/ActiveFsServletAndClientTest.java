@@ -2,6 +2,7 @@ package io.activej.fs.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.MemSize;
 import io.activej.common.exception.ExpectedException;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
@@ -9,8 +10,7 @@ import io.activej.csp.ChannelSuppliers;
 import io.activej.fs.ActiveFs;
 import io.activej.fs.FileMetadata;
 import io.activej.fs.LocalActiveFs;
-import io.activej.http.AsyncServlet;
-import io.activej.http.StubHttpClient;
+import io.activej.http.*;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.Before;
@@ -22,6 +22,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,7 @@ import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.fs.ActiveFs.BAD_PATH;
 import static io.activej.fs.ActiveFs.FILE_NOT_FOUND;
 import static io.activej.fs.util.Utils.initTempDir;
+import static io.activej.http.HttpHeaders.CONTENT_TYPE;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -63,6 +65,7 @@ public final class ActiveFsServletAndClientTest {
 
 	private Path storage;
 
+	private LocalActiveFs localFs;
 	private ActiveFs fs;
 
 	@Before
@@ -70,7 +73,8 @@ public final class ActiveFsServletAndClientTest {
 		storage = tmpFolder.newFolder("storage").toPath();
 
 		initTempDir(storage);
-		AsyncServlet servlet = ActiveFsServlet.create(LocalActiveFs.create(getCurrentEventloop(), newSingleThreadExecutor(), storage));
+		localFs = LocalActiveFs.create(getCurrentEventloop(), newSingleThreadExecutor(), storage);
+		AsyncServlet servlet = ActiveFsServlet.create(localFs);
 		fs = HttpActiveFs.create("http://localhost", StubHttpClient.of(servlet));
 
 		initializeDirs();
@@ -164,6 +168,55 @@ public final class ActiveFsServletAndClientTest {
 		assertSame(FILE_NOT_FOUND, exception);
 	}
 
+	@Test
+	public void multipartUpload() throws IOException {
+		AsyncServlet servlet = ActiveFsServlet.multipartUpload(localFs, MemSize.bytes(100),
+				(fieldName, fileName) -> "multipart/" + fieldName + "-" + fileName);
+
+		HttpResponse response = await(servlet.serveAsync(multipartRequest(
+				"first.txt", "first file data",
+				"second.txt", "second file data")));
+
+		assertEquals(200, response.getCode());
+		assertEquals("first file data", new String(Files.readAllBytes(storage.resolve("multipart/file1-first.txt")), UTF_8));
+		assertEquals("second file data", new String(Files.readAllBytes(storage.resolve("multipart/file2-second.txt")), UTF_8));
+	}
+
+	@Test
+	public void multipartUploadExceedsMaxFileSize() {
+		AsyncServlet servlet = ActiveFsServlet.multipartUpload(localFs, MemSize.bytes(10));
+
+		Throwable exception = awaitException(servlet.serveAsync(multipartRequest(
+				"small.txt", "small",
+				"large.txt", "larger than allowed")));
+
+		assertTrue(exception instanceof HttpException);
+		assertEquals(413, ((HttpException) exception).getCode());
+		assertTrue(Files.exists(storage.resolve("small.txt")));
+		assertFalse(Files.exists(storage.resolve("large.txt")));
+	}
+
+	private static HttpRequest multipartRequest(String... namesAndContents) {
+		String boundary = "test-boundary";
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < namesAndContents.length; i += 2) {
+			body.append("--").append(boundary).append("\r\n")
+					.append("Content-Disposition: form-data; name=\"file").append(i / 2 + 1)
+					.append("\"; filename=\"").append(namesAndContents[i]).append("\"\r\n\r\n")
+					.append(namesAndContents[i + 1]).append("\r\n");
+		}
+		body.append("--").append(boundary).append("--\r\n");
+
+		// body is split into small chunks, so that files are streamed in several parts
+		List<ByteBuf> chunks = new ArrayList<>();
+		for (int i = 0; i < body.length(); i += 7) {
+			chunks.add(wrapUtf8(body.substring(i, Math.min(i + 7, body.length()))));
+		}
+		return HttpRequest.post("http://localhost/upload")
+				.withHeader(CONTENT_TYPE, HttpHeaderValue.of("multipart/form-data; boundary=" + boundary))
+				.withBodyStream(ChannelSupplier.ofIterable(chunks));
+	}
+
 	private void clearDirectory(Path dir) throws IOException {
 		for (Iterator<Path> iterator = Files.list(dir).iterator(); iterator.hasNext(); ) {
 			Path file = iterator.next();
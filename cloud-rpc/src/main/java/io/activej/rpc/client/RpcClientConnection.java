@@ -27,6 +27,7 @@ import io.activej.jmx.api.JmxRefreshable;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
+import io.activej.promise.SettablePromise;
 import io.activej.rpc.client.jmx.RpcRequestStats;
 import io.activej.rpc.client.sender.RpcSender;
 import io.activej.rpc.protocol.*;
@@ -113,6 +114,7 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 
 		if (!overloaded || request instanceof RpcMandatoryData) {
 			cookie++;
+			setCancelHandler(cb, cookie);
 
 			// jmx
 			if (monitoring) {
@@ -167,6 +169,7 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 
 		if (!overloaded || request instanceof RpcMandatoryData) {
 			cookie++;
+			setCancelHandler(cb, cookie);
 
 			// jmx
 			if (monitoring) {
@@ -181,6 +184,23 @@ public final class RpcClientConnection implements RpcStream.Listener, RpcSender,
 		}
 	}
 
+	// a response to a cancelled request is ignored, as the request can not be cancelled on the server
+	private void setCancelHandler(@NotNull Callback<?> cb, int cookie) {
+		if (!(cb instanceof SettablePromise)) return;
+		((SettablePromise<?>) cb).setCancelHandler(e -> {
+			if (activeRequests.remove(cookie) == null) return;
+
+			// jmx
+			connectionStats.getCancelledRequests().recordEvent();
+			rpcClient.getGeneralRequestsStats().getCancelledRequests().recordEvent();
+			eventloop.recordCancellation(this);
+
+			if (serverClosing && activeRequests.size() == 0) {
+				shutdown();
+			}
+		});
+	}
+
 	private <I, O> Callback<O> doJmxMonitoring(I request, int timeout, @NotNull Callback<O> cb) {
 		RpcRequestStats requestStatsPerClass = rpcClient.ensureRequestStatsPerClass(request.getClass());
 		requestStatsPerClass.getTotalRequests().recordEvent();
@@ -31,6 +31,7 @@ public final class RpcRequestStats implements JmxRefreshable {
 	private final EventStats failedRequests;
 	private final EventStats rejectedRequests;
 	private final EventStats expiredRequests;
+	private final EventStats cancelledRequests;
 	private final ValueStats responseTime;
 	private final ValueStats overdues;
 	private final ExceptionStats serverExceptions;
@@ -40,6 +41,7 @@ public final class RpcRequestStats implements JmxRefreshable {
 		failedRequests = EventStats.create(smoothingWindow);
 		rejectedRequests = EventStats.create(smoothingWindow);
 		expiredRequests = EventStats.create(smoothingWindow);
+		cancelledRequests = EventStats.create(smoothingWindow);
 		responseTime = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withUnit("milliseconds");
 		overdues = ValueStats.create(smoothingWindow).withHistogram(POWERS_OF_TWO).withRate().withUnit("milliseconds");
 		serverExceptions = ExceptionStats.create();
@@ -55,6 +57,7 @@ public final class RpcRequestStats implements JmxRefreshable {
 		failedRequests.refresh(timestamp);
 		rejectedRequests.refresh(timestamp);
 		expiredRequests.refresh(timestamp);
+		cancelledRequests.refresh(timestamp);
 		responseTime.refresh(timestamp);
 		overdues.refresh(timestamp);
 	}
@@ -79,6 +82,11 @@ public final class RpcRequestStats implements JmxRefreshable {
 		return expiredRequests;
 	}
 
+	@JmxAttribute(extraSubAttributes = "totalCount")
+	public EventStats getCancelledRequests() {
+		return cancelledRequests;
+	}
+
 	@JmxAttribute(
 			description = "delay between successful or failed request/response (in milliseconds)",
 			extraSubAttributes = "histogram"
@@ -21,9 +21,12 @@ import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.ref.WeakReference;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 import static io.activej.common.Checks.checkArgument;
 import static java.lang.Integer.numberOfLeadingZeros;
@@ -86,6 +89,29 @@ public final class ByteBufPool {
 	 */
 	static final boolean CLEAR_ON_RECYCLE = ApplicationSettings.getBoolean(ByteBufPool.class, "clearOnRecycle", false);
 
+	/**
+	 * Enables a per-thread cache (a 'magazine') of ByteBufs in front of each of the slabs
+	 * if set at value {@code true}. Allocations and recycles of a thread are then served from
+	 * a small bounded local stack which is refilled from and spilled to the shared slabs in batches,
+	 * reducing contention when many eventloop threads use the pool concurrently.
+	 * By default set at value {@code false}.
+	 */
+	static final boolean USE_THREAD_CACHE = ApplicationSettings.getBoolean(ByteBufPool.class, "threadCache", false);
+
+	/**
+	 * Defines the maximum number of ByteBufs per slab stored in a thread cache.
+	 * By default set at value 32.
+	 */
+	static final int THREAD_CACHE_CAPACITY = ApplicationSettings.getInt(ByteBufPool.class, "threadCacheCapacity", 32);
+
+	/**
+	 * Defines the maximum size of ByteBufs that are stored in a thread cache,
+	 * bigger ByteBufs always go directly to the shared slabs.
+	 * By default set at value 256Kb.
+	 */
+	static final int THREAD_CACHE_MAX_SIZE = ApplicationSettings.getMemSize(ByteBufPool.class, "threadCacheMaxSize", MemSize.kilobytes(256)).toInt();
+	private static final int THREAD_CACHE_MAX_INDEX = 32 - numberOfLeadingZeros(THREAD_CACHE_MAX_SIZE - 1);
+
 	static final boolean USE_WATCHDOG = ApplicationSettings.getBoolean(ByteBufPool.class, "useWatchdog", false);
 	static final Duration WATCHDOG_INTERVAL = ApplicationSettings.getDuration(ByteBufPool.class, "watchdogInterval", Duration.ofSeconds(2));
 	static final Duration WATCHDOG_SMOOTHING_WINDOW = ApplicationSettings.getDuration(ByteBufPool.class, "watchdogSmoothingWindow", Duration.ofSeconds(10));
@@ -162,6 +188,32 @@ public final class ByteBufPool {
 	private static final Map<ByteBuf, Entry> allocateRegistry = Collections.synchronizedMap(new WeakHashMap<>());
 	private static final Map<ByteBuf, Entry> recycleRegistry = Collections.synchronizedMap(new WeakHashMap<>());
 
+	/**
+	 * Caches of all threads, a cache is kept here after its thread is dead,
+	 * until its ByteBufs are flushed back to the slabs, so that they stay accounted for
+	 */
+	private static final Set<ThreadCacheRef> threadCacheRegistry = Collections.synchronizedSet(new HashSet<>());
+	private static final ThreadLocal<ByteBufThreadCache> threadCache = ThreadLocal.withInitial(() -> {
+		flushDeadThreadCaches();
+		ByteBufThreadCache cache = new ByteBufThreadCache(NUMBER_OF_SLABS, THREAD_CACHE_CAPACITY);
+		threadCacheRegistry.add(new ThreadCacheRef(currentThread(), cache));
+		return cache;
+	});
+
+	private static final class ThreadCacheRef extends WeakReference<Thread> {
+		final ByteBufThreadCache cache;
+
+		ThreadCacheRef(Thread thread, ByteBufThreadCache cache) {
+			super(thread);
+			this.cache = cache;
+		}
+
+		boolean isDead() {
+			Thread thread = get();
+			return thread == null || !thread.isAlive();
+		}
+	}
+
 	static {
 		slabs = new ByteBufConcurrentQueue[NUMBER_OF_SLABS];
 		slabStats = new SlabStats[NUMBER_OF_SLABS];
@@ -178,6 +230,7 @@ public final class ByteBufPool {
 			}
 			Thread watchdogThread = new Thread(() -> {
 				while (true) {
+					if (USE_THREAD_CACHE) flushDeadThreadCaches();
 					updateStats();
 					evict();
 					try {
@@ -219,7 +272,9 @@ public final class ByteBufPool {
 		}
 		int index = 32 - numberOfLeadingZeros(size - 1); // index==32 for size==0
 		ByteBufConcurrentQueue queue = slabs[index];
-		ByteBuf buf = queue.poll();
+		ByteBuf buf = USE_THREAD_CACHE && index <= THREAD_CACHE_MAX_INDEX ?
+				threadCache.get().poll(index, queue) :
+				queue.poll();
 		if (buf != null) {
 			if (ByteBuf.CHECK_RECYCLE && buf.refs != -1) throw onByteBufRecycled(buf);
 			buf.tail = 0;
@@ -310,6 +365,10 @@ public final class ByteBufPool {
 			recycleRegistry.put(buf, buildRegistryEntry(buf));
 			allocateRegistry.remove(buf);
 		}
+		if (USE_THREAD_CACHE && slab <= THREAD_CACHE_MAX_INDEX) {
+			threadCache.get().offer(slab, buf, queue);
+			return;
+		}
 		queue.offer(buf);
 	}
 
@@ -404,6 +463,9 @@ public final class ByteBufPool {
 
 	/**
 	 * Clears all of the slabs and stats.
+	 * <p>
+	 * If thread caches are enabled, caches of all threads are cleared, so this method
+	 * should only be called while other threads do not use the pool (e.g. between tests).
 	 */
 	public static void clear() {
 		for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; i++) {
@@ -412,10 +474,44 @@ public final class ByteBufPool {
 			reused[i].set(0);
 			if (USE_WATCHDOG) slabStats[i].clear();
 		}
+		if (USE_THREAD_CACHE) {
+			threadCacheRegistry.removeIf(ThreadCacheRef::isDead);
+			forEachThreadCache(cache -> {
+				cache.clear();
+				cache.clearStats();
+			});
+		}
 		allocateRegistry.clear();
 		recycleRegistry.clear();
 	}
 
+	/**
+	 * Returns ByteBufs of caches of dead threads back to the slabs
+	 */
+	static void flushDeadThreadCaches() {
+		synchronized (threadCacheRegistry) {
+			for (Iterator<ThreadCacheRef> it = threadCacheRegistry.iterator(); it.hasNext(); ) {
+				ThreadCacheRef ref = it.next();
+				if (ref.isDead()) {
+					ref.cache.flush(slabs);
+					it.remove();
+				}
+			}
+		}
+	}
+
+	private static void forEachThreadCache(Consumer<ByteBufThreadCache> action) {
+		synchronized (threadCacheRegistry) {
+			threadCacheRegistry.forEach(ref -> action.accept(ref.cache));
+		}
+	}
+
+	private static long sumThreadCaches(ToLongFunction<ByteBufThreadCache> fn) {
+		synchronized (threadCacheRegistry) {
+			return threadCacheRegistry.stream().mapToLong(ref -> fn.applyAsLong(ref.cache)).sum();
+		}
+	}
+
 	@NotNull
 	public static ByteBufPoolStats getStats() {
 		return stats;
@@ -440,6 +536,18 @@ public final class ByteBufPool {
 
 		List<Entry> queryUnrecycledBufs(int limit);
 
+		int getThreadCacheItems();
+
+		long getThreadCacheHits();
+
+		long getThreadCacheMisses();
+
+		double getThreadCacheHitRate();
+
+		long getThreadCacheRefills();
+
+		long getThreadCacheSpills();
+
 		void clear();
 
 		void clearRegistry();
@@ -473,14 +581,14 @@ public final class ByteBufPool {
 
 		@Override
 		public int getPoolItems() {
-			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum();
+			return stream(slabs).mapToInt(ByteBufConcurrentQueue::size).sum() + getThreadCacheItems();
 		}
 
 		public String getPoolItemsString() {
 			StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < ByteBufPool.NUMBER_OF_SLABS; ++i) {
 				int createdItems = created[i].get();
-				int poolItems = slabs[i].size();
+				int poolItems = slabs[i].size() + threadCacheSize(i);
 				if (createdItems != poolItems) {
 					sb.append(String.format("Slab %d (%d) ", i, (1 << i)))
 							.append(" created: ").append(createdItems)
@@ -495,7 +603,7 @@ public final class ByteBufPool {
 			long result = 0;
 			for (int i = 0; i < slabs.length - 1; i++) {
 				long slabSize = 1L << i;
-				result += slabSize * slabs[i].size();
+				result += slabSize * (slabs[i].size() + threadCacheSize(i));
 			}
 			return result;
 		}
@@ -525,6 +633,49 @@ public final class ByteBufPool {
 			return totalEvicted;
 		}
 
+		@Override
+		public int getThreadCacheItems() {
+			if (!USE_THREAD_CACHE) return 0;
+			return (int) sumThreadCaches(ByteBufThreadCache::size);
+		}
+
+		@Override
+		public long getThreadCacheHits() {
+			if (!USE_THREAD_CACHE) return -1;
+			return sumThreadCaches(cache -> cache.hits);
+		}
+
+		@Override
+		public long getThreadCacheMisses() {
+			if (!USE_THREAD_CACHE) return -1;
+			return sumThreadCaches(cache -> cache.misses);
+		}
+
+		@Override
+		public double getThreadCacheHitRate() {
+			if (!USE_THREAD_CACHE) return -1;
+			long hits = getThreadCacheHits();
+			long total = hits + getThreadCacheMisses();
+			return total == 0 ? 0 : (double) hits / total;
+		}
+
+		@Override
+		public long getThreadCacheRefills() {
+			if (!USE_THREAD_CACHE) return -1;
+			return sumThreadCaches(cache -> cache.refills);
+		}
+
+		@Override
+		public long getThreadCacheSpills() {
+			if (!USE_THREAD_CACHE) return -1;
+			return sumThreadCaches(cache -> cache.spills);
+		}
+
+		private static int threadCacheSize(int slab) {
+			if (!USE_THREAD_CACHE) return 0;
+			return (int) sumThreadCaches(cache -> cache.size(slab));
+		}
+
 		public Map<ByteBuf, Entry> getUnrecycledBufs() {
 			return new HashMap<>(allocateRegistry);
 		}
@@ -546,7 +697,7 @@ public final class ByteBufPool {
 				int idx = (i + 32) % slabs.length;
 				long slabSize = idx == 32 ? 0 : 1L << idx;
 				ByteBufConcurrentQueue slab = slabs[idx];
-				int count = slab.size();
+				int count = slab.size() + threadCacheSize(idx);
 				String slabInfo = slabSize + "," +
 						(STATS ? created[idx] : "-") + "," +
 						(STATS ? reused[idx] : "-") + "," +
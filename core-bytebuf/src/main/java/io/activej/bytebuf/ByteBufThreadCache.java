@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.bytebuf;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A per-thread 'magazine' layer that sits in front of the global {@link ByteBufPool} slabs.
+ * <p>
+ * For each slab it keeps a small bounded stack of {@link ByteBuf ByteBufs}, so that most
+ * of allocations and recycles of a thread (e.g. an eventloop thread) do not touch
+ * shared {@link ByteBufConcurrentQueue} at all. When a local stack is empty, it is refilled
+ * from the global slab with a batch of ByteBufs, when it is full, a batch of ByteBufs
+ * is spilled back to the global slab.
+ * <p>
+ * An instance of this class must only be accessed by its owner thread,
+ * except for the stats getters, which may return slightly stale values.
+ * Once the owner thread is dead, its cached ByteBufs are returned
+ * to the global slabs by {@link #flush(ByteBufConcurrentQueue[])}.
+ */
+final class ByteBufThreadCache {
+	private final ByteBuf[][] stacks;
+	private final int[] sizes;
+	private final int capacity;
+	private final int batchSize;
+
+	long hits;
+	long misses;
+	long refills;
+	long spills;
+
+	ByteBufThreadCache(int slabs, int capacity) {
+		this.stacks = new ByteBuf[slabs][];
+		this.sizes = new int[slabs];
+		this.capacity = capacity;
+		this.batchSize = Math.max(1, capacity / 2);
+	}
+
+	@Nullable
+	ByteBuf poll(int index, @NotNull ByteBufConcurrentQueue slab) {
+		int size = sizes[index];
+		if (size != 0) {
+			hits++;
+			ByteBuf[] stack = stacks[index];
+			ByteBuf buf = stack[--size];
+			stack[size] = null;
+			sizes[index] = size;
+			return buf;
+		}
+		misses++;
+		ByteBuf buf = slab.poll();
+		if (buf == null) return null;
+		refill(index, slab);
+		return buf;
+	}
+
+	private void refill(int index, @NotNull ByteBufConcurrentQueue slab) {
+		ByteBuf[] stack = ensureStack(index);
+		int size = 0;
+		while (size < batchSize - 1) {
+			ByteBuf buf = slab.poll();
+			if (buf == null) break;
+			stack[size++] = buf;
+		}
+		if (size != 0) refills++;
+		sizes[index] = size;
+	}
+
+	void offer(int index, @NotNull ByteBuf buf, @NotNull ByteBufConcurrentQueue slab) {
+		ByteBuf[] stack = ensureStack(index);
+		int size = sizes[index];
+		if (size == capacity) {
+			spills++;
+			for (int i = 0; i < batchSize; i++) {
+				ByteBuf spilled = stack[--size];
+				stack[size] = null;
+				slab.offer(spilled);
+			}
+		}
+		stack[size++] = buf;
+		sizes[index] = size;
+	}
+
+	private ByteBuf[] ensureStack(int index) {
+		ByteBuf[] stack = stacks[index];
+		if (stack == null) {
+			stack = new ByteBuf[capacity];
+			stacks[index] = stack;
+		}
+		return stack;
+	}
+
+	/**
+	 * Moves all of the cached ByteBufs to the given global slabs
+	 */
+	void flush(@NotNull ByteBufConcurrentQueue[] slabs) {
+		for (int i = 0; i < stacks.length; i++) {
+			ByteBuf[] stack = stacks[i];
+			if (stack == null) continue;
+			for (int j = 0; j < sizes[i]; j++) {
+				slabs[i].offer(stack[j]);
+				stack[j] = null;
+			}
+			sizes[i] = 0;
+		}
+	}
+
+	/**
+	 * Discards all of the cached ByteBufs
+	 */
+	void clear() {
+		for (int i = 0; i < stacks.length; i++) {
+			ByteBuf[] stack = stacks[i];
+			if (stack == null) continue;
+			Arrays.fill(stack, null);
+			sizes[i] = 0;
+		}
+	}
+
+	void clearStats() {
+		hits = misses = refills = spills = 0;
+	}
+
+	int size(int index) {
+		return sizes[index];
+	}
+
+	int size() {
+		int result = 0;
+		for (int size : sizes) {
+			result += size;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "ByteBufThreadCache{" +
+				"size=" + size() +
+				", hits=" + hits +
+				", misses=" + misses +
+				", refills=" + refills +
+				", spills=" + spills +
+				'}';
+	}
+}
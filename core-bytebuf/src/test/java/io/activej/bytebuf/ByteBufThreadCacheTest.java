@@ -0,0 +1,86 @@
+package io.activej.bytebuf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteBufThreadCacheTest {
+	private static final int SLAB = 4;
+	private static final int CAPACITY = 8;
+
+	@Test
+	public void testLocalHits() {
+		ByteBufConcurrentQueue slab = new ByteBufConcurrentQueue();
+		ByteBufThreadCache cache = new ByteBufThreadCache(33, CAPACITY);
+
+		assertNull(cache.poll(SLAB, slab));
+		assertEquals(1, cache.misses);
+
+		ByteBuf buf = ByteBuf.wrapForWriting(new byte[16]);
+		cache.offer(SLAB, buf, slab);
+		assertEquals(1, cache.size(SLAB));
+		assertTrue(slab.isEmpty());
+
+		assertSame(buf, cache.poll(SLAB, slab));
+		assertEquals(1, cache.hits);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testSpillAndRefill() {
+		ByteBufConcurrentQueue slab = new ByteBufConcurrentQueue();
+		ByteBufThreadCache cache = new ByteBufThreadCache(33, CAPACITY);
+
+		for (int i = 0; i < CAPACITY + 1; i++) {
+			cache.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]), slab);
+		}
+		assertEquals(1, cache.spills);
+		assertEquals(CAPACITY / 2, slab.size());
+		assertEquals(CAPACITY / 2 + 1, cache.size(SLAB));
+
+		for (int i = 0; i < CAPACITY / 2 + 1; i++) {
+			assertNotNull(cache.poll(SLAB, slab));
+		}
+		assertEquals(0, cache.size(SLAB));
+
+		assertNotNull(cache.poll(SLAB, slab));
+		assertEquals(1, cache.refills);
+		assertEquals(CAPACITY / 2 - 1, cache.size(SLAB));
+		assertTrue(slab.isEmpty());
+	}
+
+	@Test
+	public void testFlush() {
+		ByteBufConcurrentQueue[] slabs = new ByteBufConcurrentQueue[33];
+		for (int i = 0; i < slabs.length; i++) {
+			slabs[i] = new ByteBufConcurrentQueue();
+		}
+		ByteBufThreadCache cache = new ByteBufThreadCache(33, CAPACITY);
+
+		for (int i = 0; i < 3; i++) {
+			cache.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]), slabs[SLAB]);
+		}
+		cache.offer(SLAB + 1, ByteBuf.wrapForWriting(new byte[32]), slabs[SLAB + 1]);
+		assertTrue(slabs[SLAB].isEmpty());
+
+		cache.flush(slabs);
+		assertEquals(0, cache.size());
+		assertEquals(3, slabs[SLAB].size());
+		assertEquals(1, slabs[SLAB + 1].size());
+	}
+
+	@Test
+	public void testClear() {
+		ByteBufConcurrentQueue slab = new ByteBufConcurrentQueue();
+		ByteBufThreadCache cache = new ByteBufThreadCache(33, CAPACITY);
+
+		for (int i = 0; i < 3; i++) {
+			cache.offer(SLAB, ByteBuf.wrapForWriting(new byte[16]), slab);
+		}
+		assertEquals(3, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.poll(SLAB, slab));
+	}
+}
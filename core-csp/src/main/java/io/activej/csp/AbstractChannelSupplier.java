@@ -23,6 +23,8 @@ import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 import static io.activej.common.Checks.checkState;
 
 public abstract class AbstractChannelSupplier<T> extends AbstractAsyncCloseable implements ChannelSupplier<T> {
@@ -40,10 +42,21 @@ public abstract class AbstractChannelSupplier<T> extends AbstractAsyncCloseable
 
 	protected abstract Promise<T> doGet();
 
+	protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+		return ChannelSuppliers.addToBatch(doGet(), batch);
+	}
+
 	@NotNull
 	@Override
 	public final Promise<T> get() {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
 		return isClosed() ? Promise.ofException(getException()) : doGet();
 	}
+
+	@NotNull
+	@Override
+	public final Promise<Void> getBatch(List<T> batch, int maxItems) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		return isClosed() ? Promise.ofException(getException()) : doGetBatch(batch, maxItems);
+	}
 }
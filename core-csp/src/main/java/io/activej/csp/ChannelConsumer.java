@@ -23,6 +23,7 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.common.exception.UncheckedException;
 import io.activej.csp.dsl.ChannelConsumerTransformer;
 import io.activej.csp.queue.ChannelQueue;
+import io.activej.csp.queue.ChannelRingBuffer;
 import io.activej.csp.queue.ChannelZeroBuffer;
 import io.activej.eventloop.Eventloop;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
@@ -238,6 +239,33 @@ public interface ChannelConsumer<T> extends AsyncCloseable {
 		};
 	}
 
+	/**
+	 * Returns a consumer of items for a consumer, which belongs to another eventloop.
+	 * <p>
+	 * Unlike {@link #ofAnotherEventloop(Eventloop, ChannelConsumer)}, items are passed
+	 * through a {@link ChannelRingBuffer} of a given capacity, so there is no task per item,
+	 * and eventloops signal each other only when the buffer is empty or full.
+	 * The end of stream is acknowledged once it is acknowledged by the consumer of another eventloop.
+	 */
+	static <T> ChannelConsumer<T> ofAnotherEventloop(@NotNull Eventloop anotherEventloop,
+			@NotNull ChannelConsumer<T> anotherEventloopConsumer, int bufferCapacity) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		if (eventloop == anotherEventloop) {
+			return anotherEventloopConsumer;
+		}
+		ChannelRingBuffer<T> buffer = ChannelRingBuffer.create(eventloop, anotherEventloop, bufferCapacity);
+		SettablePromise<Void> acknowledgement = new SettablePromise<>();
+		eventloop.startExternalTask();
+		anotherEventloop.execute(() ->
+				buffer.getSupplier().streamTo(anotherEventloopConsumer)
+						.whenComplete(($, e) -> eventloop.execute(() -> {
+							acknowledgement.accept(null, e);
+							eventloop.completeExternalTask();
+						})));
+		return buffer.getConsumer()
+				.withAcknowledgement(ack -> ack.both(acknowledgement));
+	}
+
 	/**
 	 * Returns a {@code ChannelConsumer} wrapped in {@link Supplier}
 	 * and calls its {@code accept()} when {@code accept()} method is called.
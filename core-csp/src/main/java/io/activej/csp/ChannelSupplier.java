@@ -23,6 +23,7 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.common.exception.UncheckedException;
 import io.activej.csp.dsl.ChannelSupplierTransformer;
 import io.activej.csp.queue.ChannelQueue;
+import io.activej.csp.queue.ChannelRingBuffer;
 import io.activej.eventloop.Eventloop;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
@@ -57,11 +58,34 @@ import static io.activej.common.collection.CollectionUtils.asIterator;
  * <p>
  * If {@link #get()} returns {@link Promise} of {@code null}, it represents end-of-stream
  * and means that no additional data should be queried.
+ * <p>
+ * Items which are available right away may also be taken at once by {@link #getBatch(List, int)},
+ * so that there is no promise per item.
  */
 public interface ChannelSupplier<T> extends AsyncCloseable {
 	@NotNull
 	Promise<T> get();
 
+	/**
+	 * Takes up to {@code maxItems} items into a given list.
+	 * <p>
+	 * Returned promise completes once at least one item is added,
+	 * along with all of the items which are available right away.
+	 * If no items are added, the end of stream is reached. In case
+	 * of exception, no items are added.
+	 * <p>
+	 * Default implementation takes a single item by {@link #get()},
+	 * suppliers which buffer items should override it.
+	 *
+	 * @param batch    a list which items are added to
+	 * @param maxItems a maximal number of items to be added, should be positive
+	 * @return a promise of {@code null} as a marker of completion
+	 */
+	@NotNull
+	default Promise<Void> getBatch(List<T> batch, int maxItems) {
+		return ChannelSuppliers.addToBatch(get(), batch);
+	}
+
 	/**
 	 * @see #of(AsyncSupplier, AsyncCloseable)
 	 */
@@ -244,6 +268,25 @@ public interface ChannelSupplier<T> extends AsyncCloseable {
 		};
 	}
 
+	/**
+	 * Returns a supplier of items of a supplier, which belongs to another eventloop.
+	 * <p>
+	 * Unlike {@link #ofAnotherEventloop(Eventloop, ChannelSupplier)}, items are streamed ahead
+	 * through a {@link ChannelRingBuffer} of a given capacity, so there is no task per item,
+	 * and eventloops signal each other only when the buffer is empty or full.
+	 * The returned supplier should be either read to the end of stream or closed.
+	 */
+	static <T> ChannelSupplier<T> ofAnotherEventloop(@NotNull Eventloop anotherEventloop,
+			@NotNull ChannelSupplier<T> anotherEventloopSupplier, int bufferCapacity) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		if (eventloop == anotherEventloop) {
+			return anotherEventloopSupplier;
+		}
+		ChannelRingBuffer<T> buffer = ChannelRingBuffer.create(anotherEventloop, eventloop, bufferCapacity);
+		anotherEventloop.execute(() -> anotherEventloopSupplier.streamTo(buffer.getConsumer()));
+		return buffer.getSupplier();
+	}
+
 	/**
 	 * Returns a {@code ChannelSupplier} wrapped in {@link Supplier}
 	 * and calls its {@code get()} when {@code get()} method is called.
@@ -493,6 +536,21 @@ public interface ChannelSupplier<T> extends AsyncCloseable {
 						});
 			}
 
+			@Override
+			protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+				int size = batch.size();
+				return ChannelSupplier.this.getBatch(batch, maxItems)
+						.thenEx(($, e) -> {
+							if (e == null) {
+								if (batch.size() != size) return Promise.complete();
+								endOfStream.trySet(null);
+							} else {
+								endOfStream.trySetException(e);
+							}
+							return newEndOfStream;
+						});
+			}
+
 			@Override
 			protected void onClosed(@NotNull Throwable e) {
 				endOfStream.trySetException(e);
@@ -19,6 +19,7 @@ package io.activej.csp;
 import io.activej.async.process.AsyncCloseable;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ApplicationSettings;
 import io.activej.common.MemSize;
 import io.activej.common.api.Recyclable;
 import io.activej.common.collection.CollectionUtils;
@@ -36,7 +37,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -46,6 +49,7 @@ import java.util.function.ToIntFunction;
 
 import static io.activej.common.Utils.nullify;
 import static io.activej.common.api.Recyclable.deepRecycle;
+import static io.activej.common.api.Recyclable.tryRecycle;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static java.lang.Math.min;
 
@@ -55,6 +59,10 @@ import static java.lang.Math.min;
  * ChannelSupplierOfValue, ChannelSupplierEmpty.
  */
 public final class ChannelSuppliers {
+	/**
+	 * A maximal number of items which are taken at once by {@link #streamTo(ChannelSupplier, ChannelConsumer)}
+	 */
+	public static final int BATCH_SIZE = ApplicationSettings.getInt(ChannelSuppliers.class, "batchSize", 256);
 
 	/**
 	 * @see #concat(Iterator)
@@ -213,6 +221,9 @@ public final class ChannelSuppliers {
 	 * Streams data from the {@code supplier} to the {@code consumer} until {@code get()}
 	 * of {@code supplier} returns a promise of {@code null}.
 	 * <p>
+	 * Items are taken from the {@code supplier} in batches of up to {@link #BATCH_SIZE} items,
+	 * see {@link ChannelSupplier#getBatch(List, int)}.
+	 * <p>
 	 * If {@code get} returns a promise of exception or there was an exception while
 	 * {@code consumer} accepted values, a promise of {@code exception} will be
 	 * returned and the process will stop.
@@ -225,49 +236,86 @@ public final class ChannelSuppliers {
 	 */
 	public static <T> Promise<Void> streamTo(ChannelSupplier<T> supplier, ChannelConsumer<T> consumer) {
 		return Promise.ofCallback(cb ->
-				streamToImpl(supplier, consumer, cb));
+				streamToImpl(supplier, consumer, new ArrayList<>(), cb));
 	}
 
-	private static <T> void streamToImpl(ChannelSupplier<T> supplier, ChannelConsumer<T> consumer, SettablePromise<Void> cb) {
-		Promise<T> supplierPromise;
+	private static <T> void streamToImpl(ChannelSupplier<T> supplier, ChannelConsumer<T> consumer, List<T> batch, SettablePromise<Void> cb) {
 		while (true) {
-			supplierPromise = supplier.get();
-			if (!supplierPromise.isResult()) break;
-			T item = supplierPromise.getResult();
-			if (item == null) break;
-			Promise<Void> consumerPromise = consumer.accept(item);
-			if (consumerPromise.isResult()) continue;
-			consumerPromise.whenComplete(($, e) -> {
-				if (e == null) {
-					streamToImpl(supplier, consumer, cb);
-				} else {
-					supplier.closeEx(e);
-					cb.trySetException(e);
-				}
-			});
+			Promise<Void> supplierPromise = supplier.getBatch(batch, BATCH_SIZE);
+			if (supplierPromise.isResult()) {
+				if (acceptBatch(supplier, consumer, batch, 0, cb)) continue;
+				return;
+			}
+			supplierPromise
+					.whenComplete(($, e) -> {
+						if (e == null) {
+							if (acceptBatch(supplier, consumer, batch, 0, cb)) {
+								streamToImpl(supplier, consumer, batch, cb);
+							}
+						} else {
+							consumer.closeEx(e);
+							cb.trySetException(e);
+						}
+					});
 			return;
 		}
-		supplierPromise
-				.whenComplete((item, e1) -> {
-					if (e1 == null) {
-						consumer.accept(item)
-								.whenComplete(($, e2) -> {
-									if (e2 == null) {
-										if (item != null) {
-											streamToImpl(supplier, consumer, cb);
-										} else {
-											cb.trySet(null);
-										}
-									} else {
-										supplier.closeEx(e2);
-										cb.trySetException(e2);
-									}
-								});
-					} else {
-						consumer.closeEx(e1);
-						cb.trySetException(e1);
-					}
-				});
+	}
+
+	/**
+	 * Returns {@code true} if the whole batch has been accepted right away, so the next one may be taken
+	 */
+	private static <T> boolean acceptBatch(ChannelSupplier<T> supplier, ChannelConsumer<T> consumer, List<T> batch, int from, SettablePromise<Void> cb) {
+		if (batch.isEmpty()) {
+			consumer.accept(null)
+					.whenComplete(($, e) -> {
+						if (e == null) {
+							cb.trySet(null);
+						} else {
+							supplier.closeEx(e);
+							cb.trySetException(e);
+						}
+					});
+			return false;
+		}
+		for (int i = from; i < batch.size(); i++) {
+			Promise<Void> consumerPromise = consumer.accept(batch.get(i));
+			if (consumerPromise.isResult()) continue;
+			int next = i + 1;
+			consumerPromise
+					.whenComplete(($, e) -> {
+						if (e == null) {
+							if (acceptBatch(supplier, consumer, batch, next, cb)) {
+								streamToImpl(supplier, consumer, batch, cb);
+							}
+						} else {
+							for (int j = next; j < batch.size(); j++) {
+								tryRecycle(batch.get(j));
+							}
+							batch.clear();
+							supplier.closeEx(e);
+							cb.trySetException(e);
+						}
+					});
+			return false;
+		}
+		batch.clear();
+		return true;
+	}
+
+	/**
+	 * Adds a result of a given promise to a batch, unless it is the end of stream.
+	 * May be used to implement {@link ChannelSupplier#getBatch(List, int)} with a single item.
+	 */
+	public static <T> Promise<Void> addToBatch(Promise<T> promise, List<T> batch) {
+		if (promise.isResult()) {
+			T item = promise.getResult();
+			if (item != null) batch.add(item);
+			return Promise.complete();
+		}
+		return promise.map(item -> {
+			if (item != null) batch.add(item);
+			return null;
+		});
 	}
 
 	public static <T> ChannelSupplier<T> prefetch(int count, ChannelSupplier<T> actual) {
@@ -481,6 +529,14 @@ public final class ChannelSuppliers {
 			return Promise.of(iterator.hasNext() ? iterator.next() : null);
 		}
 
+		@Override
+		protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+			for (int i = 0; i < maxItems && iterator.hasNext(); i++) {
+				batch.add(iterator.next());
+			}
+			return Promise.complete();
+		}
+
 		@Override
 		protected void onCleanup() {
 			deepRecycle(iterator);
@@ -22,11 +22,17 @@ import io.activej.async.process.AsyncCloseable;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.AbstractChannelSupplier;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.ChannelSuppliers;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+
+import static io.activej.common.api.Recyclable.tryRecycle;
 
 public abstract class BinaryChannelSupplier extends AbstractAsyncCloseable {
 	public static final Exception UNEXPECTED_DATA_EXCEPTION = new ParseException(BinaryChannelSupplier.class, "Unexpected data after end-of-stream");
@@ -60,16 +66,20 @@ public abstract class BinaryChannelSupplier extends AbstractAsyncCloseable {
 
 	public static BinaryChannelSupplier of(ChannelSupplier<ByteBuf> input) {
 		return new BinaryChannelSupplier() {
+			private final List<ByteBuf> batch = new ArrayList<>();
+
 			@Override
 			public Promise<Void> needMoreData() {
-				return input.get()
-						.then(buf -> {
-							if (buf != null) {
-								bufs.add(buf);
-								return Promise.complete();
-							} else {
+				return input.getBatch(batch, ChannelSuppliers.BATCH_SIZE)
+						.then(() -> {
+							if (batch.isEmpty()) {
 								return Promise.ofException(UNEXPECTED_END_OF_STREAM_EXCEPTION);
 							}
+							for (ByteBuf buf : batch) {
+								bufs.add(buf);
+							}
+							batch.clear();
+							return Promise.complete();
 						});
 			}
 
@@ -152,15 +162,53 @@ public abstract class BinaryChannelSupplier extends AbstractAsyncCloseable {
 				});
 	}
 
+	/**
+	 * Returns a supplier of items decoded one after another,
+	 * items which are decoded from already received data are taken by
+	 * {@link ChannelSupplier#getBatch(List, int)} at once.
+	 */
 	public final <T> ChannelSupplier<T> parseStream(ByteBufsDecoder<T> decoder) {
-		return ChannelSupplier.of(
-				() -> parse(decoder)
+		return new AbstractChannelSupplier<T>(this) {
+			@Override
+			protected Promise<T> doGet() {
+				return parse(decoder)
 						.thenEx((value, e) -> {
 							if (e == null) return Promise.of(value);
 							if (e == UNEXPECTED_END_OF_STREAM_EXCEPTION && bufs.isEmpty()) return Promise.of(null);
 							return Promise.ofException(e);
-						}),
-				this);
+						});
+			}
+
+			@Override
+			protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+				int size = batch.size();
+				while (true) {
+					try {
+						while (batch.size() - size < maxItems && !bufs.isEmpty()) {
+							T item = decoder.tryDecode(bufs);
+							if (item == null) break;
+							batch.add(item);
+						}
+					} catch (Exception e) {
+						while (batch.size() != size) {
+							tryRecycle(batch.remove(batch.size() - 1));
+						}
+						BinaryChannelSupplier.this.closeEx(e);
+						return Promise.ofException(e);
+					}
+					if (batch.size() != size) return Promise.complete();
+					Promise<Void> moreDataPromise = needMoreData();
+					if (moreDataPromise.isResult()) continue;
+					return moreDataPromise
+							.thenEx(($, e) -> {
+								if (e == null) return doGetBatch(batch, maxItems);
+								BinaryChannelSupplier.this.closeEx(e);
+								if (e == UNEXPECTED_END_OF_STREAM_EXCEPTION && bufs.isEmpty()) return Promise.complete();
+								return Promise.ofException(e);
+							});
+				}
+			}
+		};
 	}
 
 	public Promise<Void> bindTo(BinaryChannelInput input) {
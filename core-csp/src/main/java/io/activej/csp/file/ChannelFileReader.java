@@ -23,8 +23,11 @@ import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.MemSize;
 import io.activej.common.exception.CloseException;
 import io.activej.csp.AbstractChannelSupplier;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,12 +39,17 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.api.Recyclable.tryRecycle;
 import static java.nio.file.StandardOpenOption.READ;
 
 /**
  * This supplier allows you to asynchronously read binary data from a file.
+ * <p>
+ * Instead of being read, the file may also be sent to a socket with zero copy,
+ * see {@link #transferTo(AsyncTcpSocketNio)}.
  */
 public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 	private static final Logger logger = LoggerFactory.getLogger(ChannelFileReader.class);
@@ -57,6 +65,11 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 	private long position = 0;
 	private long limit = Long.MAX_VALUE;
 
+	@Nullable
+	private SettablePromise<Void> endOfStream;
+	@Nullable
+	private Promise<Void> endOfStreamResult;
+
 	private ChannelFileReader(AsyncFileService fileService, FileChannel channel) {
 		this.fileService = fileService;
 		this.channel = channel;
@@ -117,28 +130,87 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 		return this;
 	}
 
+	/**
+	 * Unlike the default implementation, does not wrap this reader,
+	 * so that it still can be {@link #transferTo transferred} to a socket
+	 */
+	@Override
+	public ChannelFileReader withEndOfStream(Function<Promise<Void>, Promise<Void>> fn) {
+		if (endOfStream == null) {
+			endOfStreamResult = endOfStream = new SettablePromise<>();
+		}
+		endOfStreamResult = fn.apply(endOfStreamResult);
+		return this;
+	}
+
 	public long getPosition() {
 		return position;
 	}
 
+	/**
+	 * Returns the number of bytes left to be read, considering the limit
+	 */
+	public long getRemaining() throws IOException {
+		return Math.max(0, Math.min(limit, channel.size() - position));
+	}
+
+	/**
+	 * Sends the rest of the file to the socket with {@link AsyncTcpSocketNio#transferFrom},
+	 * bypassing the file service and heap bufs. This reader is closed afterwards.
+	 */
+	public Promise<Void> transferTo(AsyncTcpSocketNio socket) {
+		if (isClosed()) return Promise.ofException(getException());
+		long count;
+		try {
+			count = getRemaining();
+		} catch (IOException e) {
+			return endOfStream(e);
+		}
+		return socket.transferFrom(channel, position, count)
+				.thenEx(($, e) -> {
+					if (e == null) {
+						position += count;
+						if (limit != Long.MAX_VALUE) {
+							limit -= count;
+						}
+					}
+					return endOfStream(e);
+				});
+	}
+
+	private Promise<Void> endOfStream(@Nullable Throwable e) {
+		if (e == null) {
+			if (endOfStream != null) endOfStream.trySet(null);
+			close();
+		} else {
+			closeEx(e);
+		}
+		if (endOfStreamResult != null) return endOfStreamResult;
+		return e == null ? Promise.complete() : Promise.ofException(getException());
+	}
+
+	@SuppressWarnings("unchecked")
 	@Override
 	protected Promise<ByteBuf> doGet() {
 		if (limit == 0) {
-			close();
-			return Promise.of(null);
+			return (Promise<ByteBuf>) (Promise<?>) endOfStream(null);
 		}
 		ByteBuf buf = ByteBufPool.allocateExact((int) Math.min(bufferSize, limit));
-		return fileService.read(channel, position, buf.array(), buf.head(), buf.writeRemaining()) // reads are synchronized at least on asyncFile, so if produce() is called twice, position wont be broken (i hope)
+		// a cancelled read closes the reader, and a buf which is read anyway is recycled
+		SettablePromise<ByteBuf> cb = new SettablePromise<>();
+		cb.setCancelHandler(e -> {
+			eventloop.recordCancellation(this);
+			closeEx(e);
+		});
+		fileService.read(channel, position, buf.array(), buf.head(), buf.writeRemaining()) // reads are synchronized at least on asyncFile, so if produce() is called twice, position wont be broken (i hope)
 				.thenEx((bytesRead, e) -> {
 					if (e != null) {
 						buf.recycle();
-						closeEx(e);
-						return Promise.ofException(getException());
+						return (Promise<ByteBuf>) (Promise<?>) endOfStream(e);
 					}
 					if (bytesRead == 0) { // no data read, assuming end of file
 						buf.recycle();
-						close();
-						return Promise.of(null);
+						return (Promise<ByteBuf>) (Promise<?>) endOfStream(null);
 					}
 
 					buf.moveTail(Math.toIntExact(bytesRead));
@@ -147,11 +219,18 @@ public final class ChannelFileReader extends AbstractChannelSupplier<ByteBuf> {
 						limit -= bytesRead; // bytesRead is always <= the limit (^ see the min call)
 					}
 					return Promise.of(buf);
+				})
+				.whenComplete((result, e) -> {
+					if (!cb.trySet(result, e)) tryRecycle(result);
 				});
+		return cb;
 	}
 
 	@Override
 	protected void onClosed(@NotNull Throwable e) {
+		if (endOfStream != null) {
+			endOfStream.trySetException(e);
+		}
 		try {
 			if (!channel.isOpen()) {
 				throw new CloseException(ChannelFileReader.class, "File has been closed");
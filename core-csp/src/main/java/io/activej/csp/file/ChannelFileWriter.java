@@ -120,8 +120,7 @@ public final class ChannelFileWriter extends AbstractChannelConsumer<ByteBuf> {
 		long p = position;
 		position += buf.readRemaining();
 
-		byte[] array = buf.getArray();
-		return fileService.write(channel, p, array, 0, array.length)
+		return fileService.write(channel, p, buf.array(), buf.head(), buf.readRemaining())
 				.thenEx(($, e2) -> {
 					if (isClosed()) return Promise.ofException(getException());
 					if (e2 != null) {
@@ -32,4 +32,8 @@ public interface Messaging<I, O> extends AsyncCloseable {
 	ChannelSupplier<ByteBuf> receiveBinaryStream();
 
 	ChannelConsumer<ByteBuf> sendBinaryStream();
+
+	default Promise<Void> sendBinaryStream(ChannelSupplier<ByteBuf> supplier) {
+		return supplier.streamTo(sendBinaryStream());
+	}
 }
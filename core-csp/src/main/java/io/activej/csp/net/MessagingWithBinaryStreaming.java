@@ -23,7 +23,9 @@ import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsCodec;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
@@ -119,6 +121,23 @@ public final class MessagingWithBinaryStreaming<I, O> implements Messaging<I, O>
 						}));
 	}
 
+	/**
+	 * A file is sent with zero copy, unless the socket is wrapped, e.g. by SSL
+	 */
+	@Override
+	public Promise<Void> sendBinaryStream(ChannelSupplier<ByteBuf> supplier) {
+		if (supplier instanceof ChannelFileReader && socket instanceof AsyncTcpSocketNio) {
+			return ((ChannelFileReader) supplier).transferTo((AsyncTcpSocketNio) socket)
+					.then(() -> socket.write(null))
+					.whenResult(() -> {
+						writeDone = true;
+						closeIfDone();
+					})
+					.whenException(this::closeEx);
+		}
+		return supplier.streamTo(sendBinaryStream());
+	}
+
 	@Override
 	public ChannelSupplier<ByteBuf> receiveBinaryStream() {
 		return ChannelSuppliers.concat(ChannelSupplier.ofIterator(bufs.asIterator()), ChannelSupplier.ofSocket(socket))
@@ -17,11 +17,14 @@
 package io.activej.csp.queue;
 
 import io.activej.common.Checks;
+import io.activej.csp.ChannelSuppliers;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.api.Recyclable.tryRecycle;
 import static java.lang.Integer.numberOfLeadingZeros;
@@ -164,9 +167,23 @@ public final class ChannelBuffer<T> implements ChannelQueue<T> {
 	}
 
 	private void doAdd(@Nullable T value) {
+		if (tail - head == elements.length) {
+			doubleCapacity();
+		}
 		elements[(tail++) & (elements.length - 1)] = value;
 	}
 
+	private void doubleCapacity() {
+		int size = tail - head;
+		Object[] newElements = new Object[elements.length << 1];
+		for (int i = 0; i < size; i++) {
+			newElements[i] = elements[(head + i) & (elements.length - 1)];
+		}
+		elements = newElements;
+		head = 0;
+		tail = size;
+	}
+
 	/**
 	 * Returns the head of the buffer if it is not empty,
 	 * otherwise returns {@code null}. Increases the value of {@code head}.
@@ -287,6 +304,48 @@ public final class ChannelBuffer<T> implements ChannelQueue<T> {
 		}
 	}
 
+	/**
+	 * Takes up to {@code maxItems} elements of the buffer at once.
+	 * <p>
+	 * The end of stream is taken only if it is the head of the
+	 * buffer, so that it is never added after other elements.
+	 * If the buffer is empty, waits for an element as {@link #take()} does.
+	 * <p>
+	 * If this buffer is exhausted after this take and
+	 * {@code put} promise is not {@code null}, {@code put}
+	 * will be set {@code null} after the poll.
+	 *
+	 * @param batch    a list which elements are added to
+	 * @param maxItems a maximal number of elements to be added
+	 * @return promise of {@code null} as a marker of completion
+	 */
+	@Override
+	public Promise<Void> takeBatch(List<T> batch, int maxItems) {
+		if (CHECK) checkState(take == null, "Previous take() has not finished yet");
+		if (exception == null) {
+			if (isEmpty()) {
+				return ChannelSuppliers.addToBatch(take(), batch);
+			}
+
+			if (elements[head & (elements.length - 1)] == null) {
+				doPoll();
+			} else {
+				for (int i = 0; i < maxItems && !isEmpty() && elements[head & (elements.length - 1)] != null; i++) {
+					batch.add(doPoll());
+				}
+			}
+
+			if (put != null && isExhausted()) {
+				SettablePromise<Void> put = this.put;
+				this.put = null;
+				put.set(null);
+			}
+			return Promise.complete();
+		} else {
+			return Promise.ofException(exception);
+		}
+	}
+
 	/**
 	 * Closes the buffer if this {@code exception} is not
 	 * {@code null}. Recycles all elements of the buffer and
@@ -307,8 +366,8 @@ public final class ChannelBuffer<T> implements ChannelQueue<T> {
 			take.setException(e);
 			take = null;
 		}
-		for (int i = head; i != tail; i = (i + 1) & (elements.length - 1)) {
-			tryRecycle(elements[i]);
+		for (int i = head; i != tail; i++) {
+			tryRecycle(elements[i & (elements.length - 1)]);
 		}
 		//noinspection AssignmentToNull - resource release
 		elements = null;
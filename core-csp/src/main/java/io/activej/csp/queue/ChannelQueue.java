@@ -21,10 +21,13 @@ import io.activej.csp.AbstractChannelConsumer;
 import io.activej.csp.AbstractChannelSupplier;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.dsl.ChannelTransformer;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
  * Represents a queue of elements, which you can {@code put}
  * or {@code take} to pass from {@link ChannelConsumer} to
@@ -49,6 +52,19 @@ public interface ChannelQueue<T> extends ChannelTransformer<T, T>, AsyncCloseabl
 	 */
 	Promise<T> take();
 
+	/**
+	 * Takes up to {@code maxItems} elements of this queue into a given list.
+	 * Default implementation takes a single element by {@link #take()}.
+	 *
+	 * @param batch    a list which elements are added to
+	 * @param maxItems a maximal number of elements to be added
+	 * @return a {@code promise} of {@code null} as a marker of completion
+	 * @see ChannelSupplier#getBatch(List, int)
+	 */
+	default Promise<Void> takeBatch(List<T> batch, int maxItems) {
+		return ChannelSuppliers.addToBatch(take(), batch);
+	}
+
 	boolean isSaturated();
 
 	boolean isExhausted();
@@ -105,6 +121,11 @@ public interface ChannelQueue<T> extends ChannelTransformer<T, T>, AsyncCloseabl
 			protected Promise<T> doGet() {
 				return take();
 			}
+
+			@Override
+			protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+				return takeBatch(batch, maxItems);
+			}
 		};
 	}
 
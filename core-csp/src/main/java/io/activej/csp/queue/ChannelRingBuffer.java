@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.csp.queue;
+
+import io.activej.async.process.AsyncCloseable;
+import io.activej.common.Checks;
+import io.activej.csp.AbstractChannelConsumer;
+import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.csp.ChannelSuppliers;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.Checks.checkState;
+import static io.activej.common.api.Recyclable.tryRecycle;
+import static java.lang.Integer.numberOfLeadingZeros;
+
+/**
+ * A bounded buffer which passes items from a producer eventloop to a consumer eventloop.
+ * <p>
+ * Items are passed through a lock-free single-producer/single-consumer ring,
+ * so unlike {@link ChannelSupplier#ofAnotherEventloop(Eventloop, ChannelSupplier)}
+ * there is no task per item. Another eventloop is signalled only when
+ * a waiting consumer gets an item in an empty buffer, or when a waiting producer
+ * gets a full buffer drained by a half.
+ * <p>
+ * {@link #put(Object)} and {@link #getConsumer()} should be called in the producer eventloop,
+ * while {@link #take()} and {@link #getSupplier()} should be called in the consumer eventloop.
+ *
+ * @param <T> the type of values that are passed through the buffer
+ */
+public final class ChannelRingBuffer<T> implements AsyncCloseable {
+	private static final boolean CHECK = Checks.isEnabled(ChannelRingBuffer.class);
+
+	private static final Object END_OF_STREAM = new Object();
+
+	private final Eventloop producerEventloop;
+	private final Eventloop consumerEventloop;
+	// a waiting side keeps its eventloop alive only if it is signalled by another eventloop
+	private final boolean crossEventloop;
+
+	private final Object[] elements;
+	private final int capacity;
+
+	// published by the producer
+	private final AtomicLong tail = new AtomicLong();
+	// published by the consumer
+	private final AtomicLong head = new AtomicLong();
+
+	private final AtomicBoolean consumerWaiting = new AtomicBoolean();
+	private final AtomicBoolean producerWaiting = new AtomicBoolean();
+	// a head which a waiting producer should be signalled at
+	private volatile long producerResumeHead;
+
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	// region accessed only in the producer eventloop
+	private long producerTail;
+	private long cachedHead;
+	@Nullable
+	private SettablePromise<Void> put;
+	@Nullable
+	private AsyncCloseable producer;
+	private long consumerWakeups;
+	// endregion
+
+	// region accessed only in the consumer eventloop
+	private long consumerHead;
+	private long cachedTail;
+	private boolean endOfStream;
+	@Nullable
+	private SettablePromise<T> take;
+	@Nullable
+	private AsyncCloseable consumer;
+	private long producerWakeups;
+	// endregion
+
+	private ChannelRingBuffer(Eventloop producerEventloop, Eventloop consumerEventloop, int capacity) {
+		this.producerEventloop = producerEventloop;
+		this.consumerEventloop = consumerEventloop;
+		this.crossEventloop = producerEventloop != consumerEventloop;
+		this.capacity = capacity;
+		this.elements = new Object[capacity];
+	}
+
+	/**
+	 * Creates a buffer with a capacity of the next highest power of 2
+	 *
+	 * @param producerEventloop an eventloop which puts items to the buffer
+	 * @param consumerEventloop an eventloop which takes items from the buffer
+	 * @param capacity          a minimal number of items the buffer can hold
+	 */
+	public static <T> ChannelRingBuffer<T> create(@NotNull Eventloop producerEventloop, @NotNull Eventloop consumerEventloop, int capacity) {
+		checkArgument(capacity > 0, "Capacity should be positive");
+		return new ChannelRingBuffer<>(producerEventloop, consumerEventloop, 1 << (32 - numberOfLeadingZeros(capacity - 1)));
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns an approximate number of items in this buffer, may be called from any thread
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * Puts an item to this buffer, {@code null} marks the end of stream.
+	 * <p>
+	 * Returned promise is completed once there is a room for the next item,
+	 * or, for the end of stream, once it is taken by the consumer.
+	 * Current {@code put} must be completed before the next one.
+	 */
+	public Promise<Void> put(@Nullable T item) {
+		if (CHECK) {
+			checkState(producerEventloop.inEventloopThread(), "Not in producer eventloop thread");
+			checkState(put == null, "Previous put() has not finished yet");
+		}
+		Throwable e = exception.get();
+		if (e != null) {
+			tryRecycle(item);
+			return Promise.ofException(e);
+		}
+		publish(item != null ? item : END_OF_STREAM);
+		if (item == null) {
+			return awaitProducer(producerTail);
+		}
+		if (producerTail - cachedHead < capacity) {
+			return Promise.complete();
+		}
+		cachedHead = head.get();
+		if (producerTail - cachedHead < capacity) {
+			return Promise.complete();
+		}
+		return awaitProducer(producerTail - capacity / 2);
+	}
+
+	private void publish(Object item) {
+		long t = producerTail;
+		elements[(int) t & (capacity - 1)] = item;
+		producerTail = t + 1;
+		tail.set(t + 1);
+		if (consumerWaiting.get() && consumerWaiting.compareAndSet(true, false)) {
+			consumerWakeups++;
+			consumerEventloop.execute(this::wakeConsumer);
+		}
+		if (exception.get() != null) {
+			// the consumer could have already recycled the rest of items
+			consumerEventloop.execute(this::recycleItems);
+		}
+	}
+
+	private Promise<Void> awaitProducer(long resumeHead) {
+		SettablePromise<Void> put = new SettablePromise<>();
+		this.put = put;
+		producerResumeHead = resumeHead;
+		if (crossEventloop) producerEventloop.startExternalTask();
+		producerWaiting.set(true);
+		// re-check after publishing the flag, as the consumer could have taken items without a signal
+		if ((head.get() >= resumeHead || exception.get() != null) && producerWaiting.compareAndSet(true, false)) {
+			wakeProducer();
+		}
+		return put;
+	}
+
+	private void wakeProducer() {
+		if (crossEventloop) producerEventloop.completeExternalTask();
+		SettablePromise<Void> put = this.put;
+		assert put != null;
+		this.put = null;
+		cachedHead = head.get();
+		Throwable e = exception.get();
+		if (e == null) {
+			put.set(null);
+		} else {
+			put.setException(e);
+		}
+	}
+
+	/**
+	 * Takes an item from this buffer, {@code null} marks the end of stream.
+	 * Current {@code take} must be completed before the next one.
+	 */
+	public Promise<T> take() {
+		if (CHECK) {
+			checkState(consumerEventloop.inEventloopThread(), "Not in consumer eventloop thread");
+			checkState(take == null, "Previous take() has not finished yet");
+		}
+		Throwable e = exception.get();
+		if (e != null) return Promise.ofException(e);
+		if (endOfStream) return Promise.of(null);
+		if (consumerHead == cachedTail) {
+			cachedTail = tail.get();
+			if (consumerHead == cachedTail) {
+				return awaitConsumer();
+			}
+		}
+		return Promise.of(poll());
+	}
+
+	/**
+	 * Takes up to {@code maxItems} items which are available right away,
+	 * publishing the head only once per batch. The end of stream is taken
+	 * only into an empty batch. If the buffer is empty, waits for an item as {@link #take()} does.
+	 */
+	public Promise<Void> takeBatch(List<T> batch, int maxItems) {
+		if (CHECK) {
+			checkState(consumerEventloop.inEventloopThread(), "Not in consumer eventloop thread");
+			checkState(take == null, "Previous take() has not finished yet");
+		}
+		Throwable e = exception.get();
+		if (e != null) return Promise.ofException(e);
+		if (endOfStream) return Promise.complete();
+		if (consumerHead == cachedTail) {
+			cachedTail = tail.get();
+			if (consumerHead == cachedTail) {
+				return ChannelSuppliers.addToBatch(awaitConsumer(), batch);
+			}
+		}
+		long h = consumerHead;
+		if (elements[(int) h & (capacity - 1)] == END_OF_STREAM) {
+			poll();
+			return Promise.complete();
+		}
+		long end = h + Math.min(maxItems, cachedTail - h);
+		for (; h != end; h++) {
+			int pos = (int) h & (capacity - 1);
+			Object item = elements[pos];
+			if (item == END_OF_STREAM) break;
+			elements[pos] = null;
+			//noinspection unchecked
+			batch.add((T) item);
+		}
+		release(h);
+		return Promise.complete();
+	}
+
+	@Nullable
+	private T poll() {
+		long h = consumerHead;
+		int pos = (int) h & (capacity - 1);
+		Object item = elements[pos];
+		elements[pos] = null;
+		release(h + 1);
+		if (item == END_OF_STREAM) {
+			endOfStream = true;
+			return null;
+		}
+		//noinspection unchecked
+		return (T) item;
+	}
+
+	private void release(long newHead) {
+		consumerHead = newHead;
+		head.set(newHead);
+		if (producerWaiting.get() && newHead >= producerResumeHead && producerWaiting.compareAndSet(true, false)) {
+			producerWakeups++;
+			producerEventloop.execute(this::wakeProducer);
+		}
+	}
+
+	private Promise<T> awaitConsumer() {
+		SettablePromise<T> take = new SettablePromise<>();
+		this.take = take;
+		if (crossEventloop) consumerEventloop.startExternalTask();
+		consumerWaiting.set(true);
+		// re-check after publishing the flag, as the producer could have put an item without a signal
+		if ((tail.get() != consumerHead || exception.get() != null) && consumerWaiting.compareAndSet(true, false)) {
+			wakeConsumer();
+		}
+		return take;
+	}
+
+	private void wakeConsumer() {
+		if (crossEventloop) consumerEventloop.completeExternalTask();
+		SettablePromise<T> take = this.take;
+		assert take != null;
+		this.take = null;
+		Throwable e = exception.get();
+		if (e != null) {
+			take.setException(e);
+			return;
+		}
+		cachedTail = tail.get();
+		assert cachedTail != consumerHead;
+		take.set(poll());
+	}
+
+	private void recycleItems() {
+		long t = tail.get();
+		while (consumerHead != t) {
+			int pos = (int) consumerHead++ & (capacity - 1);
+			tryRecycle(elements[pos]);
+			elements[pos] = null;
+		}
+		head.set(t);
+	}
+
+	/**
+	 * Returns a {@code ChannelConsumer} which puts items to this buffer,
+	 * it should be called and used in the producer eventloop.
+	 * The consumer is closed once this buffer is closed.
+	 */
+	public ChannelConsumer<T> getConsumer() {
+		if (CHECK) checkState(producerEventloop.inEventloopThread(), "Not in producer eventloop thread");
+		AbstractChannelConsumer<T> consumer = new AbstractChannelConsumer<T>(this) {
+			@Override
+			protected Promise<Void> doAccept(@Nullable T item) {
+				return put(item);
+			}
+		};
+		this.producer = consumer;
+		if (exception.get() != null) {
+			consumer.closeEx(exception.get());
+		}
+		return consumer;
+	}
+
+	/**
+	 * Returns a {@code ChannelSupplier} which takes items from this buffer,
+	 * it should be called and used in the consumer eventloop.
+	 * The supplier is closed once this buffer is closed.
+	 */
+	public ChannelSupplier<T> getSupplier() {
+		if (CHECK) checkState(consumerEventloop.inEventloopThread(), "Not in consumer eventloop thread");
+		AbstractChannelSupplier<T> supplier = new AbstractChannelSupplier<T>(this) {
+			@Override
+			protected Promise<T> doGet() {
+				return take();
+			}
+
+			@Override
+			protected Promise<Void> doGetBatch(List<T> batch, int maxItems) {
+				return takeBatch(batch, maxItems);
+			}
+		};
+		this.consumer = supplier;
+		if (exception.get() != null) {
+			supplier.closeEx(exception.get());
+		}
+		return supplier;
+	}
+
+	/**
+	 * Closes this buffer, may be called from any thread.
+	 * <p>
+	 * Pending and further puts and takes fail, channels of this buffer are closed
+	 * in their own eventloops, and items left in the buffer are recycled.
+	 */
+	@Override
+	public void closeEx(@NotNull Throwable e) {
+		if (!exception.compareAndSet(null, e)) return;
+		if (producerWaiting.compareAndSet(true, false)) {
+			producerEventloop.execute(this::wakeProducer);
+		}
+		if (consumerWaiting.compareAndSet(true, false)) {
+			consumerEventloop.execute(this::wakeConsumer);
+		}
+		producerEventloop.execute(() -> {
+			if (producer != null) producer.closeEx(e);
+		});
+		consumerEventloop.execute(() -> {
+			recycleItems();
+			if (consumer != null) consumer.closeEx(e);
+		});
+	}
+
+	@Nullable
+	public Throwable getException() {
+		return exception.get();
+	}
+
+	/**
+	 * Returns the number of times the consumer eventloop has been signalled by the producer,
+	 * should be called in the producer eventloop
+	 */
+	public long getConsumerWakeups() {
+		return consumerWakeups;
+	}
+
+	/**
+	 * Returns the number of times the producer eventloop has been signalled by the consumer,
+	 * should be called in the consumer eventloop
+	 */
+	public long getProducerWakeups() {
+		return producerWakeups;
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelRingBuffer{size=" + size() + ", capacity=" + capacity + '}';
+	}
+}
@@ -17,11 +17,14 @@
 package io.activej.csp.queue;
 
 import io.activej.common.Checks;
+import io.activej.csp.ChannelSuppliers;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.api.Recyclable.tryRecycle;
 
@@ -132,6 +135,37 @@ public final class ChannelZeroBuffer<T> implements ChannelQueue<T> {
 		}
 	}
 
+	/**
+	 * Adds current {@code value} to the {@code batch} without
+	 * wrapping it in a promise, if the {@code put} is not {@code null}.
+	 * Otherwise, waits for a value as {@link #take()} does.
+	 *
+	 * @param batch    a list which the value is added to
+	 * @param maxItems a maximal number of values to be added, only one value is held by this buffer
+	 * @return a promise of {@code null} as a marker of completion.
+	 * If this {@code exception} is not {@code null}, returns a
+	 * promise of exception.
+	 */
+	@Override
+	public Promise<Void> takeBatch(List<T> batch, int maxItems) {
+		if (CHECK) checkState(take == null, "Previous take() has not finished yet");
+		if (exception == null) {
+			if (put != null) {
+				T value = this.value;
+				SettablePromise<Void> put = this.put;
+				this.value = null;
+				this.put = null;
+				if (value != null) batch.add(value);
+				put.set(null);
+				return Promise.complete();
+			}
+
+			return ChannelSuppliers.addToBatch(take(), batch);
+		} else {
+			return Promise.ofException(exception);
+		}
+	}
+
 	/**
 	 * Closes the buffer if this {@code exception} is not
 	 * {@code null}. Recycles all elements of the buffer and
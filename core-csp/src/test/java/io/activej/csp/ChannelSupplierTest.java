@@ -3,6 +3,7 @@ package io.activej.csp;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.exception.ExpectedException;
 import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
 import io.activej.test.rules.ByteBufRule;
@@ -13,9 +14,11 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static io.activej.common.MemSize.kilobytes;
 import static io.activej.csp.ChannelSuppliers.channelSupplierAsInputStream;
@@ -166,4 +169,40 @@ public class ChannelSupplierTest {
 					return null;
 				}));
 	}
+
+	@Test
+	public void testStreamToInBatches() {
+		List<Integer> expected = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+		List<Integer> actual = new ArrayList<>();
+
+		// a consumer completes asynchronously in the middle of batches
+		await(ChannelSuppliers.prefetch(1000, ChannelSupplier.ofIterable(expected))
+				.streamTo(ChannelConsumer.of(item -> {
+					actual.add(item);
+					return item % 100 == 0 ? Promise.complete().async() : Promise.complete();
+				})));
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testStreamToInBatchesRecyclesOnException() {
+		ExpectedException expectedException = new ExpectedException();
+		List<ByteBuf> bufs = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			ByteBuf buf = ByteBufPool.allocate(1);
+			buf.writeByte((byte) i);
+			bufs.add(buf);
+		}
+
+		// items of a batch which are left after a failure are recycled
+		Exception exception = awaitException(ChannelSupplier.ofIterable(bufs)
+				.streamTo(ChannelConsumer.of(buf -> {
+					boolean last = buf.peek() == 5;
+					buf.recycle();
+					return last ? Promise.<Void>ofException(expectedException).async() : Promise.complete();
+				})));
+
+		assertSame(expectedException, exception);
+	}
 }
@@ -8,14 +8,16 @@ import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.csp.binary.BinaryChannelSupplier.UNEXPECTED_END_OF_STREAM_EXCEPTION;
 import static io.activej.csp.binary.ByteBufsDecoder.ofCrlfTerminatedBytes;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertSame;
+import static org.junit.Assert.*;
 
 public final class BinaryChannelSupplierTest {
 	@ClassRule
@@ -39,4 +41,27 @@ public final class BinaryChannelSupplierTest {
 				.toCollector(ByteBufQueue.collector()));
 		assertSame(UNEXPECTED_END_OF_STREAM_EXCEPTION, exception);
 	}
+
+	@Test
+	public void testParseStreamBatch() {
+		ChannelSupplier<ByteBuf> supplier = BinaryChannelSupplier.of(ChannelSupplier.of(wrapUtf8("1\r\n2\r\n3\r\n4"), wrapUtf8("\r\n")))
+				.parseStream(ofCrlfTerminatedBytes());
+
+		// items which are decoded from already received data are taken at once
+		List<ByteBuf> batch = new ArrayList<>();
+		await(supplier.getBatch(batch, 2));
+		assertEquals(2, batch.size());
+		await(supplier.getBatch(batch, 10));
+		assertEquals(4, batch.size());
+
+		// the end of stream adds no items
+		await(supplier.getBatch(batch, 10));
+		assertEquals(4, batch.size());
+
+		StringBuilder sb = new StringBuilder();
+		for (ByteBuf buf : batch) {
+			sb.append(buf.asString(UTF_8));
+		}
+		assertEquals("1234", sb.toString());
+	}
 }
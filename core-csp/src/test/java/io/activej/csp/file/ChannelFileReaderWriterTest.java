@@ -5,8 +5,11 @@ import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.MemSize;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelSupplier;
+import io.activej.net.SimpleServer;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
+import io.activej.promise.SettablePromise;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
@@ -16,14 +19,19 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.util.concurrent.Executors.newCachedThreadPool;
 import static org.junit.Assert.*;
 
@@ -127,4 +135,71 @@ public final class ChannelFileReaderWriterTest {
 
 		assertEquals("", byteBuf.asString(UTF_8));
 	}
+
+	@Test
+	public void transferToSocket() throws IOException {
+		byte[] data = new byte[2 * 1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(data);
+		Path srcPath = tempFolder.newFile("2Mb").toPath();
+		Files.write(srcPath, data);
+
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SettablePromise<ByteBuf> received = new SettablePromise<>();
+		SimpleServer.create(socket -> ChannelSupplier.ofSocket(socket)
+						.toCollector(ByteBufQueue.collector())
+						.whenComplete(socket::close)
+						.whenComplete(received::trySet))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		boolean[] endOfStream = {false};
+		await(ChannelFileReader.open(newCachedThreadPool(), srcPath)
+				.then(cfr -> AsyncTcpSocketNio.connect(address)
+						.then(socket -> cfr.withOffset(100)
+								.withLimit(1024 * 1024)
+								.withEndOfStream(eos -> eos.whenResult(() -> endOfStream[0] = true))
+								.transferTo(socket)
+								.then(() -> socket.write(null))
+								.whenComplete(socket::close))));
+
+		ByteBuf buf = await(received);
+		assertArrayEquals(Arrays.copyOfRange(data, 100, 100 + 1024 * 1024), buf.asArray());
+		assertTrue(endOfStream[0]);
+	}
+
+	@Test
+	public void writeDuringTransferIsSentAfterFileRegion() throws IOException {
+		byte[] data = new byte[1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(data);
+		Path srcPath = tempFolder.newFile("1Mb").toPath();
+		Files.write(srcPath, data);
+
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SettablePromise<ByteBuf> received = new SettablePromise<>();
+		SimpleServer.create(socket -> ChannelSupplier.ofSocket(socket)
+						.toCollector(ByteBufQueue.collector())
+						.whenComplete(socket::close)
+						.whenComplete(received::trySet))
+				.withListenAddress(address)
+				.withAcceptOnce()
+				.listen();
+
+		try (FileChannel channel = FileChannel.open(srcPath, READ)) {
+			await(AsyncTcpSocketNio.connect(address)
+					.then(socket -> {
+						socket.withMaxTransferSize(MemSize.kilobytes(64));
+						Promise<Void> transfer = socket.transferFrom(channel, 0, data.length);
+						return socket.write(ByteBuf.wrapForReading("tail".getBytes(UTF_8)))
+								.both(transfer)
+								.then(() -> socket.write(null))
+								.whenComplete(socket::close);
+					}));
+		}
+
+		ByteBuf buf = await(received);
+		byte[] expected = Arrays.copyOf(data, data.length + 4);
+		System.arraycopy("tail".getBytes(UTF_8), 0, expected, data.length, 4);
+		assertArrayEquals(expected, buf.asArray());
+	}
 }
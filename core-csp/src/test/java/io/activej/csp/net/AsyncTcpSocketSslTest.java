@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.File;
 import java.io.FileInputStream;
@@ -31,6 +32,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.security.KeyStore;
 import java.security.SecureRandom;
+import java.util.Collections;
 import java.util.Random;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -211,6 +213,51 @@ public final class AsyncTcpSocketSslTest {
 		assertSame(UNEXPECTED_END_OF_STREAM_EXCEPTION, e);
 	}
 
+	@Test
+	public void testSessionResumption() throws IOException {
+		AsyncTcpSocketSsl.JmxInspector serverStats = new AsyncTcpSocketSsl.JmxInspector();
+		AsyncTcpSocketSsl.JmxInspector clientStats = new AsyncTcpSocketSsl.JmxInspector();
+		SimpleServer server = SimpleServer.create(sslSocket -> sslSocket.write(wrapAscii(TEST_STRING))
+				.whenComplete(assertComplete()))
+				.withSslListenAddress(sslContext, executor, ADDRESS)
+				.withSslInspector(serverStats);
+		server.listen();
+
+		await(readFromServer(clientStats)
+				.then(() -> readFromServer(clientStats))
+				.whenComplete(server::close));
+
+		// a resumed session is not cached again
+		assertEquals(1, Collections.list(sslContext.getClientSessionContext().getIds()).size());
+		assertEquals(2, serverStats.getHandshakes().getTotalCount());
+		assertEquals(1, serverStats.getResumedHandshakes().getTotalCount());
+		assertEquals(0.5, clientStats.getResumptionRatio(), 0.0);
+		assertEquals(0, clientStats.getHandshakeErrors().getTotalCount());
+	}
+
+	@Test
+	public void testNoSessionResumptionAfterInvalidation() throws IOException {
+		AsyncTcpSocketSsl.JmxInspector serverStats = new AsyncTcpSocketSsl.JmxInspector();
+		AsyncTcpSocketSsl.JmxInspector clientStats = new AsyncTcpSocketSsl.JmxInspector();
+		SimpleServer server = SimpleServer.create(sslSocket -> sslSocket.write(wrapAscii(TEST_STRING))
+				.whenComplete(assertComplete()))
+				.withSslListenAddress(sslContext, executor, ADDRESS)
+				.withSslInspector(serverStats);
+		server.listen();
+
+		SSLSessionContext clientSessions = sslContext.getClientSessionContext();
+		await(readFromServer(clientStats)
+				.whenResult(() -> Collections.list(clientSessions.getIds())
+						.forEach(id -> clientSessions.getSession(id).invalidate()))
+				.then(() -> readFromServer(clientStats))
+				.whenComplete(server::close));
+
+		assertEquals(2, serverStats.getHandshakes().getTotalCount());
+		assertEquals(0, serverStats.getResumedHandshakes().getTotalCount());
+		assertEquals(2, clientStats.getHandshakes().getTotalCount());
+		assertEquals(0, clientStats.getResumedHandshakes().getTotalCount());
+	}
+
 	@Test
 	public void testPeerClosingDuringHandshake() throws IOException {
 		ServerSocket listener = new ServerSocket(ADDRESS.getPort());
@@ -238,6 +285,16 @@ public final class AsyncTcpSocketSslTest {
 		assertEquals(CLOSE_EXCEPTION, exception);
 	}
 
+	private Promise<String> readFromServer(AsyncTcpSocketSsl.Inspector inspector) {
+		// sessions are resumed by a client for the same host and port
+		return AsyncTcpSocketNio.connect(ADDRESS)
+				.map(socket -> AsyncTcpSocketSsl.wrapClientSocket(socket, ADDRESS.getHostString(), ADDRESS.getPort(), sslContext, executor)
+						.withInspector(inspector))
+				.then(sslSocket -> BinaryChannelSupplier.of(ChannelSupplier.ofSocket(sslSocket))
+						.parse(DECODER)
+						.whenComplete(sslSocket::close));
+	}
+
 	static void startServer(SSLContext sslContext, Consumer<AsyncTcpSocket> logic) throws IOException {
 		SimpleServer.create(logic)
 				.withSslListenAddress(sslContext, Executors.newSingleThreadExecutor(), ADDRESS)
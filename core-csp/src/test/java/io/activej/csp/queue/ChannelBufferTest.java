@@ -1,15 +1,20 @@
 package io.activej.csp.queue;
 
 import io.activej.csp.ChannelSupplier;
+import io.activej.promise.Promise;
 import io.activej.test.rules.EventloopRule;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static io.activej.promise.TestUtils.await;
 import static java.util.Arrays.asList;
-import static org.junit.Assert.assertEquals;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
 
 public class ChannelBufferTest {
 
@@ -24,4 +29,61 @@ public class ChannelBufferTest {
 
 		assertEquals(asList(1,2,3,4,5), list);
 	}
+
+	@Test
+	public void testBufferGrowsOverInitialCapacity() {
+		ChannelBuffer<Integer> buffer = new ChannelBuffer<>(100);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(buffer.put(i).isResult());
+		}
+		assertEquals(100, buffer.size());
+
+		List<Integer> batch = new ArrayList<>();
+		await(buffer.takeBatch(batch, 100));
+		assertEquals(IntStream.range(0, 100).boxed().collect(toList()), batch);
+	}
+
+	@Test
+	public void testTakeBatch() {
+		ChannelBuffer<Integer> buffer = new ChannelBuffer<>(3);
+		assertTrue(buffer.put(1).isResult());
+		assertTrue(buffer.put(2).isResult());
+		assertTrue(buffer.put(3).isResult());
+		Promise<Void> put = buffer.put(4);
+		assertFalse(put.isComplete());
+
+		List<Integer> batch = new ArrayList<>();
+		await(buffer.takeBatch(batch, 2));
+		assertEquals(asList(1, 2), batch);
+		assertFalse(put.isComplete());
+
+		batch.clear();
+		await(buffer.takeBatch(batch, 10));
+		assertEquals(asList(3, 4), batch);
+		await(put);
+
+		// the end of stream is not taken along with other elements
+		await(buffer.put(5));
+		await(buffer.put(null));
+		batch.clear();
+		await(buffer.takeBatch(batch, 10));
+		assertEquals(singletonList(5), batch);
+
+		batch.clear();
+		await(buffer.takeBatch(batch, 10));
+		assertTrue(batch.isEmpty());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testTakeBatchWaitsForElement() {
+		ChannelBuffer<Integer> buffer = new ChannelBuffer<>(3);
+		List<Integer> batch = new ArrayList<>();
+		Promise<Void> take = buffer.takeBatch(batch, 10);
+		assertFalse(take.isComplete());
+
+		await(buffer.put(1));
+		await(take);
+		assertEquals(singletonList(1), batch);
+	}
 }
@@ -0,0 +1,172 @@
+package io.activej.csp.queue;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.ExpectedException;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.activej.bytebuf.ByteBufStrings.wrapAscii;
+import static io.activej.eventloop.Eventloop.initWithEventloop;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class ChannelRingBufferTest {
+	private static final int ITEMS = 100_000;
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testBackpressure() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		ChannelRingBuffer<Integer> buffer = ChannelRingBuffer.create(eventloop, eventloop, 3);
+		assertEquals(4, buffer.getCapacity());
+
+		assertTrue(buffer.put(1).isResult());
+		assertTrue(buffer.put(2).isResult());
+		assertTrue(buffer.put(3).isResult());
+		Promise<Void> put = buffer.put(4);
+		assertFalse(put.isComplete());
+
+		// the producer is signalled once the buffer is drained by a half
+		assertEquals(1, (int) await(buffer.take()));
+		assertFalse(put.isComplete());
+		assertEquals(2, (int) await(buffer.take()));
+		await(put);
+		assertEquals(1, buffer.getProducerWakeups());
+
+		assertEquals(3, (int) await(buffer.take()));
+		assertEquals(4, (int) await(buffer.take()));
+		Promise<Integer> take = buffer.take();
+		assertFalse(take.isComplete());
+		assertTrue(buffer.put(5).isResult());
+		assertEquals(5, (int) await(take));
+		assertEquals(1, buffer.getConsumerWakeups());
+
+		// the end of stream is acknowledged once it is taken
+		Promise<Void> endOfStream = buffer.put(null);
+		assertFalse(endOfStream.isComplete());
+		assertNull(await(buffer.take()));
+		await(endOfStream);
+		assertNull(await(buffer.take()));
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	public void testTakeBatch() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		ChannelRingBuffer<Integer> buffer = ChannelRingBuffer.create(eventloop, eventloop, 4);
+		assertTrue(buffer.put(1).isResult());
+		assertTrue(buffer.put(2).isResult());
+		assertTrue(buffer.put(3).isResult());
+		Promise<Void> put = buffer.put(4);
+		assertFalse(put.isComplete());
+
+		List<Integer> batch = new ArrayList<>();
+		await(buffer.takeBatch(batch, 3));
+		assertEquals(asList(1, 2, 3), batch);
+		// the producer is signalled once per batch
+		await(put);
+		assertEquals(1, buffer.getProducerWakeups());
+
+		// the end of stream is taken only into an empty batch
+		Promise<Void> endOfStream = buffer.put(null);
+		batch.clear();
+		await(buffer.takeBatch(batch, 10));
+		assertEquals(singletonList(4), batch);
+		assertFalse(endOfStream.isComplete());
+
+		batch.clear();
+		await(buffer.takeBatch(batch, 10));
+		assertTrue(batch.isEmpty());
+		await(endOfStream);
+	}
+
+	@Test
+	public void testClose() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		ChannelRingBuffer<ByteBuf> buffer = ChannelRingBuffer.create(eventloop, eventloop, 16);
+		ChannelConsumer<ByteBuf> consumer = buffer.getConsumer();
+		ChannelSupplier<ByteBuf> supplier = buffer.getSupplier();
+
+		await(consumer.accept(wrapAscii("first")));
+		await(consumer.accept(wrapAscii("second")));
+		ExpectedException expectedException = new ExpectedException();
+		supplier.closeEx(expectedException);
+
+		// items left in the buffer are recycled
+		assertSame(expectedException, awaitException(consumer.accept(wrapAscii("third"))));
+		assertSame(expectedException, awaitException(supplier.get()));
+		assertSame(expectedException, buffer.getException());
+	}
+
+	@Test
+	public void testSupplierOfAnotherEventloop() {
+		Eventloop anotherEventloop = Eventloop.create();
+		List<Integer> expected = IntStream.range(0, ITEMS).boxed().collect(Collectors.toList());
+		ChannelSupplier<Integer> anotherEventloopSupplier = initWithEventloop(anotherEventloop, () -> ChannelSupplier.ofIterable(expected));
+
+		startAnotherEventloop(anotherEventloop);
+		List<Integer> actual = await(ChannelSupplier.ofAnotherEventloop(anotherEventloop, anotherEventloopSupplier, 256).toList());
+		stopAnotherEventloop(anotherEventloop);
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testConsumerOfAnotherEventloop() {
+		Eventloop anotherEventloop = Eventloop.create();
+		List<Integer> expected = IntStream.range(0, ITEMS).boxed().collect(Collectors.toList());
+		List<Integer> actual = new ArrayList<>();
+		ChannelConsumer<Integer> anotherEventloopConsumer = initWithEventloop(anotherEventloop, () -> ChannelConsumer.ofConsumer(actual::add));
+
+		startAnotherEventloop(anotherEventloop);
+		await(ChannelSupplier.ofIterable(expected).streamTo(ChannelConsumer.ofAnotherEventloop(anotherEventloop, anotherEventloopConsumer, 256)));
+		stopAnotherEventloop(anotherEventloop);
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testConsumerOfAnotherEventloopException() {
+		Eventloop anotherEventloop = Eventloop.create();
+		ExpectedException expectedException = new ExpectedException();
+		ChannelConsumer<Integer> anotherEventloopConsumer = initWithEventloop(anotherEventloop,
+				() -> ChannelConsumer.<Integer>of(item -> item == 1000 ?
+						Promise.ofException(expectedException) :
+						Promise.complete()));
+
+		startAnotherEventloop(anotherEventloop);
+		Throwable exception = awaitException(ChannelSupplier.ofStream(IntStream.range(0, ITEMS).boxed())
+				.streamTo(ChannelConsumer.ofAnotherEventloop(anotherEventloop, anotherEventloopConsumer, 256)));
+		stopAnotherEventloop(anotherEventloop);
+
+		assertSame(expectedException, exception);
+	}
+
+	private void startAnotherEventloop(Eventloop anotherEventloop) {
+		anotherEventloop.keepAlive(true);
+		new Thread(anotherEventloop, "another").start();
+	}
+
+	private void stopAnotherEventloop(Eventloop anotherEventloop) {
+		anotherEventloop.execute(() -> anotherEventloop.keepAlive(false));
+	}
+}
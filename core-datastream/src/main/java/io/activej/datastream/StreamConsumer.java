@@ -18,6 +18,7 @@ package io.activej.datastream;
 
 import io.activej.async.process.AsyncCloseable;
 import io.activej.csp.ChannelConsumer;
+import io.activej.csp.queue.ChannelRingBuffer;
 import io.activej.datastream.StreamConsumers.ClosingWithError;
 import io.activej.datastream.StreamConsumers.Idle;
 import io.activej.datastream.StreamConsumers.OfChannelConsumer;
@@ -26,6 +27,7 @@ import io.activej.datastream.processor.StreamConsumerTransformer;
 import io.activej.datastream.processor.StreamTransformer;
 import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -141,6 +143,30 @@ public interface StreamConsumer<T> extends AsyncCloseable {
 		return new StreamConsumers.OfAnotherEventloop<>(anotherEventloop, anotherEventloopConsumer);
 	}
 
+	/**
+	 * Creates a consumer of items for a consumer, which belongs to another eventloop.
+	 * Items are passed through a {@link ChannelRingBuffer} of a given capacity,
+	 * so eventloops signal each other only when the buffer is empty or full.
+	 */
+	static <T> StreamConsumer<T> ofAnotherEventloop(@NotNull Eventloop anotherEventloop,
+			@NotNull StreamConsumer<T> anotherEventloopConsumer, int bufferCapacity) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		if (eventloop == anotherEventloop) {
+			return anotherEventloopConsumer;
+		}
+		ChannelRingBuffer<T> buffer = ChannelRingBuffer.create(eventloop, anotherEventloop, bufferCapacity);
+		SettablePromise<Void> acknowledgement = new SettablePromise<>();
+		eventloop.startExternalTask();
+		anotherEventloop.execute(() ->
+				StreamSupplier.ofChannelSupplier(buffer.getSupplier()).streamTo(anotherEventloopConsumer)
+						.whenComplete(($, e) -> eventloop.execute(() -> {
+							acknowledgement.accept(null, e);
+							eventloop.completeExternalTask();
+						})));
+		return ofChannelConsumer(buffer.getConsumer())
+				.withAcknowledgement(ack -> ack.both(acknowledgement));
+	}
+
 	/**
 	 * Transforms this supplier with a given transformer.
 	 */
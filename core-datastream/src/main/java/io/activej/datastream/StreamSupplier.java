@@ -18,6 +18,7 @@ package io.activej.datastream;
 
 import io.activej.async.process.AsyncCloseable;
 import io.activej.csp.ChannelSupplier;
+import io.activej.csp.queue.ChannelRingBuffer;
 import io.activej.datastream.StreamSuppliers.Closing;
 import io.activej.datastream.StreamSuppliers.ClosingWithError;
 import io.activej.datastream.StreamSuppliers.Idle;
@@ -196,6 +197,23 @@ public interface StreamSupplier<T> extends AsyncCloseable {
 		return new StreamSuppliers.OfAnotherEventloop<>(anotherEventloop, anotherEventloopSupplier);
 	}
 
+	/**
+	 * Creates a supplier of items of a supplier, which belongs to another eventloop.
+	 * Items are streamed ahead through a {@link ChannelRingBuffer} of a given capacity,
+	 * so eventloops signal each other only when the buffer is empty or full.
+	 */
+	static <T> StreamSupplier<T> ofAnotherEventloop(@NotNull Eventloop anotherEventloop,
+			@NotNull StreamSupplier<T> anotherEventloopSupplier, int bufferCapacity) {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		if (eventloop == anotherEventloop) {
+			return anotherEventloopSupplier;
+		}
+		ChannelRingBuffer<T> buffer = ChannelRingBuffer.create(anotherEventloop, eventloop, bufferCapacity);
+		anotherEventloop.execute(() ->
+				anotherEventloopSupplier.streamTo(StreamConsumer.ofChannelConsumer(buffer.getConsumer())));
+		return ofChannelSupplier(buffer.getSupplier());
+	}
+
 	/**
 	 * Transforms this supplier with a given transformer.
 	 */
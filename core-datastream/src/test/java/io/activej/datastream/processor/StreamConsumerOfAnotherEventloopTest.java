@@ -57,6 +57,21 @@ public class StreamConsumerOfAnotherEventloopTest {
 		anotherEventloop.submit(() -> assertEndOfStream(anotherEventloopConsumer)).get();
 	}
 
+	@Test
+	public void testStreamingThroughRingBuffer() throws ExecutionException, InterruptedException {
+		StreamSupplier<Integer> supplier = StreamSupplier.ofStream(Stream.iterate(1, i -> i + 1).limit(1000));
+		// created in its own eventloop thread, as it is initialized there
+		StreamConsumerToList<Integer> anotherEventloopConsumer = anotherEventloop.submit(() -> Promise.of(StreamConsumerToList.<Integer>create())).get();
+		StreamConsumer<Integer> consumer = StreamConsumer.ofAnotherEventloop(anotherEventloop, anotherEventloopConsumer, 16);
+
+		await(supplier.streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEquals(1000, anotherEventloopConsumer.getList().size());
+		assertEquals(1000, (int) anotherEventloopConsumer.getList().get(999));
+		assertEndOfStream(supplier);
+		anotherEventloop.submit(() -> assertEndOfStream(anotherEventloopConsumer)).get();
+	}
+
 	@Test
 	public void testSupplierException() throws ExecutionException, InterruptedException {
 		ExpectedException expectedException = new ExpectedException();
@@ -55,6 +55,21 @@ public class StreamSupplierOfAnotherEventloopTest {
 		anotherEventloop.submit(() -> assertEndOfStream(anotherEventloopSupplier)).get();
 	}
 
+	@Test
+	public void testStreamingThroughRingBuffer() throws ExecutionException, InterruptedException {
+		// created in its own eventloop thread, as it is initialized there
+		StreamSupplier<Integer> anotherEventloopSupplier = anotherEventloop.submit(() -> Promise.of(StreamSupplier.ofStream(Stream.iterate(1, i -> i + 1).limit(1000)))).get();
+		StreamSupplier<Integer> supplier = StreamSupplier.ofAnotherEventloop(anotherEventloop, anotherEventloopSupplier, 16);
+		StreamConsumerToList<Integer> consumer = StreamConsumerToList.create();
+
+		await(supplier.streamTo(consumer.transformWith(randomlySuspending())));
+
+		assertEquals(1000, consumer.getList().size());
+		assertEquals(1000, (int) consumer.getList().get(999));
+		assertEndOfStream(supplier, consumer);
+		anotherEventloop.submit(() -> assertEndOfStream(anotherEventloopSupplier)).get();
+	}
+
 	@Test
 	public void testSupplierException() throws ExecutionException, InterruptedException {
 		ExpectedException expectedException = new ExpectedException();
@@ -36,8 +36,11 @@ import io.activej.eventloop.inspector.EventloopStats;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
 import io.activej.eventloop.net.DatagramSocketSettings;
 import io.activej.eventloop.net.ServerSocketSettings;
+import io.activej.eventloop.schedule.PriorityScheduledQueue;
+import io.activej.eventloop.schedule.ScheduledQueue;
 import io.activej.eventloop.schedule.ScheduledRunnable;
 import io.activej.eventloop.schedule.Scheduler;
+import io.activej.eventloop.util.MpscQueue;
 import io.activej.eventloop.util.OptimizedSelectedKeysSet;
 import io.activej.eventloop.util.RunnableWithContext;
 import io.activej.jmx.api.attribute.JmxAttribute;
@@ -56,7 +59,6 @@ import java.nio.channels.spi.SelectorProvider;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -64,6 +66,7 @@ import java.util.function.Supplier;
 import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.Utils.nullToSupplier;
+import static io.activej.eventloop.trace.Tracing.wrapTrace;
 import static io.activej.eventloop.util.Utils.tryToOptimizeSelector;
 import static java.util.Collections.emptyIterator;
 
@@ -112,19 +115,30 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	/**
 	 * Collection of concurrent tasks which were added from other threads.
 	 */
-	private final ConcurrentLinkedQueue<Runnable> concurrentTasks = new ConcurrentLinkedQueue<>();
+	private final MpscQueue<Runnable> concurrentTasks = new MpscQueue<>();
+
+	private static final int RUNNING = 0;
+	private static final int SELECTING = 1;
+	private static final int WOKEN_UP = 2;
+
+	/**
+	 * Whether the eventloop thread is blocked in {@code selector.select()},
+	 * so that concurrent tasks wake up the selector only when it is needed.
+	 */
+	private final AtomicInteger selectorState = new AtomicInteger(RUNNING);
+	private boolean wokenUp;
 
 	/**
 	 * Collection of scheduled tasks that are scheduled
 	 * to be executed at particular timestamp.
 	 */
-	private final PriorityQueue<ScheduledRunnable> scheduledTasks = new PriorityQueue<>();
+	private ScheduledQueue scheduledTasks = PriorityScheduledQueue.create();
 
 	/**
 	 * Collection of background tasks,
 	 * if eventloop contains only background tasks, it will be closed.
 	 */
-	private final PriorityQueue<ScheduledRunnable> backgroundTasks = new PriorityQueue<>();
+	private ScheduledQueue backgroundTasks = PriorityScheduledQueue.create();
 
 	/**
 	 * Amount of concurrent operations in other threads,
@@ -242,6 +256,18 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return this;
 	}
 
+	/**
+	 * Sets a factory of queues for scheduled and background tasks,
+	 * e.g. {@code TimingWheel::create} for eventloops with a lot of timeouts
+	 */
+	@NotNull
+	public Eventloop withScheduledQueue(@NotNull Supplier<? extends ScheduledQueue> queueFactory) {
+		checkState(scheduledTasks.isEmpty() && backgroundTasks.isEmpty(), "Eventloop already has scheduled tasks");
+		this.scheduledTasks = queueFactory.get();
+		this.backgroundTasks = queueFactory.get();
+		return this;
+	}
+
 	@NotNull
 	public Eventloop withCurrentThread() {
 		CURRENT_EVENTLOOP.set(this);
@@ -402,7 +428,14 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 				if (selectTimeout <= 0) {
 					lastSelectedKeys = selector.selectNow();
 				} else {
-					lastSelectedKeys = selector.select(selectTimeout);
+					selectorState.set(SELECTING);
+					// re-check after publishing the state, a concurrent task could have been added without a wakeup
+					if (concurrentTasks.isEmpty()) {
+						lastSelectedKeys = selector.select(selectTimeout);
+					} else {
+						lastSelectedKeys = selector.selectNow();
+					}
+					wokenUp = selectorState.getAndSet(RUNNING) == WOKEN_UP;
 				}
 				cancelledKeys = 0;
 			} catch (ClosedChannelException e) {
@@ -454,16 +487,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return Math.min(getTimeBeforeExecution(scheduledTasks), getTimeBeforeExecution(backgroundTasks));
 	}
 
-	private long getTimeBeforeExecution(PriorityQueue<ScheduledRunnable> taskQueue) {
-		while (!taskQueue.isEmpty()) {
-			ScheduledRunnable first = taskQueue.peek();
-			if (first.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			return first.getTimestamp() - currentTimeMillis();
+	private long getTimeBeforeExecution(ScheduledQueue taskQueue) {
+		long nextTimestamp = taskQueue.nextTimestamp();
+		if (nextTimestamp == Long.MAX_VALUE) {
+			return idleInterval.toMillis();
 		}
-		return idleInterval.toMillis();
+		return nextTimestamp - currentTimeMillis();
 	}
 
 	/**
@@ -656,8 +685,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 
 		if (concurrentTasks != 0) {
 			long loopTime = refreshTimestampAndGet() - startTimestamp;
-			if (inspector != null) inspector.onUpdateConcurrentTasksStats(concurrentTasks, loopTime);
+			if (inspector != null) {
+				inspector.onUpdateConcurrentTasksStats(concurrentTasks, loopTime);
+				inspector.onUpdateSelectorWakeups(wokenUp ? 1 : 0, wokenUp ? concurrentTasks - 1 : concurrentTasks);
+			}
 		}
+		wokenUp = false;
 
 		return concurrentTasks;
 	}
@@ -673,7 +706,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		return executeScheduledTasks(backgroundTasks);
 	}
 
-	private int executeScheduledTasks(PriorityQueue<ScheduledRunnable> taskQueue) {
+	private int executeScheduledTasks(ScheduledQueue taskQueue) {
 		long startTimestamp = timestamp;
 		boolean background = taskQueue == backgroundTasks;
 
@@ -681,17 +714,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		Stopwatch sw = monitoring ? Stopwatch.createUnstarted() : null;
 
 		for (; ; ) {
-			ScheduledRunnable peeked = taskQueue.peek();
+			ScheduledRunnable peeked = taskQueue.poll(currentTimeMillis());
 			if (peeked == null)
 				break;
-			if (peeked.isCancelled()) {
-				taskQueue.poll();
-				continue;
-			}
-			if (peeked.getTimestamp() > currentTimeMillis()) {
-				break;
-			}
-			taskQueue.poll();
 
 			Runnable runnable = peeked.getRunnable();
 			if (sw != null) {
@@ -721,6 +746,8 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 			if (inspector != null) inspector.onUpdateScheduledTasksStats(scheduledTasks, loopTime, background);
 		}
 
+		if (inspector != null) inspector.onUpdateScheduledQueueStats(taskQueue.size(), taskQueue.getOccupiedSlots(), background);
+
 		return scheduledTasks;
 	}
 
@@ -840,20 +867,55 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	@NotNull
 	public ServerSocketChannel listen(@Nullable InetSocketAddress address, @NotNull ServerSocketSettings serverSocketSettings, @NotNull Consumer<SocketChannel> acceptCallback) throws IOException {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
-		ServerSocketChannel serverSocketChannel = null;
+		ServerSocketChannel serverSocketChannel = createServerSocketChannel(serverSocketSettings, address);
+		try {
+			listen(serverSocketChannel, acceptCallback);
+			return serverSocketChannel;
+		} catch (IOException e) {
+			closeChannel(serverSocketChannel, null);
+			throw e;
+		}
+	}
+
+	/**
+	 * Registers an already bound {@link ServerSocketChannel} in this eventloop.
+	 *
+	 * @param serverSocketChannel non-blocking server channel, e.g. created with {@link #createServerSocketChannel}
+	 * @param acceptCallback      callback that is called when new incoming connection is being accepted. It can be called multiple times.
+	 * @throws IOException If some I/O error occurs
+	 */
+	public void listen(@NotNull ServerSocketChannel serverSocketChannel, @NotNull Consumer<SocketChannel> acceptCallback) throws IOException {
+		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
+		serverSocketChannel.register(ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
+		if (selector != null) {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Creates a non-blocking {@link ServerSocketChannel} which is bound to the given address.
+	 * It may be created in any thread and then registered in an eventloop with {@link #listen(ServerSocketChannel, Consumer)}.
+	 *
+	 * @param serverSocketSettings settings for this server channel
+	 * @param address              InetSocketAddress that server will listen to
+	 * @return bound server channel
+	 * @throws IOException If some I/O error occurs
+	 */
+	@NotNull
+	public static ServerSocketChannel createServerSocketChannel(@NotNull ServerSocketSettings serverSocketSettings,
+			@Nullable InetSocketAddress address) throws IOException {
+		ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
 		try {
-			serverSocketChannel = ServerSocketChannel.open();
 			serverSocketSettings.applySettings(serverSocketChannel);
 			serverSocketChannel.configureBlocking(false);
 			serverSocketChannel.bind(address, serverSocketSettings.getBacklog());
-			serverSocketChannel.register(ensureSelector(), SelectionKey.OP_ACCEPT, acceptCallback);
-			if (selector != null) {
-				selector.wakeup();
-			}
 			return serverSocketChannel;
 		} catch (IOException e) {
-			if (serverSocketChannel != null) {
-				closeChannel(serverSocketChannel, null);
+			try {
+				serverSocketChannel.close();
+			} catch (Exception nested) {
+				logger.error("Failed closing server socket channel after I/O error", nested);
+				e.addSuppressed(nested);
 			}
 			throw e;
 		}
@@ -972,7 +1034,7 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	 */
 	public void post(@NotNull @Async.Schedule Runnable runnable) {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
-		localTasks.addFirst(runnable);
+		localTasks.addFirst(wrapTrace(runnable));
 	}
 
 	/**
@@ -982,12 +1044,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	 */
 	public void postLast(@NotNull @Async.Schedule Runnable runnable) {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
-		localTasks.addLast(runnable);
+		localTasks.addLast(wrapTrace(runnable));
 	}
 
 	public void postNext(@NotNull @Async.Schedule Runnable runnable) {
 		if (CHECK) checkState(inEventloopThread(), "Not in eventloop thread");
-		nextTasks.add(runnable);
+		nextTasks.add(wrapTrace(runnable));
 	}
 
 	/**
@@ -999,9 +1061,12 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 	 */
 	@Override
 	public void execute(@NotNull @Async.Schedule Runnable runnable) {
-		concurrentTasks.offer(runnable);
-		if (selector != null) {
-			selector.wakeup();
+		concurrentTasks.offer(wrapTrace(runnable));
+		if (selectorState.get() == SELECTING && selectorState.compareAndSet(SELECTING, WOKEN_UP)) {
+			Selector selector = this.selector;
+			if (selector != null) {
+				selector.wakeup();
+			}
 		}
 	}
 
@@ -1038,9 +1103,9 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 
 	@NotNull
 	private ScheduledRunnable addScheduledTask(long timestamp, Runnable runnable, boolean background) {
-		ScheduledRunnable scheduledTask = ScheduledRunnable.create(timestamp, runnable);
-		PriorityQueue<ScheduledRunnable> taskQueue = background ? backgroundTasks : scheduledTasks;
-		taskQueue.offer(scheduledTask);
+		ScheduledRunnable scheduledTask = ScheduledRunnable.create(timestamp, wrapTrace(runnable));
+		ScheduledQueue taskQueue = background ? backgroundTasks : scheduledTasks;
+		taskQueue.add(scheduledTask, currentTimeMillis());
 		return scheduledTask;
 	}
 
@@ -1187,6 +1252,19 @@ public final class Eventloop implements Runnable, EventloopExecutor, Scheduler,
 		}
 	}
 
+	/**
+	 * Records that some work has been cancelled before its completion,
+	 * so that it is not performed or its result is discarded.
+	 * Should be called from eventloop thread.
+	 *
+	 * @param context a source of the work, for example a socket or a blocking task
+	 */
+	public void recordCancellation(@NotNull Object context) {
+		if (inspector != null) {
+			inspector.onCancel(context);
+		}
+	}
+
 	private void handleFatalError(@NotNull FatalErrorHandler handler, @NotNull Throwable e, @Nullable Object context) {
 		if (inEventloopThread()) {
 			handler.handle(e, context);
@@ -40,11 +40,20 @@ public interface EventloopInspector extends BaseInspector<EventloopInspector> {
 
 	void onUpdateConcurrentTasksStats(int newConcurrentTasks, long loopTime);
 
+	default void onUpdateSelectorWakeups(int wakeups, int savedWakeups) {
+	}
+
 	void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background);
 
 	void onUpdateScheduledTasksStats(int scheduledTasks, long loopTime, boolean background);
 
 	void onFatalError(@NotNull Throwable e, @Nullable Object context);
 
+	default void onCancel(@NotNull Object context) {
+	}
+
 	void onScheduledTaskOverdue(int overdue, boolean background);
+
+	default void onUpdateScheduledQueueStats(int size, int occupiedSlots, boolean background) {
+	}
 }
@@ -16,6 +16,7 @@
 
 package io.activej.eventloop.inspector;
 
+import io.activej.common.ApplicationSettings;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.time.Stopwatch;
 import io.activej.jmx.api.attribute.JmxAttribute;
@@ -24,6 +25,7 @@ import io.activej.jmx.stats.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,6 +36,9 @@ import static io.activej.jmx.stats.JmxHistogram.POWERS_OF_TWO;
 
 @SuppressWarnings("unused")
 public final class EventloopStats extends AbstractInspector<EventloopInspector> implements EventloopInspector {
+	public static final Duration LOAD_SMOOTHING_WINDOW = ApplicationSettings.getDuration(EventloopStats.class, "loadSmoothingWindow", Duration.ofSeconds(1));
+	private static final long LOAD_UPDATE_PERIOD = 10;
+
 	private final EventStats loops;
 	private final ValueStats selectorSelectTimeout;
 	private final ValueStats selectorSelectTime;
@@ -42,9 +47,17 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 	private final Keys keys;
 	private final ExceptionStats fatalErrors;
 	private final Map<Class<? extends Throwable>, ExceptionStats> fatalErrorsMap;
+	private final EventStats cancellations;
+	private final Map<Class<?>, EventStats> cancellationsMap;
 	private final EventStats idleLoops;
 	private final EventStats idleLoopsWaitingExternalTask;
 	private final EventStats selectOverdues;
+	private final EventStats wakeups;
+	private final EventStats savedWakeups;
+
+	private long pendingBusyTime;
+	private long pendingSelectTime;
+	private volatile double load;
 
 	private EventloopStats() {
 		loops = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
@@ -56,9 +69,13 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		keys = new Keys();
 		fatalErrors = ExceptionStats.create();
 		fatalErrorsMap = new HashMap<>();
+		cancellations = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
+		cancellationsMap = new HashMap<>();
 		idleLoops = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 		idleLoopsWaitingExternalTask = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 		selectOverdues = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
+		wakeups = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
+		savedWakeups = EventStats.create(DEFAULT_SMOOTHING_WINDOW);
 	}
 
 	public static EventloopStats create() {
@@ -78,11 +95,25 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 				idleLoopsWaitingExternalTask.recordEvent();
 			}
 		}
+		pendingBusyTime += businessLogicTime;
 	}
 
 	@Override
 	public void onUpdateSelectorSelectTime(long selectorSelectTime) {
 		this.selectorSelectTime.recordValue((int) selectorSelectTime);
+		pendingSelectTime += selectorSelectTime;
+		updateLoad();
+	}
+
+	// Loop timings have a millisecond resolution, so they are accumulated
+	// for a few milliseconds before being added to the smoothed load
+	private void updateLoad() {
+		long total = pendingBusyTime + pendingSelectTime;
+		if (total < LOAD_UPDATE_PERIOD) return;
+		double weight = 1.0 - Math.exp(-(double) total / LOAD_SMOOTHING_WINDOW.toMillis());
+		load += ((double) pendingBusyTime / total - load) * weight;
+		pendingBusyTime = 0;
+		pendingSelectTime = 0;
 	}
 
 	@Override
@@ -140,6 +171,12 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		tasks.concurrent.tasksPerLoop.recordValue(newConcurrentTasks);
 	}
 
+	@Override
+	public void onUpdateSelectorWakeups(int wakeups, int savedWakeups) {
+		this.wakeups.recordEvents(wakeups);
+		this.savedWakeups.recordEvents(savedWakeups);
+	}
+
 	@Override
 	public void onUpdateScheduledTaskDuration(@NotNull Runnable runnable, @Nullable Stopwatch sw, boolean background) {
 		if (background) {
@@ -169,6 +206,13 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		stats.recordException(e, context);
 	}
 
+	@Override
+	public void onCancel(@NotNull Object context) {
+		cancellations.recordEvent();
+		cancellationsMap.computeIfAbsent(context.getClass(), k -> EventStats.create(DEFAULT_SMOOTHING_WINDOW))
+				.recordEvent();
+	}
+
 	@Override
 	public void onScheduledTaskOverdue(int overdue, boolean background) {
 		if (background) {
@@ -177,6 +221,13 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 			tasks.scheduled.overdues.recordValue(overdue);
 		}
 	}
+
+	@Override
+	public void onUpdateScheduledQueueStats(int size, int occupiedSlots, boolean background) {
+		ScheduledTaskStats stats = background ? tasks.background : tasks.scheduled;
+		stats.queueSize.recordValue(size);
+		stats.queueSlots.recordValue(occupiedSlots);
+	}
 	// endregion
 
 	// region root attributes
@@ -200,6 +251,17 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		return businessLogicTime;
 	}
 
+	/**
+	 * Returns a smoothed share of time which eventloop spends outside of
+	 * {@code selector.select()}, from 0.0 (idle) to 1.0 (fully busy).
+	 * <p>
+	 * May be read from any thread.
+	 */
+	@JmxAttribute(description = "smoothed share of time spent outside of selector.select()")
+	public double getLoad() {
+		return load;
+	}
+
 	@JmxAttribute
 	public Tasks getTasks() {
 		return tasks;
@@ -220,6 +282,16 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 		return fatalErrorsMap;
 	}
 
+	@JmxAttribute(description = "work which has been cancelled before its completion")
+	public EventStats getCancellations() {
+		return cancellations;
+	}
+
+	@JmxAttribute(description = "cancelled work by a type of its source")
+	public Map<Class<?>, EventStats> getCancellationsMap() {
+		return cancellationsMap;
+	}
+
 	@JmxAttribute
 	public EventStats getIdleLoops() {
 		return idleLoops;
@@ -234,6 +306,16 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 	public EventStats getSelectOverdues() {
 		return selectOverdues;
 	}
+
+	@JmxAttribute(description = "selector wakeups caused by concurrent tasks")
+	public EventStats getWakeups() {
+		return wakeups;
+	}
+
+	@JmxAttribute(description = "concurrent tasks that have been added without waking up the selector")
+	public EventStats getSavedWakeups() {
+		return savedWakeups;
+	}
 	// endregion
 
 	// region helper classes for stats grouping
@@ -313,15 +395,29 @@ public final class EventloopStats extends AbstractInspector<EventloopInspector>
 
 	public static final class ScheduledTaskStats extends TaskStats {
 		private final ValueStats overdues;
+		private final ValueStats queueSize;
+		private final ValueStats queueSlots;
 
 		ScheduledTaskStats() {
 			overdues = ValueStats.create(DEFAULT_SMOOTHING_WINDOW).withHistogram(POWERS_OF_TWO).withRate().withUnit("milliseconds");
+			queueSize = ValueStats.create(DEFAULT_SMOOTHING_WINDOW);
+			queueSlots = ValueStats.create(DEFAULT_SMOOTHING_WINDOW);
 		}
 
 		@JmxAttribute(extraSubAttributes = "histogram")
 		public ValueStats getOverdues() {
 			return overdues;
 		}
+
+		@JmxAttribute
+		public ValueStats getQueueSize() {
+			return queueSize;
+		}
+
+		@JmxAttribute(description = "number of occupied buckets (slots of timing wheel) in the queue")
+		public ValueStats getQueueSlots() {
+			return queueSlots;
+		}
 	}
 
 	public static final class Keys {
@@ -20,6 +20,7 @@ import io.activej.common.MemSize;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.net.SocketOption;
 import java.nio.channels.ServerSocketChannel;
 
 import static io.activej.common.Checks.checkState;
@@ -39,28 +40,41 @@ public final class ServerSocketSettings {
 	private final int backlog;
 	private final int receiveBufferSize;
 	private final byte reuseAddress;
+	private final byte reusePort;
 
 	// region builders
-	private ServerSocketSettings(int backlog, int receiveBufferSize, byte reuseAddress) {
+	private ServerSocketSettings(int backlog, int receiveBufferSize, byte reuseAddress, byte reusePort) {
 		this.backlog = backlog;
 		this.receiveBufferSize = receiveBufferSize;
 		this.reuseAddress = reuseAddress;
+		this.reusePort = reusePort;
 	}
 
 	public static ServerSocketSettings create(int backlog) {
-		return new ServerSocketSettings(backlog, 0, DEF_BOOL);
+		return new ServerSocketSettings(backlog, 0, DEF_BOOL, DEF_BOOL);
 	}
 
 	public ServerSocketSettings withBacklog(int backlog) {
-		return new ServerSocketSettings(backlog, receiveBufferSize, reuseAddress);
+		return new ServerSocketSettings(backlog, receiveBufferSize, reuseAddress, reusePort);
 	}
 
 	public ServerSocketSettings withReceiveBufferSize(@NotNull MemSize receiveBufferSize) {
-		return new ServerSocketSettings(backlog, receiveBufferSize.toInt(), reuseAddress);
+		return new ServerSocketSettings(backlog, receiveBufferSize.toInt(), reuseAddress, reusePort);
 	}
 
 	public ServerSocketSettings withReuseAddress(boolean reuseAddress) {
-		return new ServerSocketSettings(backlog, receiveBufferSize, reuseAddress ? TRUE : FALSE);
+		return new ServerSocketSettings(backlog, receiveBufferSize, reuseAddress ? TRUE : FALSE, reusePort);
+	}
+
+	/**
+	 * Sets SO_REUSEPORT option, so that several server sockets may be bound
+	 * to the same address and the kernel would balance incoming connections between them.
+	 * <p>
+	 * The option is not available on every platform,
+	 * {@link #applySettings(ServerSocketChannel)} fails if it is not supported.
+	 */
+	public ServerSocketSettings withReusePort(boolean reusePort) {
+		return new ServerSocketSettings(backlog, receiveBufferSize, reuseAddress, reusePort ? TRUE : FALSE);
 	}
 	// endregion
 
@@ -71,6 +85,25 @@ public final class ServerSocketSettings {
 		if (reuseAddress != DEF_BOOL) {
 			channel.setOption(SO_REUSEADDR, reuseAddress != FALSE);
 		}
+		if (reusePort != DEF_BOOL) {
+			SocketOption<Boolean> soReusePort = findReusePortOption(channel);
+			if (soReusePort != null) {
+				channel.setOption(soReusePort, reusePort != FALSE);
+			} else if (reusePort != FALSE) {
+				throw new IOException("SO_REUSEPORT is not supported");
+			}
+		}
+	}
+
+	// StandardSocketOptions.SO_REUSEPORT is only available since Java 9
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> findReusePortOption(ServerSocketChannel channel) {
+		for (SocketOption<?> option : channel.supportedOptions()) {
+			if (option.name().equals("SO_REUSEPORT") && option.type() == Boolean.class) {
+				return (SocketOption<Boolean>) option;
+			}
+		}
+		return null;
 	}
 
 	public int getBacklog() {
@@ -99,4 +132,13 @@ public final class ServerSocketSettings {
 		checkState(hasReuseAddress(), "No 'reuse address' setting is present");
 		return reuseAddress != FALSE;
 	}
+
+	public boolean hasReusePort() {
+		return reusePort != DEF_BOOL;
+	}
+
+	public boolean getReusePort() {
+		checkState(hasReusePort(), "No 'reuse port' setting is present");
+		return reusePort != FALSE;
+	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.PriorityQueue;
+
+/**
+ * Default {@link ScheduledQueue} backed by a binary heap.
+ * <p>
+ * Scheduling costs O(log n), cancelled tasks stay in the heap
+ * until they reach its top.
+ */
+public final class PriorityScheduledQueue implements ScheduledQueue {
+	private final PriorityQueue<ScheduledRunnable> queue = new PriorityQueue<>();
+
+	private PriorityScheduledQueue() {
+	}
+
+	public static PriorityScheduledQueue create() {
+		return new PriorityScheduledQueue();
+	}
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task, long now) {
+		queue.offer(task);
+	}
+
+	@Override
+	public void remove(@NotNull ScheduledRunnable task) {
+		// cancelled tasks are discarded lazily
+	}
+
+	@Nullable
+	@Override
+	public ScheduledRunnable poll(long now) {
+		ScheduledRunnable peeked = peek();
+		if (peeked == null || peeked.getTimestamp() > now) {
+			return null;
+		}
+		return queue.poll();
+	}
+
+	@Override
+	public long nextTimestamp() {
+		ScheduledRunnable peeked = peek();
+		return peeked != null ? peeked.getTimestamp() : Long.MAX_VALUE;
+	}
+
+	@Nullable
+	private ScheduledRunnable peek() {
+		while (true) {
+			ScheduledRunnable peeked = queue.peek();
+			if (peeked == null || !peeked.isCancelled()) {
+				return peeked;
+			}
+			queue.poll();
+		}
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int getOccupiedSlots() {
+		return queue.size();
+	}
+
+	@Override
+	public String toString() {
+		return "PriorityScheduledQueue{size=" + queue.size() + '}';
+	}
+}
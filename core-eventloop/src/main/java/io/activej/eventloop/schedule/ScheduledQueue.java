@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A queue of {@link ScheduledRunnable scheduled tasks}, which is used by eventloop
+ * to store its scheduled and background tasks.
+ * <p>
+ * Implementations are not thread-safe and are accessed from eventloop thread only.
+ *
+ * @see PriorityScheduledQueue
+ * @see TimingWheel
+ */
+public interface ScheduledQueue {
+	/**
+	 * Adds a task to this queue
+	 *
+	 * @param task a task to be added
+	 * @param now  current time of the eventloop
+	 */
+	void add(@NotNull ScheduledRunnable task, long now);
+
+	/**
+	 * Removes a cancelled task from this queue.
+	 * Implementations may ignore this call and discard cancelled tasks lazily instead.
+	 */
+	void remove(@NotNull ScheduledRunnable task);
+
+	/**
+	 * Retrieves and removes a task, which timestamp is less than or equal to {@code now}
+	 *
+	 * @return next expired task which is not cancelled or {@code null} if there are no such tasks
+	 */
+	@Nullable
+	ScheduledRunnable poll(long now);
+
+	/**
+	 * Returns a timestamp, at which next task may become expired.
+	 * It is never greater than the timestamp of the earliest task in this queue.
+	 *
+	 * @return next expiration timestamp or {@link Long#MAX_VALUE} if this queue is empty
+	 */
+	long nextTimestamp();
+
+	/**
+	 * Returns the number of tasks in this queue,
+	 * which may include cancelled tasks that have not been discarded yet
+	 */
+	int size();
+
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the number of distinct buckets that currently hold tasks
+	 */
+	int getOccupiedSlots();
+}
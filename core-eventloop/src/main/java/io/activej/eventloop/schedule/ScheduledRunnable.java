@@ -17,6 +17,7 @@
 package io.activej.eventloop.schedule;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	private final long timestamp;
@@ -24,6 +25,15 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	private boolean cancelled;
 	private boolean complete;
 
+	// intrusive links, maintained by the queue which holds this task
+	@Nullable
+	ScheduledQueue queue;
+	@Nullable
+	ScheduledRunnable prev;
+	@Nullable
+	ScheduledRunnable next;
+	int slot;
+
 	// region builders
 	private ScheduledRunnable(long timestamp, @NotNull Runnable runnable) {
 		this.timestamp = timestamp;
@@ -39,6 +49,9 @@ public final class ScheduledRunnable implements Comparable<ScheduledRunnable> {
 	public void cancel() {
 		cancelled = true;
 		runnable = null;
+		if (queue != null) {
+			queue.remove(this);
+		}
 	}
 
 	@SuppressWarnings("AssignmentToNull") // runnable has been completed
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.schedule;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hashed hierarchical timing wheel with a resolution of 1 millisecond.
+ * <p>
+ * The first level has 256 slots of 1 millisecond each, the next four levels
+ * have 64 slots each, covering about 49 days in total. Tasks that are scheduled further
+ * are kept in the last level and are re-distributed each time it is cascaded.
+ * <p>
+ * Each slot is an intrusive doubly linked list of {@link ScheduledRunnable tasks},
+ * so both scheduling and cancellation take O(1) time, and cancelled tasks
+ * are physically removed from the wheel. Occupied slots are tracked in a bitmap,
+ * so that the wheel may skip empty slots and compute the next expiration time quickly.
+ */
+public final class TimingWheel implements ScheduledQueue {
+	private static final int WHEEL0_BITS = 8;
+	private static final int WHEEL0_SIZE = 1 << WHEEL0_BITS;
+	private static final int WHEEL0_MASK = WHEEL0_SIZE - 1;
+
+	private static final int WHEEL_BITS = 6;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private static final int LEVELS = 5;
+	private static final int SLOTS = WHEEL0_SIZE + (LEVELS - 1) * WHEEL_SIZE;
+	private static final long MAX_DELAY = (1L << (WHEEL0_BITS + (LEVELS - 1) * WHEEL_BITS)) - 1;
+
+	/**
+	 * A slot that holds tasks which have already expired
+	 */
+	private static final int EXPIRED = SLOTS;
+
+	private final ScheduledRunnable[] heads = new ScheduledRunnable[SLOTS + 1];
+	private final ScheduledRunnable[] tails = new ScheduledRunnable[SLOTS + 1];
+	private final long[] occupied = new long[SLOTS / Long.SIZE];
+
+	/**
+	 * Next tick (timestamp) to be processed
+	 */
+	private long tick;
+
+	private int size;
+	private int occupiedSlots;
+
+	private long cascades;
+
+	private TimingWheel() {
+	}
+
+	public static TimingWheel create() {
+		return new TimingWheel();
+	}
+
+	@Override
+	public void add(@NotNull ScheduledRunnable task, long now) {
+		if (size == 0) {
+			tick = now;
+		}
+		link(task, slotOf(task.getTimestamp()));
+		task.queue = this;
+		size++;
+	}
+
+	@Override
+	public void remove(@NotNull ScheduledRunnable task) {
+		assert task.queue == this;
+		unlink(task);
+		task.queue = null;
+		size--;
+	}
+
+	@Nullable
+	@Override
+	public ScheduledRunnable poll(long now) {
+		if (heads[EXPIRED] == null) {
+			advance(now);
+		}
+		ScheduledRunnable task = heads[EXPIRED];
+		if (task != null) {
+			remove(task);
+		}
+		return task;
+	}
+
+	@Override
+	public long nextTimestamp() {
+		ScheduledRunnable expired = heads[EXPIRED];
+		if (expired != null) return expired.getTimestamp();
+		if (size == 0) return Long.MAX_VALUE;
+
+		long result = Long.MAX_VALUE;
+		int index = (int) (tick & WHEEL0_MASK);
+		int next = nextOccupied(index);
+		if (next != WHEEL0_SIZE) {
+			// upper levels are not cascaded until the next round, unless it starts right now
+			if (index != 0) return tick + (next - index);
+			result = tick + next;
+		} else {
+			next = nextOccupied(0);
+			if (next != WHEEL0_SIZE) {
+				result = (tick | WHEEL0_MASK) + 1 + next;
+			}
+		}
+		for (int level = 1; level < LEVELS; level++) {
+			long bits = occupied[WHEEL0_SIZE / Long.SIZE + level - 1];
+			if (bits == 0) continue;
+			int shift = shiftOf(level);
+			long round = (tick + (1L << shift) - 1) >> shift;
+			long rotated = Long.rotateRight(bits, (int) (round & WHEEL_MASK));
+			result = Math.min(result, (round + Long.numberOfTrailingZeros(rotated)) << shift);
+		}
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getOccupiedSlots() {
+		return occupiedSlots;
+	}
+
+	/**
+	 * Returns the number of times when tasks were moved from upper levels to the lower ones
+	 */
+	public long getCascades() {
+		return cascades;
+	}
+
+	private void advance(long now) {
+		while (tick <= now && size != 0) {
+			int index = (int) (tick & WHEEL0_MASK);
+			if (index == 0) {
+				cascade();
+			}
+			if (heads[index] != null) {
+				moveAll(index, EXPIRED);
+				tick++;
+				return;
+			}
+			int next = nextOccupied(index + 1);
+			tick = Math.min(tick + (next - index), now + 1);
+		}
+	}
+
+	private void cascade() {
+		for (int level = 1; level < LEVELS; level++) {
+			int shift = shiftOf(level);
+			int index = (int) ((tick >> shift) & WHEEL_MASK);
+			int slot = WHEEL0_SIZE + (level - 1) * WHEEL_SIZE + index;
+			ScheduledRunnable task = heads[slot];
+			if (task != null) {
+				cascades++;
+				heads[slot] = tails[slot] = null;
+				clearOccupied(slot);
+				while (task != null) {
+					ScheduledRunnable next = task.next;
+					task.prev = task.next = null;
+					link(task, slotOf(task.getTimestamp()));
+					task = next;
+				}
+			}
+			if (index != 0) break;
+		}
+	}
+
+	private void moveAll(int from, int to) {
+		ScheduledRunnable task = heads[from];
+		heads[from] = tails[from] = null;
+		clearOccupied(from);
+		while (task != null) {
+			ScheduledRunnable next = task.next;
+			task.prev = task.next = null;
+			link(task, to);
+			task = next;
+		}
+	}
+
+	private int slotOf(long timestamp) {
+		long delay = timestamp - tick;
+		if (delay < 0) return EXPIRED;
+		if (delay < WHEEL0_SIZE) return (int) (timestamp & WHEEL0_MASK);
+		if (delay > MAX_DELAY) {
+			timestamp = tick + MAX_DELAY;
+		}
+		int level = 1;
+		while (level < LEVELS - 1 && delay >= 1L << (shiftOf(level) + WHEEL_BITS)) {
+			level++;
+		}
+		return WHEEL0_SIZE + (level - 1) * WHEEL_SIZE + (int) ((timestamp >> shiftOf(level)) & WHEEL_MASK);
+	}
+
+	private static int shiftOf(int level) {
+		return WHEEL0_BITS + (level - 1) * WHEEL_BITS;
+	}
+
+	/**
+	 * Returns the first occupied slot of the first level starting from {@code from},
+	 * or {@link #WHEEL0_SIZE} if there are no such slots
+	 */
+	private int nextOccupied(int from) {
+		int i = from;
+		while (i < WHEEL0_SIZE) {
+			int word = i >>> 6;
+			long bits = occupied[word] & (-1L << i);
+			if (bits != 0) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+			i = (word + 1) << 6;
+		}
+		return WHEEL0_SIZE;
+	}
+
+	private void link(ScheduledRunnable task, int slot) {
+		task.slot = slot;
+		ScheduledRunnable tail = tails[slot];
+		if (tail == null) {
+			heads[slot] = task;
+			setOccupied(slot);
+		} else {
+			tail.next = task;
+			task.prev = tail;
+		}
+		tails[slot] = task;
+	}
+
+	private void unlink(ScheduledRunnable task) {
+		int slot = task.slot;
+		ScheduledRunnable prev = task.prev;
+		ScheduledRunnable next = task.next;
+		if (prev == null) {
+			heads[slot] = next;
+		} else {
+			prev.next = next;
+		}
+		if (next == null) {
+			tails[slot] = prev;
+		} else {
+			next.prev = prev;
+		}
+		task.prev = task.next = null;
+		if (heads[slot] == null) {
+			clearOccupied(slot);
+		}
+	}
+
+	private void setOccupied(int slot) {
+		if (slot == EXPIRED) return;
+		occupied[slot >>> 6] |= 1L << slot;
+		occupiedSlots++;
+	}
+
+	private void clearOccupied(int slot) {
+		if (slot == EXPIRED) return;
+		occupied[slot >>> 6] &= ~(1L << slot);
+		occupiedSlots--;
+	}
+
+	@Override
+	public String toString() {
+		return "TimingWheel{size=" + size + ", occupiedSlots=" + occupiedSlots + ", cascades=" + cascades + '}';
+	}
+}
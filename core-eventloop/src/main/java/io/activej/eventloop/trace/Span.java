@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single run of a traced task or callback
+ */
+public final class Span {
+	private final String name;
+	private final String thread;
+	private final long scheduledNanos;
+	private final long startNanos;
+	private final long finishNanos;
+
+	Span(@NotNull String name, @NotNull String thread, long scheduledNanos, long startNanos, long finishNanos) {
+		this.name = name;
+		this.thread = thread;
+		this.scheduledNanos = scheduledNanos;
+		this.startNanos = startNanos;
+		this.finishNanos = finishNanos;
+	}
+
+	/**
+	 * Returns a class name of a task or callback
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public String getThread() {
+		return thread;
+	}
+
+	public long getScheduledNanos() {
+		return scheduledNanos;
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	public long getFinishNanos() {
+		return finishNanos;
+	}
+
+	/**
+	 * Returns time between a task has been scheduled (or a callback has been registered) and it has been run
+	 */
+	public long getWaitNanos() {
+		return startNanos - scheduledNanos;
+	}
+
+	public long getRunNanos() {
+		return finishNanos - startNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "Span{" +
+				"name=" + name +
+				", thread=" + thread +
+				", waitNanos=" + getWaitNanos() +
+				", runNanos=" + getRunNanos() +
+				'}';
+	}
+}
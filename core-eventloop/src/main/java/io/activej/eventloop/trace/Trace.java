@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import io.activej.common.ApplicationSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A traced request, which consists of {@link Span spans} of tasks and callbacks run on its behalf
+ *
+ * @see Tracing
+ */
+public final class Trace {
+	public static final int MAX_SPANS = ApplicationSettings.getInt(Trace.class, "maxSpans", 1000);
+
+	private final TraceRecorder recorder;
+	private final long id;
+	private final String name;
+	private final long startTimestamp = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+	private long finishNanos;
+
+	private final List<Span> spans = new ArrayList<>();
+	private int droppedSpans;
+
+	Trace(@NotNull TraceRecorder recorder, @NotNull String name) {
+		this.recorder = recorder;
+		this.id = recorder.nextId();
+		this.name = name;
+	}
+
+	// spans may be added by different threads, spans of a finished trace are ignored
+	synchronized void addSpan(@NotNull Object task, long scheduledNanos, long startNanos, long finishNanos) {
+		if (this.finishNanos != 0) return;
+		if (spans.size() == MAX_SPANS) {
+			droppedSpans++;
+			return;
+		}
+		spans.add(new Span(task.getClass().getName(), Thread.currentThread().getName(), scheduledNanos, startNanos, finishNanos));
+	}
+
+	/**
+	 * Finishes this trace and passes it to a {@link TraceRecorder}
+	 */
+	public void finish() {
+		synchronized (this) {
+			if (finishNanos != 0) return;
+			finishNanos = System.nanoTime();
+		}
+		recorder.onFinish(this);
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getStartTimestamp() {
+		return startTimestamp;
+	}
+
+	public synchronized boolean isFinished() {
+		return finishNanos != 0;
+	}
+
+	/**
+	 * Returns a duration of a finished trace, or time which has passed since a trace has been started
+	 */
+	public synchronized long getDurationNanos() {
+		return (finishNanos != 0 ? finishNanos : System.nanoTime()) - startNanos;
+	}
+
+	public synchronized List<Span> getSpans() {
+		return new ArrayList<>(spans);
+	}
+
+	public synchronized int getDroppedSpans() {
+		return droppedSpans;
+	}
+
+	/**
+	 * Returns a multiline description of this trace, where spans are listed
+	 * with their offsets from a start of this trace
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder()
+				.append("Trace #").append(id).append(' ').append(name)
+				.append(": ").append(formatMillis(getDurationNanos())).append(" ms")
+				.append(", started at ").append(Instant.ofEpochMilli(startTimestamp));
+		for (Span span : spans) {
+			sb.append("\n  +").append(formatMillis(span.getStartNanos() - startNanos)).append(" ms")
+					.append(" wait ").append(formatMillis(span.getWaitNanos())).append(" ms")
+					.append(" run ").append(formatMillis(span.getRunNanos())).append(" ms")
+					.append(' ').append(span.getName())
+					.append(" [").append(span.getThread()).append(']');
+		}
+		if (droppedSpans != 0) {
+			sb.append("\n  ").append(droppedSpans).append(" spans dropped");
+		}
+		return sb.toString();
+	}
+
+	private static String formatMillis(long nanos) {
+		return String.format("%.3f", nanos / 1e6);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import io.activej.common.ApplicationSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.activej.common.Checks.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Samples traces and keeps the last of finished traces, which are slower than a threshold, in a ring buffer.
+ * <p>
+ * There is a single recorder, see {@link Tracing#getRecorder()}.
+ */
+public final class TraceRecorder implements TraceRecorderMXBean {
+	public static final double SAMPLING_RATE = ApplicationSettings.getDouble(TraceRecorder.class, "samplingRate", 0.01);
+	public static final Duration SLOW_THRESHOLD = ApplicationSettings.getDuration(TraceRecorder.class, "slowThreshold", Duration.ofMillis(100));
+	public static final int CAPACITY = ApplicationSettings.getInt(TraceRecorder.class, "capacity", 100);
+
+	private volatile double samplingRate = SAMPLING_RATE;
+	private volatile long slowThresholdNanos = SLOW_THRESHOLD.toNanos();
+
+	private final AtomicLong startedTraces = new AtomicLong();
+	private final AtomicLong finishedTraces = new AtomicLong();
+	private final AtomicLong slowTraces = new AtomicLong();
+
+	private final Trace[] traces = new Trace[CAPACITY];
+	private int head;
+
+	TraceRecorder() {
+	}
+
+	boolean sample() {
+		double samplingRate = this.samplingRate;
+		return samplingRate >= 1.0 || samplingRate > 0.0 && ThreadLocalRandom.current().nextDouble() < samplingRate;
+	}
+
+	long nextId() {
+		return startedTraces.incrementAndGet();
+	}
+
+	void onFinish(@NotNull Trace trace) {
+		finishedTraces.incrementAndGet();
+		if (trace.getDurationNanos() < slowThresholdNanos) return;
+		slowTraces.incrementAndGet();
+		synchronized (traces) {
+			traces[head] = trace;
+			head = (head + 1) % traces.length;
+		}
+	}
+
+	/**
+	 * Returns recorded slow traces, the most recent first
+	 */
+	public List<Trace> getTraces() {
+		List<Trace> result = new ArrayList<>(traces.length);
+		synchronized (traces) {
+			for (int i = 1; i <= traces.length; i++) {
+				Trace trace = traces[(head - i + traces.length) % traces.length];
+				if (trace == null) break;
+				result.add(trace);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double getSamplingRate() {
+		return samplingRate;
+	}
+
+	@Override
+	public void setSamplingRate(double samplingRate) {
+		checkArgument(samplingRate >= 0.0 && samplingRate <= 1.0, "Sampling rate should be in range [0, 1]");
+		this.samplingRate = samplingRate;
+	}
+
+	@Override
+	public long getSlowThresholdMillis() {
+		return slowThresholdNanos / 1_000_000;
+	}
+
+	@Override
+	public void setSlowThresholdMillis(long slowThresholdMillis) {
+		checkArgument(slowThresholdMillis >= 0, "Slow threshold should not be negative");
+		this.slowThresholdNanos = slowThresholdMillis * 1_000_000;
+	}
+
+	@Override
+	public long getStartedTraces() {
+		return startedTraces.get();
+	}
+
+	@Override
+	public long getFinishedTraces() {
+		return finishedTraces.get();
+	}
+
+	@Override
+	public long getSlowTracesCount() {
+		return slowTraces.get();
+	}
+
+	@Override
+	public List<String> getSlowTraces() {
+		return getTraces().stream().map(Trace::toString).collect(toList());
+	}
+
+	@Override
+	public void clear() {
+		synchronized (traces) {
+			Arrays.fill(traces, null);
+			head = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TraceRecorder{" +
+				"samplingRate=" + samplingRate +
+				", startedTraces=" + startedTraces +
+				", slowTraces=" + slowTraces +
+				'}';
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import io.activej.async.callback.Callback;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+final class TracedCallback<T> implements Callback<T> {
+	private final Trace trace;
+	final Callback<T> callback;
+	private final long scheduledNanos = System.nanoTime();
+
+	TracedCallback(@NotNull Trace trace, @NotNull Callback<T> callback) {
+		this.trace = trace;
+		this.callback = callback;
+	}
+
+	@Override
+	public void accept(T result, @Nullable Throwable e) {
+		Trace previous = Tracing.setCurrentTrace(trace);
+		long startNanos = System.nanoTime();
+		try {
+			callback.accept(result, e);
+		} finally {
+			trace.addSpan(callback, scheduledNanos, startNanos, System.nanoTime());
+			Tracing.setCurrentTrace(previous);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return callback.toString();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import io.activej.eventloop.util.RunnableWithContext;
+import org.jetbrains.annotations.NotNull;
+
+final class TracedRunnable implements RunnableWithContext {
+	private final Trace trace;
+	private final Runnable runnable;
+	private final long scheduledNanos = System.nanoTime();
+
+	TracedRunnable(@NotNull Trace trace, @NotNull Runnable runnable) {
+		this.trace = trace;
+		this.runnable = runnable;
+	}
+
+	@Override
+	public void run() {
+		Trace previous = Tracing.setCurrentTrace(trace);
+		long startNanos = System.nanoTime();
+		try {
+			runnable.run();
+		} finally {
+			trace.addSpan(runnable, scheduledNanos, startNanos, System.nanoTime());
+			Tracing.setCurrentTrace(previous);
+		}
+	}
+
+	@Override
+	public Object getContext() {
+		return runnable instanceof RunnableWithContext ? ((RunnableWithContext) runnable).getContext() : runnable;
+	}
+
+	@Override
+	public String toString() {
+		return runnable.toString();
+	}
+}
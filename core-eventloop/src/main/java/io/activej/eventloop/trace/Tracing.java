@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.trace;
+
+import io.activej.async.callback.Callback;
+import io.activej.common.ApplicationSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Causal tracing of asynchronous work, which is split across eventloop tasks,
+ * promise callbacks and blocking tasks.
+ * <p>
+ * A {@link Trace} is started for a sampled request and is made current for a thread.
+ * While a trace is current, tasks which are posted, executed or scheduled by an eventloop,
+ * promise callbacks and blocking tasks capture it, and restore it once they are run,
+ * recording a {@link Span} of each run. Finished traces, which are slower than a threshold,
+ * are kept by a {@link TraceRecorder}.
+ * <p>
+ * Tracing is enabled by {@code enabled} setting of this class,
+ * otherwise tasks and callbacks are not wrapped.
+ */
+public final class Tracing {
+	public static final boolean ENABLED = ApplicationSettings.getBoolean(Tracing.class, "enabled", false);
+
+	private static final ThreadLocal<Trace> CURRENT_TRACE = new ThreadLocal<>();
+
+	private static final TraceRecorder recorder = new TraceRecorder();
+
+	private Tracing() {
+	}
+
+	/**
+	 * Starts a new trace, if tracing is enabled and the trace is sampled.
+	 * The trace is not made current, see {@link #setCurrentTrace(Trace)}
+	 *
+	 * @param name name of a traced request
+	 * @return a new trace or {@code null} if there is nothing to trace
+	 */
+	@Nullable
+	public static Trace startTrace(@NotNull String name) {
+		if (!ENABLED || !recorder.sample()) return null;
+		return new Trace(recorder, name);
+	}
+
+	@Nullable
+	public static Trace getCurrentTrace() {
+		return CURRENT_TRACE.get();
+	}
+
+	/**
+	 * Makes a given trace current for this thread
+	 *
+	 * @return a trace which has been current before, it should be restored afterwards
+	 */
+	@Nullable
+	public static Trace setCurrentTrace(@Nullable Trace trace) {
+		Trace previous = CURRENT_TRACE.get();
+		CURRENT_TRACE.set(trace);
+		return previous;
+	}
+
+	/**
+	 * Wraps a runnable so that it is run within the current trace, if there is any
+	 */
+	public static Runnable wrapTrace(@NotNull Runnable runnable) {
+		if (!ENABLED) return runnable;
+		Trace trace = CURRENT_TRACE.get();
+		return trace == null ? runnable : new TracedRunnable(trace, runnable);
+	}
+
+	/**
+	 * Wraps a callback so that it is called within the current trace, if there is any
+	 */
+	public static <T> Callback<T> wrapTrace(@NotNull Callback<T> callback) {
+		if (!ENABLED) return callback;
+		Trace trace = CURRENT_TRACE.get();
+		return trace == null ? callback : new TracedCallback<>(trace, callback);
+	}
+
+	/**
+	 * Returns a callback which has been wrapped by {@link #wrapTrace(Callback)}
+	 */
+	public static Callback<?> unwrapTrace(@NotNull Callback<?> callback) {
+		return callback instanceof TracedCallback ? ((TracedCallback<?>) callback).callback : callback;
+	}
+
+	/**
+	 * Returns a recorder of finished traces, which may be registered as a global JMX singleton
+	 */
+	public static TraceRecorder getRecorder() {
+		return recorder;
+	}
+}
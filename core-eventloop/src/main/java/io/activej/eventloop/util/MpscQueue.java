@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.eventloop.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * An unbounded lock-free multi-producer single-consumer queue.
+ * <p>
+ * Items are stored in linked array segments, so unlike
+ * {@link java.util.concurrent.ConcurrentLinkedQueue} it does not allocate
+ * a node per item. Producers claim a slot with a single atomic increment.
+ * <p>
+ * {@link #poll()} and {@link #isEmpty()} must only be called by a single
+ * consumer thread, {@link #offer(Object)} and {@link #size()} may be called
+ * from any thread.
+ */
+public final class MpscQueue<T> {
+	private static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<MpscQueue, Segment> TAIL =
+			AtomicReferenceFieldUpdater.newUpdater(MpscQueue.class, Segment.class, "tail");
+
+	private final int segmentSize;
+
+	private volatile Segment<T> tail;
+
+	// accessed by consumer only
+	private Segment<T> head;
+	private int headIndex;
+
+	public MpscQueue() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MpscQueue(int segmentSize) {
+		this.segmentSize = segmentSize;
+		this.head = this.tail = new Segment<>(segmentSize);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void offer(@NotNull T item) {
+		while (true) {
+			Segment<T> tail = this.tail;
+			int index = tail.claim();
+			if (index < segmentSize) {
+				tail.items.lazySet(index, item);
+				return;
+			}
+			Segment<T> next = tail.next;
+			if (next == null) {
+				Segment<T> segment = new Segment<>(segmentSize);
+				segment.producerIndex = 1;
+				segment.items.lazySet(0, item);
+				if (Segment.NEXT.compareAndSet(tail, null, segment)) {
+					TAIL.compareAndSet(this, tail, segment);
+					return;
+				}
+				next = tail.next;
+			}
+			TAIL.compareAndSet(this, tail, next);
+		}
+	}
+
+	/**
+	 * Retrieves and removes the head of this queue.
+	 * An item may be not visible yet if its producer has claimed a slot
+	 * but has not stored the item yet, in this case {@code null} is returned.
+	 */
+	@Nullable
+	public T poll() {
+		Segment<T> head = this.head;
+		int index = headIndex;
+		if (index == segmentSize) {
+			Segment<T> next = head.next;
+			if (next == null) return null;
+			this.head = head = next;
+			headIndex = index = 0;
+		}
+		T item = head.items.get(index);
+		if (item == null) return null;
+		head.items.lazySet(index, null);
+		headIndex = index + 1;
+		return item;
+	}
+
+	/**
+	 * Returns {@code true} if there are no items in this queue,
+	 * items whose slots are claimed by producers are considered to be present.
+	 * Should be called by the consumer thread.
+	 */
+	public boolean isEmpty() {
+		Segment<T> head = this.head;
+		int index = headIndex;
+		if (index < segmentSize) {
+			return Math.min(head.producerIndex, segmentSize) == index;
+		}
+		Segment<T> next = head.next;
+		return next == null || next.producerIndex == 0;
+	}
+
+	/**
+	 * Returns an approximate number of items in this queue.
+	 * <p>
+	 * May be called from any thread, e.g. for monitoring. Consumer position
+	 * is read without synchronization, so when called concurrently with
+	 * {@link #poll()} the result may be off by the number of items
+	 * polled in the meantime.
+	 */
+	public int size() {
+		int size = -headIndex;
+		for (Segment<T> segment = head; segment != null; segment = segment.next) {
+			size += Math.min(segment.producerIndex, segmentSize);
+		}
+		return Math.max(size, 0);
+	}
+
+	private static final class Segment<T> {
+		@SuppressWarnings("rawtypes")
+		static final AtomicReferenceFieldUpdater<Segment, Segment> NEXT =
+				AtomicReferenceFieldUpdater.newUpdater(Segment.class, Segment.class, "next");
+		@SuppressWarnings("rawtypes")
+		static final AtomicIntegerFieldUpdater<Segment> PRODUCER_INDEX =
+				AtomicIntegerFieldUpdater.newUpdater(Segment.class, "producerIndex");
+
+		final AtomicReferenceArray<T> items;
+		volatile int producerIndex;
+		volatile Segment<T> next;
+
+		Segment(int size) {
+			items = new AtomicReferenceArray<>(size);
+		}
+
+		@SuppressWarnings("unchecked")
+		int claim() {
+			return PRODUCER_INDEX.getAndIncrement(this);
+		}
+	}
+}
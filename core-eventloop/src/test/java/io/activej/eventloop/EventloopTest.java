@@ -1,6 +1,8 @@
 package io.activej.eventloop;
 
 import io.activej.common.ref.Ref;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.eventloop.schedule.TimingWheel;
 import io.activej.eventloop.util.RunnableWithContext;
 import org.junit.Test;
 
@@ -32,4 +34,51 @@ public final class EventloopTest {
 		assertEquals(error, errorRef.get());
 		assertEquals(contextString, sb.toString());
 	}
+
+	@Test
+	public void testTimingWheel() {
+		StringBuilder sb = new StringBuilder();
+		Eventloop eventloop = Eventloop.create().withCurrentThread()
+				.withScheduledQueue(TimingWheel::create);
+		eventloop.delay(30, () -> sb.append("c"));
+		eventloop.delay(10, () -> sb.append("a"));
+		ScheduledRunnable cancelled = eventloop.delay(20, () -> sb.append("x"));
+		eventloop.delay(20, () -> sb.append("b"));
+		eventloop.delayBackground(1000, () -> sb.append("y"));
+		cancelled.cancel();
+		eventloop.run();
+		assertEquals("abc", sb.toString());
+	}
+
+	@Test
+	public void testConcurrentTasks() throws InterruptedException {
+		int threads = 4;
+		int tasks = 10_000;
+		Eventloop eventloop = Eventloop.create().withCurrentThread();
+		int[] counter = new int[1];
+		eventloop.startExternalTask();
+		Thread[] producers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < tasks; j++) {
+					eventloop.execute(() -> counter[0]++);
+				}
+			});
+			producers[i].start();
+		}
+		Thread waiter = new Thread(() -> {
+			for (Thread producer : producers) {
+				try {
+					producer.join();
+				} catch (InterruptedException e) {
+					throw new AssertionError(e);
+				}
+			}
+			eventloop.execute(eventloop::completeExternalTask);
+		});
+		waiter.start();
+		eventloop.run();
+		waiter.join();
+		assertEquals(threads * tasks, counter[0]);
+	}
 }
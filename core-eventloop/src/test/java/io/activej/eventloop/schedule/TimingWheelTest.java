@@ -0,0 +1,128 @@
+package io.activej.eventloop.schedule;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public final class TimingWheelTest {
+	private static final long START = 1_600_000_000_123L;
+
+	@Test
+	public void testExpiration() {
+		TimingWheel wheel = TimingWheel.create();
+		ScheduledRunnable first = task(START + 10);
+		ScheduledRunnable second = task(START + 300);
+		wheel.add(second, START);
+		wheel.add(first, START);
+		assertEquals(2, wheel.size());
+		assertTrue(wheel.nextTimestamp() <= START + 10);
+
+		assertNull(wheel.poll(START + 9));
+		assertSame(first, wheel.poll(START + 10));
+		assertNull(wheel.poll(START + 10));
+
+		assertTrue(wheel.nextTimestamp() <= START + 300);
+		assertNull(wheel.poll(START + 299));
+		assertSame(second, wheel.poll(START + 300));
+		assertTrue(wheel.isEmpty());
+		assertEquals(Long.MAX_VALUE, wheel.nextTimestamp());
+		assertEquals(0, wheel.getOccupiedSlots());
+	}
+
+	@Test
+	public void testCancel() {
+		TimingWheel wheel = TimingWheel.create();
+		ScheduledRunnable cancelled = task(START + 100_000);
+		ScheduledRunnable task = task(START + 100_000);
+		wheel.add(cancelled, START);
+		wheel.add(task, START);
+		assertEquals(1, wheel.getOccupiedSlots());
+
+		cancelled.cancel();
+		assertEquals(1, wheel.size());
+
+		task.cancel();
+		assertTrue(wheel.isEmpty());
+		assertEquals(0, wheel.getOccupiedSlots());
+		assertNull(wheel.poll(START + 100_000));
+	}
+
+	@Test
+	public void testExpiredTask() {
+		TimingWheel wheel = TimingWheel.create();
+		wheel.add(task(START + 1000), START);
+		ScheduledRunnable expired = task(START - 1);
+		wheel.add(expired, START);
+		assertEquals(START - 1, wheel.nextTimestamp());
+		assertSame(expired, wheel.poll(START));
+	}
+
+	@Test
+	public void testFarFuture() {
+		TimingWheel wheel = TimingWheel.create();
+		ScheduledRunnable task = task(START + 100L * 24 * 60 * 60 * 1000);
+		wheel.add(task, START);
+
+		long now = START;
+		while (true) {
+			long next = wheel.nextTimestamp();
+			assertTrue(next > now);
+			assertTrue(next <= task.getTimestamp());
+			now = next;
+			ScheduledRunnable polled = wheel.poll(now);
+			if (polled != null) {
+				assertSame(task, polled);
+				break;
+			}
+		}
+		assertEquals(task.getTimestamp(), now);
+		assertTrue(wheel.getCascades() > 0);
+	}
+
+	@Test
+	public void testRandomAgainstPriorityQueue() {
+		Random random = new Random(0);
+		TimingWheel wheel = TimingWheel.create();
+		PriorityQueue<ScheduledRunnable> expected = new PriorityQueue<>();
+		List<ScheduledRunnable> tasks = new ArrayList<>();
+
+		long now = START;
+		for (int i = 0; i < 100_000; i++) {
+			int action = random.nextInt(10);
+			if (action < 5) {
+				long delay = random.nextInt(4) == 0 ? random.nextInt(10_000_000) : random.nextInt(1000);
+				ScheduledRunnable task = task(now + delay);
+				wheel.add(task, now);
+				expected.add(task);
+				tasks.add(task);
+			} else if (action < 7 && !tasks.isEmpty()) {
+				ScheduledRunnable task = tasks.remove(random.nextInt(tasks.size()));
+				if (!task.isComplete()) {
+					task.cancel();
+					expected.remove(task);
+				}
+			} else {
+				now += random.nextInt(random.nextInt(20) == 0 ? 1_000_000 : 100);
+				ScheduledRunnable task;
+				while ((task = wheel.poll(now)) != null) {
+					assertTrue(task.getTimestamp() <= now);
+					assertTrue(expected.remove(task));
+					task.complete();
+				}
+				ScheduledRunnable peeked = expected.peek();
+				assertTrue(peeked == null || peeked.getTimestamp() > now);
+				assertTrue(peeked == null || wheel.nextTimestamp() <= peeked.getTimestamp());
+			}
+			assertEquals(expected.size(), wheel.size());
+		}
+	}
+
+	private static ScheduledRunnable task(long timestamp) {
+		return ScheduledRunnable.create(timestamp, () -> {});
+	}
+}
@@ -0,0 +1,59 @@
+package io.activej.eventloop.trace;
+
+import io.activej.async.callback.Callback;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class TracingTest {
+
+	@Test
+	public void testTraceIsRestored() {
+		TraceRecorder recorder = new TraceRecorder();
+		Trace trace = new Trace(recorder, "test");
+		Trace[] currentTraces = new Trace[2];
+
+		Runnable runnable = new TracedRunnable(trace, () -> currentTraces[0] = Tracing.getCurrentTrace());
+		Callback<Integer> callback = new TracedCallback<>(trace, (result, e) -> currentTraces[1] = Tracing.getCurrentTrace());
+		runnable.run();
+		callback.accept(1, null);
+
+		assertSame(trace, currentTraces[0]);
+		assertSame(trace, currentTraces[1]);
+		assertNull(Tracing.getCurrentTrace());
+		assertEquals(2, trace.getSpans().size());
+		assertSame(callback, Tracing.unwrapTrace(new TracedCallback<>(trace, callback)));
+
+		// spans after a trace is finished are ignored
+		trace.finish();
+		runnable.run();
+		assertEquals(2, trace.getSpans().size());
+		assertEquals(1, recorder.getFinishedTraces());
+	}
+
+	@Test
+	public void testRecorderKeepsSlowTraces() {
+		TraceRecorder recorder = new TraceRecorder();
+		recorder.setSlowThresholdMillis(Long.MAX_VALUE / 1_000_000);
+		new Trace(recorder, "fast").finish();
+		assertTrue(recorder.getTraces().isEmpty());
+
+		recorder.setSlowThresholdMillis(0);
+		Trace first = new Trace(recorder, "first");
+		Trace second = new Trace(recorder, "second");
+		first.finish();
+		second.finish();
+
+		List<Trace> traces = recorder.getTraces();
+		assertEquals(asList(second, first), traces);
+		assertEquals(3, recorder.getStartedTraces());
+		assertEquals(2, recorder.getSlowTracesCount());
+		assertTrue(recorder.getSlowTraces().get(0).startsWith("Trace #3 second"));
+
+		recorder.clear();
+		assertTrue(recorder.getTraces().isEmpty());
+	}
+}
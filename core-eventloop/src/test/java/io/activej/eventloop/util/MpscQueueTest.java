@@ -0,0 +1,71 @@
+package io.activej.eventloop.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MpscQueueTest {
+	@Test
+	public void testSingleThreaded() {
+		MpscQueue<Integer> queue = new MpscQueue<>(4);
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+
+		for (int i = 0; i < 10; i++) {
+			queue.offer(i);
+		}
+		assertFalse(queue.isEmpty());
+		assertEquals(10, queue.size());
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.size());
+		assertNull(queue.poll());
+
+		queue.offer(10);
+		assertEquals(Integer.valueOf(10), queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testMultipleProducers() throws InterruptedException {
+		int producers = 4;
+		int items = 100_000;
+		MpscQueue<long[]> queue = new MpscQueue<>(64);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < items; i++) {
+					queue.offer(new long[]{producer, i});
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		int[] expected = new int[producers];
+		int received = 0;
+		while (received != producers * items) {
+			long[] item = queue.poll();
+			if (item == null) {
+				Thread.yield();
+				continue;
+			}
+			int producer = (int) item[0];
+			assertEquals(expected[producer]++, item[1]);
+			received++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+}
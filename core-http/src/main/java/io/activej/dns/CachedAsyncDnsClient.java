@@ -23,19 +23,27 @@ import io.activej.dns.protocol.DnsQueryException;
 import io.activej.dns.protocol.DnsResponse;
 import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
@@ -54,6 +62,23 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 	private final Map<DnsQuery, Promise<DnsResponse>> pending = new HashMap<>();
 	private final Set<DnsQuery> refreshingNow = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+	private long refreshAheadMillis;
+	private int refreshAheadMinHits;
+	@Nullable
+	private ScheduledRunnable refreshAheadCheck;
+
+	@Nullable
+	private Path snapshotFile;
+	private Executor snapshotExecutor;
+	private long snapshotIntervalMillis;
+	@Nullable
+	private ScheduledRunnable snapshotSave;
+
+	// region JMX
+	private long refreshesAhead;
+	private long refreshAheadErrors;
+	// endregion
+
 	private CachedAsyncDnsClient(Eventloop eventloop, AsyncDnsClient client, DnsCache cache) {
 		this.eventloop = eventloop;
 		this.client = client;
@@ -85,6 +110,50 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		return this;
 	}
 
+	/**
+	 * Enables refreshing of hot entries ahead of their expiration, so that lookups
+	 * do not hit soft expired entries, which are refreshed lazily.
+	 * <p>
+	 * An entry is refreshed once it is going to expire within a given time, if it has been hit
+	 * at least {@code minHits} times since it was cached. If a refresh fails, the entry is kept
+	 * until it expires, as if it was not refreshed.
+	 *
+	 * @param refreshAhead how long before soft expiration an entry is refreshed
+	 * @param minHits      minimum number of hits which make an entry hot
+	 */
+	public CachedAsyncDnsClient withRefreshAhead(Duration refreshAhead, int minHits) {
+		checkArgument(refreshAhead.toMillis() > 0, "Refresh ahead time should be positive");
+		checkArgument(minHits > 0, "Minimum number of hits should be positive");
+		this.refreshAheadMillis = refreshAhead.toMillis();
+		this.refreshAheadMinHits = minHits;
+		return this;
+	}
+
+	/**
+	 * Loads the cache from a snapshot file if it exists, and saves the cache
+	 * to it periodically and on {@link #close()}, so that a restarted node starts with warm cache.
+	 * A snapshot which cannot be loaded is ignored.
+	 *
+	 * @param executor executor to write a snapshot file in
+	 * @param file     snapshot file
+	 * @param interval how often the snapshot is saved
+	 * @see DnsCache#saveSnapshot(Path)
+	 */
+	public CachedAsyncDnsClient withSnapshot(Executor executor, Path file, Duration interval) {
+		checkArgument(interval.toMillis() > 0, "Snapshot interval should be positive");
+		this.snapshotExecutor = executor;
+		this.snapshotFile = file;
+		this.snapshotIntervalMillis = interval.toMillis();
+		if (Files.exists(file)) {
+			try {
+				cache.loadSnapshot(file);
+			} catch (IOException e) {
+				logger.warn("Could not load DNS cache snapshot from {}", file, e);
+			}
+		}
+		return this;
+	}
+
 	public DnsCache getCache() {
 		return cache;
 	}
@@ -105,7 +174,7 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 
 				DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
 				if (cacheResult != null) {
-					if (cacheResult.doesNeedRefreshing() && !refreshingNow.add(query)) {
+					if (cacheResult.doesNeedRefreshing() && !refreshingNow.contains(query)) {
 						eventloop.execute(wrapContext(this, () -> refresh(query)));
 					}
 					return cacheResult.getResponseAsPromise();
@@ -150,6 +219,56 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 				});
 	}
 
+	private void refreshAhead(DnsQuery query) {
+		if (!refreshingNow.add(query)) return;
+		logger.trace("Refreshing {} ahead of expiration", query);
+		refreshesAhead++;
+		client.resolve(query)
+				.whenComplete((response, e) -> {
+					if (e == null) {
+						cache.add(query, response, true);
+					} else {
+						// a still valid entry is not replaced with an error
+						refreshAheadErrors++;
+						logger.trace("Could not refresh {} ahead of expiration", query, e);
+					}
+					refreshingNow.remove(query);
+				});
+	}
+
+	private void scheduleRefreshAheadCheck() {
+		assert refreshAheadCheck == null;
+		refreshAheadCheck = eventloop.delayBackground(Math.min(1000L, refreshAheadMillis / 2 + 1), wrapContext(this, () -> {
+			refreshAheadCheck = null;
+			for (DnsQuery query : cache.getRefreshAheadCandidates(refreshAheadMillis, refreshAheadMinHits)) {
+				refreshAhead(query);
+			}
+			scheduleRefreshAheadCheck();
+		}));
+	}
+
+	private void scheduleSnapshotSave() {
+		assert snapshotSave == null && snapshotFile != null;
+		snapshotSave = eventloop.delayBackground(snapshotIntervalMillis, wrapContext(this, () ->
+				saveSnapshot()
+						.whenComplete(() -> {
+							snapshotSave = null;
+							if (snapshotIntervalMillis != 0) {
+								scheduleSnapshotSave();
+							}
+						})));
+	}
+
+	/**
+	 * Saves the cache to a snapshot file, see {@link #withSnapshot(Executor, Path, Duration)}
+	 */
+	public Promise<Void> saveSnapshot() {
+		Path snapshotFile = this.snapshotFile;
+		checkState(snapshotFile != null, "Snapshot file is not set");
+		return Promise.ofBlockingRunnable(snapshotExecutor, () -> cache.saveSnapshot(snapshotFile))
+				.whenException(e -> logger.warn("Could not save DNS cache snapshot to {}", snapshotFile, e));
+	}
+
 	@Override
 	public Promise<DnsResponse> resolve(DnsQuery query) {
 		if (CHECK) {
@@ -162,6 +281,13 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 			return Promise.of(fromQuery);
 		}
 
+		if (refreshAheadMillis != 0 && refreshAheadCheck == null) {
+			scheduleRefreshAheadCheck();
+		}
+		if (snapshotFile != null && snapshotIntervalMillis != 0 && snapshotSave == null) {
+			scheduleSnapshotSave();
+		}
+
 		logger.trace("Resolving {}", query);
 		DnsQueryCacheResult cacheResult = cache.tryToResolve(query);
 		if (cacheResult != null) {
@@ -188,6 +314,19 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 
 	@Override
 	public void close() {
+		refreshAheadMillis = 0;
+		if (refreshAheadCheck != null) {
+			refreshAheadCheck.cancel();
+			refreshAheadCheck = null;
+		}
+		if (snapshotFile != null) {
+			snapshotIntervalMillis = 0;
+			if (snapshotSave != null) {
+				snapshotSave.cancel();
+				snapshotSave = null;
+			}
+			saveSnapshot();
+		}
 		client.close();
 	}
 
@@ -197,4 +336,51 @@ public final class CachedAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 		return eventloop;
 	}
 
+	// region JMX
+	@JmxAttribute
+	public long getCacheHits() {
+		return cache.getHits();
+	}
+
+	@JmxAttribute
+	public long getCacheMisses() {
+		return cache.getMisses();
+	}
+
+	@JmxAttribute(description = "hits of entries which have soft expired and have been refreshed lazily")
+	public long getSoftExpiredHits() {
+		return cache.getSoftExpiredHits();
+	}
+
+	@JmxAttribute(description = "hits of entries which have been refreshed ahead of expiration")
+	public long getRefreshedAheadHits() {
+		return cache.getRefreshedAheadHits();
+	}
+
+	@JmxAttribute(description = "ratio of cache hits which have been served by entries refreshed ahead of expiration")
+	public double getRefreshAheadHitRatio() {
+		long hits = cache.getHits();
+		return hits != 0 ? (double) cache.getRefreshedAheadHits() / hits : 0.0;
+	}
+
+	@JmxAttribute
+	public long getRefreshesAhead() {
+		return refreshesAhead;
+	}
+
+	@JmxAttribute
+	public long getRefreshAheadErrors() {
+		return refreshAheadErrors;
+	}
+
+	@JmxAttribute
+	public int getCachedDomainNamesCount() {
+		return cache.getNumberOfCachedDomainNames();
+	}
+
+	@JmxOperation
+	public void saveSnapshotNow() {
+		saveSnapshot();
+	}
+	// endregion
 }
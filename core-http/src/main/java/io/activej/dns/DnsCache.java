@@ -18,10 +18,7 @@ package io.activej.dns;
 
 import io.activej.common.Checks;
 import io.activej.common.time.CurrentTimeProvider;
-import io.activej.dns.protocol.DnsProtocol;
-import io.activej.dns.protocol.DnsQuery;
-import io.activej.dns.protocol.DnsQueryException;
-import io.activej.dns.protocol.DnsResponse;
+import io.activej.dns.protocol.*;
 import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
@@ -29,13 +26,23 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static io.activej.common.Checks.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * Represents a cache for storing resolved domains during its time to live.
@@ -59,6 +66,13 @@ public final class DnsCache {
 	private final AtomicBoolean cleaningUpNow = new AtomicBoolean(false);
 	private final PriorityQueue<CachedDnsQueryResult> expirations = new PriorityQueue<>();
 
+	// region stats
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong softExpiredHits = new AtomicLong();
+	private final AtomicLong refreshedAheadHits = new AtomicLong();
+	// endregion
+
 	@NotNull
 	CurrentTimeProvider now;
 
@@ -112,6 +126,7 @@ public final class DnsCache {
 
 		if (cachedResult == null) {
 			logger.trace("{} cache miss", query);
+			misses.incrementAndGet();
 			return null;
 		}
 
@@ -125,9 +140,17 @@ public final class DnsCache {
 
 		if (isExpired(cachedResult)) {
 			logger.trace("{} hard TTL expired", query);
+			misses.incrementAndGet();
 			return null;
-		} else if (isSoftExpired(cachedResult)) {
+		}
+		hits.incrementAndGet();
+		cachedResult.hits++; // may be updated concurrently, so it is just an estimate
+		if (cachedResult.refreshedAhead) {
+			refreshedAheadHits.incrementAndGet();
+		}
+		if (isSoftExpired(cachedResult)) {
 			logger.trace("{} soft TTL expired", query);
+			softExpiredHits.incrementAndGet();
 			return new DnsQueryCacheResult(result, true);
 		}
 		return new DnsQueryCacheResult(result, false);
@@ -147,6 +170,10 @@ public final class DnsCache {
 	 * @param response response to add
 	 */
 	public void add(DnsQuery query, DnsResponse response) {
+		add(query, response, false);
+	}
+
+	void add(DnsQuery query, DnsResponse response, boolean refreshedAhead) {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Concurrent cache adds are not allowed");
 		long expirationTime = now.currentTimeMillis();
 		if (response.isSuccessful()) {
@@ -162,6 +189,11 @@ public final class DnsCache {
 					errorCacheExpiration;
 		}
 		CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(response, expirationTime);
+		cachedResult.refreshedAhead = refreshedAhead;
+		put(query, cachedResult);
+	}
+
+	private void put(DnsQuery query, CachedDnsQueryResult cachedResult) {
 		CachedDnsQueryResult old = cache.put(query, cachedResult);
 		expirations.add(cachedResult);
 
@@ -192,6 +224,130 @@ public final class DnsCache {
 		cleaningUpNow.set(false);
 	}
 
+	/**
+	 * Returns successfully resolved queries, which are going to soft expire within a given time
+	 * and which have been hit at least {@code minHits} times since they were cached
+	 */
+	List<DnsQuery> getRefreshAheadCandidates(long refreshAheadMillis, int minHits) {
+		long currentTime = now.currentTimeMillis();
+		List<DnsQuery> result = new ArrayList<>();
+		cache.forEach((query, cachedResult) -> {
+			DnsResponse response = cachedResult.response;
+			if (response != null && response.isSuccessful() &&
+					cachedResult.hits >= minHits &&
+					cachedResult.expirationTime - currentTime <= refreshAheadMillis &&
+					!isExpired(cachedResult)) {
+				result.add(query);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Writes successfully resolved entries, which have not expired yet, to a given file,
+	 * so that they can be loaded with {@link #loadSnapshot(Path)} after a restart.
+	 * <p>
+	 * The file is replaced atomically, this method may be called from any thread.
+	 *
+	 * @return number of saved entries
+	 */
+	public int saveSnapshot(Path file) throws IOException {
+		long currentTime = now.currentTimeMillis();
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		int count = 0;
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile, UTF_8)) {
+			for (Entry<DnsQuery, CachedDnsQueryResult> entry : cache.entrySet()) {
+				CachedDnsQueryResult cachedResult = entry.getValue();
+				DnsResponse response = cachedResult.response;
+				if (response == null || !response.isSuccessful() || isExpired(cachedResult)) continue;
+				DnsQuery query = entry.getKey();
+				DnsResourceRecord record = response.getRecord();
+				assert record != null;
+				StringJoiner ips = new StringJoiner(",");
+				for (InetAddress ip : record.getIps()) {
+					ips.add(ip.getHostAddress());
+				}
+				writer.write(query.getDomainName() + ';' + query.getRecordType() + ';' +
+						cachedResult.expirationTime + ';' + record.getMinTtl() + ';' + ips);
+				writer.newLine();
+				count++;
+			}
+		}
+		try {
+			Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+		} catch (IOException e) {
+			Files.move(tempFile, file, REPLACE_EXISTING);
+		}
+		logger.trace("Saved {} cache entries to {} in {} ms", count, file, now.currentTimeMillis() - currentTime);
+		return count;
+	}
+
+	/**
+	 * Loads entries saved with {@link #saveSnapshot(Path)}, entries which have expired since then are skipped.
+	 * Entries keep their original expiration time, so the ones which have soft expired are refreshed on their first hit.
+	 * <p>
+	 * Should be called either before the cache is used or from the eventloop thread.
+	 *
+	 * @return number of loaded entries
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public int loadSnapshot(Path file) throws IOException {
+		int count = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				String[] parts = line.split(";");
+				if (parts.length != 5) {
+					throw new IOException("Malformed DNS cache snapshot entry: " + line);
+				}
+				try {
+					DnsQuery query = DnsQuery.of(parts[0], DnsProtocol.RecordType.valueOf(parts[1]));
+					long expirationTime = Long.parseLong(parts[2]);
+					int minTtl = Integer.parseInt(parts[3]);
+					String[] ipStrings = parts[4].split(",");
+					InetAddress[] ips = new InetAddress[ipStrings.length];
+					for (int i = 0; i < ipStrings.length; i++) {
+						// addresses are literal, so no lookups are made
+						ips[i] = InetAddress.getByName(ipStrings[i]);
+					}
+					CachedDnsQueryResult cachedResult = new CachedDnsQueryResult(
+							DnsResponse.of(DnsTransaction.of((short) 0, query), DnsResourceRecord.of(ips, minTtl)),
+							expirationTime);
+					if (isExpired(cachedResult)) continue;
+					put(query, cachedResult);
+					count++;
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Malformed DNS cache snapshot entry: " + line, e);
+				}
+			}
+		}
+		logger.trace("Loaded {} cache entries from {}", count, file);
+		return count;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of hits of entries which have soft expired, so they have been refreshed lazily
+	 */
+	public long getSoftExpiredHits() {
+		return softExpiredHits.get();
+	}
+
+	/**
+	 * Returns the number of hits of entries which have been refreshed ahead of their expiration
+	 */
+	public long getRefreshedAheadHits() {
+		return refreshedAheadHits.get();
+	}
+
 	public long getMaxTtl() {
 		return maxTtl;
 	}
@@ -306,6 +462,8 @@ public final class DnsCache {
 		@Nullable
 		DnsResponse response;
 		final long expirationTime;
+		int hits;
+		boolean refreshedAhead;
 
 		CachedDnsQueryResult(@Nullable DnsResponse response, long expirationTime) {
 			this.response = response;
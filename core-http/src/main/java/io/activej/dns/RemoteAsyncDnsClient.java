@@ -167,6 +167,13 @@ public final class RemoteAsyncDnsClient implements AsyncDnsClient, EventloopJmxB
 
 					DnsTransaction transaction = DnsTransaction.of(DnsProtocol.generateTransactionId(), query);
 					SettablePromise<DnsResponse> promise = new SettablePromise<>();
+					// a response to a cancelled query is ignored, just like a response to an expired one
+					promise.setCancelHandler(e -> {
+						if (transactions.remove(transaction) != null) {
+							eventloop.recordCancellation(this);
+							closeIfDone();
+						}
+					});
 
 					transactions.put(transaction, promise);
 
@@ -0,0 +1,1002 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.AbstractChannelSupplier;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.stream.BufsConsumerGzipInflater;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.equalsLowerCaseAscii;
+import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
+import static io.activej.http.HttpHeaderValue.ofDecimal;
+import static io.activej.http.HttpHeaders.*;
+import static java.lang.Math.min;
+
+/**
+ * A base for HTTP/2 connections, as defined in RFC 7540.
+ * <p>
+ * It implements framing, connection settings, HPACK header compression
+ * and flow control, while the subclasses map streams to HTTP requests and responses.
+ * Received bodies are exposed as {@link ChannelSupplier}s, the peer is allowed to send
+ * more data only as the supplied bufs are consumed.
+ */
+abstract class AbstractHttp2Connection extends AbstractHttpConnection {
+	public static final ParseException PROTOCOL_VIOLATION = new ParseException(AbstractHttp2Connection.class, "HTTP/2 protocol error");
+	public static final ParseException FLOW_CONTROL_VIOLATION = new ParseException(AbstractHttp2Connection.class, "HTTP/2 flow control error");
+	public static final ParseException FRAME_SIZE_VIOLATION = new ParseException(AbstractHttp2Connection.class, "HTTP/2 frame size error");
+	public static final ParseException STREAM_RESET = new ParseException(AbstractHttp2Connection.class, "HTTP/2 stream has been reset");
+	public static final ParseException CONNECTION_CLOSED = new ParseException(AbstractHttp2Connection.class, "HTTP/2 connection closed");
+
+	public static final MemSize INITIAL_WINDOW_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "initialWindowSize", MemSize.kilobytes(256));
+	public static final MemSize CONNECTION_WINDOW_SIZE = ApplicationSettings.getMemSize(AbstractHttp2Connection.class, "connectionWindowSize", MemSize.megabytes(1));
+	public static final int MAX_CONCURRENT_STREAMS = ApplicationSettings.getInt(AbstractHttp2Connection.class, "maxConcurrentStreams", 100);
+
+	static final byte[] CONNECTION_PREFACE = encodeAscii("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+
+	// region frame types, flags, settings and error codes
+	static final int DATA = 0x0;
+	static final int HEADERS = 0x1;
+	static final int PRIORITY = 0x2;
+	static final int RST_STREAM = 0x3;
+	static final int SETTINGS = 0x4;
+	static final int PUSH_PROMISE = 0x5;
+	static final int PING = 0x6;
+	static final int GOAWAY = 0x7;
+	static final int WINDOW_UPDATE = 0x8;
+	static final int CONTINUATION = 0x9;
+
+	static final int FLAG_END_STREAM = 0x1;
+	static final int FLAG_ACK = 0x1;
+	static final int FLAG_END_HEADERS = 0x4;
+	static final int FLAG_PADDED = 0x8;
+	static final int FLAG_PRIORITY = 0x20;
+
+	static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+	static final int SETTINGS_ENABLE_PUSH = 0x2;
+	static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+	static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+	static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+
+	static final int NO_ERROR = 0x0;
+	static final int PROTOCOL_ERROR = 0x1;
+	static final int INTERNAL_ERROR = 0x2;
+	static final int FLOW_CONTROL_ERROR = 0x3;
+	static final int STREAM_CLOSED = 0x5;
+	static final int FRAME_SIZE_ERROR = 0x6;
+	static final int REFUSED_STREAM = 0x7;
+	static final int CANCEL = 0x8;
+	static final int COMPRESSION_ERROR = 0x9;
+	// endregion
+
+	static final int FRAME_HEADER_SIZE = 9;
+	static final int DEFAULT_WINDOW_SIZE = 65535;
+	static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+
+	private static final int MAX_HEADER_BLOCK_SIZE = MAX_HEADERS * MAX_HEADER_LINE_SIZE_BYTES;
+
+	protected final Hpack.Encoder encoder = new Hpack.Encoder();
+	protected final Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_HEADER_TABLE_SIZE);
+	protected final Map<Integer, Stream> streams = new HashMap<>();
+	/**
+	 * Decoded fields of the last header block, names and values are interleaved
+	 */
+	protected final List<byte[]> headerFields = new ArrayList<>();
+	private final Hpack.HeaderListener headerFieldsListener = (name, value) -> {
+		if (headerFields.size() >= 2 * MAX_HEADERS) throw TOO_MANY_HEADERS;
+		headerFields.add(name);
+		headerFields.add(value);
+	};
+
+	protected int peerMaxConcurrentStreams = Integer.MAX_VALUE;
+	private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+	// flow control
+	protected final int initialWindowSize = INITIAL_WINDOW_SIZE.toInt();
+	private final int connectionWindowSize = Math.max(DEFAULT_WINDOW_SIZE, CONNECTION_WINDOW_SIZE.toInt());
+	private int sendWindow = DEFAULT_WINDOW_SIZE;
+	private int receiveWindow = connectionWindowSize;
+	private int receiveCredit;
+	private final ArrayDeque<Stream> blockedStreams = new ArrayDeque<>();
+
+	// a header block, which is being received in HEADERS and CONTINUATION frames
+	@Nullable
+	private ByteBuf headerBlock;
+	private int headerBlockStreamId;
+	private boolean headerBlockEndStream;
+
+	private ByteBuf out = ByteBuf.empty();
+	private boolean flushPosted;
+	@Nullable
+	private SettablePromise<Void> flushPromise;
+
+	protected boolean goAway;
+	@Nullable
+	protected Throwable closeError;
+
+	AbstractHttp2Connection(Eventloop eventloop, AsyncTcpSocket socket) {
+		super(eventloop, socket);
+	}
+
+	/**
+	 * Is called when a complete header block has been received,
+	 * it must be decoded even if its stream is ignored, to keep the HPACK state in sync
+	 */
+	protected abstract void onHeaderBlock(int streamId, ByteBuf block, boolean endStream) throws ParseException;
+
+	protected abstract void onStreamClosed(Stream stream);
+
+	protected abstract void onStreamReset(Stream stream, Throwable e);
+
+	protected void onSettings() {
+	}
+
+	/**
+	 * Is called after the received body of a stream has been read to its end or closed
+	 */
+	protected void onBodyConsumed(Stream stream) {
+	}
+
+	protected abstract void onGoAway(int lastStreamId);
+
+	// region HTTP/1.1 parsing callbacks, which are never called
+	@Override
+	protected final void onStartLine(byte[] line, int limit) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeaderBuf(ByteBuf buf) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeader(HttpHeader header, byte[] array, int off, int len) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeaders(HttpHeader[] headers, byte[][] arrays, int[] positions, int count) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onBodyReceived() {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onBodySent() {
+		throw new AssertionError();
+	}
+
+	@Override
+	protected final void onNoContentLength() {
+		throw new AssertionError();
+	}
+	// endregion
+
+	@Override
+	protected void onClosedWithError(@NotNull Throwable e) {
+		closeError = e;
+	}
+
+	protected final void writeConnectionPreface() {
+		out = ByteBufPool.ensureWriteRemaining(out, CONNECTION_PREFACE.length);
+		out.put(CONNECTION_PREFACE);
+	}
+
+	protected final void writeSettings(int... settings) {
+		ByteBuf buf = frame(SETTINGS, 0, 0, settings.length * 3);
+		for (int i = 0; i < settings.length; i += 2) {
+			buf.writeByte((byte) (settings[i] >>> 8));
+			buf.writeByte((byte) settings[i]);
+			buf.writeInt(settings[i + 1]);
+		}
+		if (connectionWindowSize > DEFAULT_WINDOW_SIZE) {
+			writeWindowUpdate(0, connectionWindowSize - DEFAULT_WINDOW_SIZE);
+		}
+	}
+
+	protected final Stream openStream(int id) {
+		Stream stream = new Stream(id, peerInitialWindowSize, initialWindowSize);
+		streams.put(id, stream);
+		return stream;
+	}
+
+	// region reading
+	protected final void readFrames() {
+		while (!isClosed()) {
+			if (!readQueue.hasRemainingBytes(FRAME_HEADER_SIZE)) break;
+			int length = ((readQueue.peekByte(0) & 0xFF) << 16) | ((readQueue.peekByte(1) & 0xFF) << 8) | (readQueue.peekByte(2) & 0xFF);
+			if (length > DEFAULT_MAX_FRAME_SIZE) {
+				connectionError(FRAME_SIZE_VIOLATION);
+				return;
+			}
+			if (!readQueue.hasRemainingBytes(FRAME_HEADER_SIZE + length)) break;
+			int type = readQueue.peekByte(3) & 0xFF;
+			int flags = readQueue.peekByte(4) & 0xFF;
+			int streamId = ((readQueue.peekByte(5) & 0x7F) << 24) | ((readQueue.peekByte(6) & 0xFF) << 16) |
+					((readQueue.peekByte(7) & 0xFF) << 8) | (readQueue.peekByte(8) & 0xFF);
+			readQueue.skip(FRAME_HEADER_SIZE);
+			ByteBuf payload = readQueue.takeExactSize(length);
+			try {
+				onFrame(type, flags, streamId, payload);
+			} catch (ParseException e) {
+				connectionError(e);
+				return;
+			}
+		}
+		if (isClosed()) return;
+		socket.read()
+				.whenComplete((buf, e) -> {
+					if (isClosed()) {
+						if (buf != null) buf.recycle();
+						return;
+					}
+					if (e == null) {
+						if (buf != null) {
+							readQueue.add(buf);
+							readFrames();
+						} else {
+							close();
+						}
+					} else {
+						closeWithError(e);
+					}
+				});
+	}
+
+	private void onFrame(int type, int flags, int streamId, ByteBuf payload) throws ParseException {
+		if (type == DATA) {
+			onData(flags, streamId, payload);
+			return;
+		}
+		try {
+			if (headerBlock != null && type != CONTINUATION) throw PROTOCOL_VIOLATION;
+			switch (type) {
+				case HEADERS:
+					onHeaders(flags, streamId, payload);
+					break;
+				case CONTINUATION:
+					onContinuation(flags, streamId, payload);
+					break;
+				case RST_STREAM:
+					if (streamId == 0) throw PROTOCOL_VIOLATION;
+					if (payload.readRemaining() != 4) throw FRAME_SIZE_VIOLATION;
+					Stream stream = streams.get(streamId);
+					if (stream != null) {
+						doResetStream(stream, STREAM_RESET);
+					}
+					break;
+				case SETTINGS:
+					onSettings(flags, streamId, payload);
+					break;
+				case PING:
+					if (streamId != 0) throw PROTOCOL_VIOLATION;
+					if (payload.readRemaining() != 8) throw FRAME_SIZE_VIOLATION;
+					if ((flags & FLAG_ACK) == 0) {
+						frame(PING, FLAG_ACK, 0, 8).put(payload);
+					}
+					break;
+				case GOAWAY:
+					if (streamId != 0) throw PROTOCOL_VIOLATION;
+					if (payload.readRemaining() < 8) throw FRAME_SIZE_VIOLATION;
+					goAway = true;
+					onGoAway(payload.readInt() & 0x7FFFFFFF);
+					break;
+				case WINDOW_UPDATE:
+					if (payload.readRemaining() != 4) throw FRAME_SIZE_VIOLATION;
+					onWindowUpdate(streamId, payload.readInt() & 0x7FFFFFFF);
+					break;
+				case PUSH_PROMISE:
+					throw PROTOCOL_VIOLATION; // server push is never enabled
+				default:
+					// PRIORITY and unknown frames are ignored
+			}
+		} finally {
+			payload.recycle();
+		}
+	}
+
+	private void onData(int flags, int streamId, ByteBuf payload) throws ParseException {
+		int length = payload.readRemaining();
+		if (streamId == 0) {
+			payload.recycle();
+			throw PROTOCOL_VIOLATION;
+		}
+		receiveWindow -= length;
+		if (receiveWindow < 0) {
+			payload.recycle();
+			throw FLOW_CONTROL_VIOLATION;
+		}
+		int padding = 0;
+		if ((flags & FLAG_PADDED) != 0) {
+			padding = length != 0 ? (payload.readByte() & 0xFF) + 1 : 0;
+			if (padding == 0 || padding > length) {
+				payload.recycle();
+				throw PROTOCOL_VIOLATION;
+			}
+			payload.moveTail(-(padding - 1));
+		}
+		Stream stream = streams.get(streamId);
+		if (stream == null || stream.inboundEnded) {
+			payload.recycle();
+			creditConnection(length);
+			if (stream != null) {
+				resetStream(stream, STREAM_CLOSED);
+			}
+			return;
+		}
+		stream.receiveWindow -= length;
+		if (stream.receiveWindow < 0) {
+			payload.recycle();
+			creditConnection(length);
+			resetStream(stream, FLOW_CONTROL_ERROR);
+			return;
+		}
+		if (padding != 0) {
+			creditConnection(padding);
+			creditStream(stream, padding);
+		}
+		stream.onData(payload, (flags & FLAG_END_STREAM) != 0);
+	}
+
+	private void onHeaders(int flags, int streamId, ByteBuf payload) throws ParseException {
+		if (streamId == 0) throw PROTOCOL_VIOLATION;
+		int padding = 0;
+		if ((flags & FLAG_PADDED) != 0) {
+			if (!payload.canRead()) throw PROTOCOL_VIOLATION;
+			padding = payload.readByte() & 0xFF;
+		}
+		if ((flags & FLAG_PRIORITY) != 0) {
+			if (payload.readRemaining() < 5) throw PROTOCOL_VIOLATION;
+			payload.moveHead(5);
+		}
+		if (padding > payload.readRemaining()) throw PROTOCOL_VIOLATION;
+		headerBlock = ByteBufPool.allocate(payload.readRemaining() - padding);
+		headerBlock.put(payload.array(), payload.head(), payload.readRemaining() - padding);
+		headerBlockStreamId = streamId;
+		headerBlockEndStream = (flags & FLAG_END_STREAM) != 0;
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			onHeaderBlockReceived();
+		}
+	}
+
+	private void onContinuation(int flags, int streamId, ByteBuf payload) throws ParseException {
+		if (headerBlock == null || streamId != headerBlockStreamId) throw PROTOCOL_VIOLATION;
+		if (headerBlock.readRemaining() + payload.readRemaining() > MAX_HEADER_BLOCK_SIZE) throw TOO_LONG_HEADER;
+		headerBlock = ByteBufPool.append(headerBlock, payload.array(), payload.head(), payload.readRemaining());
+		if ((flags & FLAG_END_HEADERS) != 0) {
+			onHeaderBlockReceived();
+		}
+	}
+
+	private void onHeaderBlockReceived() throws ParseException {
+		ByteBuf block = headerBlock;
+		assert block != null;
+		headerBlock = null;
+		try {
+			onHeaderBlock(headerBlockStreamId, block, headerBlockEndStream);
+		} finally {
+			block.recycle();
+		}
+	}
+
+	protected final void decodeHeaderFields(ByteBuf block) throws ParseException {
+		headerFields.clear();
+		decoder.decode(block, headerFieldsListener);
+	}
+
+	/**
+	 * Adds regular header fields of the last header block to the message
+	 *
+	 * @param from an index of the first regular field, it follows the pseudo-header fields
+	 * @return whether the body of the message is gzipped
+	 */
+	protected final boolean addHeaderFields(HttpMessage message, int from) throws ParseException {
+		boolean gzipped = false;
+		for (int i = from; i < headerFields.size(); i += 2) {
+			byte[] name = headerFields.get(i);
+			byte[] value = headerFields.get(i + 1);
+			if (name.length != 0 && name[0] == ':') throw PROTOCOL_VIOLATION;
+			HttpHeader header = Hpack.toHttpHeader(name);
+			if (header == CONTENT_ENCODING && equalsLowerCaseAscii(CONTENT_ENCODING_GZIP, value, 0, value.length)) {
+				gzipped = true;
+			}
+			message.addHeader(header, value);
+		}
+		return gzipped;
+	}
+
+	/**
+	 * Sets the received body of the message, which is either empty or streamed
+	 */
+	protected final void setBody(Stream stream, HttpMessage message, boolean endStream, boolean gzipped) {
+		message.flags |= HttpMessage.MUST_LOAD_BODY;
+		if (endStream) {
+			stream.bodyConsumed = true;
+			message.body = ByteBuf.empty();
+			return;
+		}
+		ChannelSupplier<ByteBuf> supplier = stream.getBodySupplier();
+		if (gzipped) {
+			supplier = supplier.transformWith(BufsConsumerGzipInflater.create());
+		}
+		message.bodyStream = supplier;
+	}
+
+	private void onSettings(int flags, int streamId, ByteBuf payload) throws ParseException {
+		if (streamId != 0) throw PROTOCOL_VIOLATION;
+		if ((flags & FLAG_ACK) != 0) {
+			if (payload.canRead()) throw FRAME_SIZE_VIOLATION;
+			return;
+		}
+		if (payload.readRemaining() % 6 != 0) throw FRAME_SIZE_VIOLATION;
+		while (payload.canRead()) {
+			int id = ((payload.readByte() & 0xFF) << 8) | (payload.readByte() & 0xFF);
+			int value = payload.readInt();
+			switch (id) {
+				case SETTINGS_HEADER_TABLE_SIZE:
+					encoder.setMaxTableSize(value < 0 ? Integer.MAX_VALUE : value);
+					break;
+				case SETTINGS_ENABLE_PUSH:
+					if (value != 0 && value != 1) throw PROTOCOL_VIOLATION;
+					break;
+				case SETTINGS_MAX_CONCURRENT_STREAMS:
+					peerMaxConcurrentStreams = value < 0 ? Integer.MAX_VALUE : value;
+					break;
+				case SETTINGS_INITIAL_WINDOW_SIZE:
+					if (value < 0) throw FLOW_CONTROL_VIOLATION;
+					int delta = value - peerInitialWindowSize;
+					peerInitialWindowSize = value;
+					for (Stream stream : streams.values()) {
+						if ((long) stream.sendWindow + delta > Integer.MAX_VALUE) throw FLOW_CONTROL_VIOLATION;
+						stream.sendWindow += delta;
+					}
+					if (delta > 0) {
+						for (Stream stream : new ArrayList<>(streams.values())) {
+							stream.wakeUp();
+						}
+					}
+					break;
+				case SETTINGS_MAX_FRAME_SIZE:
+					if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF) throw PROTOCOL_VIOLATION;
+					peerMaxFrameSize = value;
+					break;
+				default:
+					// unknown settings are ignored
+			}
+		}
+		frame(SETTINGS, FLAG_ACK, 0, 0);
+		onSettings();
+	}
+
+	private void onWindowUpdate(int streamId, int increment) throws ParseException {
+		if (streamId == 0) {
+			if (increment == 0) throw PROTOCOL_VIOLATION;
+			if ((long) sendWindow + increment > Integer.MAX_VALUE) throw FLOW_CONTROL_VIOLATION;
+			sendWindow += increment;
+			while (sendWindow > 0 && !blockedStreams.isEmpty()) {
+				blockedStreams.poll().wakeUp();
+			}
+			return;
+		}
+		Stream stream = streams.get(streamId);
+		if (stream == null) return;
+		if (increment == 0 || (long) stream.sendWindow + increment > Integer.MAX_VALUE) {
+			resetStream(stream, increment == 0 ? PROTOCOL_ERROR : FLOW_CONTROL_ERROR);
+			return;
+		}
+		stream.sendWindow += increment;
+		stream.wakeUp();
+	}
+
+	private void creditConnection(int bytes) {
+		receiveCredit += bytes;
+		if (receiveCredit >= connectionWindowSize / 2) {
+			receiveWindow += receiveCredit;
+			writeWindowUpdate(0, receiveCredit);
+			receiveCredit = 0;
+		}
+	}
+
+	private void creditStream(Stream stream, int bytes) {
+		stream.receiveCredit += bytes;
+		if (stream.receiveCredit >= initialWindowSize / 2 && !stream.inboundEnded) {
+			stream.receiveWindow += stream.receiveCredit;
+			writeWindowUpdate(stream.id, stream.receiveCredit);
+			stream.receiveCredit = 0;
+		}
+	}
+	// endregion
+
+	// region writing
+	private ByteBuf frame(int type, int flags, int streamId, int length) {
+		out = ByteBufPool.ensureWriteRemaining(out, FRAME_HEADER_SIZE + length);
+		out.writeByte((byte) (length >>> 16));
+		out.writeByte((byte) (length >>> 8));
+		out.writeByte((byte) length);
+		out.writeByte((byte) type);
+		out.writeByte((byte) flags);
+		out.writeInt(streamId);
+		if (!flushPosted) {
+			flushPosted = true;
+			eventloop.post(wrapContext(this, this::flush));
+		}
+		return out;
+	}
+
+	private void writeWindowUpdate(int streamId, int increment) {
+		frame(WINDOW_UPDATE, 0, streamId, 4).writeInt(increment);
+	}
+
+	protected final void writeGoAway(int lastStreamId, int errorCode) {
+		ByteBuf buf = frame(GOAWAY, 0, 0, 8);
+		buf.writeInt(lastStreamId);
+		buf.writeInt(errorCode);
+	}
+
+	/**
+	 * Returns a promise of all of the frames written so far being sent to the socket
+	 */
+	protected final Promise<Void> afterFlush() {
+		if (flushPromise == null) {
+			flushPromise = new SettablePromise<>();
+		}
+		return flushPromise;
+	}
+
+	protected final void flush() {
+		flushPosted = false;
+		if (isClosed()) return;
+		SettablePromise<Void> flushPromise = this.flushPromise;
+		this.flushPromise = null;
+		if (!out.canRead()) {
+			if (flushPromise != null) {
+				flushPromise.set(null);
+			}
+			return;
+		}
+		ByteBuf buf = out;
+		out = ByteBuf.empty();
+		socket.write(buf)
+				.whenComplete(($, e) -> {
+					if (e != null) {
+						closeWithError(e);
+					}
+					if (flushPromise != null) {
+						flushPromise.trySet(null, e);
+					}
+				});
+	}
+
+	/**
+	 * Sends headers of the message, followed by its body.
+	 * The body and the body stream are taken from the message, so it may be recycled right after this call.
+	 *
+	 * @param pseudoHeaders names and values of pseudo-header fields, interleaved
+	 */
+	protected final void sendHttpMessage(Stream stream, HttpMessage message, byte[]... pseudoHeaders) {
+		ByteBuf body = message.body;
+		ChannelSupplier<ByteBuf> bodyStream = message.bodyStream;
+		message.body = null;
+		message.bodyStream = null;
+		ContentEncoder encoder = message.contentEncoder;
+		if (body != null) {
+			if (encoder != null) {
+				body = encoder.encode(body, message.contentEncoderLevel);
+				message.addHeader(CONTENT_ENCODING, encoder.getName());
+			}
+			message.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
+		} else if (bodyStream != null) {
+			if (encoder != null) {
+				message.addHeader(CONTENT_ENCODING, encoder.getName());
+				bodyStream = encoder.encode(bodyStream, message.contentEncoderLevel);
+			}
+		} else if (message.isContentLengthExpected()) {
+			message.addHeader(CONTENT_LENGTH, ofDecimal(0));
+		}
+
+		boolean endStream = bodyStream == null && (body == null || !body.canRead());
+		writeHeaders(stream.id, encodeHeaders(message, pseudoHeaders), endStream);
+
+		if (endStream) {
+			if (body != null) body.recycle();
+			onOutboundEnded(stream);
+		} else if (body != null) {
+			sendData(stream, body, true);
+		} else {
+			sendBodyStream(stream, bodyStream);
+		}
+	}
+
+	private ByteBuf encodeHeaders(HttpMessage message, byte[][] pseudoHeaders) {
+		Object[] kvPairs = message.headers.kvPairs;
+		byte[][] fields = new byte[pseudoHeaders.length + 2 * message.headers.size()][];
+		int size = 16; // for a possible dynamic table size update
+		int n = 0;
+		for (byte[] pseudoHeader : pseudoHeaders) {
+			fields[n++] = pseudoHeader;
+		}
+		for (int i = 0; i < kvPairs.length - 1; i += 2) {
+			HttpHeader header = (HttpHeader) kvPairs[i];
+			if (header == null || isConnectionSpecific(header)) continue;
+			ByteBuf valueBuf = ByteBufPool.allocate(message.headers.estimateValueSize(i));
+			message.headers.writeValueTo(i, valueBuf);
+			fields[n++] = Hpack.toLowerCaseName(header);
+			fields[n++] = valueBuf.asArray();
+		}
+		for (int i = 0; i < n; i += 2) {
+			size += Hpack.estimateSize(fields[i], fields[i + 1]);
+		}
+		ByteBuf block = ByteBufPool.allocate(size);
+		encoder.startBlock(block);
+		for (int i = 0; i < n; i += 2) {
+			byte[] name = fields[i];
+			encoder.encode(block, name, fields[i + 1], isSensitive(name));
+		}
+		return block;
+	}
+
+	private static boolean isConnectionSpecific(HttpHeader header) {
+		return header.equals(CONNECTION) || header.equals(TRANSFER_ENCODING) || header.equals(UPGRADE) ||
+				header.equals(HOST) || header.equals(TE) || header.equals(KEEP_ALIVE_HEADER) || header.equals(PROXY_CONNECTION);
+	}
+
+	private static boolean isSensitive(byte[] name) {
+		return name == AUTHORIZATION.lowerCaseBytes || name == PROXY_AUTHORIZATION.lowerCaseBytes;
+	}
+
+	private static final HttpHeader KEEP_ALIVE_HEADER = HttpHeaders.of("Keep-Alive");
+	private static final HttpHeader PROXY_CONNECTION = HttpHeaders.of("Proxy-Connection");
+
+	private void writeHeaders(int streamId, ByteBuf block, boolean endStream) {
+		int flags = endStream ? FLAG_END_STREAM : 0;
+		int type = HEADERS;
+		do {
+			int length = min(block.readRemaining(), peerMaxFrameSize);
+			boolean last = length == block.readRemaining();
+			frame(type, flags | (last ? FLAG_END_HEADERS : 0), streamId, length)
+					.put(block.array(), block.head(), length);
+			block.moveHead(length);
+			type = CONTINUATION;
+			flags = 0;
+		} while (block.canRead());
+		block.recycle();
+	}
+
+	private void sendBodyStream(Stream stream, ChannelSupplier<ByteBuf> supplier) {
+		stream.bodySource = supplier;
+		supplier.get()
+				.whenComplete((buf, e) -> {
+					if (isClosed() || stream.closed) {
+						if (buf != null) buf.recycle();
+						return;
+					}
+					if (e != null) {
+						resetStream(stream, INTERNAL_ERROR);
+					} else if (buf == null) {
+						sendData(stream, ByteBuf.empty(), true);
+					} else {
+						sendData(stream, buf, false)
+								.whenResult(() -> sendBodyStream(stream, supplier));
+					}
+				});
+	}
+
+	/**
+	 * Sends the buf in DATA frames as the flow control windows allow,
+	 * the returned promise is completed after the last frame is written to the socket
+	 */
+	private Promise<Void> sendData(Stream stream, ByteBuf buf, boolean endStream) {
+		while (true) {
+			if (isClosed() || stream.closed) {
+				buf.recycle();
+				return Promise.ofException(stream.error != null ? stream.error : CONNECTION_CLOSED);
+			}
+			int remaining = buf.readRemaining();
+			int length = min(remaining, min(min(sendWindow, stream.sendWindow), peerMaxFrameSize));
+			if (length <= 0 && remaining != 0) {
+				SettablePromise<Void> waiter = new SettablePromise<>();
+				stream.windowWaiter = waiter;
+				if (sendWindow <= 0) {
+					blockedStreams.add(stream);
+				}
+				return waiter.then(() -> sendData(stream, buf, endStream));
+			}
+			boolean last = length == remaining;
+			frame(DATA, last && endStream ? FLAG_END_STREAM : 0, stream.id, length)
+					.put(buf.array(), buf.head(), length);
+			buf.moveHead(length);
+			sendWindow -= length;
+			stream.sendWindow -= length;
+			if (last) {
+				buf.recycle();
+				Promise<Void> flushed = afterFlush();
+				if (endStream) {
+					onOutboundEnded(stream);
+				}
+				return flushed;
+			}
+		}
+	}
+	// endregion
+
+	// region stream lifecycle
+	private void onOutboundEnded(Stream stream) {
+		stream.outboundEnded = true;
+		if (stream.inboundEnded) {
+			closeStream(stream);
+		}
+	}
+
+	protected final void onInboundEnded(Stream stream) {
+		stream.inboundEnded = true;
+		if (stream.outboundEnded) {
+			closeStream(stream);
+		}
+	}
+
+	private void closeStream(Stream stream) {
+		if (stream.closed) return;
+		stream.closed = true;
+		streams.remove(stream.id);
+		blockedStreams.remove(stream);
+		onStreamClosed(stream);
+	}
+
+	protected final void resetStream(Stream stream, int errorCode) {
+		if (stream.closed) return;
+		writeRstStream(stream.id, errorCode);
+		doResetStream(stream, STREAM_RESET);
+	}
+
+	protected final void writeRstStream(int streamId, int errorCode) {
+		frame(RST_STREAM, 0, streamId, 4).writeInt(errorCode);
+	}
+
+	private void doResetStream(Stream stream, Throwable e) {
+		if (stream.closed) return;
+		stream.error = e;
+		stream.inboundEnded = stream.outboundEnded = true;
+		stream.bodyConsumed = true;
+		stream.recycleInbound();
+		if (stream.windowWaiter != null) {
+			SettablePromise<Void> waiter = stream.windowWaiter;
+			stream.windowWaiter = null;
+			waiter.setException(e);
+		}
+		if (stream.bodySource != null) {
+			stream.bodySource.closeEx(e);
+		}
+		closeStream(stream);
+		onStreamReset(stream, e);
+	}
+
+	protected final void connectionError(ParseException e) {
+		int errorCode = e == FLOW_CONTROL_VIOLATION ? FLOW_CONTROL_ERROR :
+				e == FRAME_SIZE_VIOLATION ? FRAME_SIZE_ERROR :
+						e == Hpack.COMPRESSION_ERROR ? COMPRESSION_ERROR :
+								PROTOCOL_ERROR;
+		writeGoAway(0, errorCode);
+		flush();
+		closeWithError(e);
+	}
+
+	/**
+	 * Fails all of the active streams, is called when the connection is closed
+	 */
+	protected final void closeStreams() {
+		Throwable e = closeError != null ? closeError : CONNECTION_CLOSED;
+		for (Stream stream : new ArrayList<>(streams.values())) {
+			doResetStream(stream, e);
+		}
+		if (headerBlock != null) {
+			headerBlock.recycle();
+			headerBlock = null;
+		}
+		out.recycle();
+		out = ByteBuf.empty();
+		if (flushPromise != null) {
+			flushPromise.setException(e);
+			flushPromise = null;
+		}
+	}
+	// endregion
+
+	/**
+	 * An HTTP/2 stream, which carries a single request and its response
+	 */
+	final class Stream {
+		final int id;
+		int sendWindow;
+		int receiveWindow;
+		int receiveCredit;
+
+		boolean inboundEnded;
+		boolean outboundEnded;
+		boolean closed;
+		boolean bodyConsumed;
+		@Nullable
+		Throwable error;
+
+		@Nullable
+		private ByteBufQueue inbound;
+		@Nullable
+		private SettablePromise<ByteBuf> pendingRead;
+		@Nullable
+		private SettablePromise<Void> windowWaiter;
+		@Nullable
+		private ChannelSupplier<ByteBuf> bodySource;
+
+		// used by the subclasses
+		@Nullable
+		HttpMessage message;
+		@Nullable
+		SettablePromise<HttpResponse> responsePromise;
+
+		Stream(int id, int sendWindow, int receiveWindow) {
+			this.id = id;
+			this.sendWindow = sendWindow;
+			this.receiveWindow = receiveWindow;
+		}
+
+		/**
+		 * Returns a supplier of the received body, the peer is allowed to send more
+		 * only as the bufs are taken from it
+		 */
+		ChannelSupplier<ByteBuf> getBodySupplier() {
+			inbound = new ByteBufQueue();
+			return new AbstractChannelSupplier<ByteBuf>() {
+				@Override
+				protected Promise<ByteBuf> doGet() {
+					assert inbound != null;
+					if (inbound.hasRemaining()) {
+						ByteBuf buf = inbound.take();
+						onConsumed(buf.readRemaining());
+						return Promise.of(buf);
+					}
+					if (error != null) return Promise.ofException(error);
+					if (inboundEnded) {
+						onBodyEnded();
+						return Promise.of(null);
+					}
+					SettablePromise<ByteBuf> pendingRead = new SettablePromise<>();
+					Stream.this.pendingRead = pendingRead;
+					return pendingRead;
+				}
+
+				@Override
+				protected void onClosed(@NotNull Throwable e) {
+					if (pendingRead != null) {
+						SettablePromise<ByteBuf> pendingRead = Stream.this.pendingRead;
+						Stream.this.pendingRead = null;
+						pendingRead.setException(e);
+					}
+					if (!inboundEnded && !isClosed()) {
+						resetStream(Stream.this, CANCEL);
+					}
+					recycleInbound();
+					onBodyEnded();
+				}
+			};
+		}
+
+		void onData(ByteBuf buf, boolean endStream) {
+			if (inbound == null) {
+				// no body was expected
+				buf.recycle();
+				resetStream(this, PROTOCOL_ERROR);
+				return;
+			}
+			if (!buf.canRead()) {
+				buf.recycle();
+			} else if (pendingRead != null) {
+				SettablePromise<ByteBuf> pendingRead = this.pendingRead;
+				this.pendingRead = null;
+				onConsumed(buf.readRemaining());
+				pendingRead.set(buf);
+			} else {
+				inbound.add(buf);
+			}
+			if (endStream) {
+				inboundEnded = true;
+				if (pendingRead != null) {
+					SettablePromise<ByteBuf> pendingRead = this.pendingRead;
+					this.pendingRead = null;
+					onBodyEnded();
+					pendingRead.set(null);
+				}
+				onInboundEnded(this);
+			}
+		}
+
+		private void onBodyEnded() {
+			if (bodyConsumed) return;
+			bodyConsumed = true;
+			// the end of the body is processed by a consumer first
+			eventloop.post(() -> onBodyConsumed(this));
+		}
+
+		private void onConsumed(int bytes) {
+			if (isClosed()) return;
+			creditConnection(bytes);
+			creditStream(this, bytes);
+		}
+
+		private void recycleInbound() {
+			if (inbound != null) {
+				if (!isClosed()) {
+					creditConnection(inbound.remainingBytes());
+				}
+				inbound.recycle();
+			}
+			if (pendingRead != null) {
+				SettablePromise<ByteBuf> pendingRead = this.pendingRead;
+				this.pendingRead = null;
+				pendingRead.setException(error != null ? error : STREAM_RESET);
+			}
+		}
+
+		private void wakeUp() {
+			if (windowWaiter != null && sendWindow > 0) {
+				if (AbstractHttp2Connection.this.sendWindow <= 0) {
+					if (!blockedStreams.contains(this)) {
+						blockedStreams.add(this);
+					}
+					return;
+				}
+				SettablePromise<Void> windowWaiter = this.windowWaiter;
+				this.windowWaiter = null;
+				windowWaiter.set(null);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return ", streams=" + streams.size() +
+				", sendWindow=" + sendWindow +
+				", receiveWindow=" + receiveWindow +
+				super.toString();
+	}
+}
@@ -30,14 +30,20 @@ import io.activej.csp.ChannelOutput;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.ChannelSuppliers;
 import io.activej.csp.binary.BinaryChannelSupplier;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.eventloop.Eventloop;
 import io.activej.http.stream.*;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import org.intellij.lang.annotations.MagicConstant;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
 import static io.activej.bytebuf.ByteBufStrings.*;
 import static io.activej.http.HttpHeaderValue.ofBytes;
 import static io.activej.http.HttpHeaderValue.ofDecimal;
@@ -97,6 +103,14 @@ public abstract class AbstractHttpConnection {
 
 	protected int contentLength;
 
+	// headers of a message being read, they are added to the message at once after all of them are read
+	private HttpHeader[] parsedHeaders;
+	private byte[][] parsedHeaderArrays;
+	private int[] parsedHeaderPositions;
+	private int parsedHeadersCount;
+
+	private final Consumer<ByteBuf> headerBufConsumer = this::onHeaderBuf;
+
 	protected final ReadConsumer startLineConsumer = new ReadConsumer() {
 		@Override
 		public void thenRun() throws ParseException {
@@ -134,7 +148,17 @@ public abstract class AbstractHttpConnection {
 
 	protected abstract void onHeaderBuf(ByteBuf buf);
 
-	protected abstract void onHeader(HttpHeader header, byte[] array, int off, int len) throws ParseException;
+	/**
+	 * Is called for each header as soon as it is read
+	 */
+	protected void onHeader(HttpHeader header, byte[] array, int off, int len) throws ParseException {
+	}
+
+	/**
+	 * Is called once all of the headers of a message are read, values of headers are
+	 * given as offsets and lengths within the arrays of header lines, so that they are parsed lazily
+	 */
+	protected abstract void onHeaders(HttpHeader[] headers, byte[][] arrays, int[] positions, int count);
 
 	protected abstract void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier);
 
@@ -174,6 +198,7 @@ public abstract class AbstractHttpConnection {
 	}
 
 	private void readStartLine() throws ParseException {
+		parsedHeadersCount = 0;
 		int size = 1;
 		for (int i = 0; i < readQueue.remainingBufs(); i++) {
 			ByteBuf buf = readQueue.peekBuf(i);
@@ -219,12 +244,13 @@ public abstract class AbstractHttpConnection {
 					int limit = (i - 1 >= head && array[i - 1] == CR) ? i - 1 : i;
 					if (limit != head) {
 						processHeaderLine(array, head, limit);
-						readQueue.skip(i - head + 1, this::onHeaderBuf);
+						readQueue.skip(i - head + 1, headerBufConsumer);
 						head = buf.head();
 						continue;
 					} else {
 						onHeaderBuf(buf);
 						readQueue.skip(i - head + 1);
+						flushHeaders();
 						readBody();
 						return;
 					}
@@ -241,6 +267,7 @@ public abstract class AbstractHttpConnection {
 			if (header.length != 0) {
 				processHeaderLine(header, 0, header.length);
 			} else {
+				flushHeaders();
 				readBody();
 				return;
 			}
@@ -288,8 +315,8 @@ public abstract class AbstractHttpConnection {
 				}
 			}
 
-			readQueue.drainTo(bytes, 0, bytes.length, this::onHeaderBuf);
-			readQueue.skip(i - bytes.length, this::onHeaderBuf);
+			readQueue.drainTo(bytes, 0, bytes.length, headerBufConsumer);
+			readQueue.skip(i - bytes.length, headerBufConsumer);
 			return bytes;
 		}
 	}
@@ -328,6 +355,31 @@ public abstract class AbstractHttpConnection {
 		}
 
 		onHeader(header, array, pos, len);
+
+		if (parsedHeadersCount >= MAX_HEADERS) throw TOO_MANY_HEADERS;
+		if (parsedHeaders == null) {
+			parsedHeaders = new HttpHeader[16];
+			parsedHeaderArrays = new byte[16][];
+			parsedHeaderPositions = new int[32];
+		} else if (parsedHeadersCount == parsedHeaders.length) {
+			parsedHeaders = Arrays.copyOf(parsedHeaders, parsedHeadersCount * 2);
+			parsedHeaderArrays = Arrays.copyOf(parsedHeaderArrays, parsedHeadersCount * 2);
+			parsedHeaderPositions = Arrays.copyOf(parsedHeaderPositions, parsedHeadersCount * 4);
+		}
+		parsedHeaders[parsedHeadersCount] = header;
+		parsedHeaderArrays[parsedHeadersCount] = array;
+		parsedHeaderPositions[2 * parsedHeadersCount] = pos;
+		parsedHeaderPositions[2 * parsedHeadersCount + 1] = len;
+		parsedHeadersCount++;
+	}
+
+	private void flushHeaders() {
+		if (parsedHeadersCount != 0) {
+			onHeaders(parsedHeaders, parsedHeaderArrays, parsedHeaderPositions, parsedHeadersCount);
+			// arrays of header lines are not retained by the connection
+			Arrays.fill(parsedHeaderArrays, 0, parsedHeadersCount, null);
+			parsedHeadersCount = 0;
+		}
 	}
 
 	private void readBody() {
@@ -407,7 +459,8 @@ public abstract class AbstractHttpConnection {
 		if (httpMessage.body != null) {
 			ByteBuf body = httpMessage.body;
 			httpMessage.body = null;
-			if ((httpMessage.flags & HttpMessage.USE_GZIP) == 0) {
+			ContentEncoder encoder = httpMessage.contentEncoder;
+			if (encoder == null) {
 				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(body.readRemaining()));
 				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + body.readRemaining());
 				httpMessage.writeTo(buf);
@@ -415,13 +468,13 @@ public abstract class AbstractHttpConnection {
 				body.recycle();
 				return buf;
 			} else {
-				ByteBuf gzippedBody = GzipProcessorUtils.toGzip(body);
-				httpMessage.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
-				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(gzippedBody.readRemaining()));
-				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + gzippedBody.readRemaining());
+				ByteBuf encodedBody = encoder.encode(body, httpMessage.contentEncoderLevel);
+				httpMessage.addHeader(CONTENT_ENCODING, encoder.getName());
+				httpMessage.addHeader(CONTENT_LENGTH, ofDecimal(encodedBody.readRemaining()));
+				ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize() + encodedBody.readRemaining());
 				httpMessage.writeTo(buf);
-				buf.put(gzippedBody);
-				gzippedBody.recycle();
+				buf.put(encodedBody);
+				encodedBody.recycle();
 				return buf;
 			}
 		}
@@ -443,11 +496,27 @@ public abstract class AbstractHttpConnection {
 		assert bodyStream != null;
 		httpMessage.bodyStream = null;
 
-		if ((httpMessage.flags & HttpMessage.USE_GZIP) != 0) {
-			httpMessage.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
-			BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create();
-			bodyStream.bindTo(deflater.getInput());
-			bodyStream = deflater.getOutput().getSupplier();
+		if (bodyStream instanceof ChannelFileReader && httpMessage.contentEncoder == null &&
+				httpMessage.headers.get(CONTENT_LENGTH) == null) {
+			// a file has a known size, so there is no need to send it chunked
+			try {
+				httpMessage.addHeader(CONTENT_LENGTH, Long.toString(((ChannelFileReader) bodyStream).getRemaining()));
+			} catch (IOException e) {
+				bodyStream.closeEx(e);
+				closeWithError(e);
+				return;
+			}
+		}
+
+		ContentEncoder encoder = httpMessage.contentEncoder;
+		if (encoder != null) {
+			httpMessage.addHeader(CONTENT_ENCODING, encoder.getName());
+			bodyStream = encoder.encode(bodyStream, httpMessage.contentEncoderLevel);
+		}
+
+		if (bodyStream instanceof ChannelFileReader && socket instanceof AsyncTcpSocketNio) {
+			writeFile(httpMessage, (ChannelFileReader) bodyStream);
+			return;
 		}
 
 		if (httpMessage.headers.get(CONTENT_LENGTH) == null) {
@@ -463,6 +532,27 @@ public abstract class AbstractHttpConnection {
 		writeStream(ChannelSuppliers.concat(ChannelSupplier.of(buf), bodyStream));
 	}
 
+	/**
+	 * Sends a file body right after the headers with zero copy,
+	 * the body never reaches the heap, unlike with {@link #writeStream}
+	 */
+	private void writeFile(HttpMessage httpMessage, ChannelFileReader reader) {
+		ByteBuf buf = ByteBufPool.allocate(httpMessage.estimateSize());
+		httpMessage.writeTo(buf);
+
+		AsyncTcpSocketNio socket = (AsyncTcpSocketNio) this.socket;
+		socket.write(buf);
+		reader.transferTo(socket)
+				.whenComplete(($, e) -> {
+					if (isClosed()) return;
+					if (e == null) {
+						onBodySent();
+					} else {
+						closeWithError(e);
+					}
+				});
+	}
+
 	protected void writeBuf(ByteBuf buf) {
 		socket.write(buf)
 				.whenComplete(($, e) -> {
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * HTTP/1.1 connections of {@link AsyncHttpClient} to a single address
+ * along with requests which wait for a connection to this address
+ */
+final class AddressPool {
+	final InetSocketAddress address;
+
+	// idle keep-alive connections
+	final AddressLinkedList keepAlive = new AddressLinkedList();
+	// busy connections which may take pipelined requests
+	final ArrayList<HttpClientConnection> pipelining = new ArrayList<>();
+	final ArrayDeque<PendingRequest> pending = new ArrayDeque<>();
+
+	// all of the open connections, including idle ones and the ones being connected
+	int connections;
+
+	// region stats
+	long queued;
+	long queueTimeouts;
+	long pipelined;
+	// endregion
+
+	AddressPool(InetSocketAddress address) {
+		this.address = address;
+	}
+
+	boolean isUnused() {
+		return connections == 0 && pending.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return address + ", " + connections + ", " + keepAlive.size() + ", " + pipelining.size() + ", " +
+				pending.size() + ", " + queued + ", " + queueTimeouts + ", " + pipelined;
+	}
+
+	static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		@Nullable
+		ScheduledRunnable timeout;
+
+		PendingRequest(HttpRequest request) {
+			this.request = request;
+		}
+	}
+}
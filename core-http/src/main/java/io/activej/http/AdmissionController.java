@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.ApplicationSettings;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.inspector.ThrottlingController;
+import io.activej.eventloop.jmx.EventloopJmxBeanEx;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * Admission control of requests, which limits the number of requests being served concurrently by a single eventloop.
+ * Requests above the limit are rejected right away with {@link #OVERLOADED} 503 error, instead of being queued,
+ * so that latency of admitted requests stays bounded under overload.
+ * <p>
+ * The limit is either fixed or adapted to observed latency of requests, see {@link #withAdaptiveLimit(int, int)}.
+ * Requests may also be shed according to a {@link ThrottlingController} of an eventloop.
+ * <p>
+ * It may be used by {@link AsyncHttpServer#withAdmissionController} for all of the requests of a server,
+ * or by {@link #decorator()} for some of the servlets. It is not thread-safe, so there should be
+ * an instance per eventloop.
+ */
+public final class AdmissionController implements EventloopJmxBeanEx {
+	public static final int WINDOW_SIZE = ApplicationSettings.getInt(AdmissionController.class, "windowSize", 100);
+	public static final double SMOOTHING = ApplicationSettings.getDouble(AdmissionController.class, "smoothing", 0.2);
+	public static final double TOLERANCE = ApplicationSettings.getDouble(AdmissionController.class, "tolerance", 1.5);
+
+	public static final HttpException OVERLOADED = HttpException.ofCode(503, "Server is overloaded");
+
+	private static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+	// weight of a window in the long term latency, which is averaged over ~20 windows
+	private static final double LONG_LATENCY_WEIGHT = 0.05;
+
+	@NotNull
+	private final Eventloop eventloop;
+
+	private int limit;
+	private double estimatedLimit;
+	private boolean adaptive;
+	private int minLimit;
+	private int maxLimit;
+	private int windowSize = WINDOW_SIZE;
+	private double smoothing = SMOOTHING;
+	private double tolerance = TOLERANCE;
+	@Nullable
+	private ThrottlingController throttlingController;
+
+	private int inFlight;
+
+	// region current window of latency samples
+	private int windowSamples;
+	private long windowLatencySum;
+	private int windowMaxInFlight;
+	// endregion
+
+	// average latency of the last window and the long term one, in nanoseconds
+	private double shortLatency;
+	private double longLatency;
+
+	// region stats
+	private long admitted;
+	private long rejected;
+	private final EventStats rejections = EventStats.create(SMOOTHING_WINDOW);
+	// endregion
+
+	private AdmissionController(@NotNull Eventloop eventloop, int limit) {
+		this.eventloop = eventloop;
+		this.limit = limit;
+		this.estimatedLimit = limit;
+		this.minLimit = limit;
+		this.maxLimit = limit;
+	}
+
+	/**
+	 * Creates a controller with a given limit of concurrent requests, which is fixed unless adapted
+	 */
+	public static AdmissionController create(@NotNull Eventloop eventloop, int limit) {
+		checkArgument(limit > 0, "Limit should be positive");
+		return new AdmissionController(eventloop, limit);
+	}
+
+	/**
+	 * Adapts the limit to latency of requests, in the manner of gradient concurrency limits.
+	 * <p>
+	 * For each window of requests, average latency is compared to the long term one,
+	 * which is considered to be latency without queueing. While the ratio of them is within tolerance,
+	 * the limit is raised by its square root, otherwise it is decreased proportionally to the ratio,
+	 * but not by more than a half. Changes are smoothed, and the limit is kept within given bounds.
+	 * A limit which is not used by at least a half is not raised, as latency says nothing about it.
+	 */
+	public AdmissionController withAdaptiveLimit(int minLimit, int maxLimit) {
+		checkArgument(minLimit > 0 && minLimit <= maxLimit, "Min limit should be positive and not exceed max limit");
+		this.adaptive = true;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+		this.limit = (int) estimatedLimit;
+		return this;
+	}
+
+	/**
+	 * Sets the number of latency samples, after which the limit is adapted
+	 */
+	public AdmissionController withWindowSize(int windowSize) {
+		checkArgument(windowSize > 0, "Window size should be positive");
+		this.windowSize = windowSize;
+		return this;
+	}
+
+	public AdmissionController withSmoothing(double smoothing) {
+		checkArgument(smoothing > 0 && smoothing <= 1, "Smoothing should be in range (0, 1]");
+		this.smoothing = smoothing;
+		return this;
+	}
+
+	/**
+	 * Sets how many times latency may exceed the long term one before the limit is decreased
+	 */
+	public AdmissionController withTolerance(double tolerance) {
+		checkArgument(tolerance >= 1, "Tolerance should not be less than 1");
+		this.tolerance = tolerance;
+		return this;
+	}
+
+	/**
+	 * Additionally sheds the share of requests, which is given by a throttling controller of the eventloop
+	 */
+	public AdmissionController withThrottlingController(@NotNull ThrottlingController throttlingController) {
+		this.throttlingController = throttlingController;
+		return this;
+	}
+
+	/**
+	 * Returns a decorator, which serves requests by a servlet only if they are admitted,
+	 * otherwise fails them with {@link #OVERLOADED} error
+	 */
+	public AsyncServletDecorator decorator() {
+		return servlet ->
+				request -> {
+					if (!tryAcquire()) {
+						return Promise.ofException(OVERLOADED);
+					}
+					long start = System.nanoTime();
+					Promise<HttpResponse> servletResult;
+					try {
+						servletResult = servlet.serveAsync(request);
+					} catch (RuntimeException e) {
+						release(System.nanoTime() - start);
+						throw e;
+					}
+					return servletResult
+							.whenComplete(() -> release(System.nanoTime() - start));
+				};
+	}
+
+	/**
+	 * Admits a request if the limit is not reached, an admitted request should be {@link #release released} once served
+	 */
+	public boolean tryAcquire() {
+		if (inFlight >= limit || throttlingController != null && throttlingController.isOverloaded()) {
+			rejected++;
+			rejections.recordEvent();
+			return false;
+		}
+		admitted++;
+		if (++inFlight > windowMaxInFlight) {
+			windowMaxInFlight = inFlight;
+		}
+		return true;
+	}
+
+	public void release(long latencyNanos) {
+		inFlight--;
+		if (!adaptive) return;
+		windowLatencySum += latencyNanos;
+		if (++windowSamples < windowSize) return;
+		updateLimit((double) windowLatencySum / windowSamples);
+		windowSamples = 0;
+		windowLatencySum = 0;
+		windowMaxInFlight = inFlight;
+	}
+
+	private void updateLimit(double latency) {
+		shortLatency = latency;
+		if (longLatency == 0) {
+			longLatency = latency;
+			return;
+		}
+		longLatency += (latency - longLatency) * LONG_LATENCY_WEIGHT;
+		if (longLatency > latency * 2) {
+			// latency has recovered, so the long term one should catch up faster
+			longLatency *= 0.95;
+		}
+
+		double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / latency));
+		if (gradient == 1.0 && windowMaxInFlight < estimatedLimit / 2) return;
+
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+		limit = (int) estimatedLimit;
+	}
+
+	@NotNull
+	@Override
+	public Eventloop getEventloop() {
+		return eventloop;
+	}
+
+	// region JMX
+	@JmxAttribute(description = "current limit of concurrent requests")
+	public int getLimit() {
+		return limit;
+	}
+
+	@JmxAttribute(description = "number of requests being served")
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	@JmxAttribute
+	public long getAdmitted() {
+		return admitted;
+	}
+
+	@JmxAttribute
+	public long getRejected() {
+		return rejected;
+	}
+
+	@JmxAttribute
+	public EventStats getRejections() {
+		return rejections;
+	}
+
+	@JmxAttribute(description = "average latency of the last window of requests, in milliseconds")
+	public double getShortLatency() {
+		return shortLatency / 1_000_000;
+	}
+
+	@JmxAttribute(description = "long term average latency of requests, in milliseconds")
+	public double getLongLatency() {
+		return longLatency / 1_000_000;
+	}
+	// endregion
+
+	@Override
+	public String toString() {
+		return "AdmissionController{limit=" + limit + ", inFlight=" + inFlight + ", rejected=" + rejected + '}';
+	}
+}
@@ -17,9 +17,12 @@
 package io.activej.http;
 
 import io.activej.async.service.EventloopService;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
 import io.activej.common.MemSize;
+import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CloseException;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.inspector.BaseInspector;
 import io.activej.dns.AsyncDnsClient;
@@ -30,6 +33,7 @@ import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.jmx.EventloopJmxBeanEx;
 import io.activej.eventloop.net.SocketSettings;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.http.AddressPool.PendingRequest;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxOperation;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
@@ -51,14 +55,16 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
 
 import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.jmx.MBeanFormat.formatListAsMultilineString;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.http.AbstractHttpConnection.READ_TIMEOUT_ERROR;
+import static io.activej.http.HttpHeaders.*;
 import static io.activej.net.socket.tcp.AsyncTcpSocketSsl.wrapClientSocket;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -81,6 +87,17 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	public static final Duration KEEP_ALIVE_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpClient.class, "keepAliveTimeout", Duration.ZERO);
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpClient.class, "maxBodySize", MemSize.ZERO);
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxKeepAliveRequests", 0);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpClient.class, "http2", false);
+	public static final boolean WEBSOCKET_DEFLATE = ApplicationSettings.getBoolean(AsyncHttpClient.class, "webSocketDeflate", false);
+	public static final int MAX_CONNECTIONS_PER_ADDRESS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxConnectionsPerAddress", 0);
+	public static final Duration QUEUE_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpClient.class, "queueTimeout", Duration.ZERO);
+	public static final int MAX_PIPELINED_REQUESTS = ApplicationSettings.getInt(AsyncHttpClient.class, "maxPipelinedRequests", 1);
+
+	public static final AsyncTimeoutException QUEUE_TIMEOUT_ERROR = new AsyncTimeoutException(AsyncHttpClient.class, "Request has been waiting for a connection for too long");
+	public static final CloseException CLOSE_EXCEPTION = new CloseException(AsyncHttpClient.class, "AsyncHttpClient has been stopped");
+
+	private static final String[] HTTP2_APPLICATION_PROTOCOLS = {"h2"};
+	private static final String WEBSOCKET_DEFLATE_OFFER = "permessage-deflate; client_no_context_takeover; server_no_context_takeover";
 
 	@NotNull
 	private final Eventloop eventloop;
@@ -89,9 +106,10 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	@NotNull
 	private SocketSettings socketSettings = DEFAULT_SOCKET_SETTINGS;
 
-	final HashMap<InetSocketAddress, AddressLinkedList> addresses = new HashMap<>();
+	final HashMap<InetSocketAddress, AddressPool> addresses = new HashMap<>();
 	final ConnectionsLinkedList poolKeepAlive = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
+	private final HashMap<InetSocketAddress, SettablePromise<Http2ClientConnection>> http2Connections = new HashMap<>();
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
 
@@ -105,6 +123,12 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	boolean http2 = HTTP2;
+	boolean webSocketDeflate = WEBSOCKET_DEFLATE;
+	int webSocketMaxMessageSize = WebSocketImpl.MAX_MESSAGE_SIZE.toInt();
+	int maxConnectionsPerAddress = MAX_CONNECTIONS_PER_ADDRESS;
+	int queueTimeoutMillis = (int) QUEUE_TIMEOUT.toMillis();
+	int maxPipelinedRequests = MAX_PIPELINED_REQUESTS;
 
 	// SSL
 	private SSLContext sslContext;
@@ -131,6 +155,24 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		void onHttpResponse(HttpClientConnection connection, HttpResponse response);
 
 		void onHttpError(HttpClientConnection connection, boolean keepAliveConnection, Throwable e);
+
+		default void onHttp2Connect(HttpRequest request, Http2ClientConnection connection) {
+		}
+
+		default void onHttp2Response(Http2ClientConnection connection, HttpResponse response) {
+		}
+
+		default void onHttp2Error(Http2ClientConnection connection, boolean keepAliveConnection, Throwable e) {
+		}
+
+		default void onQueued(HttpRequest request, InetSocketAddress address) {
+		}
+
+		default void onQueueTimeout(HttpRequest request, InetSocketAddress address) {
+		}
+
+		default void onPipelined(HttpRequest request, InetSocketAddress address) {
+		}
 	}
 
 	@SuppressWarnings("WeakerAccess")
@@ -146,6 +188,9 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		private final ExceptionStats httpErrors = ExceptionStats.create();
 		private long responsesErrors;
 		private final EventStats sslErrors = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats queued = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats queueTimeouts = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats pipelined = EventStats.create(SMOOTHING_WINDOW);
 
 		@Override
 		public void onRequest(HttpRequest request) {
@@ -166,6 +211,11 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			connected.recordEvent();
 		}
 
+		@Override
+		public void onHttp2Connect(HttpRequest request, Http2ClientConnection connection) {
+			connected.recordEvent();
+		}
+
 		@Override
 		public void onConnectError(HttpRequest request, InetSocketAddress address, Throwable e) {
 			connectErrors.recordException(e, request.getUrl().getHost());
@@ -176,8 +226,22 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			responses++;
 		}
 
+		@Override
+		public void onHttp2Response(Http2ClientConnection connection, HttpResponse response) {
+			responses++;
+		}
+
 		@Override
 		public void onHttpError(HttpClientConnection connection, boolean keepAliveConnection, Throwable e) {
+			recordHttpError(keepAliveConnection, e);
+		}
+
+		@Override
+		public void onHttp2Error(Http2ClientConnection connection, boolean keepAliveConnection, Throwable e) {
+			recordHttpError(keepAliveConnection, e);
+		}
+
+		private void recordHttpError(boolean keepAliveConnection, Throwable e) {
 			if (e == AbstractHttpConnection.READ_TIMEOUT_ERROR || e == AbstractHttpConnection.WRITE_TIMEOUT_ERROR) {
 				httpTimeouts.recordEvent();
 				return;
@@ -193,6 +257,21 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			}
 		}
 
+		@Override
+		public void onQueued(HttpRequest request, InetSocketAddress address) {
+			queued.recordEvent();
+		}
+
+		@Override
+		public void onQueueTimeout(HttpRequest request, InetSocketAddress address) {
+			queueTimeouts.recordEvent();
+		}
+
+		@Override
+		public void onPipelined(HttpRequest request, InetSocketAddress address) {
+			pipelined.recordEvent();
+		}
+
 		@JmxAttribute(extraSubAttributes = "totalCount", description = "all requests that were sent (both successful and failed)")
 		public EventStats getTotalRequests() {
 			return totalRequests;
@@ -223,10 +302,26 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 			return httpErrors;
 		}
 
+		@JmxAttribute(description = "requests which have waited for a connection, as all of the connections to an address were busy")
+		public EventStats getQueued() {
+			return queued;
+		}
+
+		@JmxAttribute
+		public EventStats getQueueTimeouts() {
+			return queueTimeouts;
+		}
+
+		@JmxAttribute(description = "requests which have been sent before responses to previous requests over the same connection")
+		public EventStats getPipelined() {
+			return pipelined;
+		}
+
 		@JmxAttribute(reducer = JmxReducerSum.class)
 		public long getActiveRequests() {
 			return totalRequests.getTotalCount() -
-					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + responsesErrors + responses);
+					(httpTimeouts.getTotalCount() + resolveErrors.getTotal() + connectErrors.getTotal() + responsesErrors + responses +
+							queueTimeouts.getTotalCount());
 		}
 
 		@JmxAttribute(reducer = JmxReducerSum.class)
@@ -303,6 +398,60 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return this;
 	}
 
+	/**
+	 * Makes this client send requests with HTTP/2, so that concurrent requests to the same address
+	 * are multiplexed over a single connection.
+	 * <p>
+	 * Plain HTTP requests are sent with prior knowledge, so servers must support HTTP/2 without an upgrade.
+	 * Over TLS HTTP/2 is negotiated with ALPN, which requires Java 9+ or Java 8u252+.
+	 */
+	public AsyncHttpClient withHttp2(boolean http2) {
+		this.http2 = http2;
+		return this;
+	}
+
+	public AsyncHttpClient withWebSocketDeflate(boolean webSocketDeflate) {
+		this.webSocketDeflate = webSocketDeflate;
+		return this;
+	}
+
+	public AsyncHttpClient withWebSocketMaxMessageSize(MemSize webSocketMaxMessageSize) {
+		this.webSocketMaxMessageSize = webSocketMaxMessageSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Limits the number of HTTP/1.1 connections to a single address. Once all of them are busy,
+	 * requests wait for a connection in a queue, see {@link #withQueueTimeout(Duration)}
+	 */
+	public AsyncHttpClient withMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+		return this;
+	}
+
+	/**
+	 * Sets the time a request may wait for a connection, after which it fails
+	 * with {@link #QUEUE_TIMEOUT_ERROR}. Zero means no timeout.
+	 */
+	public AsyncHttpClient withQueueTimeout(@NotNull Duration queueTimeout) {
+		this.queueTimeoutMillis = (int) queueTimeout.toMillis();
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/1.1 pipelining: a request may be sent over a busy keep-alive connection
+	 * before responses to up to {@code maxPipelinedRequests - 1} previous requests are received.
+	 * <p>
+	 * Only requests of idempotent methods with bodies of known size are pipelined.
+	 * If a server closes a connection, requests pipelined over it fail.
+	 */
+	public AsyncHttpClient withPipelining(int maxPipelinedRequests) {
+		checkArgument(maxPipelinedRequests >= 1, "Maximum number of pipelined requests should be positive");
+		this.maxPipelinedRequests = maxPipelinedRequests;
+		return this;
+	}
+
 	public AsyncHttpClient withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -338,30 +487,57 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		}));
 	}
 
+	private AddressPool getAddressPool(InetSocketAddress address) {
+		AddressPool addressPool = addresses.get(address);
+		if (addressPool == null) {
+			addressPool = new AddressPool(address);
+			addresses.put(address, addressPool);
+		}
+		return addressPool;
+	}
+
 	@Nullable
-	private HttpClientConnection takeKeepAliveConnection(InetSocketAddress address) {
-		AddressLinkedList addresses = this.addresses.get(address);
-		if (addresses == null)
+	private HttpClientConnection takeKeepAliveConnection(AddressPool addressPool) {
+		HttpClientConnection connection = addressPool.keepAlive.removeLastNode();
+		if (connection == null)
 			return null;
-		HttpClientConnection connection = addresses.removeLastNode();
-		assert connection != null;
 		assert connection.pool == poolKeepAlive;
-		assert connection.remoteAddress.equals(address);
 		connection.pool.removeNode(connection); // moving from keep-alive state to taken(null) state
-		if (addresses.isEmpty()) {
-			this.addresses.remove(address);
+		if (maxPipelinedRequests > 1) {
+			addressPool.pipelining.add(connection);
 		}
 		return connection;
 	}
 
+	@Nullable
+	private HttpClientConnection findPipeliningConnection(AddressPool addressPool, HttpRequest request) {
+		HttpClientConnection found = null;
+		for (HttpClientConnection connection : addressPool.pipelining) {
+			if (connection.canPipeline(request, maxPipelinedRequests) &&
+					(found == null || connection.getPipelinedRequests() < found.getPipelinedRequests())) {
+				found = connection;
+			}
+		}
+		return found;
+	}
+
 	void returnToKeepAlivePool(HttpClientConnection connection) {
 		assert !connection.isClosed();
-		AddressLinkedList addresses = this.addresses.get(connection.remoteAddress);
-		if (addresses == null) {
-			addresses = new AddressLinkedList();
-			this.addresses.put(connection.remoteAddress, addresses);
+		AddressPool addressPool = connection.addressPool;
+		addressPool.pipelining.remove(connection);
+
+		PendingRequest pending = addressPool.pending.poll();
+		if (pending != null) {
+			//noinspection ConstantConditions
+			connection.pool.removeNode(connection); // moving to taken(null) state
+			if (maxPipelinedRequests > 1) {
+				addressPool.pipelining.add(connection);
+			}
+			sendPending(pending, connection.send(pending.request));
+			return;
 		}
-		addresses.addLastNode(connection);
+
+		addressPool.keepAlive.addLastNode(connection);
 		connection.switchPool(poolKeepAlive);
 
 		if (expiredConnectionsCheck == null) {
@@ -369,10 +545,115 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		}
 	}
 
+	/**
+	 * Is called when an HTTP/1.1 connection is closed or taken over, so that
+	 * a request which waits for a connection to the same address may open a new one
+	 */
+	void releaseConnection(HttpClientConnection connection) {
+		AddressPool addressPool = connection.addressPool;
+		addressPool.pipelining.remove(connection);
+		addressPool.connections--;
+		onConnectionReleased(addressPool);
+	}
+
+	private void onConnectionReleased(AddressPool addressPool) {
+		PendingRequest pending = addressPool.pending.poll();
+		if (pending != null) {
+			sendPending(pending, connect(pending.request, addressPool)
+					.then(connection -> connection.send(pending.request)));
+		} else if (addressPool.isUnused()) {
+			addresses.remove(addressPool.address);
+		}
+	}
+
+	private Promise<HttpResponse> enqueue(AddressPool addressPool, HttpRequest request) {
+		if (inspector != null) inspector.onQueued(request, addressPool.address);
+		PendingRequest pending = new PendingRequest(request);
+		addressPool.pending.add(pending);
+		addressPool.queued++;
+		if (queueTimeoutMillis != 0) {
+			pending.timeout = eventloop.delay(queueTimeoutMillis, wrapContext(this, () -> {
+				addressPool.pending.remove(pending);
+				addressPool.queueTimeouts++;
+				if (inspector != null) inspector.onQueueTimeout(request, addressPool.address);
+				if (addressPool.isUnused()) {
+					addresses.remove(addressPool.address);
+				}
+				request.recycle();
+				pending.promise.setException(QUEUE_TIMEOUT_ERROR);
+			}));
+		}
+		return pending.promise;
+	}
+
+	private void sendPending(PendingRequest pending, Promise<HttpResponse> response) {
+		if (pending.timeout != null) {
+			pending.timeout.cancel();
+		}
+		response.whenComplete(pending.promise);
+	}
+
 	@Override
 	public Promise<HttpResponse> request(HttpRequest request) {
 		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
 		if (inspector != null) inspector.onRequest(request);
+		return resolve(request, this::doSend);
+	}
+
+	/**
+	 * Performs a WebSocket opening handshake (RFC 6455, section 4.1) with a given request
+	 * and returns an established {@link WebSocket}.
+	 * <p>
+	 * A request should have an {@code http} or {@code https} scheme,
+	 * permessage-deflate without context takeover is offered if it is enabled for this client.
+	 * WebSocket connections are always established over HTTP/1.1.
+	 */
+	public Promise<WebSocket> webSocketRequest(HttpRequest request) {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (inspector != null) inspector.onRequest(request);
+		String key = WebSocketImpl.generateKey();
+		request.addHeader(UPGRADE, "websocket");
+		request.addHeader(SEC_WEBSOCKET_VERSION, "13");
+		request.addHeader(SEC_WEBSOCKET_KEY, key);
+		if (webSocketDeflate) {
+			request.addHeader(SEC_WEBSOCKET_EXTENSIONS, WEBSOCKET_DEFLATE_OFFER);
+		}
+		return resolve(request, (req, address) -> connect(req, getAddressPool(address))
+				.then(connection -> connection.sendUpgrade(req)
+						.then(response -> upgradeToWebSocket(connection, response, key))));
+	}
+
+	private Promise<WebSocket> upgradeToWebSocket(HttpClientConnection connection, HttpResponse response, String key) {
+		if (response.getCode() != 101) {
+			connection.close();
+			return Promise.ofException(HttpException.ofCode(response.getCode(), "WebSocket handshake has been rejected"));
+		}
+		String extensions = response.getHeader(SEC_WEBSOCKET_EXTENSIONS);
+		Map<String, String> deflateParameters = WebSocketImpl.findDeflateParameters(extensions);
+		String error = null;
+		if (!WebSocketImpl.containsToken(response.getHeader(UPGRADE), "websocket") ||
+				!WebSocketImpl.containsToken(response.getHeader(CONNECTION), "upgrade")) {
+			error = "Not a WebSocket handshake response";
+		} else if (!WebSocketImpl.acceptKey(key).equals(response.getHeader(SEC_WEBSOCKET_ACCEPT))) {
+			error = "Invalid Sec-WebSocket-Accept";
+		} else if (extensions != null && (!webSocketDeflate || deflateParameters == null ||
+				!deflateParameters.containsKey("server_no_context_takeover") ||
+				deflateParameters.containsKey("client_max_window_bits") && !deflateParameters.get("client_max_window_bits").equals("15"))) {
+			error = "Unsupported Sec-WebSocket-Extensions: " + extensions;
+		}
+		response.recycle();
+
+		ByteBufQueue readQueue = new ByteBufQueue();
+		connection.readQueue.drainTo(readQueue);
+		if (error != null) {
+			readQueue.recycle();
+			connection.socket.close();
+			return Promise.ofException(new WebSocketException(AsyncHttpClient.class, WebSocketImpl.CLOSE_PROTOCOL_ERROR, error));
+		}
+		return Promise.of(new WebSocketImpl(connection.socket, readQueue, true, deflateParameters != null, webSocketMaxMessageSize));
+	}
+
+	private <T> Promise<T> resolve(HttpRequest request, BiFunction<HttpRequest, InetSocketAddress, Promise<T>> sender) {
 		String host = request.getUrl().getHost();
 
 		assert host != null;
@@ -383,7 +664,9 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 						if (inspector != null) inspector.onResolve(request, dnsResponse);
 						if (dnsResponse.isSuccessful()) {
 							//noinspection ConstantConditions - dnsResponse is successful (not null)
-							return doSend(request, dnsResponse.getRecord().getIps());
+							InetAddress[] inetAddresses = dnsResponse.getRecord().getIps();
+							InetAddress inetAddress = inetAddresses[(inetAddressIdx++ & Integer.MAX_VALUE) % inetAddresses.length];
+							return sender.apply(request, new InetSocketAddress(inetAddress, request.getUrl().getPort()));
 						} else {
 							return Promise.ofException(new DnsQueryException(AsyncHttpClient.class, dnsResponse));
 						}
@@ -395,15 +678,37 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 				});
 	}
 
-	private Promise<HttpResponse> doSend(HttpRequest request, InetAddress[] inetAddresses) {
-		InetAddress inetAddress = inetAddresses[(inetAddressIdx++ & Integer.MAX_VALUE) % inetAddresses.length];
-		InetSocketAddress address = new InetSocketAddress(inetAddress, request.getUrl().getPort());
+	private Promise<HttpResponse> doSend(HttpRequest request, InetSocketAddress address) {
+		if (http2) {
+			return doSendHttp2(request, address);
+		}
 
-		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(address);
+		AddressPool addressPool = getAddressPool(address);
+		HttpClientConnection keepAliveConnection = takeKeepAliveConnection(addressPool);
 		if (keepAliveConnection != null) {
 			return keepAliveConnection.send(request);
 		}
 
+		if (maxPipelinedRequests > 1) {
+			HttpClientConnection pipeliningConnection = findPipeliningConnection(addressPool, request);
+			if (pipeliningConnection != null) {
+				if (inspector != null) inspector.onPipelined(request, address);
+				addressPool.pipelined++;
+				return pipeliningConnection.sendPipelined(request);
+			}
+		}
+
+		if (maxConnectionsPerAddress != 0 && addressPool.connections >= maxConnectionsPerAddress) {
+			return enqueue(addressPool, request);
+		}
+
+		return connect(request, addressPool)
+				.then(connection -> connection.send(request));
+	}
+
+	private Promise<HttpClientConnection> connect(HttpRequest request, AddressPool addressPool) {
+		InetSocketAddress address = addressPool.address;
+		addressPool.connections++;
 		return AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
 				.thenEx((asyncTcpSocketImpl, e) -> {
 					if (e == null) {
@@ -412,6 +717,9 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 								.withInspector(https ? socketInspector : socketSslInspector);
 
 						if (https && sslContext == null) {
+							asyncTcpSocketImpl.close();
+							addressPool.connections--;
+							onConnectionReleased(addressPool);
 							throw new IllegalArgumentException("Cannot send HTTPS Request without SSL enabled");
 						}
 
@@ -424,22 +732,90 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 										sslContext, sslExecutor) :
 								asyncTcpSocketImpl;
 
-						HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, address);
+						HttpClientConnection connection = new HttpClientConnection(eventloop, this, asyncTcpSocket, addressPool);
 
 						if (inspector != null) inspector.onConnect(request, connection);
 
 						if (expiredConnectionsCheck == null)
 							scheduleExpiredConnectionsCheck();
 
-						return connection.send(request);
+						return Promise.of(connection);
 					} else {
 						if (inspector != null) inspector.onConnectError(request, address, e);
+						addressPool.connections--;
+						onConnectionReleased(addressPool);
+						request.recycle();
+						return Promise.ofException(e);
+					}
+				});
+	}
+
+	private Promise<HttpResponse> doSendHttp2(HttpRequest request, InetSocketAddress address) {
+		SettablePromise<Http2ClientConnection> connection = http2Connections.get(address);
+		if (connection == null) {
+			connection = new SettablePromise<>();
+			http2Connections.put(address, connection);
+			connectHttp2(request, address, connection);
+		}
+		return connection
+				.thenEx((http2Connection, e) -> {
+					if (e == null) {
+						return http2Connection.send(request);
+					} else {
 						request.recycle();
 						return Promise.ofException(e);
 					}
 				});
 	}
 
+	private void connectHttp2(HttpRequest request, InetSocketAddress address, SettablePromise<Http2ClientConnection> cb) {
+		boolean https = request.isHttps();
+		String host = request.getUrl().getHost();
+		assert host != null;
+		if (https && sslContext == null) {
+			http2Connections.remove(address, cb);
+			cb.setException(new IllegalArgumentException("Cannot send HTTPS Request without SSL enabled"));
+			return;
+		}
+		AsyncTcpSocketNio.connect(address, connectTimeoutMillis, socketSettings)
+				.whenComplete((asyncTcpSocketImpl, e) -> {
+					if (e == null) {
+						asyncTcpSocketImpl
+								.withInspector(https ? socketInspector : socketSslInspector);
+
+						AsyncTcpSocket asyncTcpSocket = https ?
+								wrapClientSocket(asyncTcpSocketImpl,
+										host, request.getUrl().getPort(),
+										sslContext, sslExecutor, HTTP2_APPLICATION_PROTOCOLS) :
+								asyncTcpSocketImpl;
+
+						Http2ClientConnection connection = new Http2ClientConnection(eventloop, this, asyncTcpSocket, address);
+
+						if (inspector != null) inspector.onHttp2Connect(request, connection);
+
+						if (expiredConnectionsCheck == null)
+							scheduleExpiredConnectionsCheck();
+
+						connection.start();
+						cb.set(connection);
+					} else {
+						if (inspector != null) inspector.onConnectError(request, address, e);
+						http2Connections.remove(address, cb);
+						cb.setException(e);
+					}
+				});
+	}
+
+	/**
+	 * Is called when an HTTP/2 connection no longer accepts new requests, so that a new one is established for them
+	 */
+	void onHttp2ConnectionUnavailable(Http2ClientConnection connection) {
+		SettablePromise<Http2ClientConnection> cb = http2Connections.get(connection.remoteAddress);
+		if (cb != null && cb.getResult() == connection) {
+			http2Connections.remove(connection.remoteAddress);
+		}
+	}
+
 	@NotNull
 	@Override
 	public Eventloop getEventloop() {
@@ -470,9 +846,18 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 
 		SettablePromise<Void> promise = new SettablePromise<>();
 
-		poolKeepAlive.closeAllConnections();
-		assert addresses.isEmpty();
 		keepAliveTimeoutMillis = 0;
+		for (AddressPool addressPool : new ArrayList<>(addresses.values())) {
+			while (!addressPool.pending.isEmpty()) {
+				PendingRequest pending = addressPool.pending.poll();
+				if (pending.timeout != null) {
+					pending.timeout.cancel();
+				}
+				pending.request.recycle();
+				pending.promise.setException(CLOSE_EXCEPTION);
+			}
+		}
+		poolKeepAlive.closeAllConnections();
 		if (getConnectionsCount() == 0) {
 			assert poolReadWrite.isEmpty();
 			promise.set(null);
@@ -509,16 +894,34 @@ public final class AsyncHttpClient implements IAsyncHttpClient, EventloopService
 		return poolReadWriteExpired;
 	}
 
-	@JmxOperation(description = "number of connections per address")
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public int getPendingRequestsCount() {
+		int count = 0;
+		for (AddressPool addressPool : addresses.values()) {
+			count += addressPool.pending.size();
+		}
+		return count;
+	}
+
+	@JmxAttribute
+	public int getMaxConnectionsPerAddress() {
+		return maxConnectionsPerAddress;
+	}
+
+	@JmxAttribute
+	public void setMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+		checkArgument(maxConnectionsPerAddress >= 0, "Maximum number of connections per address should not be less than zero");
+		this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+	}
+
+	@JmxOperation(description = "connections and pending requests per address")
 	public String getAddressConnections() {
 		if (addresses.isEmpty())
 			return "";
 		List<String> result = new ArrayList<>();
-		result.add("SocketAddress,ConnectionsCount");
-		for (Entry<InetSocketAddress, AddressLinkedList> entry : addresses.entrySet()) {
-			InetSocketAddress address = entry.getKey();
-			AddressLinkedList connections = entry.getValue();
-			result.add(address + ", " + connections.size());
+		result.add("SocketAddress,Connections,KeepAlive,Pipelining,Pending,Queued,QueueTimeouts,Pipelined");
+		for (AddressPool addressPool : addresses.values()) {
+			result.add(addressPool.toString());
 		}
 		return formatListAsMultilineString(result);
 	}
@@ -21,7 +21,10 @@ import io.activej.common.MemSize;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.inspector.BaseInspector;
 import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.inspector.EventloopStats;
 import io.activej.eventloop.schedule.ScheduledRunnable;
+import io.activej.eventloop.trace.Trace;
+import io.activej.eventloop.trace.Tracing;
 import io.activej.jmx.api.attribute.JmxAttribute;
 import io.activej.jmx.api.attribute.JmxReducers.JmxReducerSum;
 import io.activej.jmx.stats.EventStats;
@@ -39,6 +42,7 @@ import java.time.Duration;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 import static io.activej.http.AbstractHttpConnection.READ_TIMEOUT_ERROR;
 import static java.util.stream.Collectors.toList;
@@ -55,6 +59,8 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	public static final Duration KEEP_ALIVE_TIMEOUT = ApplicationSettings.getDuration(AsyncHttpServer.class, "keepAliveTimeout", Duration.ofSeconds(30));
 	public static final MemSize MAX_BODY_SIZE = ApplicationSettings.getMemSize(AsyncHttpServer.class, "maxBodySize", MemSize.ZERO);
 	public static final int MAX_KEEP_ALIVE_REQUESTS = ApplicationSettings.getInt(AsyncHttpServer.class, "maxKeepAliveRequests", 0);
+	public static final int MAX_PIPELINE_DEPTH = ApplicationSettings.getInt(AsyncHttpServer.class, "maxPipelineDepth", 1);
+	public static final boolean HTTP2 = ApplicationSettings.getBoolean(AsyncHttpServer.class, "http2", false);
 
 	@NotNull
 	private final AsyncServlet servlet;
@@ -68,6 +74,8 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	int keepAliveTimeoutMillis = (int) KEEP_ALIVE_TIMEOUT.toMillis();
 	int maxBodySize = MAX_BODY_SIZE.toInt();
 	int maxKeepAliveRequests = MAX_KEEP_ALIVE_REQUESTS;
+	int maxPipelineDepth = MAX_PIPELINE_DEPTH;
+	boolean http2 = HTTP2;
 
 	final ConnectionsLinkedList poolNew = new ConnectionsLinkedList();
 	final ConnectionsLinkedList poolReadWrite = new ConnectionsLinkedList();
@@ -76,6 +84,15 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 	private int poolKeepAliveExpired;
 	private int poolReadWriteExpired;
 
+	@Nullable
+	AdmissionController admissionController;
+
+	@Nullable
+	private HttpCompression compression;
+	@Nullable
+	private EventloopStats eventloopStats;
+	private long compressedResponses;
+
 	@Nullable
 	private ScheduledRunnable expiredConnectionsCheck;
 
@@ -174,6 +191,34 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Sets the maximum number of requests on a keep-alive connection,
+	 * which may be served concurrently if a client sends them without waiting for responses (HTTP pipelining).
+	 * Responses are still sent in the order of requests, and the ones that are ready are written together.
+	 * <p>
+	 * Default value is 1, which means that a next request is not read until a response to the previous one is sent.
+	 */
+	public AsyncHttpServer withMaxPipelineDepth(int maxPipelineDepth) {
+		checkArgument(maxPipelineDepth > 0, "Max pipeline depth should be positive");
+		this.maxPipelineDepth = maxPipelineDepth;
+		return this;
+	}
+
+	/**
+	 * Enables HTTP/2 along with HTTP/1.1 on the same listen addresses.
+	 * <p>
+	 * Over plain connections HTTP/2 is used when a client starts with the HTTP/2 connection preface (prior knowledge),
+	 * over TLS it is negotiated with ALPN, which requires Java 9+ or Java 8u252+.
+	 * Requests of all streams of a connection are served concurrently.
+	 */
+	public AsyncHttpServer withHttp2(boolean http2) {
+		this.http2 = http2;
+		if (http2 && sslApplicationProtocols == null) {
+			withSslApplicationProtocols("h2", "http/1.1");
+		}
+		return this;
+	}
+
 	public AsyncHttpServer withNoKeepAlive() {
 		return withKeepAliveTimeout(Duration.ZERO);
 	}
@@ -208,6 +253,29 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return this;
 	}
 
+	/**
+	 * Limits the number of requests being served concurrently, see {@link AdmissionController}.
+	 * <p>
+	 * A request which is not admitted is answered with 503 response right after its headers are read,
+	 * the servlet is not called and the body is discarded without being loaded. Over HTTP/1.1 the connection is closed
+	 * after such a response, so that no more requests are read from it.
+	 */
+	public AsyncHttpServer withAdmissionController(@NotNull AdmissionController admissionController) {
+		checkArgument(admissionController.getEventloop() == eventloop, "Admission controller should belong to the eventloop of this server");
+		this.admissionController = admissionController;
+		return this;
+	}
+
+	/**
+	 * Compresses responses with a content encoding, which is negotiated from Accept-Encoding header of a request.
+	 * Compression level is adapted to the load of the eventloop of this server, if it has {@link EventloopStats} inspector.
+	 */
+	public AsyncHttpServer withCompression(@NotNull HttpCompression compression) {
+		this.compression = compression;
+		this.eventloopStats = eventloop.getStats();
+		return this;
+	}
+
 	public AsyncHttpServer withInspector(Inspector inspector) {
 		this.inspector = inspector;
 		return this;
@@ -337,10 +405,44 @@ public final class AsyncHttpServer extends AbstractServer<AsyncHttpServer> {
 		return poolReadWriteExpired;
 	}
 
+	@JmxAttribute
+	@Nullable
+	public AdmissionController getAdmissionController() {
+		return admissionController;
+	}
+
+	@JmxAttribute(reducer = JmxReducerSum.class)
+	public long getCompressedResponses() {
+		return compressedResponses;
+	}
+
+	void compressResponse(HttpRequest request, HttpResponse response) {
+		if (compression != null &&
+				compression.apply(request, response, eventloopStats != null ? eventloopStats.getLoad() : 0)) {
+			compressedResponses++;
+		}
+	}
+
 	HttpResponse formatHttpError(Throwable e) {
 		return errorFormatter.formatException(e);
 	}
 
+	// a sampled request is served within its trace, which is finished once the servlet is complete
+	static Promise<HttpResponse> serveTraced(AsyncServlet servlet, HttpRequest request) {
+		Trace trace = Tracing.startTrace(request.getMethod() + " " + request.getPath());
+		if (trace == null) return servlet.serveAsync(request);
+		Trace previousTrace = Tracing.setCurrentTrace(trace);
+		try {
+			return servlet.serveAsync(request)
+					.whenComplete(trace::finish);
+		} catch (RuntimeException e) {
+			trace.finish();
+			throw e;
+		} finally {
+			Tracing.setCurrentTrace(previousTrace);
+		}
+	}
+
 	@JmxAttribute(name = "")
 	@Nullable
 	public JmxInspector getStats() {
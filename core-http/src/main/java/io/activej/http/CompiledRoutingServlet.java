@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An immutable routing table, compiled from a {@link RoutingServlet}, see {@link RoutingServlet#compile()}.
+ * <p>
+ * Requests are routed the same way {@link RoutingServlet} routes them, but literal URL parts
+ * are matched by a radix tree right against the chars of a request URL, and path parameters
+ * are captured as offsets into it. So no strings are created and no path parameters are
+ * put and removed while looking for a route, only the parameters of a found route are.
+ * <p>
+ * Later changes of the source {@link RoutingServlet} are not reflected in a compiled one.
+ */
+public final class CompiledRoutingServlet implements AsyncServlet {
+	private static final HttpMethod[] METHODS = HttpMethod.values();
+
+	private final Node root;
+
+	private CompiledRoutingServlet(Node root) {
+		this.root = root;
+	}
+
+	public static CompiledRoutingServlet create(RoutingServlet servlet) {
+		return new CompiledRoutingServlet(compile(servlet));
+	}
+
+	@NotNull
+	@Override
+	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
+		UrlParser url = request.getUrl();
+		AsyncServlet servlet = route(root, request, url, url.pos, request.getMethod().ordinal());
+		return servlet != null ?
+				servlet.serveAsync(request) :
+				Promise.ofException(HttpException.notFound404());
+	}
+
+	/**
+	 * Finds a servlet for the rest of the path, which starts at a given position.
+	 * The position of the request is only changed once a servlet is found,
+	 * path parameters are put on the way back from the found route.
+	 */
+	@Nullable
+	private static AsyncServlet route(Node node, HttpRequest request, UrlParser url, int pos, int method) {
+		String raw = url.getRaw();
+		int pathEnd = url.getPathEnd();
+
+		// same bounds of URL part as in UrlParser.pollUrlPart()
+		int start, end, next;
+		if (pos < pathEnd) {
+			start = pos + 1;
+			int nextSlash = raw.indexOf('/', start);
+			if (nextSlash == -1) {
+				end = pathEnd;
+				next = raw.length();
+			} else if (nextSlash > pathEnd) {
+				end = next = pathEnd;
+			} else {
+				end = next = nextSlash;
+			}
+		} else {
+			start = end = next = pos;
+		}
+
+		if (start == end) {
+			if (node.rootServlets != null && node.rootServlets[method] != null) {
+				url.pos = (short) next;
+				return node.rootServlets[method];
+			}
+		} else {
+			if (node.routes != null) {
+				Node transit = node.routes.find(raw, start, end);
+				if (transit != null) {
+					AsyncServlet servlet = route(transit, request, url, next, method);
+					if (servlet != null) {
+						return servlet;
+					}
+				}
+			}
+			for (int i = 0; i < node.parameters.length; i++) {
+				AsyncServlet servlet = route(node.parameters[i], request, url, next, method);
+				if (servlet != null) {
+					String key = node.parameterKeys[i];
+					// a parameter which is bound again further along the route keeps the latter value
+					if (!node.parameterShadowed[i] || !request.getPathParameters().containsKey(key)) {
+						request.putPathParameter(key, raw.substring(start, end));
+					}
+					return servlet;
+				}
+			}
+		}
+
+		if (node.fallbackServlets != null && node.fallbackServlets[method] != null) {
+			url.pos = (short) pos;
+			return node.fallbackServlets[method];
+		}
+		return null;
+	}
+
+	// region compilation
+	private static Node compile(RoutingServlet servlet) {
+		Map<String, RoutingServlet> parameters = servlet.parameters;
+		String[] parameterKeys = new String[parameters.size()];
+		Node[] parameterNodes = new Node[parameters.size()];
+		boolean[] parameterShadowed = new boolean[parameters.size()];
+		int i = 0;
+		for (Map.Entry<String, RoutingServlet> entry : parameters.entrySet()) {
+			parameterKeys[i] = entry.getKey();
+			parameterNodes[i] = compile(entry.getValue());
+			parameterShadowed[i] = isBound(entry.getValue(), entry.getKey());
+			i++;
+		}
+
+		Radix routes = null;
+		if (!servlet.routes.isEmpty()) {
+			String[] keys = servlet.routes.keySet().toArray(new String[0]);
+			Arrays.sort(keys);
+			Node[] nodes = new Node[keys.length];
+			for (int j = 0; j < keys.length; j++) {
+				nodes[j] = compile(servlet.routes.get(keys[j]));
+			}
+			routes = Radix.build(keys, nodes, 0, keys.length, 0);
+		}
+
+		return new Node(
+				byMethod(servlet.rootServlets),
+				byMethod(servlet.fallbackServlets),
+				routes, parameterKeys, parameterNodes, parameterShadowed);
+	}
+
+	private static boolean isBound(RoutingServlet servlet, String key) {
+		for (Map.Entry<String, RoutingServlet> entry : servlet.parameters.entrySet()) {
+			if (entry.getKey().equals(key) || isBound(entry.getValue(), key)) return true;
+		}
+		for (RoutingServlet route : servlet.routes.values()) {
+			if (isBound(route, key)) return true;
+		}
+		return false;
+	}
+
+	@Nullable
+	private static AsyncServlet[] byMethod(Map<@Nullable HttpMethod, AsyncServlet> servlets) {
+		if (servlets.isEmpty()) return null;
+		AsyncServlet[] result = new AsyncServlet[METHODS.length];
+		AsyncServlet anyMethod = servlets.get(null);
+		for (HttpMethod method : METHODS) {
+			result[method.ordinal()] = servlets.getOrDefault(method, anyMethod);
+		}
+		return result;
+	}
+	// endregion
+
+	private static final class Node {
+		// indexed by ordinals of HTTP methods, with servlets mapped to any method already put in place
+		@Nullable
+		final AsyncServlet[] rootServlets;
+		@Nullable
+		final AsyncServlet[] fallbackServlets;
+
+		@Nullable
+		final Radix routes;
+
+		final String[] parameterKeys;
+		final Node[] parameters;
+		final boolean[] parameterShadowed;
+
+		Node(@Nullable AsyncServlet[] rootServlets, @Nullable AsyncServlet[] fallbackServlets, @Nullable Radix routes,
+				String[] parameterKeys, Node[] parameters, boolean[] parameterShadowed) {
+			this.rootServlets = rootServlets;
+			this.fallbackServlets = fallbackServlets;
+			this.routes = routes;
+			this.parameterKeys = parameterKeys;
+			this.parameters = parameters;
+			this.parameterShadowed = parameterShadowed;
+		}
+	}
+
+	/**
+	 * A radix tree of literal URL parts, each edge is labeled with the chars it consumes,
+	 * and children of a node are sorted by the first chars of their labels
+	 */
+	private static final class Radix {
+		final char[] label;
+		final char[] firstChars;
+		final Radix[] children;
+		@Nullable
+		final Node node;
+
+		Radix(char[] label, char[] firstChars, Radix[] children, @Nullable Node node) {
+			this.label = label;
+			this.firstChars = firstChars;
+			this.children = children;
+			this.node = node;
+		}
+
+		/**
+		 * Builds a tree of sorted keys in a given range, which share their first {@code offset} chars
+		 */
+		static Radix build(String[] keys, Node[] nodes, int from, int to, int offset) {
+			String first = keys[from];
+			String last = keys[to - 1];
+			int prefixEnd = offset;
+			while (prefixEnd < first.length() && prefixEnd < last.length() && first.charAt(prefixEnd) == last.charAt(prefixEnd)) {
+				prefixEnd++;
+			}
+			char[] label = first.substring(offset, prefixEnd).toCharArray();
+
+			Node node = null;
+			if (first.length() == prefixEnd) {
+				node = nodes[from++];
+			}
+
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				if (i == from || keys[i].charAt(prefixEnd) != keys[i - 1].charAt(prefixEnd)) count++;
+			}
+			char[] firstChars = new char[count];
+			Radix[] children = new Radix[count];
+			int child = 0;
+			for (int i = from; i < to; ) {
+				char ch = keys[i].charAt(prefixEnd);
+				int groupEnd = i + 1;
+				while (groupEnd < to && keys[groupEnd].charAt(prefixEnd) == ch) {
+					groupEnd++;
+				}
+				firstChars[child] = ch;
+				children[child] = build(keys, nodes, i, groupEnd, prefixEnd);
+				child++;
+				i = groupEnd;
+			}
+			return new Radix(label, firstChars, children, node);
+		}
+
+		@Nullable
+		Node find(String raw, int start, int end) {
+			Radix radix = this;
+			int pos = start;
+			while (true) {
+				char[] label = radix.label;
+				if (end - pos < label.length) return null;
+				for (int i = 0; i < label.length; i++) {
+					if (raw.charAt(pos + i) != label[i]) return null;
+				}
+				pos += label.length;
+				if (pos == end) return radix.node;
+				int index = Arrays.binarySearch(radix.firstChars, raw.charAt(pos));
+				if (index < 0) return null;
+				radix = radix.children[index];
+			}
+		}
+	}
+}
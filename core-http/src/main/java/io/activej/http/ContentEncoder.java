@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.csp.ChannelSupplier;
+import io.activej.http.stream.BufsConsumerDeflater;
+import io.activej.http.stream.BufsConsumerGzipDeflater;
+
+import java.util.zip.Deflater;
+
+/**
+ * A codec of HTTP content encoding, which compresses bodies of messages.
+ * <p>
+ * Compression levels are specific to a codec, they are ordered from the fastest level
+ * to the one which compresses best. Built-in codecs are based on DEFLATE from {@code java.util.zip},
+ * other codecs (like brotli or zstd) may be plugged into {@link HttpCompression} by implementing this interface.
+ */
+public interface ContentEncoder {
+	ContentEncoder GZIP = new DeflateContentEncoder("gzip", true);
+	ContentEncoder DEFLATE = new DeflateContentEncoder("deflate", false);
+
+	/**
+	 * A token of this encoding, as used in Accept-Encoding and Content-Encoding headers
+	 */
+	String getName();
+
+	int getFastestLevel();
+
+	int getDefaultLevel();
+
+	/**
+	 * Encodes a whole body, the given buf is recycled
+	 */
+	ByteBuf encode(ByteBuf buf, int level);
+
+	/**
+	 * Returns a supplier of an encoded body stream
+	 */
+	ChannelSupplier<ByteBuf> encode(ChannelSupplier<ByteBuf> bodyStream, int level);
+
+	final class DeflateContentEncoder implements ContentEncoder {
+		private final String name;
+		private final boolean gzip;
+
+		private DeflateContentEncoder(String name, boolean gzip) {
+			this.name = name;
+			this.gzip = gzip;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public int getFastestLevel() {
+			return Deflater.BEST_SPEED;
+		}
+
+		@Override
+		public int getDefaultLevel() {
+			// the level which zlib uses by default
+			return 6;
+		}
+
+		@Override
+		public ByteBuf encode(ByteBuf buf, int level) {
+			return gzip ?
+					GzipProcessorUtils.toGzip(buf, level) :
+					GzipProcessorUtils.toDeflate(buf, level);
+		}
+
+		@Override
+		public ChannelSupplier<ByteBuf> encode(ChannelSupplier<ByteBuf> bodyStream, int level) {
+			if (gzip) {
+				BufsConsumerGzipDeflater deflater = BufsConsumerGzipDeflater.create()
+						.withDeflater(new Deflater(level, true));
+				bodyStream.bindTo(deflater.getInput());
+				return deflater.getOutput().getSupplier();
+			} else {
+				BufsConsumerDeflater deflater = BufsConsumerDeflater.create()
+						.withDeflater(new Deflater(level));
+				bodyStream.bindTo(deflater.getInput());
+				return deflater.getOutput().getSupplier();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
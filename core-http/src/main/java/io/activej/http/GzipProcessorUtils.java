@@ -42,6 +42,10 @@ public final class GzipProcessorUtils {
 	private static final int GZIP_HEADER_SIZE = GZIP_HEADER.length;
 	private static final int GZIP_FOOTER_SIZE = 8;
 
+	// rfc 1950 section 2.2
+	private static final int ZLIB_HEADER_SIZE = 2;
+	private static final int ZLIB_FOOTER_SIZE = 4;
+
 	private static final int FHCRC = 2;
 	private static final int FEXTRA = 4;
 	private static final int FNAME = 8;
@@ -63,6 +67,7 @@ public final class GzipProcessorUtils {
 
 	private static final ConcurrentStack<Inflater> decompressors = new ConcurrentStack<>();
 	private static final ConcurrentStack<Deflater> compressors = new ConcurrentStack<>();
+	private static final ConcurrentStack<Deflater> zlibCompressors = new ConcurrentStack<>();
 
 	public static ByteBuf fromGzip(ByteBuf src, int maxMessageSize) throws ParseException {
 		if (CHECK) checkArgument(src.readRemaining() > 0);
@@ -91,9 +96,13 @@ public final class GzipProcessorUtils {
 	}
 
 	public static ByteBuf toGzip(ByteBuf src) {
+		return toGzip(src, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	public static ByteBuf toGzip(ByteBuf src, int level) {
 		if (CHECK) checkArgument(src.readRemaining() >= 0);
 
-		Deflater compressor = ensureCompressor();
+		Deflater compressor = ensureCompressor(compressors, level, true);
 		compressor.setInput(src.array(), src.head(), src.readRemaining());
 		compressor.finish();
 		int dataSize = src.readRemaining();
@@ -105,7 +114,26 @@ public final class GzipProcessorUtils {
 		dst.writeInt(Integer.reverseBytes(crc));
 		dst.writeInt(Integer.reverseBytes(dataSize));
 
-		moveCompressorToPool(compressor);
+		moveCompressorToPool(compressors, compressor);
+		src.recycle();
+		return dst;
+	}
+
+	/**
+	 * Compresses data into the zlib format (rfc 1950), which is used by 'deflate' content encoding.
+	 * It is a bit cheaper than GZIP, as Adler-32 checksum is computed instead of CRC-32.
+	 */
+	public static ByteBuf toDeflate(ByteBuf src, int level) {
+		if (CHECK) checkArgument(src.readRemaining() >= 0);
+
+		Deflater compressor = ensureCompressor(zlibCompressors, level, false);
+		compressor.setInput(src.array(), src.head(), src.readRemaining());
+		compressor.finish();
+		int maxDataSize = estimateMaxCompressedSize(src.readRemaining());
+		ByteBuf dst = ByteBufPool.allocate(ZLIB_HEADER_SIZE + maxDataSize + ZLIB_FOOTER_SIZE + SPARE_BYTES_COUNT);
+		dst = writeCompressedData(compressor, src, dst);
+
+		moveCompressorToPool(zlibCompressors, compressor);
 		src.recycle();
 		return dst;
 	}
@@ -213,17 +241,18 @@ public final class GzipProcessorUtils {
 		decompressors.push(decompressor);
 	}
 
-	private static Deflater ensureCompressor() {
-		Deflater compressor = compressors.pop();
+	private static Deflater ensureCompressor(ConcurrentStack<Deflater> pool, int level, boolean nowrap) {
+		Deflater compressor = pool.pop();
 		if (compressor == null) {
-			compressor = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			return new Deflater(level, nowrap);
 		}
+		compressor.setLevel(level);
 		return compressor;
 	}
 
-	private static void moveCompressorToPool(Deflater compressor) {
+	private static void moveCompressorToPool(ConcurrentStack<Deflater> pool, Deflater compressor) {
 		compressor.reset();
-		compressors.push(compressor);
+		pool.push(compressor);
 	}
 
 	private static void check(boolean condition, ByteBuf buf1, ByteBuf buf2, ParseException e) throws ParseException {
@@ -0,0 +1,570 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.parse.ParseException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.hashCodeLowerCaseAscii;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * HPACK header compression for HTTP/2, as defined in RFC 7541.
+ * <p>
+ * The static table and the Huffman code are shared by all of the encoders and decoders,
+ * each connection keeps its own pair of dynamic tables.
+ */
+final class Hpack {
+	public static final ParseException COMPRESSION_ERROR = new ParseException(Hpack.class, "Invalid HPACK header block");
+
+	static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+	static final int ENTRY_OVERHEAD = 32;
+
+	static final byte[] PSEUDO_AUTHORITY = encodeAscii(":authority");
+	static final byte[] PSEUDO_METHOD = encodeAscii(":method");
+	static final byte[] PSEUDO_PATH = encodeAscii(":path");
+	static final byte[] PSEUDO_SCHEME = encodeAscii(":scheme");
+	static final byte[] PSEUDO_STATUS = encodeAscii(":status");
+
+	private static final String[][] STATIC_TABLE = {
+			{":authority", ""},
+			{":method", "GET"},
+			{":method", "POST"},
+			{":path", "/"},
+			{":path", "/index.html"},
+			{":scheme", "http"},
+			{":scheme", "https"},
+			{":status", "200"},
+			{":status", "204"},
+			{":status", "206"},
+			{":status", "304"},
+			{":status", "400"},
+			{":status", "404"},
+			{":status", "500"},
+			{"accept-charset", ""},
+			{"accept-encoding", "gzip, deflate"},
+			{"accept-language", ""},
+			{"accept-ranges", ""},
+			{"accept", ""},
+			{"access-control-allow-origin", ""},
+			{"age", ""},
+			{"allow", ""},
+			{"authorization", ""},
+			{"cache-control", ""},
+			{"content-disposition", ""},
+			{"content-encoding", ""},
+			{"content-language", ""},
+			{"content-length", ""},
+			{"content-location", ""},
+			{"content-range", ""},
+			{"content-type", ""},
+			{"cookie", ""},
+			{"date", ""},
+			{"etag", ""},
+			{"expect", ""},
+			{"expires", ""},
+			{"from", ""},
+			{"host", ""},
+			{"if-match", ""},
+			{"if-modified-since", ""},
+			{"if-none-match", ""},
+			{"if-range", ""},
+			{"if-unmodified-since", ""},
+			{"last-modified", ""},
+			{"link", ""},
+			{"location", ""},
+			{"max-forwards", ""},
+			{"proxy-authenticate", ""},
+			{"proxy-authorization", ""},
+			{"range", ""},
+			{"referer", ""},
+			{"refresh", ""},
+			{"retry-after", ""},
+			{"server", ""},
+			{"set-cookie", ""},
+			{"strict-transport-security", ""},
+			{"transfer-encoding", ""},
+			{"user-agent", ""},
+			{"vary", ""},
+			{"via", ""},
+			{"www-authenticate", ""},
+	};
+
+	static final int STATIC_TABLE_SIZE = STATIC_TABLE.length;
+	private static final byte[][] STATIC_NAMES = new byte[STATIC_TABLE_SIZE + 1][];
+	private static final byte[][] STATIC_VALUES = new byte[STATIC_TABLE_SIZE + 1][];
+	private static final Map<String, Integer> STATIC_NAME_INDEXES = new HashMap<>();
+	private static final Map<String, Integer> STATIC_FIELD_INDEXES = new HashMap<>();
+
+	static {
+		for (int i = 0; i < STATIC_TABLE_SIZE; i++) {
+			String name = STATIC_TABLE[i][0];
+			String value = STATIC_TABLE[i][1];
+			STATIC_NAMES[i + 1] = encodeAscii(name);
+			STATIC_VALUES[i + 1] = encodeAscii(value);
+			STATIC_NAME_INDEXES.putIfAbsent(name, i + 1);
+			if (!value.isEmpty()) {
+				STATIC_FIELD_INDEXES.put(name + '\0' + value, i + 1);
+			}
+		}
+	}
+
+	// region Huffman code, RFC 7541, Appendix B
+	private static final int[] HUFFMAN_CODES = {
+			0x1ff8, 0x7fffd8, 0xfffffe2, 0xfffffe3, 0xfffffe4, 0xfffffe5, 0xfffffe6, 0xfffffe7,
+			0xfffffe8, 0xffffea, 0x3ffffffc, 0xfffffe9, 0xfffffea, 0x3ffffffd, 0xfffffeb, 0xfffffec,
+			0xfffffed, 0xfffffee, 0xfffffef, 0xffffff0, 0xffffff1, 0xffffff2, 0x3ffffffe, 0xffffff3,
+			0xffffff4, 0xffffff5, 0xffffff6, 0xffffff7, 0xffffff8, 0xffffff9, 0xffffffa, 0xffffffb,
+			0x14, 0x3f8, 0x3f9, 0xffa, 0x1ff9, 0x15, 0xf8, 0x7fa,
+			0x3fa, 0x3fb, 0xf9, 0x7fb, 0xfa, 0x16, 0x17, 0x18,
+			0x0, 0x1, 0x2, 0x19, 0x1a, 0x1b, 0x1c, 0x1d,
+			0x1e, 0x1f, 0x5c, 0xfb, 0x7ffc, 0x20, 0xffb, 0x3fc,
+			0x1ffa, 0x21, 0x5d, 0x5e, 0x5f, 0x60, 0x61, 0x62,
+			0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a,
+			0x6b, 0x6c, 0x6d, 0x6e, 0x6f, 0x70, 0x71, 0x72,
+			0xfc, 0x73, 0xfd, 0x1ffb, 0x7fff0, 0x1ffc, 0x3ffc, 0x22,
+			0x7ffd, 0x3, 0x23, 0x4, 0x24, 0x5, 0x25, 0x26,
+			0x27, 0x6, 0x74, 0x75, 0x28, 0x29, 0x2a, 0x7,
+			0x2b, 0x76, 0x2c, 0x8, 0x9, 0x2d, 0x77, 0x78,
+			0x79, 0x7a, 0x7b, 0x7ffe, 0x7fc, 0x3ffd, 0x1ffd, 0xffffffc,
+			0xfffe6, 0x3fffd2, 0xfffe7, 0xfffe8, 0x3fffd3, 0x3fffd4, 0x3fffd5, 0x7fffd9,
+			0x3fffd6, 0x7fffda, 0x7fffdb, 0x7fffdc, 0x7fffdd, 0x7fffde, 0xffffeb, 0x7fffdf,
+			0xffffec, 0xffffed, 0x3fffd7, 0x7fffe0, 0xffffee, 0x7fffe1, 0x7fffe2, 0x7fffe3,
+			0x7fffe4, 0x1fffdc, 0x3fffd8, 0x7fffe5, 0x3fffd9, 0x7fffe6, 0x7fffe7, 0xffffef,
+			0x3fffda, 0x1fffdd, 0xfffe9, 0x3fffdb, 0x3fffdc, 0x7fffe8, 0x7fffe9, 0x1fffde,
+			0x7fffea, 0x3fffdd, 0x3fffde, 0xfffff0, 0x1fffdf, 0x3fffdf, 0x7fffeb, 0x7fffec,
+			0x1fffe0, 0x1fffe1, 0x3fffe0, 0x1fffe2, 0x7fffed, 0x3fffe1, 0x7fffee, 0x7fffef,
+			0xfffea, 0x3fffe2, 0x3fffe3, 0x3fffe4, 0x7ffff0, 0x3fffe5, 0x3fffe6, 0x7ffff1,
+			0x3ffffe0, 0x3ffffe1, 0xfffeb, 0x7fff1, 0x3fffe7, 0x7ffff2, 0x3fffe8, 0x1ffffec,
+			0x3ffffe2, 0x3ffffe3, 0x3ffffe4, 0x7ffffde, 0x7ffffdf, 0x3ffffe5, 0xfffff1, 0x1ffffed,
+			0x7fff2, 0x1fffe3, 0x3ffffe6, 0x7ffffe0, 0x7ffffe1, 0x3ffffe7, 0x7ffffe2, 0xfffff2,
+			0x1fffe4, 0x1fffe5, 0x3ffffe8, 0x3ffffe9, 0xffffffd, 0x7ffffe3, 0x7ffffe4, 0x7ffffe5,
+			0xfffec, 0xfffff3, 0xfffed, 0x1fffe6, 0x3fffe9, 0x1fffe7, 0x1fffe8, 0x7ffff3,
+			0x3fffea, 0x3fffeb, 0x1ffffee, 0x1ffffef, 0xfffff4, 0xfffff5, 0x3ffffea, 0x7ffff4,
+			0x3ffffeb, 0x7ffffe6, 0x3ffffec, 0x3ffffed, 0x7ffffe7, 0x7ffffe8, 0x7ffffe9, 0x7ffffea,
+			0x7ffffeb, 0xffffffe, 0x7ffffec, 0x7ffffed, 0x7ffffee, 0x7ffffef, 0x7fffff0, 0x3ffffee,
+	};
+
+	private static final byte[] HUFFMAN_LENGTHS = {
+			13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+			28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+			6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+			5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+			13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+			7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+			15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+			6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+			20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+			24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+			22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+			21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+			26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+			19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+			20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+			26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+	};
+
+	private static final int HUFFMAN_EOS = 256;
+
+	/**
+	 * Decoding tree, children of the node {@code n} are stored at {@code 2 * n} and {@code 2 * n + 1},
+	 * non-negative values refer to the inner nodes, negative ones are leaves with a symbol {@code ~value}
+	 */
+	private static final int[] HUFFMAN_TREE = new int[2 * 256];
+
+	static {
+		int nodes = 1;
+		for (int symbol = 0; symbol <= HUFFMAN_EOS; symbol++) {
+			int code = symbol == HUFFMAN_EOS ? 0x3fffffff : HUFFMAN_CODES[symbol];
+			int length = symbol == HUFFMAN_EOS ? 30 : HUFFMAN_LENGTHS[symbol];
+			int node = 0;
+			for (int bit = length - 1; bit > 0; bit--) {
+				int slot = 2 * node + ((code >>> bit) & 1);
+				if (HUFFMAN_TREE[slot] == 0) {
+					HUFFMAN_TREE[slot] = nodes++;
+				}
+				node = HUFFMAN_TREE[slot];
+			}
+			HUFFMAN_TREE[2 * node + (code & 1)] = ~symbol;
+		}
+	}
+	// endregion
+
+	private Hpack() {
+	}
+
+	static int readInt(ByteBuf buf, int prefixBits) throws ParseException {
+		if (!buf.canRead()) throw COMPRESSION_ERROR;
+		int mask = (1 << prefixBits) - 1;
+		int value = buf.readByte() & mask;
+		if (value < mask) return value;
+		for (int shift = 0; shift < 28; shift += 7) {
+			if (!buf.canRead()) throw COMPRESSION_ERROR;
+			int b = buf.readByte();
+			value += (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) throw COMPRESSION_ERROR;
+				return value;
+			}
+		}
+		throw COMPRESSION_ERROR;
+	}
+
+	static void writeInt(ByteBuf buf, int flags, int prefixBits, int value) {
+		int mask = (1 << prefixBits) - 1;
+		if (value < mask) {
+			buf.put((byte) (flags | value));
+			return;
+		}
+		buf.put((byte) (flags | mask));
+		value -= mask;
+		while (value >= 0x80) {
+			buf.put((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	static byte[] readString(ByteBuf buf) throws ParseException {
+		if (!buf.canRead()) throw COMPRESSION_ERROR;
+		boolean huffman = (buf.peek() & 0x80) != 0;
+		int length = readInt(buf, 7);
+		if (length > buf.readRemaining()) throw COMPRESSION_ERROR;
+		byte[] bytes;
+		if (huffman) {
+			bytes = huffmanDecode(buf.array(), buf.head(), length);
+		} else {
+			bytes = new byte[length];
+			System.arraycopy(buf.array(), buf.head(), bytes, 0, length);
+		}
+		buf.moveHead(length);
+		return bytes;
+	}
+
+	/**
+	 * Writes a string literal, which is Huffman-encoded if that makes it shorter
+	 */
+	static void writeString(ByteBuf buf, byte[] bytes) {
+		int huffmanLength = huffmanEncodedLength(bytes);
+		if (huffmanLength < bytes.length) {
+			writeInt(buf, 0x80, 7, huffmanLength);
+			huffmanEncode(buf, bytes);
+		} else {
+			writeInt(buf, 0, 7, bytes.length);
+			buf.put(bytes);
+		}
+	}
+
+	/**
+	 * Returns the maximum number of bytes which may be needed to encode a header field
+	 */
+	static int estimateSize(byte[] name, byte[] value) {
+		return 1 + 2 * 5 + name.length + value.length;
+	}
+
+	static byte[] huffmanDecode(byte[] array, int offset, int length) throws ParseException {
+		byte[] result = new byte[length * 8 / 5 + 1]; // the shortest code is 5 bits
+		int size = 0;
+		int node = 0;
+		int bits = 0; // bits of the current incomplete code
+		boolean ones = true;
+		for (int i = offset; i < offset + length; i++) {
+			int b = array[i];
+			for (int bit = 7; bit >= 0; bit--) {
+				int one = (b >>> bit) & 1;
+				int next = HUFFMAN_TREE[2 * node + one];
+				if (next < 0) {
+					int symbol = ~next;
+					if (symbol == HUFFMAN_EOS) throw COMPRESSION_ERROR;
+					result[size++] = (byte) symbol;
+					node = 0;
+					bits = 0;
+					ones = true;
+				} else {
+					if (next == 0) throw COMPRESSION_ERROR;
+					node = next;
+					bits++;
+					ones &= one == 1;
+				}
+			}
+		}
+		// padding must be a prefix of EOS code, which is shorter than a byte
+		if (bits > 7 || !ones) throw COMPRESSION_ERROR;
+		if (size == result.length) return result;
+		byte[] bytes = new byte[size];
+		System.arraycopy(result, 0, bytes, 0, size);
+		return bytes;
+	}
+
+	static int huffmanEncodedLength(byte[] bytes) {
+		long bits = 0;
+		for (byte b : bytes) {
+			bits += HUFFMAN_LENGTHS[b & 0xFF];
+		}
+		return (int) ((bits + 7) >>> 3);
+	}
+
+	static void huffmanEncode(ByteBuf buf, byte[] bytes) {
+		long current = 0;
+		int bits = 0;
+		for (byte b : bytes) {
+			int symbol = b & 0xFF;
+			int length = HUFFMAN_LENGTHS[symbol];
+			current = (current << length) | HUFFMAN_CODES[symbol];
+			bits += length;
+			while (bits >= 8) {
+				bits -= 8;
+				buf.put((byte) (current >>> bits));
+			}
+		}
+		if (bits > 0) {
+			// pad with the most significant bits of EOS
+			buf.put((byte) ((current << (8 - bits)) | (0xFF >>> bits)));
+		}
+	}
+
+	static byte[] toLowerCaseName(HttpHeader header) {
+		if (header.lowerCaseBytes != null) return header.lowerCaseBytes;
+		byte[] bytes = new byte[header.length];
+		for (int i = 0; i < bytes.length; i++) {
+			byte b = header.bytes[header.offset + i];
+			bytes[i] = b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+		}
+		return bytes;
+	}
+
+	private static final class DynamicTable {
+		private byte[][] names = new byte[16][];
+		private byte[][] values = new byte[16][];
+		private int first; // position of the oldest entry
+		private int count;
+		private int size;
+		private int maxSize = DEFAULT_HEADER_TABLE_SIZE;
+		private long inserted;
+
+		byte[] name(int index) {
+			return names[(first + count - 1 - index) & (names.length - 1)];
+		}
+
+		byte[] value(int index) {
+			return values[(first + count - 1 - index) & (values.length - 1)];
+		}
+
+		/**
+		 * Adds a new entry, returns the number of evicted entries
+		 */
+		int add(byte[] name, byte[] value) {
+			int entrySize = ENTRY_OVERHEAD + name.length + value.length;
+			int evicted = evict(maxSize - entrySize);
+			if (entrySize > maxSize) return evicted;
+			if (count == names.length) {
+				grow();
+			}
+			int position = (first + count) & (names.length - 1);
+			names[position] = name;
+			values[position] = value;
+			count++;
+			size += entrySize;
+			inserted++;
+			return evicted;
+		}
+
+		int setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+			return evict(maxSize);
+		}
+
+		private int evict(int targetSize) {
+			int evicted = 0;
+			while (count != 0 && size > targetSize) {
+				size -= ENTRY_OVERHEAD + names[first].length + values[first].length;
+				names[first] = values[first] = null;
+				first = (first + 1) & (names.length - 1);
+				count--;
+				evicted++;
+			}
+			return evicted;
+		}
+
+		private void grow() {
+			byte[][] names = new byte[this.names.length * 2][];
+			byte[][] values = new byte[this.values.length * 2][];
+			for (int i = 0; i < count; i++) {
+				names[i] = this.names[(first + i) & (this.names.length - 1)];
+				values[i] = this.values[(first + i) & (this.values.length - 1)];
+			}
+			this.names = names;
+			this.values = values;
+			this.first = 0;
+		}
+	}
+
+	@FunctionalInterface
+	interface HeaderListener {
+		/**
+		 * Is called for each decoded header field, header names are lower-case,
+		 * pseudo-header fields keep their leading colon
+		 */
+		void onHeader(byte[] name, byte[] value) throws ParseException;
+	}
+
+	static final class Decoder {
+		private final DynamicTable table = new DynamicTable();
+		private final int maxTableSize;
+
+		Decoder(int maxTableSize) {
+			this.maxTableSize = maxTableSize;
+			table.setMaxSize(maxTableSize);
+		}
+
+		void decode(ByteBuf block, HeaderListener listener) throws ParseException {
+			while (block.canRead()) {
+				int b = block.peek() & 0xFF;
+				if ((b & 0x80) != 0) {
+					// indexed header field
+					int index = readInt(block, 7);
+					listener.onHeader(name(index), value(index));
+				} else if ((b & 0x40) != 0) {
+					// literal header field with incremental indexing
+					byte[] name = readName(block, 6);
+					byte[] value = readString(block);
+					table.add(name, value);
+					listener.onHeader(name, value);
+				} else if ((b & 0x20) != 0) {
+					// dynamic table size update
+					int size = readInt(block, 5);
+					if (size > maxTableSize) throw COMPRESSION_ERROR;
+					table.setMaxSize(size);
+				} else {
+					// literal header field without indexing or never indexed
+					byte[] name = readName(block, 4);
+					byte[] value = readString(block);
+					listener.onHeader(name, value);
+				}
+			}
+		}
+
+		private byte[] readName(ByteBuf block, int prefixBits) throws ParseException {
+			int index = readInt(block, prefixBits);
+			return index == 0 ? readString(block) : name(index);
+		}
+
+		private byte[] name(int index) throws ParseException {
+			if (index == 0) throw COMPRESSION_ERROR;
+			if (index <= STATIC_TABLE_SIZE) return STATIC_NAMES[index];
+			index -= STATIC_TABLE_SIZE + 1;
+			if (index >= table.count) throw COMPRESSION_ERROR;
+			return table.name(index);
+		}
+
+		private byte[] value(int index) throws ParseException {
+			if (index == 0) throw COMPRESSION_ERROR;
+			if (index <= STATIC_TABLE_SIZE) return STATIC_VALUES[index];
+			index -= STATIC_TABLE_SIZE + 1;
+			if (index >= table.count) throw COMPRESSION_ERROR;
+			return table.value(index);
+		}
+	}
+
+	static final class Encoder {
+		private final DynamicTable table = new DynamicTable();
+		// header fields in the dynamic table mapped to their insertion numbers
+		private final Map<String, Long> fields = new HashMap<>();
+		private final Map<Long, String> fieldsByInsertion = new HashMap<>();
+		private int pendingMaxSize = -1;
+
+		/**
+		 * Is called when the peer changes its SETTINGS_HEADER_TABLE_SIZE,
+		 * the change is signalled at the beginning of the next header block
+		 */
+		void setMaxTableSize(int maxSize) {
+			pendingMaxSize = Math.min(maxSize, DEFAULT_HEADER_TABLE_SIZE);
+		}
+
+		void startBlock(ByteBuf buf) {
+			if (pendingMaxSize == -1) return;
+			evicted(table.setMaxSize(pendingMaxSize));
+			writeInt(buf, 0x20, 5, pendingMaxSize);
+			pendingMaxSize = -1;
+		}
+
+		/**
+		 * Encodes a header field, the buffer should have at least {@link #estimateSize} bytes available
+		 *
+		 * @param sensitive whether the field must never be indexed, like credentials
+		 */
+		void encode(ByteBuf buf, byte[] name, byte[] value, boolean sensitive) {
+			String nameString = new String(name, ISO_8859_1);
+			String field = nameString + '\0' + new String(value, ISO_8859_1);
+			Integer staticIndex = STATIC_FIELD_INDEXES.get(field);
+			if (staticIndex != null) {
+				writeInt(buf, 0x80, 7, staticIndex);
+				return;
+			}
+			Long insertion = fields.get(field);
+			if (insertion != null) {
+				writeInt(buf, 0x80, 7, STATIC_TABLE_SIZE + 1 + (int) (table.inserted - insertion));
+				return;
+			}
+			Integer nameIndex = STATIC_NAME_INDEXES.get(nameString);
+			int entrySize = ENTRY_OVERHEAD + name.length + value.length;
+			if (sensitive) {
+				writeLiteral(buf, 0x10, 4, nameIndex, name, value);
+			} else if (entrySize > table.maxSize / 2) {
+				// large values would evict the rest of the table
+				writeLiteral(buf, 0x00, 4, nameIndex, name, value);
+			} else {
+				writeLiteral(buf, 0x40, 6, nameIndex, name, value);
+				evicted(table.add(name, value));
+				long inserted = table.inserted;
+				fields.put(field, inserted);
+				fieldsByInsertion.put(inserted, field);
+			}
+		}
+
+		private static void writeLiteral(ByteBuf buf, int flags, int prefixBits, Integer nameIndex, byte[] name, byte[] value) {
+			if (nameIndex != null) {
+				writeInt(buf, flags, prefixBits, nameIndex);
+			} else {
+				writeInt(buf, flags, prefixBits, 0);
+				writeString(buf, name);
+			}
+			writeString(buf, value);
+		}
+
+		private void evicted(int evicted) {
+			// the oldest entries are evicted first
+			long oldest = table.inserted - table.count - evicted + 1;
+			for (long insertion = oldest; insertion < oldest + evicted; insertion++) {
+				String field = fieldsByInsertion.remove(insertion);
+				if (field != null) {
+					fields.remove(field);
+				}
+			}
+		}
+	}
+
+	@NotNull
+	static HttpHeader toHttpHeader(byte[] name) {
+		return HttpHeaders.of(name, 0, name.length, hashCodeLowerCaseAscii(name));
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.AsyncHttpClient.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.Hpack.*;
+import static io.activej.http.HttpHeaders.HOST;
+
+/**
+ * A client side of HTTP/2 connection, it multiplexes concurrent requests
+ * to the same address over a single connection.
+ * <p>
+ * Requests which exceed the maximum number of concurrent streams allowed by a server
+ * are queued until some of the active streams are closed.
+ */
+final class Http2ClientConnection extends AbstractHttp2Connection {
+	public static final ParseException INVALID_RESPONSE = new ParseException(Http2ClientConnection.class, "Invalid HTTP/2 response");
+
+	private static final byte[] SCHEME_HTTP = encodeAscii("http");
+	private static final byte[] SCHEME_HTTPS = encodeAscii("https");
+
+	private final AsyncHttpClient client;
+	@Nullable
+	private final Inspector inspector;
+	final InetSocketAddress remoteAddress;
+	private final int maxBodySize;
+
+	private int nextStreamId = 1;
+	private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+	private static final class PendingRequest {
+		final HttpRequest request;
+		final SettablePromise<HttpResponse> promise;
+
+		PendingRequest(HttpRequest request, SettablePromise<HttpResponse> promise) {
+			this.request = request;
+			this.promise = promise;
+		}
+	}
+
+	Http2ClientConnection(Eventloop eventloop, AsyncHttpClient client,
+			AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+		super(eventloop, asyncTcpSocket);
+		this.client = client;
+		this.inspector = client.inspector;
+		this.remoteAddress = remoteAddress;
+		this.maxBodySize = client.maxBodySize;
+		// until the settings of a server are received, the minimum recommended by RFC 7540 is assumed
+		this.peerMaxConcurrentStreams = 100;
+	}
+
+	void start() {
+		(pool = client.poolReadWrite).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		writeConnectionPreface();
+		writeSettings(
+				SETTINGS_ENABLE_PUSH, 0,
+				SETTINGS_INITIAL_WINDOW_SIZE, initialWindowSize);
+		readFrames();
+	}
+
+	/**
+	 * Whether new requests may be sent over this connection
+	 */
+	boolean isAvailable() {
+		return !isClosed() && !goAway;
+	}
+
+	public Promise<HttpResponse> send(HttpRequest request) {
+		if (!isAvailable()) {
+			request.recycle();
+			return Promise.ofException(closeError != null ? closeError : CONNECTION_CLOSED);
+		}
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		if (streams.size() >= peerMaxConcurrentStreams) {
+			pendingRequests.add(new PendingRequest(request, promise));
+		} else {
+			startStream(request, promise);
+		}
+		return promise;
+	}
+
+	private void startStream(HttpRequest request, SettablePromise<HttpResponse> promise) {
+		if (pool != client.poolReadWrite) {
+			switchPool(client.poolReadWrite);
+		}
+		Stream stream = openStream(nextStreamId);
+		nextStreamId += 2;
+		stream.responsePromise = promise;
+
+		String authority = request.getHeader(HOST);
+		if (authority == null) {
+			authority = request.getHostAndPort();
+		}
+		sendHttpMessage(stream, request,
+				PSEUDO_METHOD, request.getMethod().bytes,
+				PSEUDO_SCHEME, request.isHttps() ? SCHEME_HTTPS : SCHEME_HTTP,
+				PSEUDO_AUTHORITY, encodeAscii(authority != null ? authority : ""),
+				PSEUDO_PATH, encodeAscii(request.getPathAndQuery()));
+		request.recycle();
+	}
+
+	@Override
+	protected void onHeaderBlock(int streamId, ByteBuf block, boolean endStream) throws ParseException {
+		decodeHeaderFields(block);
+
+		Stream stream = streams.get(streamId);
+		if (stream == null) return;
+		if (stream.message != null) {
+			// trailers
+			if (!endStream) throw PROTOCOL_VIOLATION;
+			stream.onData(ByteBuf.empty(), true);
+			return;
+		}
+
+		int code = getStatusCode();
+		if (code < 200) {
+			// informational responses are skipped
+			if (endStream) throw PROTOCOL_VIOLATION;
+			return;
+		}
+
+		HttpResponse response = new HttpResponse(code);
+		response.maxBodySize = maxBodySize;
+		boolean gzipped = addHeaderFields(response, 2);
+		setBody(stream, response, endStream, gzipped);
+		stream.message = response;
+		if (inspector != null) inspector.onHttp2Response(this, response);
+
+		SettablePromise<HttpResponse> promise = stream.responsePromise;
+		stream.responsePromise = null;
+		assert promise != null;
+		promise.set(response);
+
+		if (endStream && !isClosed()) {
+			onInboundEnded(stream);
+		}
+	}
+
+	private int getStatusCode() throws ParseException {
+		if (headerFields.size() < 2 || !Arrays.equals(headerFields.get(0), PSEUDO_STATUS)) throw INVALID_RESPONSE;
+		byte[] value = headerFields.get(1);
+		if (value.length != 3) throw INVALID_RESPONSE;
+		int code = 0;
+		for (byte b : value) {
+			if (b < '0' || b > '9') throw INVALID_RESPONSE;
+			code = code * 10 + (b - '0');
+		}
+		if (code < 100 || code >= 600) throw INVALID_RESPONSE;
+		return code;
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream) {
+		if (stream.message != null && stream.bodyConsumed) {
+			stream.message.recycle();
+			stream.message = null;
+		}
+		if (isClosed()) return;
+		while (!pendingRequests.isEmpty() && streams.size() < peerMaxConcurrentStreams && !goAway) {
+			PendingRequest pending = pendingRequests.poll();
+			startStream(pending.request, pending.promise);
+		}
+		if (!streams.isEmpty()) return;
+		if (goAway || client.keepAliveTimeoutMillis == 0) {
+			shutdown();
+		} else {
+			switchPool(client.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onBodyConsumed(Stream stream) {
+		if (stream.closed && stream.message != null) {
+			stream.message.recycle();
+			stream.message = null;
+		}
+	}
+
+	@Override
+	protected void onStreamReset(Stream stream, Throwable e) {
+		if (stream.responsePromise != null) {
+			SettablePromise<HttpResponse> promise = stream.responsePromise;
+			stream.responsePromise = null;
+			if (inspector != null) inspector.onHttp2Error(this, false, e);
+			promise.setException(e);
+		}
+	}
+
+	@Override
+	protected void onSettings() {
+		while (!pendingRequests.isEmpty() && streams.size() < peerMaxConcurrentStreams) {
+			PendingRequest pending = pendingRequests.poll();
+			startStream(pending.request, pending.promise);
+		}
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		client.onHttp2ConnectionUnavailable(this);
+		for (Stream stream : streams.values().toArray(new Stream[0])) {
+			if (stream.id > lastStreamId) {
+				// the stream has not been processed and may be retried
+				resetStream(stream, CANCEL);
+			}
+		}
+		failPendingRequests(CONNECTION_CLOSED);
+		if (streams.isEmpty()) {
+			shutdown();
+		}
+	}
+
+	private void failPendingRequests(Throwable e) {
+		while (!pendingRequests.isEmpty()) {
+			PendingRequest pending = pendingRequests.poll();
+			pending.request.recycle();
+			pending.promise.setException(e);
+		}
+	}
+
+	/**
+	 * Gracefully closes the connection, after all of the pending frames are sent
+	 */
+	private void shutdown() {
+		if (isClosed()) return;
+		goAway = true;
+		client.onHttp2ConnectionUnavailable(this);
+		writeGoAway(0, NO_ERROR);
+		Promise<Void> flushed = afterFlush();
+		flush();
+		flushed.whenComplete(this::close);
+	}
+
+	@Override
+	protected void onClosedWithError(@NotNull Throwable e) {
+		super.onClosedWithError(e);
+		if (inspector != null) inspector.onHttp2Error(this, streams.isEmpty(), e);
+	}
+
+	@Override
+	protected void onClosed() {
+		client.onHttp2ConnectionUnavailable(this);
+		closeStreams();
+		failPendingRequests(closeError != null ? closeError : CONNECTION_CLOSED);
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		client.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ClientConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", pendingRequests=" + pendingRequests.size() +
+				super.toString() +
+				'}';
+	}
+}
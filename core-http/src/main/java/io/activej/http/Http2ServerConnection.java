@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.exception.UncheckedException;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.trace.Tracing;
+import io.activej.http.AsyncHttpServer.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.http.Hpack.*;
+import static io.activej.http.HttpHeaders.HOST;
+
+/**
+ * A server side of HTTP/2 connection, it serves each of the streams
+ * with the {@link AsyncServlet} concurrently.
+ * <p>
+ * It is created by {@link HttpServerConnection} when a client starts with the HTTP/2 connection preface,
+ * either over a plain connection (prior knowledge) or over TLS, when "h2" protocol has been negotiated.
+ */
+final class Http2ServerConnection extends AbstractHttp2Connection {
+	private static final ParseException MALFORMED_REQUEST = new ParseException(Http2ServerConnection.class, "Malformed HTTP/2 request");
+
+	private final InetAddress remoteAddress;
+	private final AsyncHttpServer server;
+	@Nullable
+	private final Inspector inspector;
+	private final AsyncServlet servlet;
+	private final int maxBodySize;
+
+	private int lastStreamId;
+
+	Http2ServerConnection(Eventloop eventloop, InetAddress remoteAddress, AsyncTcpSocket asyncTcpSocket,
+			AsyncHttpServer server, AsyncServlet servlet) {
+		super(eventloop, asyncTcpSocket);
+		this.remoteAddress = remoteAddress;
+		this.server = server;
+		this.servlet = servlet;
+		this.inspector = server.inspector;
+		this.maxBodySize = server.maxBodySize;
+	}
+
+	/**
+	 * Starts serving the connection, the connection preface of a client must have already been received
+	 */
+	void serve() {
+		(pool = server.poolKeepAlive).addLastNode(this);
+		poolTimestamp = eventloop.currentTimeMillis();
+		writeSettings(
+				SETTINGS_MAX_CONCURRENT_STREAMS, MAX_CONCURRENT_STREAMS,
+				SETTINGS_INITIAL_WINDOW_SIZE, initialWindowSize);
+		readFrames();
+	}
+
+	@Override
+	protected void onHeaderBlock(int streamId, ByteBuf block, boolean endStream) throws ParseException {
+		decodeHeaderFields(block);
+
+		Stream stream = streams.get(streamId);
+		if (stream != null) {
+			// trailers
+			if (!endStream) throw PROTOCOL_VIOLATION;
+			stream.onData(ByteBuf.empty(), true);
+			return;
+		}
+		if ((streamId & 1) == 0 || streamId <= lastStreamId) throw PROTOCOL_VIOLATION;
+		lastStreamId = streamId;
+
+		if (goAway || streams.size() >= MAX_CONCURRENT_STREAMS) {
+			writeRstStream(streamId, REFUSED_STREAM);
+			return;
+		}
+
+		stream = openStream(streamId);
+		HttpRequest request;
+		try {
+			request = createRequest(stream, endStream);
+		} catch (ParseException e) {
+			if (inspector != null) {
+				inspector.onHttpError(remoteAddress, e);
+			}
+			resetStream(stream, PROTOCOL_ERROR);
+			return;
+		}
+		if (endStream) {
+			onInboundEnded(stream);
+		}
+		serve(stream, request);
+	}
+
+	private HttpRequest createRequest(Stream stream, boolean endStream) throws ParseException {
+		HttpMethod method = null;
+		String path = null;
+		byte[] authority = null;
+		int i = 0;
+		for (; i < headerFields.size(); i += 2) {
+			byte[] name = headerFields.get(i);
+			if (name.length == 0 || name[0] != ':') break;
+			byte[] value = headerFields.get(i + 1);
+			if (Arrays.equals(name, PSEUDO_METHOD)) {
+				method = toHttpMethod(value);
+			} else if (Arrays.equals(name, PSEUDO_PATH)) {
+				path = decodeAscii(value);
+			} else if (Arrays.equals(name, PSEUDO_AUTHORITY)) {
+				authority = value;
+			} else if (!Arrays.equals(name, PSEUDO_SCHEME)) {
+				throw MALFORMED_REQUEST;
+			}
+		}
+		if (method == null || path == null || path.isEmpty()) throw MALFORMED_REQUEST;
+
+		HttpRequest request = new HttpRequest(method, UrlParser.parse(path));
+		request.maxBodySize = maxBodySize;
+		if (authority != null) {
+			request.addHeader(HOST, authority);
+		}
+		boolean gzipped = addHeaderFields(request, i);
+		setBody(stream, request, endStream, gzipped);
+		request.setRemoteAddress(remoteAddress);
+		return request;
+	}
+
+	@Nullable
+	private static HttpMethod toHttpMethod(byte[] value) {
+		for (HttpMethod method : HttpMethod.values()) {
+			if (method.compareTo(value, 0, value.length)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private void serve(Stream stream, HttpRequest request) {
+		if (inspector != null) {
+			inspector.onHttpRequest(request);
+		}
+
+		if (pool != server.poolServing) {
+			switchPool(server.poolServing);
+		}
+
+		AdmissionController admissionController = server.admissionController;
+		boolean admitted = admissionController == null || admissionController.tryAcquire();
+		long start = admissionController != null ? System.nanoTime() : 0;
+		Promise<HttpResponse> servletResult;
+		if (!admitted) {
+			servletResult = Promise.ofException(AdmissionController.OVERLOADED);
+		} else {
+			try {
+				servletResult = Tracing.ENABLED ?
+						AsyncHttpServer.serveTraced(servlet, request) :
+						servlet.serveAsync(request);
+			} catch (UncheckedException u) {
+				servletResult = Promise.ofException(u.getCause());
+			}
+		}
+		servletResult.whenComplete((response, e) -> {
+			if (admitted && admissionController != null) {
+				admissionController.release(System.nanoTime() - start);
+			}
+			if (isClosed() || stream.closed) {
+				request.recycle();
+				if (response != null) {
+					response.recycle();
+				}
+				return;
+			}
+			if (e == null) {
+				if (inspector != null) {
+					inspector.onHttpResponse(request, response);
+				}
+				server.compressResponse(request, response);
+			} else {
+				if (inspector != null) {
+					inspector.onServletException(request, e);
+				}
+				response = server.formatHttpError(e);
+			}
+			sendHttpMessage(stream, response, PSEUDO_STATUS, encodeAscii(Integer.toString(response.getCode())));
+			response.recycle();
+			request.recycle();
+		});
+	}
+
+	@Override
+	protected void onStreamClosed(Stream stream) {
+		if (!streams.isEmpty() || isClosed()) return;
+		if (server.keepAliveTimeoutMillis == 0 || goAway) {
+			shutdown();
+		} else {
+			switchPool(server.poolKeepAlive);
+		}
+	}
+
+	@Override
+	protected void onStreamReset(Stream stream, Throwable e) {
+	}
+
+	@Override
+	protected void onGoAway(int lastStreamId) {
+		if (streams.isEmpty()) {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Gracefully closes the connection, after all of the pending frames are sent
+	 */
+	private void shutdown() {
+		goAway = true;
+		writeGoAway(lastStreamId, NO_ERROR);
+		Promise<Void> flushed = afterFlush();
+		flush();
+		flushed.whenComplete(this::close);
+	}
+
+	@Override
+	protected void onClosedWithError(@NotNull Throwable e) {
+		super.onClosedWithError(e);
+		if (inspector != null) {
+			inspector.onHttpError(remoteAddress, e);
+		}
+	}
+
+	@Override
+	protected void onClosed() {
+		closeStreams();
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		//noinspection AssertWithSideEffects,ConstantConditions
+		assert (pool = null) == null;
+		server.onConnectionClosed();
+	}
+
+	@Override
+	public String toString() {
+		return "Http2ServerConnection{" +
+				"remoteAddress=" + remoteAddress +
+				", lastStreamId=" + lastStreamId +
+				super.toString() +
+				'}';
+	}
+}
@@ -32,6 +32,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
 
 import static io.activej.bytebuf.ByteBufStrings.SP;
 import static io.activej.bytebuf.ByteBufStrings.decodePositiveInt;
@@ -94,15 +95,29 @@ final class HttpClientConnection extends AbstractHttpConnection {
 	@Nullable
 	private final Inspector inspector;
 
+	private static final byte UPGRADE = 1 << 5;
+	private static final HttpHeaderValue CONNECTION_UPGRADE_HEADER = HttpHeaderValue.of("Upgrade");
+
+	final AddressPool addressPool;
 	final InetSocketAddress remoteAddress;
 	@Nullable HttpClientConnection addressPrev;
 	HttpClientConnection addressNext;
 	final int maxBodySize;
 
+	// promises of pipelined requests, which have been sent after the current one
+	private final ArrayDeque<SettablePromise<HttpResponse>> pipeline = new ArrayDeque<>();
+	// a server has kept this connection alive at least once, so it may take pipelined requests
+	private boolean reused;
+	// the body of the current request is being streamed, so nothing may be written until it is sent
+	private boolean streaming;
+	// the last request has been sent with 'Connection: close'
+	private boolean closing;
+
 	HttpClientConnection(Eventloop eventloop, AsyncHttpClient client,
-			AsyncTcpSocket asyncTcpSocket, InetSocketAddress remoteAddress) {
+			AsyncTcpSocket asyncTcpSocket, AddressPool addressPool) {
 		super(eventloop, asyncTcpSocket);
-		this.remoteAddress = remoteAddress;
+		this.addressPool = addressPool;
+		this.remoteAddress = addressPool.address;
 		this.client = client;
 		this.maxBodySize = client.maxBodySize;
 		this.inspector = client.inspector;
@@ -116,6 +131,7 @@ final class HttpClientConnection extends AbstractHttpConnection {
 			this.promise = null;
 			promise.setException(e);
 		}
+		failPipeline(e);
 	}
 
 	@Override
@@ -162,10 +178,9 @@ final class HttpClientConnection extends AbstractHttpConnection {
 	}
 
 	@Override
-	protected void onHeader(HttpHeader header, byte[] array, int off, int len) throws ParseException {
+	protected void onHeaders(HttpHeader[] headers, byte[][] arrays, int[] positions, int count) {
 		assert response != null;
-		if (response.headers.size() >= MAX_HEADERS) throw TOO_MANY_HEADERS;
-		response.addHeader(header, array, off, len);
+		response.headers.addParsed(headers, arrays, positions, count);
 	}
 
 	@Override
@@ -179,6 +194,17 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		response.bodyStream = bodySupplier;
 		if (inspector != null) inspector.onHttpResponse(this, response);
 
+		if ((flags & UPGRADE) != 0 && response.getCode() == 101) {
+			// the socket and the read queue are taken over by the caller, they are not closed
+			this.response = null;
+			//noinspection ConstantConditions
+			pool.removeNode(this);
+			pool = null;
+			flags |= CLOSED;
+			client.releaseConnection(this);
+			client.onConnectionClosed();
+		}
+
 		SettablePromise<HttpResponse> promise = this.promise;
 		this.promise = null;
 		//noinspection ConstantConditions
@@ -198,6 +224,7 @@ final class HttpClientConnection extends AbstractHttpConnection {
 	protected void onBodySent() {
 		assert !isClosed();
 		flags |= BODY_SENT;
+		streaming = false;
 		if (response != null && (flags & BODY_RECEIVED) != 0) {
 			onHttpMessageComplete();
 		}
@@ -226,6 +253,19 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		response.recycle();
 		response = null;
 
+		if (!pipeline.isEmpty()) {
+			if ((flags & KEEP_ALIVE) == 0 || contentLength == UNSET_CONTENT_LENGTH) {
+				// pipelined requests are failed, as a server is going to close this connection
+				close();
+				return;
+			}
+			promise = pipeline.poll();
+			flags = BODY_SENT;
+			poolTimestamp = eventloop.currentTimeMillis();
+			readResponse();
+			return;
+		}
+
 		if ((flags & KEEP_ALIVE) != 0 && client.keepAliveTimeoutMillis != 0 && contentLength != UNSET_CONTENT_LENGTH) {
 			flags = 0;
 			socket.read()
@@ -242,6 +282,7 @@ final class HttpClientConnection extends AbstractHttpConnection {
 						}
 					});
 			if (isClosed()) return;
+			reused = true;
 			client.returnToKeepAlivePool(this);
 		} else {
 			close();
@@ -254,18 +295,71 @@ final class HttpClientConnection extends AbstractHttpConnection {
 	 * @param request request for sending
 	 */
 	public Promise<HttpResponse> send(HttpRequest request) {
+		return doSend(request, nextConnectionHeader());
+	}
+
+	/**
+	 * Checks whether a request may be sent before responses to previous requests are received.
+	 * Only requests of idempotent methods with bodies of known size are pipelined,
+	 * and only to connections which have already been kept alive by a server.
+	 */
+	boolean canPipeline(HttpRequest request, int maxPipelinedRequests) {
+		HttpMethod method = request.getMethod();
+		return reused && !streaming && !closing && !isClosed() && (flags & UPGRADE) == 0 &&
+				1 + pipeline.size() < maxPipelinedRequests &&
+				request.bodyStream == null &&
+				(method == HttpMethod.GET || method == HttpMethod.PUT || method == HttpMethod.DELETE || method == HttpMethod.OPTIONS);
+	}
+
+	/**
+	 * Sends a request right after the previous ones, its response is read after theirs
+	 *
+	 * @see #canPipeline
+	 */
+	Promise<HttpResponse> sendPipelined(HttpRequest request) {
+		assert canPipeline(request, Integer.MAX_VALUE);
+		request.addHeader(CONNECTION, nextConnectionHeader());
+		ByteBuf buf = renderHttpMessage(request);
+		assert buf != null;
+		request.recycle();
+		SettablePromise<HttpResponse> promise = new SettablePromise<>();
+		pipeline.add(promise);
+		socket.write(buf)
+				.whenException(this::closeWithError);
+		return promise;
+	}
+
+	int getPipelinedRequests() {
+		return pipeline.size();
+	}
+
+	private HttpHeaderValue nextConnectionHeader() {
+		if (client.keepAliveTimeoutMillis == 0 ||
+				client.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= client.maxKeepAliveRequests) {
+			closing = true;
+			return CONNECTION_CLOSE_HEADER;
+		}
+		return CONNECTION_KEEP_ALIVE_HEADER;
+	}
+
+	/**
+	 * Sends a request to upgrade this connection. If a 101 response is received, this connection
+	 * is detached, and its socket along with already read bytes are left for a caller to take over
+	 */
+	Promise<HttpResponse> sendUpgrade(HttpRequest request) {
+		flags |= UPGRADE;
+		return doSend(request, CONNECTION_UPGRADE_HEADER);
+	}
+
+	private Promise<HttpResponse> doSend(HttpRequest request, HttpHeaderValue connectionHeader) {
 		assert !isClosed();
 		SettablePromise<HttpResponse> promise = new SettablePromise<>();
 		this.promise = promise;
 		(pool = client.poolReadWrite).addLastNode(this);
 		poolTimestamp = eventloop.currentTimeMillis();
-		HttpHeaderValue connectionHeader = CONNECTION_KEEP_ALIVE_HEADER;
-		if (client.keepAliveTimeoutMillis == 0 ||
-				client.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= client.maxKeepAliveRequests) {
-			connectionHeader = CONNECTION_CLOSE_HEADER;
-		}
 		request.addHeader(CONNECTION, connectionHeader);
 		ByteBuf buf = renderHttpMessage(request);
+		streaming = buf == null;
 		if (buf != null) {
 			writeBuf(buf);
 		} else {
@@ -273,23 +367,33 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		}
 		request.recycle();
 		if (!isClosed()) {
-			/*
-				as per RFC 7230, section 3.3.3,
-				if no Content-Length header is set, client should read body until a server closes the connection
-			*/
-			contentLength = UNSET_CONTENT_LENGTH;
-			if (readQueue.isEmpty()) {
-				tryReadHttpMessage();
-			} else {
-				eventloop.post(() -> {
-					if (isClosed()) return;
-					tryReadHttpMessage();
-				});
-			}
+			readResponse();
 		}
 		return promise;
 	}
 
+	private void readResponse() {
+		/*
+			as per RFC 7230, section 3.3.3,
+			if no Content-Length header is set, client should read body until a server closes the connection
+		*/
+		contentLength = UNSET_CONTENT_LENGTH;
+		if (readQueue.isEmpty()) {
+			tryReadHttpMessage();
+		} else {
+			eventloop.post(() -> {
+				if (isClosed()) return;
+				tryReadHttpMessage();
+			});
+		}
+	}
+
+	private void failPipeline(Throwable e) {
+		while (!pipeline.isEmpty()) {
+			pipeline.poll().setException(e);
+		}
+	}
+
 	private void tryReadHttpMessage() {
 		try {
 			readHttpMessage();
@@ -310,12 +414,9 @@ final class HttpClientConnection extends AbstractHttpConnection {
 			this.promise = null;
 			promise.setException(CONNECTION_CLOSED);
 		}
+		failPipeline(CONNECTION_CLOSED);
 		if (pool == client.poolKeepAlive) {
-			AddressLinkedList addresses = client.addresses.get(remoteAddress);
-			addresses.removeNode(this);
-			if (addresses.isEmpty()) {
-				client.addresses.remove(remoteAddress);
-			}
+			addressPool.keepAlive.removeNode(this);
 		}
 
 		// pool will be null if socket was closed by the value just before connection.send() invocation
@@ -323,6 +424,7 @@ final class HttpClientConnection extends AbstractHttpConnection {
 		//noinspection ConstantConditions
 		pool.removeNode(this);
 
+		client.releaseConnection(this);
 		client.onConnectionClosed();
 		if (response != null) {
 			response.recycle();
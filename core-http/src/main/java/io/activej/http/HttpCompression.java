@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.csp.file.ChannelFileReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Predicate;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.http.HttpHeaders.*;
+
+/**
+ * Compression of responses of {@link AsyncHttpServer} with a content encoding,
+ * which is negotiated from Accept-Encoding header of a request, see {@link AsyncHttpServer#withCompression}.
+ * <p>
+ * A response is compressed if it has a compressible content type and either a body
+ * of at least a minimal size or a body stream of unknown size. File streams are not compressed,
+ * so that they are still sent with zero copy, as well as responses which already have Content-Encoding header
+ * or which are explicitly compressed with {@link HttpMessage#setBodyGzipCompression()}.
+ * <p>
+ * Compression level may be lowered under load, see {@link #withAdaptiveLevel(double)}.
+ * Once configured, this object may be shared between servers of several eventloops.
+ */
+public final class HttpCompression {
+	public static final MemSize MIN_SIZE = ApplicationSettings.getMemSize(HttpCompression.class, "minSize", MemSize.kilobytes(1));
+
+	public static final Predicate<String> COMPRESSIBLE_CONTENT_TYPES = contentType -> contentType.startsWith("text/") ||
+			contentType.contains("json") || contentType.contains("javascript") || contentType.contains("xml");
+
+	private static final HttpHeaderValue VARY_ACCEPT_ENCODING = HttpHeaderValue.of("Accept-Encoding");
+
+	private final ContentEncoder[] encoders;
+	private int minSize = MIN_SIZE.toInt();
+	private Predicate<String> compressibleContentTypes = COMPRESSIBLE_CONTENT_TYPES;
+	private double loadThreshold = 1.0;
+
+	private HttpCompression(ContentEncoder[] encoders) {
+		this.encoders = encoders;
+	}
+
+	/**
+	 * Creates a compression with GZIP, preferred over DEFLATE
+	 */
+	public static HttpCompression create() {
+		return create(ContentEncoder.GZIP, ContentEncoder.DEFLATE);
+	}
+
+	/**
+	 * Creates a compression with given encoders, in the order of preference,
+	 * which is used when a client accepts several encodings equally
+	 */
+	public static HttpCompression create(ContentEncoder... encoders) {
+		checkArgument(encoders.length > 0, "At least one content encoder should be given");
+		return new HttpCompression(encoders);
+	}
+
+	public HttpCompression withMinSize(MemSize minSize) {
+		this.minSize = minSize.toInt();
+		return this;
+	}
+
+	/**
+	 * Sets a predicate on values of Content-Type header of responses which should be compressed,
+	 * responses without Content-Type header are never compressed
+	 */
+	public HttpCompression withCompressibleContentTypes(@NotNull Predicate<String> compressibleContentTypes) {
+		this.compressibleContentTypes = compressibleContentTypes;
+		return this;
+	}
+
+	/**
+	 * Lowers the compression level once the load of an eventloop exceeds a given threshold,
+	 * proportionally to the excess, down to the fastest level of an encoder when the eventloop is fully busy.
+	 * <p>
+	 * The load is the smoothed share of time an eventloop is busy, as measured by
+	 * {@link io.activej.eventloop.inspector.EventloopStats#getLoad() EventloopStats},
+	 * so the level is only adapted if an eventloop has {@code EventloopStats} inspector.
+	 */
+	public HttpCompression withAdaptiveLevel(double loadThreshold) {
+		checkArgument(loadThreshold >= 0 && loadThreshold < 1, "Load threshold should be in range [0, 1)");
+		this.loadThreshold = loadThreshold;
+		return this;
+	}
+
+	/**
+	 * Returns an encoder with the highest quality value in Accept-Encoding header,
+	 * or {@code null} if no encoder is acceptable
+	 */
+	@Nullable
+	public ContentEncoder negotiate(@Nullable String acceptEncoding) {
+		if (acceptEncoding == null) return null;
+		double[] qualities = new double[encoders.length];
+		double wildcardQuality = 0;
+		boolean[] listed = new boolean[encoders.length];
+		int pos = 0;
+		while (pos < acceptEncoding.length()) {
+			int end = acceptEncoding.indexOf(',', pos);
+			if (end == -1) end = acceptEncoding.length();
+			int paramsStart = acceptEncoding.indexOf(';', pos);
+			if (paramsStart == -1 || paramsStart > end) paramsStart = end;
+			String coding = acceptEncoding.substring(pos, paramsStart).trim();
+			double quality = parseQuality(acceptEncoding, paramsStart, end);
+			if (coding.equals("*")) {
+				wildcardQuality = quality;
+			} else {
+				for (int i = 0; i < encoders.length; i++) {
+					if (coding.equalsIgnoreCase(encoders[i].getName())) {
+						qualities[i] = quality;
+						listed[i] = true;
+					}
+				}
+			}
+			pos = end + 1;
+		}
+
+		ContentEncoder best = null;
+		double bestQuality = 0;
+		for (int i = 0; i < encoders.length; i++) {
+			double quality = listed[i] ? qualities[i] : wildcardQuality;
+			if (quality > bestQuality) {
+				best = encoders[i];
+				bestQuality = quality;
+			}
+		}
+		return best;
+	}
+
+	private static double parseQuality(String header, int paramsStart, int end) {
+		for (int pos = paramsStart; pos < end; ) {
+			int paramEnd = header.indexOf(';', pos + 1);
+			if (paramEnd == -1 || paramEnd > end) paramEnd = end;
+			String param = header.substring(pos + 1, paramEnd).trim();
+			if (param.startsWith("q=") || param.startsWith("Q=")) {
+				try {
+					return Double.parseDouble(param.substring(2));
+				} catch (NumberFormatException ignored) {
+					return 0;
+				}
+			}
+			pos = paramEnd;
+		}
+		return 1;
+	}
+
+	/**
+	 * Returns a compression level for a given load of an eventloop
+	 */
+	public int getLevel(ContentEncoder encoder, double load) {
+		int defaultLevel = encoder.getDefaultLevel();
+		if (load <= loadThreshold) return defaultLevel;
+		double excess = Math.min(1.0, (load - loadThreshold) / (1.0 - loadThreshold));
+		return defaultLevel + (int) Math.round((encoder.getFastestLevel() - defaultLevel) * excess);
+	}
+
+	/**
+	 * Sets a content encoder of a response if it should be compressed
+	 *
+	 * @return whether the response is going to be compressed
+	 */
+	boolean apply(HttpRequest request, HttpResponse response, double load) {
+		if (response.contentEncoder != null || request.getMethod() == HttpMethod.HEAD) return false;
+		int code = response.getCode();
+		if (code < 200 || code == 204 || code == 304) return false;
+		if (response.body != null) {
+			if (response.body.readRemaining() < minSize) return false;
+		} else if (response.bodyStream == null || response.bodyStream instanceof ChannelFileReader ||
+				response.headers.get(CONTENT_LENGTH) != null) {
+			return false;
+		}
+		if (response.headers.get(CONTENT_ENCODING) != null) return false;
+		String contentType = response.getHeader(CONTENT_TYPE);
+		if (contentType == null || !compressibleContentTypes.test(contentType)) return false;
+
+		// a response depends on Accept-Encoding even if it is not compressed for this very request
+		response.addHeader(VARY, VARY_ACCEPT_ENCODING);
+		ContentEncoder encoder = negotiate(request.getHeader(ACCEPT_ENCODING));
+		if (encoder == null) return false;
+		response.setContentEncoder(encoder, getLevel(encoder, load));
+		return true;
+	}
+}
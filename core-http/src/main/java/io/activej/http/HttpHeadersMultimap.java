@@ -16,14 +16,25 @@
 
 package io.activej.http;
 
+import io.activej.bytebuf.ByteBuf;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
-final class HttpHeadersMultimap<K, V> {
+/**
+ * An open addressing multimap of headers.
+ * <p>
+ * Values of parsed headers are kept as positions in the arrays of header lines and are
+ * turned into {@link HttpHeaderValue} lazily, once a value is accessed, see {@link #valueAt(int)}.
+ */
+final class HttpHeadersMultimap {
+	// a value is either an HttpHeaderValue or an array, which contains a parsed value at the position from 'positions'
 	Object[] kvPairs = new Object[8];
+	// offsets and lengths of parsed values, indexed the same way as kvPairs
+	@Nullable
+	int[] positions;
 	int size;
 
 	@Contract(pure = true)
@@ -31,10 +42,37 @@ final class HttpHeadersMultimap<K, V> {
 		return size;
 	}
 
-	public void add(@NotNull K key, @NotNull V value) {
+	public void add(@NotNull HttpHeader key, @NotNull HttpHeaderValue value) {
 		if (size++ > kvPairs.length / 4) {
-			resize();
+			resize(kvPairs.length * 4);
+		}
+		put(key, value, 0, 0);
+	}
+
+	/**
+	 * Adds headers which have been parsed from header lines, with their values kept unparsed.
+	 * The table is resized at most once.
+	 *
+	 * @param positions offsets and lengths of the values in the arrays
+	 */
+	void addParsed(HttpHeader[] keys, byte[][] arrays, int[] positions, int count) {
+		int length = kvPairs.length;
+		while (size + count > length / 4 + 1) {
+			length *= 2;
 		}
+		if (length != kvPairs.length) {
+			resize(length);
+		}
+		if (this.positions == null) {
+			this.positions = new int[length];
+		}
+		size += count;
+		for (int i = 0; i < count; i++) {
+			put(keys[i], arrays[i], positions[2 * i], positions[2 * i + 1]);
+		}
+	}
+
+	private void put(HttpHeader key, Object value, int offset, int length) {
 		// those -2's below are ok - first -1 is to get the modulo mask
 		// and second -1 is so that mask also floors the number to even
 		// (because we have flat array of pairs)
@@ -42,41 +80,77 @@ final class HttpHeadersMultimap<K, V> {
 			if (kvPairs[i] == null) {
 				kvPairs[i] = key;
 				kvPairs[i + 1] = value;
+				if (value instanceof byte[]) {
+					//noinspection ConstantConditions - allocated along with kvPairs once parsed values are added
+					positions[i] = offset;
+					positions[i + 1] = length;
+				}
 				return;
 			}
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void resize() {
+	private void resize(int length) {
 		Object[] oldKvPairs = this.kvPairs;
-		this.kvPairs = new Object[this.kvPairs.length * 4];
+		int[] oldPositions = this.positions;
+		this.kvPairs = new Object[length];
+		this.positions = oldPositions != null ? new int[length] : null;
 		for (int i = 0; i != oldKvPairs.length; i += 2) {
-			K k = (K) oldKvPairs[i];
+			HttpHeader k = (HttpHeader) oldKvPairs[i];
 			if (k != null) {
-				V v = (V) oldKvPairs[i + 1];
-				add(k, v);
+				Object v = oldKvPairs[i + 1];
+				//noinspection ConstantConditions - parsed values are only added along with positions
+				put(k, v, v instanceof byte[] ? oldPositions[i] : 0, v instanceof byte[] ? oldPositions[i + 1] : 0);
 			}
 		}
 	}
 
 	@Nullable
 	@Contract(pure = true)
-	@SuppressWarnings("unchecked")
-	public V get(@NotNull K key) {
+	public HttpHeaderValue get(@NotNull HttpHeader key) {
 		for (int i = key.hashCode() & (kvPairs.length - 2); ; i = (i + 2) & (kvPairs.length - 2)) {
-			K k = (K) kvPairs[i];
+			HttpHeader k = (HttpHeader) kvPairs[i];
 			if (k == null) {
 				return null;
 			}
 			if (k.equals(key)) {
-				return (V) kvPairs[i + 1];
+				return valueAt(i);
 			}
 		}
 	}
 
-	public final Collection<Map.Entry<K, V>> getEntries() {
-		return new AbstractCollection<Map.Entry<K, V>>() {
+	/**
+	 * Returns a value of a header at a given index of {@link #kvPairs}, materializing a parsed value on the first access
+	 */
+	HttpHeaderValue valueAt(int i) {
+		Object v = kvPairs[i + 1];
+		if (v instanceof HttpHeaderValue) {
+			return (HttpHeaderValue) v;
+		}
+		//noinspection ConstantConditions
+		HttpHeaderValue value = HttpHeaderValue.ofBytes((byte[]) v, positions[i], positions[i + 1]);
+		kvPairs[i + 1] = value;
+		return value;
+	}
+
+	int estimateValueSize(int i) {
+		Object v = kvPairs[i + 1];
+		//noinspection ConstantConditions
+		return v instanceof HttpHeaderValue ? ((HttpHeaderValue) v).estimateSize() : positions[i + 1];
+	}
+
+	void writeValueTo(int i, ByteBuf buf) {
+		Object v = kvPairs[i + 1];
+		if (v instanceof HttpHeaderValue) {
+			((HttpHeaderValue) v).writeTo(buf);
+		} else {
+			//noinspection ConstantConditions
+			buf.put((byte[]) v, positions[i], positions[i + 1]);
+		}
+	}
+
+	public Collection<Map.Entry<HttpHeader, HttpHeaderValue>> getEntries() {
+		return new AbstractCollection<Map.Entry<HttpHeader, HttpHeaderValue>>() {
 			@Override
 			public int size() {
 				return size;
@@ -84,21 +158,20 @@ final class HttpHeadersMultimap<K, V> {
 
 			@NotNull
 			@Override
-			public Iterator<Map.Entry<K, V>> iterator() {
-				return new Iterator<Map.Entry<K, V>>() {
+			public Iterator<Map.Entry<HttpHeader, HttpHeaderValue>> iterator() {
+				return new Iterator<Map.Entry<HttpHeader, HttpHeaderValue>>() {
 					int i = 0;
-					@Nullable K k;
-					@Nullable V v;
+					@Nullable HttpHeader k;
+					@Nullable HttpHeaderValue v;
 
 					{ advance();}
 
-					@SuppressWarnings("unchecked")
 					private void advance() {
 						for (; i < kvPairs.length; i += 2) {
-							K k = (K) kvPairs[i];
+							HttpHeader k = (HttpHeader) kvPairs[i];
 							if (k != null) {
 								this.k = k;
-								this.v = (V) kvPairs[i + 1];
+								this.v = valueAt(i);
 								i += 2;
 								return;
 							}
@@ -113,10 +186,10 @@ final class HttpHeadersMultimap<K, V> {
 					}
 
 					@Override
-					public Map.Entry<K, V> next() {
+					public Map.Entry<HttpHeader, HttpHeaderValue> next() {
 						if (k == null)
 							throw new NoSuchElementException();
-						Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(this.k, this.v);
+						Map.Entry<HttpHeader, HttpHeaderValue> entry = new AbstractMap.SimpleImmutableEntry<>(this.k, this.v);
 						advance();
 						return entry;
 					}
@@ -69,11 +69,15 @@ public abstract class HttpMessage {
 	@MagicConstant(flags = {MUST_LOAD_BODY, USE_GZIP, RECYCLED})
 	byte flags;
 
-	final HttpHeadersMultimap<HttpHeader, HttpHeaderValue> headers = new HttpHeadersMultimap<>();
+	final HttpHeadersMultimap headers = new HttpHeadersMultimap();
 	@Nullable ByteBuf body;
 	@Nullable ChannelSupplier<ByteBuf> bodyStream;
 	Recyclable bufs;
 
+	// encodes the body when the message is sent, along with Content-Encoding header
+	@Nullable ContentEncoder contentEncoder;
+	int contentEncoderLevel;
+
 	protected int maxBodySize;
 	protected Map<Object, Object> attachments;
 
@@ -128,7 +132,7 @@ public abstract class HttpMessage {
 			}
 			if (k.equals(header)) {
 				try {
-					parser.parse(((HttpHeaderValue) headers.kvPairs[i + 1]).getBuf(), list);
+					parser.parse(headers.valueAt(i).getBuf(), list);
 				} catch (ParseException ignored) {
 				}
 			}
@@ -385,6 +389,12 @@ public abstract class HttpMessage {
 	public void setBodyGzipCompression() {
 		if (CHECK) checkState(!isRecycled());
 		this.flags |= USE_GZIP;
+		setContentEncoder(ContentEncoder.GZIP, ContentEncoder.GZIP.getDefaultLevel());
+	}
+
+	void setContentEncoder(@Nullable ContentEncoder contentEncoder, int level) {
+		this.contentEncoder = contentEncoder;
+		this.contentEncoderLevel = level;
 	}
 
 	boolean isRecycled() {
@@ -415,13 +425,12 @@ public abstract class HttpMessage {
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
 			if (k != null) {
-				HttpHeaderValue v = (HttpHeaderValue) headers.kvPairs[i + 1];
 				buf.put(CR);
 				buf.put(LF);
 				k.writeTo(buf);
 				buf.put((byte) ':');
 				buf.put(SP);
-				v.writeTo(buf);
+				headers.writeValueTo(i, buf);
 			}
 		}
 		buf.put(CR);
@@ -437,9 +446,8 @@ public abstract class HttpMessage {
 		for (int i = 0; i < headers.kvPairs.length - 1; i += 2) {
 			HttpHeader k = (HttpHeader) headers.kvPairs[i];
 			if (k != null) {
-				HttpHeaderValue v = (HttpHeaderValue) headers.kvPairs[i + 1];
 				// CR,LF,header,": ",value
-				size += 2 + k.size() + 2 + v.estimateSize();
+				size += 2 + k.size() + 2 + headers.estimateValueSize(i);
 			}
 		}
 		size += 4; // CR,LF,CR,LF
@@ -18,6 +18,7 @@ package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.common.Checks;
+import io.activej.common.MemSize;
 import io.activej.common.api.WithInitializer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.http.HttpHeaderValue.HttpHeaderValueOfSimpleCookies;
@@ -320,6 +321,20 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 	}
 
 	public Promise<Void> handleMultipart(MultipartDataHandler multipartDataHandler) {
+		return doHandleMultipart(multipartDataHandler, null);
+	}
+
+	/**
+	 * Streams each part of a multipart body into a consumer given by a handler,
+	 * failing with 413 HTTP error once any part exceeds the given size (zero means no limit).
+	 * <p>
+	 * Parts are not buffered, the body is read as fast as the consumers take the data.
+	 */
+	public Promise<Void> handleMultipart(MultipartDataHandler multipartDataHandler, MemSize maxPartSize) {
+		return doHandleMultipart(multipartDataHandler, maxPartSize);
+	}
+
+	private Promise<Void> doHandleMultipart(MultipartDataHandler multipartDataHandler, @Nullable MemSize maxPartSize) {
 		if (CHECK) checkState(!isRecycled());
 		String contentType = getHeader(CONTENT_TYPE);
 		if (contentType == null || !contentType.startsWith("multipart/form-data; boundary=")) {
@@ -329,8 +344,11 @@ public final class HttpRequest extends HttpMessage implements WithInitializer<Ht
 		if (boundary.startsWith("\"") && boundary.endsWith("\"")) {
 			boundary = boundary.substring(1, boundary.length() - 1);
 		}
-		return MultipartParser.create(boundary)
-				.split(getBodyStream(), multipartDataHandler);
+		MultipartParser parser = MultipartParser.create(boundary);
+		if (maxPartSize != null) {
+			parser.withMaxPartSize(maxPartSize);
+		}
+		return parser.split(getBodyStream(), multipartDataHandler);
 	}
 
 	int getPos() {
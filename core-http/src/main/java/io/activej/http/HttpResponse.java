@@ -17,10 +17,12 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.Checks;
 import io.activej.common.api.WithInitializer;
 import io.activej.csp.ChannelSupplier;
 import io.activej.http.HttpHeaderValue.HttpHeaderValueOfSetCookies;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promisable;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
@@ -29,6 +31,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.bytebuf.ByteBufStrings.putPositiveInt;
@@ -50,6 +53,7 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 	private static final byte[] HTTP11_BYTES = encodeAscii("HTTP/1.1 ");
 	private static final byte[] CODE_ERROR_BYTES = encodeAscii(" Error");
 	private static final byte[] CODE_OK_BYTES = encodeAscii(" OK");
+	private static final byte[] CODE_101_BYTES = encodeAscii("HTTP/1.1 101 Switching Protocols");
 	private static final byte[] CODE_200_BYTES = encodeAscii("HTTP/1.1 200 OK");
 	private static final byte[] CODE_201_BYTES = encodeAscii("HTTP/1.1 201 Created");
 	private static final byte[] CODE_206_BYTES = encodeAscii("HTTP/1.1 206 Partial Content");
@@ -67,6 +71,12 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 	@Nullable
 	private Map<String, HttpCookie> parsedCookies;
 
+	/**
+	 * Takes over a connection once this response (which must be a 101 one) is sent
+	 */
+	@Nullable
+	BiConsumer<AsyncTcpSocket, ByteBufQueue> upgradeHandler;
+
 	// region creators
 	HttpResponse(int code) {
 		this.code = code;
@@ -169,8 +179,11 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 			offset = 0;
 		}
 		response.addHeader(CONTENT_LENGTH, Long.toString(contentLength));
-		response.setBodyStream(ChannelSupplier.ofPromise(downloader.getFileSlice(offset, contentLength)));
-		return Promise.of(response);
+		return downloader.getFileSlice(offset, contentLength)
+				.map(supplier -> {
+					response.setBodyStream(supplier);
+					return response;
+				});
 	}
 
 	@NotNull
@@ -286,7 +299,9 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 
 	@Override
 	boolean isContentLengthExpected() {
-		return true;
+		// a connection is taken over right after 101 response, so it has no body,
+		// neither has 304 response, which refers to the body a client already has
+		return code != 101 && code != 304;
 	}
 
 	public int getCode() {
@@ -323,6 +338,9 @@ public final class HttpResponse extends HttpMessage implements Promisable<HttpRe
 	private static void writeCodeMessage(@NotNull ByteBuf buf, int code) {
 		byte[] result;
 		switch (code) {
+			case 101:
+				result = CODE_101_BYTES;
+				break;
 			case 200:
 				result = CODE_200_BYTES;
 				break;
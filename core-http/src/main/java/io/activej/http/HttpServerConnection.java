@@ -17,6 +17,8 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.Checks;
 import io.activej.common.concurrent.ThreadLocalCharArray;
 import io.activej.common.exception.UncheckedException;
@@ -24,6 +26,7 @@ import io.activej.common.exception.parse.ParseException;
 import io.activej.common.exception.parse.UnknownFormatException;
 import io.activej.csp.ChannelSupplier;
 import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.trace.Tracing;
 import io.activej.http.AsyncHttpServer.Inspector;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.promise.Promise;
@@ -32,6 +35,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
 import java.util.Arrays;
+import java.util.function.BiConsumer;
 
 import static io.activej.bytebuf.ByteBufStrings.*;
 import static io.activej.common.Checks.checkState;
@@ -79,6 +83,15 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	private final char[] charBuffer;
 	private final int maxBodySize;
 
+	// pipelining
+	private final int maxPipelineDepth;
+	@Nullable
+	private final Object[] pipeline; // ready responses, either rendered ByteBufs or HttpResponses with body streams, null if requests are not pipelined
+	private int pipelineHead; // sequence number of the next response to be written
+	private int pipelineTail; // sequence number of the next request to be served
+	private int serving;
+	private boolean flushing;
+
 	private static final byte[] EXPECT_100_CONTINUE = encodeAscii("100-continue");
 	private static final byte[] EXPECT_RESPONSE_CONTINUE = encodeAscii("HTTP/1.1 100 Continue\r\n\r\n");
 
@@ -99,12 +112,59 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		this.inspector = server.inspector;
 		this.charBuffer = charBuffer;
 		this.maxBodySize = server.maxBodySize;
+		this.maxPipelineDepth = server.maxPipelineDepth;
+		this.pipeline = maxPipelineDepth > 1 ? new Object[maxPipelineDepth] : null;
 	}
 
 	public void serve() {
 		(pool = server.poolNew).addLastNode(this);
 		poolTimestamp = eventloop.currentTimeMillis();
-		socket.read().whenComplete(startLineConsumer);
+		if (server.http2) {
+			socket.read().whenComplete(this::readConnectionPreface);
+		} else {
+			socket.read().whenComplete(startLineConsumer);
+		}
+	}
+
+	/**
+	 * Reads the first bytes of a connection to find out whether a client speaks HTTP/2,
+	 * in which case the connection is handed over to {@link Http2ServerConnection}
+	 */
+	private void readConnectionPreface(@Nullable ByteBuf buf, @Nullable Throwable e) {
+		if (e != null) {
+			closeWithError(e);
+			return;
+		}
+		if (buf == null) {
+			close();
+			return;
+		}
+		readQueue.add(buf);
+		byte[] preface = AbstractHttp2Connection.CONNECTION_PREFACE;
+		int size = Math.min(readQueue.remainingBytes(), preface.length);
+		for (int i = 0; i < size; i++) {
+			if (readQueue.peekByte(i) != preface[i]) {
+				try {
+					readHttpMessage();
+				} catch (ParseException e1) {
+					closeWithError(e1);
+				}
+				return;
+			}
+		}
+		if (size < preface.length) {
+			socket.read().whenComplete(this::readConnectionPreface);
+			return;
+		}
+		readQueue.skip(preface.length);
+
+		//noinspection ConstantConditions
+		pool.removeNode(this);
+		pool = null;
+		flags |= CLOSED;
+		Http2ServerConnection connection = new Http2ServerConnection(eventloop, remoteAddress, socket, server, servlet);
+		readQueue.drainTo(connection.readQueue);
+		connection.serve();
 	}
 
 	@Override
@@ -122,7 +182,9 @@ final class HttpServerConnection extends AbstractHttpConnection {
 	@SuppressWarnings("PointlessArithmeticExpression")
 	@Override
 	protected void onStartLine(byte[] line, int limit) throws ParseException {
-		switchPool(server.poolReadWrite);
+		if (serving == 0) {
+			switchPool(server.poolReadWrite);
+		}
 
 		HttpMethod method = getHttpMethod(line);
 		if (method == null) {
@@ -213,14 +275,19 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		if (header == HttpHeaders.EXPECT && equalsLowerCaseAscii(EXPECT_100_CONTINUE, array, off, len)) {
 			socket.write(ByteBuf.wrapForReading(EXPECT_RESPONSE_CONTINUE));
 		}
+	}
+
+	@Override
+	protected void onHeaders(HttpHeader[] headers, byte[][] arrays, int[] positions, int count) {
 		//noinspection ConstantConditions
-		if (request.headers.size() >= MAX_HEADERS) {
-			throw TOO_MANY_HEADERS;
-		}
-		request.addHeader(header, array, off, len);
+		request.headers.addParsed(headers, arrays, positions, count);
 	}
 
 	private void writeHttpResponse(HttpResponse httpResponse) {
+		if (httpResponse.upgradeHandler != null) {
+			upgrade(httpResponse);
+			return;
+		}
 		HttpHeaderValue connectionHeader = (flags & KEEP_ALIVE) != 0 ? CONNECTION_KEEP_ALIVE_HEADER : CONNECTION_CLOSE_HEADER;
 		if (server.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= server.maxKeepAliveRequests) {
 			connectionHeader = CONNECTION_CLOSE_HEADER;
@@ -239,6 +306,104 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		httpResponse.recycle();
 	}
 
+	private void writeException(Throwable e) {
+		writeHttpResponse(server.formatHttpError(e));
+	}
+
+	private void onPipelinedResponse(int sequence, boolean keepAlive, HttpResponse httpResponse) {
+		assert pipeline != null;
+		if (httpResponse.upgradeHandler != null) {
+			// rendered when the connection is taken over, the response already has its Connection header
+			pipeline[sequence % maxPipelineDepth] = httpResponse;
+		} else {
+			HttpHeaderValue connectionHeader = keepAlive ? CONNECTION_KEEP_ALIVE_HEADER : CONNECTION_CLOSE_HEADER;
+			if (server.maxKeepAliveRequests != 0 && ++numberOfKeepAliveRequests >= server.maxKeepAliveRequests) {
+				connectionHeader = CONNECTION_CLOSE_HEADER;
+			}
+			httpResponse.addHeader(CONNECTION, connectionHeader);
+			ByteBuf buf = renderHttpMessage(httpResponse);
+			if (buf != null) {
+				httpResponse.recycle();
+				pipeline[sequence % maxPipelineDepth] = buf;
+			} else {
+				pipeline[sequence % maxPipelineDepth] = httpResponse;
+			}
+		}
+		if (sequence != pipelineHead || flushing) return;
+		flushing = true;
+		if (keepAlive) {
+			eventloop.post(wrapContext(this, this::flushPipeline));
+		} else {
+			flushPipeline();
+		}
+	}
+
+	/**
+	 * Writes all of the ready responses, which are next in order, with a single socket write.
+	 * A response with a body stream is written on its own, after preceding responses have been sent.
+	 */
+	private void flushPipeline() {
+		if (isClosed()) return;
+		assert pipeline != null;
+		ByteBuf bufs = null;
+		while (pipelineHead != pipelineTail) {
+			int slot = pipelineHead % maxPipelineDepth;
+			Object response = pipeline[slot];
+			if (response == null) break;
+			if (response instanceof HttpResponse) {
+				if (bufs != null) break;
+				pipeline[slot] = null;
+				pipelineHead++;
+				if (((HttpResponse) response).upgradeHandler != null) {
+					upgrade((HttpResponse) response);
+					return;
+				}
+				writeHttpMessageAsStream((HttpResponse) response);
+				((HttpResponse) response).recycle();
+				return;
+			}
+			pipeline[slot] = null;
+			pipelineHead++;
+			if (bufs == null) {
+				bufs = (ByteBuf) response;
+			} else {
+				bufs = ByteBufPool.append(bufs, (ByteBuf) response);
+			}
+		}
+		if (bufs != null) {
+			writeBuf(bufs);
+		} else {
+			flushing = false;
+		}
+	}
+
+	/**
+	 * Sends a 101 response and hands the socket over to the response's upgrade handler,
+	 * along with any bytes that were already read past the request
+	 */
+	private void upgrade(HttpResponse response) {
+		BiConsumer<AsyncTcpSocket, ByteBufQueue> upgradeHandler = response.upgradeHandler;
+		assert upgradeHandler != null;
+		ByteBuf buf = renderHttpMessage(response);
+		response.recycle();
+
+		ByteBufQueue queue = new ByteBufQueue();
+		readQueue.drainTo(queue);
+		flags |= CLOSED;
+		onClosed();
+
+		AsyncTcpSocket socket = this.socket;
+		socket.write(buf)
+				.whenComplete(($, e) -> {
+					if (e == null) {
+						upgradeHandler.accept(socket, queue);
+					} else {
+						queue.recycle();
+						socket.closeEx(e);
+					}
+				});
+	}
+
 	@Override
 	protected void onHeadersReceived(@Nullable ByteBuf body, @Nullable ChannelSupplier<ByteBuf> bodySupplier) {
 		assert !isClosed();
@@ -256,14 +421,37 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		switchPool(server.poolServing);
 
 		HttpRequest request = this.request;
+		if (pipeline != null) {
+			flags &= ~BODY_SENT;
+			serving++;
+			this.request = null;
+		}
+		int sequence = pipeline != null ? pipelineTail++ : 0;
+		AdmissionController admissionController = server.admissionController;
+		boolean admitted = admissionController == null || admissionController.tryAcquire();
+		if (!admitted) {
+			// no more requests are read from this connection
+			flags &= ~KEEP_ALIVE;
+		}
+		boolean keepAlive = (flags & KEEP_ALIVE) != 0;
+		long start = admissionController != null ? System.nanoTime() : 0;
 		Promise<HttpResponse> servletResult;
-		try {
-			servletResult = servlet.serveAsync(request);
-		} catch (UncheckedException u) {
-			servletResult = Promise.ofException(u.getCause());
+		if (!admitted) {
+			servletResult = Promise.ofException(AdmissionController.OVERLOADED);
+		} else {
+			try {
+				servletResult = Tracing.ENABLED ?
+						AsyncHttpServer.serveTraced(servlet, request) :
+						servlet.serveAsync(request);
+			} catch (UncheckedException u) {
+				servletResult = Promise.ofException(u.getCause());
+			}
 		}
 		servletResult.whenComplete((response, e) -> {
 			if (CHECK) checkState(eventloop.inEventloopThread());
+			if (admitted && admissionController != null) {
+				admissionController.release(System.nanoTime() - start);
+			}
 			if (isClosed()) {
 				request.recycle();
 				if (response != null) {
@@ -271,18 +459,38 @@ final class HttpServerConnection extends AbstractHttpConnection {
 				}
 				return;
 			}
+			if (pipeline == null) {
+				if (e == null) {
+					if (inspector != null) {
+						inspector.onHttpResponse(request, response);
+					}
+					server.compressResponse(request, response);
+					switchPool(server.poolReadWrite);
+					writeHttpResponse(response);
+				} else {
+					if (inspector != null) {
+						inspector.onServletException(request, e);
+					}
+					switchPool(server.poolReadWrite);
+					writeException(e);
+				}
+				request.recycle();
+				return;
+			}
+			if (--serving == 0) {
+				switchPool(server.poolReadWrite);
+			}
 			if (e == null) {
 				if (inspector != null) {
 					inspector.onHttpResponse(request, response);
 				}
-				switchPool(server.poolReadWrite);
-				writeHttpResponse(response);
+				server.compressResponse(request, response);
+				onPipelinedResponse(sequence, keepAlive, response);
 			} else {
 				if (inspector != null) {
 					inspector.onServletException(request, e);
 				}
-				switchPool(server.poolReadWrite);
-				writeException(e);
+				onPipelinedResponse(sequence, keepAlive, server.formatHttpError(e));
 			}
 
 			request.recycle();
@@ -295,12 +503,41 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		flags |= BODY_RECEIVED;
 		if ((flags & BODY_SENT) != 0 && pool != server.poolServing) {
 			onHttpMessageComplete();
+		} else if (pipeline != null && canPipeline()) {
+			flags = 0;
+			contentLength = 0;
+			try {
+				readHttpMessage();
+			} catch (ParseException e) {
+				closeWithError(e);
+			}
 		}
 	}
 
+	/**
+	 * Checks whether the next request, which has already been received, may be served
+	 * before responses to preceding requests are sent
+	 */
+	private boolean canPipeline() {
+		int pipelined = pipelineTail - pipelineHead;
+		return (flags & KEEP_ALIVE) != 0 && server.keepAliveTimeoutMillis != 0 &&
+				pipelined < maxPipelineDepth && readQueue.hasRemaining() &&
+				(server.maxKeepAliveRequests == 0 || numberOfKeepAliveRequests + pipelined < server.maxKeepAliveRequests);
+	}
+
 	@Override
 	protected void onBodySent() {
 		assert !isClosed();
+		if (pipeline != null) {
+			flushing = false;
+			if (pipelineHead != pipelineTail) {
+				if (pipeline[pipelineHead % maxPipelineDepth] != null) {
+					flushing = true;
+					flushPipeline();
+				}
+				return;
+			}
+		}
 		flags |= BODY_SENT;
 		if ((flags & BODY_RECEIVED) != 0 && pool != server.poolServing) {
 			onHttpMessageComplete();
@@ -333,16 +570,22 @@ final class HttpServerConnection extends AbstractHttpConnection {
 		}
 	}
 
-	private void writeException(Throwable e) {
-		writeHttpResponse(server.formatHttpError(e));
-	}
-
 	@Override
 	protected void onClosed() {
-		if (request != null && pool != server.poolServing) {
+		if (request != null && (pipeline != null || pool != server.poolServing)) {
 			request.recycle();
 			request = null;
 		}
+		if (pipeline != null) {
+			for (int i = pipelineHead; i != pipelineTail; i++) {
+				Object response = pipeline[i % maxPipelineDepth];
+				if (response instanceof ByteBuf) {
+					((ByteBuf) response).recycle();
+				} else if (response instanceof HttpResponse) {
+					((HttpResponse) response).recycle();
+				}
+			}
+		}
 		//noinspection ConstantConditions
 		pool.removeNode(this);
 		//noinspection AssertWithSideEffects,ConstantConditions
@@ -20,9 +20,12 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
 import io.activej.common.api.Recyclable;
 import io.activej.common.exception.StacklessException;
+import io.activej.common.exception.UncheckedException;
 import io.activej.common.ref.Ref;
+import io.activej.common.ref.RefLong;
 import io.activej.csp.ChannelConsumer;
 import io.activej.csp.ChannelConsumers;
 import io.activej.csp.ChannelSupplier;
@@ -42,6 +45,7 @@ import java.util.function.Function;
 
 import static io.activej.bytebuf.ByteBufStrings.CR;
 import static io.activej.bytebuf.ByteBufStrings.LF;
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.MemSize.kilobytes;
 import static io.activej.common.Utils.nullify;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -52,6 +56,7 @@ import static java.util.stream.Collectors.toMap;
  */
 public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 	private static final int MAX_META_SIZE = ApplicationSettings.getMemSize(MultipartParser.class, "maxMetaBuffer", kilobytes(4)).toInt();
+	private static final MemSize MAX_PART_SIZE = ApplicationSettings.getMemSize(MultipartParser.class, "maxPartSize", MemSize.ZERO);
 
 	@Nullable
 	private List<String> readingHeaders = null;
@@ -59,6 +64,8 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 	private final byte[] boundary;
 	private final byte[] lastBoundary;
 
+	private long maxPartSize = MAX_PART_SIZE.toLong();
+
 	private MultipartParser(String boundary) {
 		this.boundary = ("--" + boundary).getBytes(UTF_8);
 		this.lastBoundary = ("--" + boundary + "--").getBytes(UTF_8);
@@ -68,6 +75,18 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 		return new MultipartParser(boundary);
 	}
 
+	/**
+	 * Limits the size of data of each part when splitting, a part which exceeds the limit
+	 * fails the split with 413 HTTP error, and the consumer of the part is closed with it.
+	 * <p>
+	 * A size of zero means no limit.
+	 */
+	public MultipartParser withMaxPartSize(MemSize maxPartSize) {
+		checkArgument(maxPartSize.toLong() >= 0, "Max part size cannot be negative");
+		this.maxPartSize = maxPartSize.toLong();
+		return this;
+	}
+
 	/**
 	 * Converts resulting channel of frames into a binary channel, ignoring any multipart headers.
 	 */
@@ -109,6 +128,9 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 					String fieldName = contentDispositionFields.get("name");
 					String fileName = contentDispositionFields.get("filename");
 					Ref<MultipartFrame> lastRef = new Ref<>();
+					Function<MultipartFrame, ByteBuf> getData = maxPartSize == 0 ?
+							MultipartFrame::getData :
+							limitPartSize(new RefLong(0));
 					return frames
 							.until(f -> {
 								if (f.isHeaders()) {
@@ -118,7 +140,7 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 								return false;
 							})
 							.filter(MultipartFrame::isData)
-							.map(MultipartFrame::getData)
+							.map(getData)
 							.streamTo(ChannelConsumer.ofPromise(fileName == null ?
 									dataHandler.handleField(fieldName) :
 									dataHandler.handleFile(fieldName, fileName)
@@ -130,6 +152,17 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 				});
 	}
 
+	private Function<MultipartFrame, ByteBuf> limitPartSize(RefLong partSize) {
+		return frame -> {
+			ByteBuf data = frame.getData();
+			if (partSize.inc(data.readRemaining()) > maxPartSize) {
+				data.recycle();
+				throw new UncheckedException(HttpException.ofCode(413, "Multipart part exceeds max size of " + maxPartSize + " bytes"));
+			}
+			return data;
+		};
+	}
+
 	/**
 	 * Complex operation that streams this channel of multipart frames into multiple binary consumers,
 	 * as specified by the Content-Disposition multipart header.
@@ -192,7 +225,8 @@ public final class MultipartParser implements ByteBufsDecoder<MultipartFrame> {
 					List<String> readingHeaders = this.readingHeaders;
 					this.readingHeaders = null;
 					if (readingHeaders.isEmpty()) {
-						break;
+						i = -1; // see above comment
+						continue;
 					}
 					return MultipartFrame.of(readingHeaders.stream()
 							.map(s -> s.split(":\\s?", 2))
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 
 import static io.activej.common.Checks.checkArgument;
 
@@ -99,6 +100,16 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 		return this;
 	}
 
+	/**
+	 * Maps a WebSocket endpoint on some path, every established {@link WebSocket} is passed to the given consumer
+	 *
+	 * @see WebSocketServlet
+	 */
+	@Contract("_, _ -> this")
+	public RoutingServlet mapWebSocket(@NotNull String path, @NotNull Consumer<WebSocket> webSocketConsumer) {
+		return map(HttpMethod.GET, path, WebSocketServlet.create(webSocketConsumer));
+	}
+
 	public void visit(Visitor visitor) {
 		visit(ROOT, visitor);
 	}
@@ -136,6 +147,17 @@ public final class RoutingServlet implements AsyncServlet, WithInitializer<Routi
 		return merged;
 	}
 
+	/**
+	 * Compiles this servlet into an immutable routing table, which routes requests
+	 * the same way, but without allocations while looking for a route
+	 *
+	 * @see CompiledRoutingServlet
+	 */
+	@Contract("-> new")
+	public CompiledRoutingServlet compile() {
+		return CompiledRoutingServlet.create(this);
+	}
+
 	@NotNull
 	@Override
 	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
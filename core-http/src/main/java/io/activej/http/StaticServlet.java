@@ -17,7 +17,12 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.file.ChannelFileReader;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticResourceCache;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
 import org.jetbrains.annotations.NotNull;
@@ -33,8 +38,9 @@ import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
-import static io.activej.http.HttpHeaderValue.ofContentType;
-import static io.activej.http.HttpHeaders.CONTENT_TYPE;
+import static io.activej.http.AbstractHttpConnection.CONTENT_ENCODING_GZIP;
+import static io.activej.http.HttpHeaderValue.*;
+import static io.activej.http.HttpHeaders.*;
 
 /**
  * This servlet allows return HTTP responses by HTTP paths from some predefined storage, mainly the filesystem.
@@ -136,10 +142,68 @@ public final class StaticServlet implements AsyncServlet {
 		return type;
 	}
 
-	private HttpResponse createHttpResponse(ByteBuf buf, ContentType contentType) {
-		return responseSupplier.get()
-				.withBody(buf)
-				.withHeader(CONTENT_TYPE, ofContentType(contentType));
+	/**
+	 * Files are sent as body streams, so that they may be sent with zero copy,
+	 * other resources are collected to be sent as bodies of known size
+	 */
+	private Promise<HttpResponse> load(HttpRequest request, String path, ContentType contentType) {
+		if (resourceLoader instanceof StaticResourceCache) {
+			return ((StaticResourceCache) resourceLoader).loadResource(path)
+					.map(resource -> createHttpResponse(request, resource))
+					.map(response -> response.withHeader(CONTENT_TYPE, ofContentType(contentType)));
+		}
+		return resourceLoader.loadStream(path)
+				.then(supplier -> supplier instanceof ChannelFileReader ?
+						Promise.of(responseSupplier.get().withBodyStream(supplier)) :
+						supplier.toCollector(ByteBufQueue.collector())
+								.map(buf -> responseSupplier.get().withBody(buf)))
+				.map(response -> response.withHeader(CONTENT_TYPE, ofContentType(contentType)));
+	}
+
+	/**
+	 * Cached resources are sent along with their validators, and a conditional request
+	 * for an unchanged resource is answered with 304 response. A response which should be
+	 * gzipped gets the gzipped variant of a resource instead of being compressed again.
+	 */
+	private HttpResponse createHttpResponse(HttpRequest request, StaticResourceCache.Resource resource) {
+		HttpResponse response;
+		if (isNotModified(request, resource)) {
+			response = HttpResponse.ofCode(304);
+		} else {
+			response = responseSupplier.get();
+			if ((response.flags & HttpMessage.USE_GZIP) != 0) {
+				response.flags &= ~HttpMessage.USE_GZIP;
+				response.setContentEncoder(null, 0);
+				response.addHeader(CONTENT_ENCODING, ofBytes(CONTENT_ENCODING_GZIP));
+				response.setBody(copyOf(resource.getGzipped()));
+			} else {
+				response.setBody(copyOf(resource.getBytes()));
+			}
+		}
+		return response
+				.withHeader(ETAG, resource.getETag())
+				.withHeader(LAST_MODIFIED, ofTimestamp(resource.getLastModified()));
+	}
+
+	private static boolean isNotModified(HttpRequest request, StaticResourceCache.Resource resource) {
+		String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			return ifNoneMatch.equals("*") || ifNoneMatch.contains(resource.getETag());
+		}
+		ByteBuf ifModifiedSince = request.getHeaderBuf(IF_MODIFIED_SINCE);
+		if (ifModifiedSince != null) {
+			try {
+				return toInstant(ifModifiedSince).toEpochMilli() >= resource.getLastModified();
+			} catch (ParseException ignored) {
+			}
+		}
+		return false;
+	}
+
+	private static ByteBuf copyOf(byte[] bytes) {
+		ByteBuf buf = ByteBufPool.allocate(bytes.length);
+		buf.put(bytes);
+		return buf;
 	}
 
 	@NotNull
@@ -150,12 +214,11 @@ public final class StaticServlet implements AsyncServlet {
 		ContentType contentType = contentTypeResolver.apply(mappedPath);
 		return Promise.complete()
 				.then(() -> (mappedPath.endsWith("/") || mappedPath.isEmpty()) ?
-						tryLoadIndexResource(mappedPath) :
-						resourceLoader.load(mappedPath)
-								.map(byteBuf -> createHttpResponse(byteBuf, contentType))
+						tryLoadIndexResource(request, mappedPath) :
+						load(request, mappedPath, contentType)
 								.thenEx((value, e) -> {
 									if (e == StaticLoader.IS_A_DIRECTORY) {
-										return tryLoadIndexResource(mappedPath);
+										return tryLoadIndexResource(request, mappedPath);
 									} else {
 										return Promise.of(value, e);
 									}
@@ -164,7 +227,7 @@ public final class StaticServlet implements AsyncServlet {
 					if (e == null) {
 						return Promise.of(response);
 					} else if (e == StaticLoader.NOT_FOUND_EXCEPTION) {
-						return tryLoadDefaultResource();
+						return tryLoadDefaultResource(request);
 					} else {
 						return Promise.ofException(HttpException.ofCode(400, e));
 					}
@@ -172,19 +235,17 @@ public final class StaticServlet implements AsyncServlet {
 	}
 
 	@NotNull
-	private Promise<HttpResponse> tryLoadIndexResource(String mappedPath) {
+	private Promise<HttpResponse> tryLoadIndexResource(HttpRequest request, String mappedPath) {
 		String dirPath = mappedPath.endsWith("/") || mappedPath.isEmpty() ? mappedPath : (mappedPath + '/');
 		return Promises.<HttpResponse>firstSuccessful(indexResources.stream()
-				.map(indexResource -> () -> resourceLoader.load(dirPath + indexResource)
-						.map(byteBuf -> createHttpResponse(byteBuf, contentTypeResolver.apply(indexResource)))))
+				.map(indexResource -> () -> load(request, dirPath + indexResource, contentTypeResolver.apply(indexResource))))
 				.thenEx(((response, e) -> e == null ? Promise.of(response) : Promise.ofException(StaticLoader.NOT_FOUND_EXCEPTION)));
 	}
 
 	@NotNull
-	private Promise<? extends HttpResponse> tryLoadDefaultResource() {
+	private Promise<? extends HttpResponse> tryLoadDefaultResource(HttpRequest request) {
 		return defaultResource != null ?
-				resourceLoader.load(defaultResource)
-						.map(buf -> createHttpResponse(buf, contentTypeResolver.apply(defaultResource))) :
+				load(request, defaultResource, contentTypeResolver.apply(defaultResource)) :
 				Promise.ofException(HttpException.notFound404());
 	}
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.eventloop.trace.Trace;
+import io.activej.eventloop.trace.TraceRecorder;
+import io.activej.eventloop.trace.Tracing;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * A servlet which exports slow traces, kept by a {@link TraceRecorder}, as a plain text, the most recent first
+ *
+ * @see Tracing
+ */
+public final class TraceServlet implements AsyncServlet {
+	private final TraceRecorder recorder;
+
+	private TraceServlet(TraceRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	public static TraceServlet create() {
+		return new TraceServlet(Tracing.getRecorder());
+	}
+
+	@NotNull
+	@Override
+	public Promise<HttpResponse> serve(@NotNull HttpRequest request) {
+		return Promise.of(HttpResponse.ok200()
+				.withPlainText(recorder.getTraces().stream()
+						.map(Trace::toString)
+						.collect(joining("\n\n"))));
+	}
+}
@@ -484,6 +484,14 @@ public final class UrlParser {
 		}
 	}
 
+	String getRaw() {
+		return raw;
+	}
+
+	int getPathEnd() {
+		return pathEnd;
+	}
+
 	private static boolean isEqual(@NotNull String key, @NotNull String raw, int start, int end) {
 		if (end - start != key.length()) {
 			return false;
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.async.process.AsyncCloseable;
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.api.Recyclable;
+import io.activej.csp.AbstractChannelConsumer;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelSupplier;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An established WebSocket connection (RFC 6455).
+ * <p>
+ * A WebSocket is obtained either on a server side, by mapping a {@link WebSocketServlet},
+ * or on a client side, by {@link AsyncHttpClient#webSocketRequest(HttpRequest)}.
+ * Messages are read one at a time, a {@code null} message marks a normal closure of the connection.
+ * Closing a WebSocket sends a close frame with a normal status code, closing it with an exception
+ * sends a close frame with a code of the {@link WebSocketException} or with an internal error code.
+ */
+public interface WebSocket extends AsyncCloseable {
+	/**
+	 * Reads the next message, or {@code null} if the peer has closed the connection normally
+	 */
+	@NotNull
+	Promise<@Nullable Message> readMessage();
+
+	/**
+	 * Writes a message, or a close frame if the message is {@code null}
+	 */
+	@NotNull
+	Promise<Void> writeMessage(@Nullable Message msg);
+
+	default ChannelSupplier<Message> messageReadChannel() {
+		return ChannelSupplier.of(this::readMessage, this);
+	}
+
+	default ChannelConsumer<Message> messageWriteChannel() {
+		return new AbstractChannelConsumer<Message>(this) {
+			@Override
+			protected Promise<Void> doAccept(@Nullable Message msg) {
+				return writeMessage(msg);
+			}
+		};
+	}
+
+	boolean isClosed();
+
+	/**
+	 * A complete (possibly reassembled from fragments) WebSocket message
+	 */
+	final class Message implements Recyclable {
+		private final MessageType type;
+		private final ByteBuf buf;
+
+		Message(MessageType type, ByteBuf buf) {
+			this.type = type;
+			this.buf = buf;
+		}
+
+		public static Message text(String text) {
+			return new Message(MessageType.TEXT, ByteBuf.wrapForReading(text.getBytes(UTF_8)));
+		}
+
+		/**
+		 * Creates a binary message, the buf is owned by the message from now on
+		 */
+		public static Message binary(ByteBuf buf) {
+			return new Message(MessageType.BINARY, buf);
+		}
+
+		public MessageType getType() {
+			return type;
+		}
+
+		public ByteBuf getBuf() {
+			return buf;
+		}
+
+		public String getText() {
+			return buf.getString(UTF_8);
+		}
+
+		@Override
+		public void recycle() {
+			buf.recycle();
+		}
+
+		@Override
+		public String toString() {
+			return "Message{type=" + type + ", size=" + buf.readRemaining() + '}';
+		}
+
+		public enum MessageType {
+			TEXT, BINARY
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.exception.StacklessException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Is thrown when a {@link WebSocket} is closed with a non-normal status code,
+ * either by a peer or because of a protocol violation
+ */
+public final class WebSocketException extends StacklessException {
+	private final int code;
+
+	public WebSocketException(@NotNull Class<?> component, int code, @NotNull String reason) {
+		super(component, reason);
+		this.code = code;
+	}
+
+	/**
+	 * Returns a close status code as defined by RFC 6455, section 7.4
+	 */
+	public int getCode() {
+		return code;
+	}
+
+	@Override
+	public String toString() {
+		return "WebSocketException{code=" + code + ", reason=" + getMessage() + '}';
+	}
+}
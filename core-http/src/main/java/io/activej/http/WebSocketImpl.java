@@ -0,0 +1,554 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.ApplicationSettings;
+import io.activej.common.Checks;
+import io.activej.common.MemSize;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
+import io.activej.promise.Promise;
+import io.activej.promise.SettablePromise;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static io.activej.common.Checks.checkState;
+import static io.activej.http.WebSocket.Message.MessageType.BINARY;
+import static io.activej.http.WebSocket.Message.MessageType.TEXT;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A WebSocket over a socket which has been taken over from an HTTP connection.
+ * <p>
+ * Frames are parsed right from the read queue and are unmasked in place, so a message
+ * consisting of a single frame is handed out without copying. Outgoing payloads are
+ * masked in place as well, large ones are written as they are after a separate frame header.
+ * <p>
+ * There are no timers and no per-connection compression state: permessage-deflate
+ * is only negotiated without context takeover, so a single {@link Deflater} and {@link Inflater}
+ * per thread are shared by all of the connections, and an idle WebSocket holds nothing but its socket.
+ */
+final class WebSocketImpl implements WebSocket {
+	private static final boolean CHECK = Checks.isEnabled(WebSocketImpl.class);
+
+	public static final MemSize MAX_MESSAGE_SIZE = ApplicationSettings.getMemSize(WebSocketImpl.class, "maxMessageSize", MemSize.megabytes(1));
+	public static final int INLINE_PAYLOAD_SIZE = ApplicationSettings.getInt(WebSocketImpl.class, "inlinePayloadSize", 1024);
+	public static final int DEFLATE_MIN_SIZE = ApplicationSettings.getInt(WebSocketImpl.class, "deflateMinSize", 64);
+
+	static final String MAGIC_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+	static final int CLOSE_NORMAL = 1000;
+	static final int CLOSE_GOING_AWAY = 1001;
+	static final int CLOSE_PROTOCOL_ERROR = 1002;
+	static final int CLOSE_NO_STATUS = 1005;
+	static final int CLOSE_INVALID_DATA = 1007;
+	static final int CLOSE_MESSAGE_TOO_BIG = 1009;
+	static final int CLOSE_INTERNAL_ERROR = 1011;
+
+	private static final int OP_CONTINUATION = 0x0;
+	private static final int OP_TEXT = 0x1;
+	private static final int OP_BINARY = 0x2;
+	private static final int OP_CLOSE = 0x8;
+	private static final int OP_PING = 0x9;
+	private static final int OP_PONG = 0xA;
+
+	private static final int FIN = 0x80;
+	private static final int RSV1 = 0x40;
+	private static final int RSV2_RSV3 = 0x30;
+	private static final int MASK = 0x80;
+
+	// a control frame payload is at most 125 bytes, 2 of them are taken by a status code
+	private static final int MAX_CLOSE_REASON_LENGTH = 123;
+
+	private static final byte[] DEFLATE_TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+
+	private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	private final AsyncTcpSocket socket;
+	private final ByteBufQueue readQueue;
+	private final boolean client;
+	private final boolean deflate;
+	private final int maxMessageSize;
+
+	// a fragmented message which is being received
+	@Nullable
+	private ByteBufQueue fragments;
+	private int fragmentsOpcode;
+	private boolean fragmentsCompressed;
+
+	@Nullable
+	private SettablePromise<@Nullable Message> readPromise;
+
+	private boolean closeSent;
+	private boolean closeReceived;
+	private boolean closed;
+	@Nullable
+	private Throwable closeException;
+
+	WebSocketImpl(AsyncTcpSocket socket, ByteBufQueue readQueue, boolean client, boolean deflate, int maxMessageSize) {
+		this.socket = socket;
+		this.readQueue = readQueue;
+		this.client = client;
+		this.deflate = deflate;
+		this.maxMessageSize = maxMessageSize;
+	}
+
+	// region handshake
+	static String generateKey() {
+		byte[] bytes = new byte[16];
+		ThreadLocalRandom.current().nextBytes(bytes);
+		return Base64.getEncoder().encodeToString(bytes);
+	}
+
+	static String acceptKey(String key) {
+		try {
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			return Base64.getEncoder().encodeToString(sha1.digest((key + MAGIC_GUID).getBytes(ISO_8859_1)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	static boolean containsToken(@Nullable String headerValue, String token) {
+		if (headerValue == null) return false;
+		for (String value : headerValue.split(",")) {
+			if (value.trim().equalsIgnoreCase(token)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finds a permessage-deflate extension in a header value and returns its parameters,
+	 * or {@code null} if there is no such extension
+	 */
+	@Nullable
+	static Map<String, String> findDeflateParameters(@Nullable String extensions) {
+		if (extensions == null) return null;
+		nextExtension:
+		for (String extension : extensions.split(",")) {
+			String[] parts = extension.split(";");
+			if (!parts[0].trim().equalsIgnoreCase(PERMESSAGE_DEFLATE)) continue;
+			Map<String, String> parameters = new HashMap<>();
+			for (int i = 1; i < parts.length; i++) {
+				String part = parts[i].trim();
+				int eq = part.indexOf('=');
+				String name = (eq == -1 ? part : part.substring(0, eq).trim()).toLowerCase();
+				String value = eq == -1 ? "" : part.substring(eq + 1).trim().replace("\"", "");
+				if (parameters.put(name, value) != null) continue nextExtension;
+			}
+			return parameters;
+		}
+		return null;
+	}
+	// endregion
+
+	@NotNull
+	@Override
+	public Promise<@Nullable Message> readMessage() {
+		if (CHECK) checkState(readPromise == null, "Previous message has not been read yet");
+		if (closed) return closeException == null ? Promise.of(null) : Promise.ofException(closeException);
+		Message message;
+		try {
+			message = decodeMessage();
+		} catch (WebSocketException e) {
+			closeEx(e);
+			return Promise.ofException(e);
+		}
+		if (message != null) return Promise.of(message);
+		if (closed) return closeException == null ? Promise.of(null) : Promise.ofException(closeException);
+
+		SettablePromise<@Nullable Message> readPromise = new SettablePromise<>();
+		this.readPromise = readPromise;
+		doRead();
+		return readPromise;
+	}
+
+	private void doRead() {
+		socket.read()
+				.whenComplete((buf, e) -> {
+					if (closed) {
+						if (buf != null) buf.recycle();
+						return;
+					}
+					if (e != null) {
+						socket.close();
+						terminate(e);
+						return;
+					}
+					if (buf == null) {
+						socket.close();
+						terminate(closeSent ? null : new WebSocketException(WebSocketImpl.class, 1006, "Connection closed without a close frame"));
+						return;
+					}
+					readQueue.add(buf);
+					Message message;
+					try {
+						message = decodeMessage();
+					} catch (WebSocketException e1) {
+						closeEx(e1);
+						return;
+					}
+					if (message != null) {
+						SettablePromise<@Nullable Message> readPromise = this.readPromise;
+						assert readPromise != null;
+						this.readPromise = null;
+						readPromise.set(message);
+					} else if (!closed) {
+						doRead();
+					}
+				});
+	}
+
+	/**
+	 * Parses frames which are fully present in a read queue until there is a complete data message
+	 */
+	@Nullable
+	private Message decodeMessage() throws WebSocketException {
+		while (!closed && readQueue.hasRemainingBytes(2)) {
+			int b0 = readQueue.peekByte(0) & 0xFF;
+			int b1 = readQueue.peekByte(1) & 0xFF;
+			int opcode = b0 & 0x0F;
+			boolean fin = (b0 & FIN) != 0;
+			boolean compressed = (b0 & RSV1) != 0;
+			boolean masked = (b1 & MASK) != 0;
+			boolean control = opcode >= OP_CLOSE;
+
+			if ((b0 & RSV2_RSV3) != 0 || compressed && (!deflate || control || opcode == OP_CONTINUATION)) {
+				throw protocolError("Unexpected reserved bits");
+			}
+			if (masked == client) {
+				throw protocolError(client ? "Masked frame from a server" : "Unmasked frame from a client");
+			}
+			if (control ? opcode > OP_PONG : opcode > OP_BINARY) {
+				throw protocolError("Unknown opcode " + opcode);
+			}
+
+			int length = b1 & 0x7F;
+			int headerSize = 2 + (length == 126 ? 2 : length == 127 ? 8 : 0) + (masked ? 4 : 0);
+			if (!readQueue.hasRemainingBytes(headerSize)) return null;
+
+			long payloadLength = length;
+			if (length == 126) {
+				payloadLength = peekNumber(2, 2);
+			} else if (length == 127) {
+				payloadLength = peekNumber(2, 8);
+			}
+			if (control && (!fin || payloadLength > 125)) {
+				throw protocolError("Invalid control frame");
+			}
+			if (payloadLength < 0 || payloadLength + (fragments != null ? fragments.remainingBytes() : 0) > maxMessageSize) {
+				throw new WebSocketException(WebSocketImpl.class, CLOSE_MESSAGE_TOO_BIG, "Message is too big");
+			}
+			if (!readQueue.hasRemainingBytes(headerSize + (int) payloadLength)) return null;
+
+			int mask = masked ? (int) peekNumber(headerSize - 4, 4) : 0;
+			readQueue.skip(headerSize);
+			ByteBuf payload = readQueue.takeExactSize((int) payloadLength);
+			if (masked) mask(payload, mask);
+
+			if (control) {
+				onControlFrame(opcode, payload);
+				continue;
+			}
+
+			if (opcode == OP_CONTINUATION) {
+				if (fragments == null) {
+					payload.recycle();
+					throw protocolError("Unexpected continuation frame");
+				}
+				fragments.add(payload);
+				if (!fin) continue;
+				payload = fragments.takeRemaining();
+				fragments.recycle();
+				fragments = null;
+				opcode = fragmentsOpcode;
+				compressed = fragmentsCompressed;
+			} else {
+				if (fragments != null) {
+					payload.recycle();
+					throw protocolError("Expected continuation frame");
+				}
+				if (!fin) {
+					fragments = new ByteBufQueue();
+					fragments.add(payload);
+					fragmentsOpcode = opcode;
+					fragmentsCompressed = compressed;
+					continue;
+				}
+			}
+
+			if (compressed) {
+				payload = inflate(payload);
+			}
+			return new Message(opcode == OP_TEXT ? TEXT : BINARY, payload);
+		}
+		return null;
+	}
+
+	private long peekNumber(int offset, int size) {
+		long result = 0;
+		for (int i = 0; i < size; i++) {
+			result = (result << 8) | (readQueue.peekByte(offset + i) & 0xFF);
+		}
+		return result;
+	}
+
+	private void onControlFrame(int opcode, ByteBuf payload) throws WebSocketException {
+		if (opcode == OP_PING) {
+			if (closeSent) {
+				payload.recycle();
+			} else {
+				writeFrame(OP_PONG, false, payload);
+			}
+		} else if (opcode == OP_PONG) {
+			payload.recycle();
+		} else {
+			onCloseFrame(payload);
+		}
+	}
+
+	private void onCloseFrame(ByteBuf payload) throws WebSocketException {
+		int code = CLOSE_NO_STATUS;
+		String reason = "";
+		if (payload.readRemaining() == 1) {
+			payload.recycle();
+			throw protocolError("Invalid close frame");
+		}
+		if (payload.canRead()) {
+			code = (payload.readByte() & 0xFF) << 8 | (payload.readByte() & 0xFF);
+			reason = payload.asString(UTF_8);
+		} else {
+			payload.recycle();
+		}
+		closeReceived = true;
+		Throwable e = code == CLOSE_NORMAL || code == CLOSE_GOING_AWAY || code == CLOSE_NO_STATUS ?
+				null :
+				new WebSocketException(WebSocketImpl.class, code, reason);
+		if (closeSent) {
+			socket.close();
+		} else {
+			// the server is the one to close a TCP connection first (RFC 6455, section 7.1.1)
+			sendClose(code == CLOSE_NO_STATUS ? CLOSE_NORMAL : code, "")
+					.whenComplete(socket::close);
+		}
+		terminate(e);
+	}
+
+	@NotNull
+	@Override
+	public Promise<Void> writeMessage(@Nullable Message msg) {
+		if (closed || closeSent) {
+			if (msg != null) {
+				msg.recycle();
+				return Promise.ofException(closeException != null ? closeException : CLOSE_EXCEPTION);
+			}
+			return closeException == null ? Promise.complete() : Promise.ofException(closeException);
+		}
+		if (msg == null) {
+			// the socket is closed once a close frame from a peer is read
+			return sendClose(CLOSE_NORMAL, "");
+		}
+		ByteBuf payload = msg.getBuf();
+		int opcode = msg.getType() == TEXT ? OP_TEXT : OP_BINARY;
+		if (deflate && payload.readRemaining() >= DEFLATE_MIN_SIZE) {
+			return writeFrame(opcode, true, deflate(payload));
+		}
+		return writeFrame(opcode, false, payload);
+	}
+
+	private Promise<Void> sendClose(int code, String reason) {
+		closeSent = true;
+		byte[] reasonBytes = reason.getBytes(UTF_8);
+		int reasonLength = Math.min(reasonBytes.length, MAX_CLOSE_REASON_LENGTH);
+		ByteBuf payload = ByteBufPool.allocate(2 + reasonLength);
+		payload.writeShort((short) code);
+		payload.put(reasonBytes, 0, reasonLength);
+		Promise<Void> result = writeFrame(OP_CLOSE, false, payload);
+		if (closeReceived) {
+			result.whenComplete(socket::close);
+		}
+		return result;
+	}
+
+	private Promise<Void> writeFrame(int opcode, boolean compressed, ByteBuf payload) {
+		int length = payload.readRemaining();
+		int headerSize = 2 + (length < 126 ? 0 : length < 65536 ? 2 : 8) + (client ? 4 : 0);
+		boolean inline = length <= INLINE_PAYLOAD_SIZE;
+		ByteBuf frame = ByteBufPool.allocate(headerSize + (inline ? length : 0));
+		frame.writeByte((byte) (FIN | (compressed ? RSV1 : 0) | opcode));
+		int maskBit = client ? MASK : 0;
+		if (length < 126) {
+			frame.writeByte((byte) (maskBit | length));
+		} else if (length < 65536) {
+			frame.writeByte((byte) (maskBit | 126));
+			frame.writeShort((short) length);
+		} else {
+			frame.writeByte((byte) (maskBit | 127));
+			frame.writeLong(length);
+		}
+		if (client) {
+			int mask = ThreadLocalRandom.current().nextInt();
+			frame.writeInt(mask);
+			mask(payload, mask);
+		}
+		if (inline) {
+			frame.put(payload);
+			payload.recycle();
+			return socket.write(frame);
+		}
+		socket.write(frame);
+		return socket.write(payload);
+	}
+
+	static void mask(ByteBuf buf, int mask) {
+		byte[] array = buf.array();
+		byte m0 = (byte) (mask >>> 24);
+		byte m1 = (byte) (mask >>> 16);
+		byte m2 = (byte) (mask >>> 8);
+		byte m3 = (byte) mask;
+		int i = buf.head();
+		int tail = buf.tail();
+		for (; i + 3 < tail; i += 4) {
+			array[i] ^= m0;
+			array[i + 1] ^= m1;
+			array[i + 2] ^= m2;
+			array[i + 3] ^= m3;
+		}
+		for (int shift = 24; i < tail; i++, shift -= 8) {
+			array[i] ^= (byte) (mask >>> shift);
+		}
+	}
+
+	// region permessage-deflate
+	private static ByteBuf deflate(ByteBuf buf) {
+		Deflater deflater = DEFLATER.get();
+		deflater.reset();
+		deflater.setInput(buf.array(), buf.head(), buf.readRemaining());
+		ByteBuf out = ByteBufPool.allocate(buf.readRemaining() + 16);
+		while (true) {
+			out.moveTail(deflater.deflate(out.array(), out.tail(), out.writeRemaining(), Deflater.SYNC_FLUSH));
+			if (out.canWrite()) break;
+			out = ByteBufPool.ensureWriteRemaining(out, out.readRemaining());
+		}
+		buf.recycle();
+		// RFC 7692, section 7.2.1: an empty stored block at the end is removed
+		out.moveTail(-DEFLATE_TAIL.length);
+		return out;
+	}
+
+	private ByteBuf inflate(ByteBuf buf) throws WebSocketException {
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		ByteBuf out = ByteBufPool.allocate(Math.max(buf.readRemaining() * 2, 256));
+		try {
+			for (int i = 0; i < 2; i++) {
+				if (i == 0) {
+					inflater.setInput(buf.array(), buf.head(), buf.readRemaining());
+				} else {
+					inflater.setInput(DEFLATE_TAIL);
+				}
+				while (true) {
+					out.moveTail(inflater.inflate(out.array(), out.tail(), out.writeRemaining()));
+					if (out.readRemaining() > maxMessageSize) {
+						throw new WebSocketException(WebSocketImpl.class, CLOSE_MESSAGE_TOO_BIG, "Message is too big");
+					}
+					if (out.canWrite()) break;
+					out = ByteBufPool.ensureWriteRemaining(out, out.readRemaining());
+				}
+			}
+			return out;
+		} catch (DataFormatException e) {
+			out.recycle();
+			throw new WebSocketException(WebSocketImpl.class, CLOSE_INVALID_DATA, "Malformed compressed message");
+		} catch (WebSocketException e) {
+			out.recycle();
+			throw e;
+		} finally {
+			buf.recycle();
+		}
+	}
+	// endregion
+
+	private static WebSocketException protocolError(String reason) {
+		return new WebSocketException(WebSocketImpl.class, CLOSE_PROTOCOL_ERROR, reason);
+	}
+
+	@Override
+	public void closeEx(@NotNull Throwable e) {
+		if (closed) return;
+		if (closeSent) {
+			socket.close();
+		} else {
+			if (e instanceof WebSocketException) {
+				sendClose(((WebSocketException) e).getCode(), e.getMessage()).whenComplete(socket::close);
+			} else {
+				sendClose(e == CLOSE_EXCEPTION ? CLOSE_NORMAL : CLOSE_INTERNAL_ERROR, "").whenComplete(socket::close);
+			}
+		}
+		terminate(e);
+	}
+
+	private void terminate(@Nullable Throwable e) {
+		closed = true;
+		closeException = e;
+		readQueue.recycle();
+		if (fragments != null) {
+			fragments.recycle();
+			fragments = null;
+		}
+		SettablePromise<@Nullable Message> readPromise = this.readPromise;
+		if (readPromise != null) {
+			this.readPromise = null;
+			if (e == null) {
+				readPromise.set(null);
+			} else {
+				readPromise.setException(e);
+			}
+		}
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public String toString() {
+		return "WebSocket{" +
+				"client=" + client +
+				", deflate=" + deflate +
+				", closeSent=" + closeSent +
+				", closeReceived=" + closeReceived +
+				", closed=" + closed +
+				'}';
+	}
+}
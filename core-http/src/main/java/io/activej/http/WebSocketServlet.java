@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http;
+
+import io.activej.common.ApplicationSettings;
+import io.activej.common.MemSize;
+import io.activej.common.api.WithInitializer;
+import io.activej.promise.Promisable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.http.HttpMethod.GET;
+import static io.activej.http.WebSocketImpl.*;
+
+/**
+ * A servlet which performs a WebSocket opening handshake (RFC 6455, section 4.2)
+ * and passes every established {@link WebSocket} to a given consumer.
+ * <p>
+ * Once the 101 response is sent, the HTTP connection is taken over by the WebSocket.
+ * Messages are compressed with permessage-deflate (RFC 7692) if a client offers it and
+ * it is enabled for this servlet, context takeover is always disabled for both sides.
+ */
+public final class WebSocketServlet implements AsyncServlet, WithInitializer<WebSocketServlet> {
+	public static final boolean MESSAGE_DEFLATE = ApplicationSettings.getBoolean(WebSocketServlet.class, "messageDeflate", false);
+
+	private static final String DEFLATE_RESPONSE = PERMESSAGE_DEFLATE + "; server_no_context_takeover; client_no_context_takeover";
+
+	private final Consumer<WebSocket> webSocketConsumer;
+
+	private boolean messageDeflate = MESSAGE_DEFLATE;
+	private int maxMessageSize = MAX_MESSAGE_SIZE.toInt();
+
+	private WebSocketServlet(Consumer<WebSocket> webSocketConsumer) {
+		this.webSocketConsumer = webSocketConsumer;
+	}
+
+	public static WebSocketServlet create(Consumer<WebSocket> webSocketConsumer) {
+		return new WebSocketServlet(webSocketConsumer);
+	}
+
+	public WebSocketServlet withMessageDeflate(boolean messageDeflate) {
+		this.messageDeflate = messageDeflate;
+		return this;
+	}
+
+	public WebSocketServlet withMaxMessageSize(MemSize maxMessageSize) {
+		this.maxMessageSize = maxMessageSize.toInt();
+		return this;
+	}
+
+	@NotNull
+	@Override
+	public Promisable<HttpResponse> serve(@NotNull HttpRequest request) {
+		if (request.getMethod() != GET ||
+				!containsToken(request.getHeader(UPGRADE), "websocket") ||
+				!containsToken(request.getHeader(CONNECTION), "upgrade")) {
+			return HttpException.badRequest400("Not a WebSocket handshake request");
+		}
+		if (!"13".equals(request.getHeader(SEC_WEBSOCKET_VERSION))) {
+			return HttpResponse.ofCode(426)
+					.withHeader(SEC_WEBSOCKET_VERSION, "13");
+		}
+		String key = request.getHeader(SEC_WEBSOCKET_KEY);
+		if (key == null || !isValidKey(key)) {
+			return HttpException.badRequest400("Invalid Sec-WebSocket-Key");
+		}
+
+		boolean deflate = messageDeflate && acceptsDeflate(request.getHeader(SEC_WEBSOCKET_EXTENSIONS));
+		HttpResponse response = HttpResponse.ofCode(101)
+				.withHeader(UPGRADE, "websocket")
+				.withHeader(CONNECTION, "Upgrade")
+				.withHeader(SEC_WEBSOCKET_ACCEPT, acceptKey(key));
+		if (deflate) {
+			response.addHeader(SEC_WEBSOCKET_EXTENSIONS, DEFLATE_RESPONSE);
+		}
+		int maxMessageSize = this.maxMessageSize;
+		response.upgradeHandler = (socket, readQueue) ->
+				webSocketConsumer.accept(new WebSocketImpl(socket, readQueue, false, deflate, maxMessageSize));
+		return response;
+	}
+
+	private static boolean isValidKey(String key) {
+		try {
+			return Base64.getDecoder().decode(key).length == 16;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * A client offer is accepted unless it limits a window of a server,
+	 * the window of a client is not limited by this servlet
+	 */
+	private static boolean acceptsDeflate(@Nullable String extensions) {
+		Map<String, String> parameters = findDeflateParameters(extensions);
+		if (parameters == null) return false;
+		String serverMaxWindowBits = parameters.get("server_max_window_bits");
+		return serverMaxWindowBits == null || serverMaxWindowBits.equals("15");
+	}
+}
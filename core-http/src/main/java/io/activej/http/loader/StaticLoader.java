@@ -17,7 +17,9 @@
 package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
 import io.activej.common.exception.StacklessException;
+import io.activej.csp.ChannelSupplier;
 import io.activej.promise.Promise;
 import org.jetbrains.annotations.NotNull;
 
@@ -38,14 +40,46 @@ public interface StaticLoader {
 
 	Promise<ByteBuf> load(String path);
 
+	/**
+	 * Loads a resource as a stream, which allows a loader to avoid reading
+	 * the whole resource into memory, e.g. to send a file with zero copy
+	 */
+	default Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+		return load(path).map(ChannelSupplier::of);
+	}
+
 	default StaticLoader filter(Predicate<String> predicate) {
-		return path -> predicate.test(path) ?
-				load(path) :
-				Promise.ofException(NOT_FOUND_EXCEPTION);
+		StaticLoader self = this;
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return predicate.test(path) ?
+						self.load(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+
+			@Override
+			public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+				return predicate.test(path) ?
+						self.loadStream(path) :
+						Promise.ofException(NOT_FOUND_EXCEPTION);
+			}
+		};
 	}
 
 	default StaticLoader map(Function<String, String> fn) {
-		return path -> this.load(fn.apply(path));
+		StaticLoader self = this;
+		return new StaticLoader() {
+			@Override
+			public Promise<ByteBuf> load(String path) {
+				return self.load(fn.apply(path));
+			}
+
+			@Override
+			public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+				return self.loadStream(fn.apply(path));
+			}
+		};
 	}
 
 	default StaticLoader subdirectory(String subdirectory) {
@@ -61,6 +95,14 @@ public interface StaticLoader {
 		return cacheOf(this, map);
 	}
 
+	/**
+	 * Returns a cache of this loader, which is bounded by the given size,
+	 * see {@link StaticResourceCache}
+	 */
+	default StaticResourceCache cached(MemSize maxSize) {
+		return StaticResourceCache.create(this, maxSize);
+	}
+
 	static StaticLoader cacheOf(StaticLoader loader) {
 		return cacheOf(loader, new HashMap<>());
 	}
@@ -18,6 +18,7 @@ package io.activej.http.loader;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufQueue;
+import io.activej.csp.ChannelSupplier;
 import io.activej.csp.file.ChannelFileReader;
 import io.activej.promise.Promise;
 
@@ -40,6 +41,17 @@ class StaticLoaderFileReader implements StaticLoader {
 
 	@Override
 	public Promise<ByteBuf> load(String path) {
+		return open(path)
+				.then(cfr -> cfr.toCollector(ByteBufQueue.collector()));
+	}
+
+	@Override
+	public Promise<ChannelSupplier<ByteBuf>> loadStream(String path) {
+		return open(path)
+				.map(cfr -> cfr);
+	}
+
+	private Promise<ChannelFileReader> open(String path) {
 		Path file = root.resolve(path).normalize();
 
 		if (!file.startsWith(root)) {
@@ -57,7 +69,6 @@ class StaticLoaderFileReader implements StaticLoader {
 						throw NOT_FOUND_EXCEPTION;
 					}
 				})
-				.then(() -> ChannelFileReader.open(executor, file))
-				.then(cfr -> cfr.toCollector(ByteBufQueue.collector()));
+				.then(() -> ChannelFileReader.open(executor, file));
 	}
 }
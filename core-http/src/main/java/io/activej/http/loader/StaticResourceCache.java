@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.loader;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.MemSize;
+import io.activej.http.GzipProcessorUtils;
+import io.activej.jmx.api.ConcurrentJmxBean;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.api.attribute.JmxOperation;
+import io.activej.promise.Promise;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+import static io.activej.common.Checks.checkArgument;
+
+/**
+ * A cache of static resources, which is bounded by the total size of cached bytes
+ * and evicts least recently used resources once the bound is exceeded.
+ * <p>
+ * Along with the bytes of a resource, the cache keeps its gzipped variant, which is
+ * computed at most once, and validators (ETag and Last-Modified), which are used by
+ * {@link io.activej.http.StaticServlet} to answer conditional requests with 304 responses.
+ * <p>
+ * This cache may be shared between several eventloops.
+ */
+public final class StaticResourceCache implements StaticLoader, ConcurrentJmxBean {
+	public static final MemSize DEFAULT_MAX_RESOURCE_SIZE = MemSize.megabytes(1);
+
+	private final StaticLoader resourceLoader;
+	private final long maxSize;
+	private long maxResourceSize;
+
+	private final LinkedHashMap<String, Resource> resources = new LinkedHashMap<>(16, 0.75f, true);
+	private long size;
+
+	// region JMX
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long compressions;
+	// endregion
+
+	private StaticResourceCache(StaticLoader resourceLoader, long maxSize) {
+		this.resourceLoader = resourceLoader;
+		this.maxSize = maxSize;
+		this.maxResourceSize = Math.min(maxSize, DEFAULT_MAX_RESOURCE_SIZE.toLong());
+	}
+
+	public static StaticResourceCache create(StaticLoader resourceLoader, MemSize maxSize) {
+		checkArgument(maxSize.toLong() > 0, "Max size should be positive");
+		return new StaticResourceCache(resourceLoader, maxSize.toLong());
+	}
+
+	/**
+	 * Resources which are larger than the given size are loaded each time and not cached
+	 */
+	public StaticResourceCache withMaxResourceSize(MemSize maxResourceSize) {
+		checkArgument(maxResourceSize.toLong() <= maxSize, "Max resource size should not exceed max size of cache");
+		this.maxResourceSize = maxResourceSize.toLong();
+		return this;
+	}
+
+	/**
+	 * Returns a copy of cached bytes, as bodies are recycled after being sent
+	 */
+	@Override
+	public Promise<ByteBuf> load(String path) {
+		return loadResource(path)
+				.map(resource -> {
+					byte[] bytes = resource.getBytes();
+					ByteBuf buf = ByteBufPool.allocate(bytes.length);
+					buf.put(bytes);
+					return buf;
+				});
+	}
+
+	public Promise<Resource> loadResource(String path) {
+		Resource resource = get(path);
+		if (resource != null) {
+			return Promise.of(resource);
+		}
+		return resourceLoader.load(path)
+				.map(buf -> {
+					Resource loaded = new Resource(path, buf.asArray(), System.currentTimeMillis());
+					put(loaded);
+					return loaded;
+				});
+	}
+
+	@Nullable
+	private synchronized Resource get(String path) {
+		Resource resource = resources.get(path);
+		if (resource != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return resource;
+	}
+
+	private synchronized void put(Resource resource) {
+		if (resource.bytes.length > maxResourceSize) return;
+		Resource prev = resources.put(resource.path, resource);
+		if (prev != null) {
+			size -= prev.weight;
+		}
+		resource.weight = resource.bytes.length;
+		size += resource.weight;
+		evict();
+	}
+
+	private synchronized void onCompressed(Resource resource, int gzippedSize) {
+		compressions++;
+		if (resources.get(resource.path) == resource) {
+			resource.weight += gzippedSize;
+			size += gzippedSize;
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<Resource> iterator = resources.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().weight;
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * A cached resource along with its validators
+	 */
+	public final class Resource {
+		private final String path;
+		private final byte[] bytes;
+		private final long lastModified;
+		private final String etag;
+
+		@Nullable
+		private volatile byte[] gzipped;
+
+		// bytes accounted in the size of cache, guarded by the cache
+		private long weight;
+
+		private Resource(String path, byte[] bytes, long lastModified) {
+			this.path = path;
+			this.bytes = bytes;
+			this.lastModified = lastModified / 1000 * 1000;
+			CRC32 crc32 = new CRC32();
+			crc32.update(bytes);
+			this.etag = '"' + Long.toHexString(bytes.length) + '-' + Long.toHexString(crc32.getValue()) + '"';
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns gzipped bytes of this resource, compressing them on the first call only
+		 */
+		public byte[] getGzipped() {
+			byte[] gzipped = this.gzipped;
+			if (gzipped == null) {
+				synchronized (this) {
+					gzipped = this.gzipped;
+					if (gzipped == null) {
+						ByteBuf buf = ByteBufPool.allocate(bytes.length);
+						buf.put(bytes);
+						gzipped = GzipProcessorUtils.toGzip(buf).asArray();
+						this.gzipped = gzipped;
+						onCompressed(this, gzipped.length);
+					}
+				}
+			}
+			return gzipped;
+		}
+
+		/**
+		 * Returns the time in milliseconds when this resource was cached, truncated to seconds
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * Returns a strong ETag of this resource, which is derived from its contents
+		 */
+		public String getETag() {
+			return etag;
+		}
+	}
+
+	// region JMX
+	@JmxAttribute
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@JmxAttribute
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@JmxAttribute
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@JmxAttribute(description = "number of resources which have been gzipped")
+	public synchronized long getCompressions() {
+		return compressions;
+	}
+
+	@JmxAttribute
+	public synchronized int getResourcesCount() {
+		return resources.size();
+	}
+
+	@JmxAttribute(description = "total size of cached bytes, including gzipped variants")
+	public synchronized long getSize() {
+		return size;
+	}
+
+	@JmxAttribute
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	@JmxOperation
+	public synchronized void clear() {
+		resources.clear();
+		size = 0;
+	}
+	// endregion
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.http.stream;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
+import io.activej.common.MemSize;
+import io.activej.csp.ChannelConsumer;
+import io.activej.csp.ChannelInput;
+import io.activej.csp.ChannelOutput;
+import io.activej.csp.ChannelSupplier;
+import io.activej.csp.dsl.WithChannelTransformer;
+import io.activej.csp.process.AbstractCommunicatingProcess;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.zip.Deflater;
+
+import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.Checks.checkState;
+
+/**
+ * This is a binary channel transformer, that converts channels of {@link ByteBuf ByteBufs}
+ * compressing the data into the zlib format (rfc 1950), which is used by 'deflate' HTTP content encoding.
+ * <p>
+ * Unlike {@link BufsConsumerGzipDeflater}, zlib header and trailer are written by the {@link Deflater} itself.
+ */
+public final class BufsConsumerDeflater extends AbstractCommunicatingProcess
+		implements WithChannelTransformer<BufsConsumerDeflater, ByteBuf, ByteBuf> {
+	public static final int DEFAULT_MAX_BUF_SIZE = 16384;
+
+	private Deflater deflater = new Deflater();
+	private int maxBufSize = DEFAULT_MAX_BUF_SIZE;
+	private ChannelSupplier<ByteBuf> input;
+	private ChannelConsumer<ByteBuf> output;
+
+	// region creators
+	private BufsConsumerDeflater() {
+	}
+
+	public static BufsConsumerDeflater create() {
+		return new BufsConsumerDeflater();
+	}
+
+	/**
+	 * Sets a deflater to be used, it should not be created with {@code nowrap} parameter,
+	 * otherwise no zlib header and trailer are written
+	 */
+	public BufsConsumerDeflater withDeflater(@NotNull Deflater deflater) {
+		this.deflater = deflater;
+		return this;
+	}
+
+	public BufsConsumerDeflater withMaxBufSize(MemSize maxBufSize) {
+		checkArgument(maxBufSize.compareTo(MemSize.ZERO) > 0, "Cannot use buf size that is less than 0");
+		this.maxBufSize = maxBufSize.toInt();
+		return this;
+	}
+
+	@SuppressWarnings("ConstantConditions") //check input for clarity
+	@Override
+	public ChannelInput<ByteBuf> getInput() {
+		return input -> {
+			checkState(this.input == null, "Input already set");
+			this.input = sanitize(input);
+			if (this.input != null && this.output != null) startProcess();
+			return getProcessCompletion();
+		};
+	}
+
+	@SuppressWarnings("ConstantConditions") //check output for clarity
+	@Override
+	public ChannelOutput<ByteBuf> getOutput() {
+		return output -> {
+			checkState(this.output == null, "Output already set");
+			this.output = sanitize(output);
+			if (this.input != null && this.output != null) startProcess();
+		};
+	}
+	// endregion
+
+	@Override
+	protected void beforeProcess() {
+		checkState(input != null, "Input was not set");
+		checkState(output != null, "Output was not set");
+	}
+
+	@Override
+	protected void doProcess() {
+		input.streamTo(ChannelConsumer.of(buf -> {
+					deflater.setInput(buf.array(), buf.head(), buf.readRemaining());
+					ByteBufQueue queue = deflate();
+					buf.recycle();
+					return output.acceptAll(queue.asIterator());
+				}))
+				.whenResult(this::finish);
+	}
+
+	private void finish() {
+		deflater.finish();
+		ByteBufQueue queue = deflate();
+		output.acceptAll(queue.asIterator())
+				.then(output::acceptEndOfStream)
+				.whenResult(this::completeProcess);
+	}
+
+	private ByteBufQueue deflate() {
+		ByteBufQueue queue = new ByteBufQueue();
+		while (true) {
+			ByteBuf out = ByteBufPool.allocate(maxBufSize);
+			int len = deflater.deflate(out.array(), out.tail(), out.writeRemaining());
+			if (len > 0) {
+				out.tail(len);
+				queue.add(out);
+			} else {
+				out.recycle();
+				return queue;
+			}
+		}
+	}
+
+	@Override
+	protected void doClose(Throwable e) {
+		deflater.end();
+		input.closeEx(e);
+		output.closeEx(e);
+	}
+}
@@ -0,0 +1,131 @@
+package io.activej.dns;
+
+import io.activej.dns.DnsCache.DnsQueryCacheResult;
+import io.activej.dns.protocol.*;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static io.activej.dns.protocol.DnsProtocol.ResponseErrorCode.SERVER_FAILURE;
+import static io.activej.promise.TestUtils.await;
+import static org.junit.Assert.*;
+
+public final class CachedAsyncDnsClientTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private final Map<String, Integer> resolves = new HashMap<>();
+
+	private final AsyncDnsClient remoteClient = new AsyncDnsClient() {
+		@Override
+		public Promise<DnsResponse> resolve(DnsQuery query) {
+			resolves.merge(query.getDomainName(), 1, Integer::sum);
+			return Promise.of(response(query, 1, "10.0.0.1"));
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	@Test
+	public void testRefreshAhead() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		CachedAsyncDnsClient client = CachedAsyncDnsClient.create(eventloop, remoteClient)
+				.withRefreshAhead(Duration.ofMillis(900), 2);
+
+		await(client.resolve4("hot.com"));
+		await(client.resolve4("hot.com"));
+		await(client.resolve4("hot.com"));
+		await(client.resolve4("cold.com"));
+		assertEquals(2, client.getCacheHits());
+		assertEquals(2, client.getCacheMisses());
+
+		await(Promises.delay(Duration.ofMillis(600)));
+
+		assertEquals(2, (int) resolves.get("hot.com"));
+		assertEquals(1, (int) resolves.get("cold.com"));
+		assertEquals(1, client.getRefreshesAhead());
+
+		await(client.resolve4("hot.com"));
+		assertEquals(1, client.getRefreshedAheadHits());
+		assertEquals(1.0 / 3, client.getRefreshAheadHitRatio(), 1e-9);
+		client.close();
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		Path file = tmpFolder.getRoot().toPath().resolve("dns.snapshot");
+
+		DnsCache cache = DnsCache.create(eventloop);
+		DnsQuery ipv4 = DnsQuery.ipv4("example.com");
+		DnsQuery ipv6 = DnsQuery.ipv6("example.com");
+		DnsQuery failed = DnsQuery.ipv4("failed.com");
+		cache.add(ipv4, response(ipv4, 60, "10.0.0.1", "10.0.0.2"));
+		cache.add(ipv6, response(ipv6, 60, "::1"));
+		cache.add(failed, DnsResponse.ofFailure(DnsTransaction.of((short) 0, failed), SERVER_FAILURE));
+		assertEquals(2, cache.saveSnapshot(file));
+
+		DnsCache restored = DnsCache.create(eventloop);
+		assertEquals(2, restored.loadSnapshot(file));
+		assertNull(restored.tryToResolve(failed));
+
+		DnsQueryCacheResult result = restored.tryToResolve(ipv4);
+		assertNotNull(result);
+		assertFalse(result.doesNeedRefreshing());
+		assertEquals(response(ipv4, 60, "10.0.0.1", "10.0.0.2"), await(result.getResponseAsPromise()));
+
+		result = restored.tryToResolve(ipv6);
+		assertNotNull(result);
+		assertEquals(response(ipv6, 60, "::1"), await(result.getResponseAsPromise()));
+	}
+
+	@Test
+	public void testWarmStart() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		Path file = tmpFolder.getRoot().toPath().resolve("dns.snapshot");
+
+		CachedAsyncDnsClient client = CachedAsyncDnsClient.create(eventloop, remoteClient)
+				.withSnapshot(Executors.newSingleThreadExecutor(), file, Duration.ofMinutes(1));
+		DnsQuery query = DnsQuery.ipv4("example.com");
+		client.getCache().add(query, response(query, 60, "10.0.0.1"));
+		await(client.saveSnapshot());
+
+		CachedAsyncDnsClient restarted = CachedAsyncDnsClient.create(eventloop, remoteClient)
+				.withSnapshot(Executors.newSingleThreadExecutor(), file, Duration.ofMinutes(1));
+		assertEquals(1, restarted.getCachedDomainNamesCount());
+		await(restarted.resolve4("example.com"));
+		assertNull(resolves.get("example.com"));
+		assertEquals(1, restarted.getCacheHits());
+	}
+
+	private static DnsResponse response(DnsQuery query, int ttl, String... ips) {
+		InetAddress[] addresses = new InetAddress[ips.length];
+		for (int i = 0; i < ips.length; i++) {
+			try {
+				addresses[i] = InetAddress.getByName(ips[i]);
+			} catch (UnknownHostException e) {
+				throw new AssertionError(e);
+			}
+		}
+		return DnsResponse.of(DnsTransaction.of((short) 0, query), DnsResourceRecord.of(addresses, ttl));
+	}
+}
@@ -0,0 +1,113 @@
+package io.activej.http;
+
+import io.activej.common.ref.RefInt;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static org.junit.Assert.*;
+
+public final class AdmissionControllerTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	@Test
+	public void testFixedLimit() {
+		AdmissionController controller = AdmissionController.create(Eventloop.getCurrentEventloop(), 2);
+
+		assertTrue(controller.tryAcquire());
+		assertTrue(controller.tryAcquire());
+		assertFalse(controller.tryAcquire());
+		controller.release(1_000_000);
+		assertTrue(controller.tryAcquire());
+
+		assertEquals(2, controller.getLimit());
+		assertEquals(2, controller.getInFlight());
+		assertEquals(3, controller.getAdmitted());
+		assertEquals(1, controller.getRejected());
+	}
+
+	@Test
+	public void testAdaptiveLimit() {
+		AdmissionController controller = AdmissionController.create(Eventloop.getCurrentEventloop(), 16)
+				.withAdaptiveLimit(4, 100)
+				.withWindowSize(10);
+
+		// the limit is fully used while latency is steady
+		for (int i = 0; i < 20; i++) {
+			runConcurrently(controller, 1_000_000);
+		}
+		int grownLimit = controller.getLimit();
+		assertTrue(grownLimit > 16);
+
+		// latency grows by an order of magnitude as requests are queued
+		for (int i = 0; i < 5; i++) {
+			runConcurrently(controller, 10_000_000);
+		}
+		assertTrue(controller.getLimit() < grownLimit);
+		assertEquals(10.0, controller.getShortLatency(), 1e-9);
+
+		// an underused limit is not raised
+		int limit = controller.getLimit();
+		for (int i = 0; i < 100; i++) {
+			assertTrue(controller.tryAcquire());
+			controller.release(10_000_000);
+		}
+		assertEquals(limit, controller.getLimit());
+		assertEquals(0, controller.getInFlight());
+	}
+
+	@Test
+	public void testServerShedsRequests() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		int port = getFreePort();
+		String url = "http://127.0.0.1:" + port;
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop);
+		AdmissionController controller = AdmissionController.create(eventloop, 1);
+
+		// the second request is sent while the first one is being served
+		RefInt secondCode = new RefInt(0);
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> request.getPath().equals("/second") ?
+						Promise.of(HttpResponse.ok200()) :
+						Promise.ofCallback(cb -> client.request(HttpRequest.get(url + "/second"))
+								.whenComplete((response, e) -> {
+									secondCode.set(e == null ? response.getCode() : -1);
+									cb.set(HttpResponse.ok200());
+								})))
+				.withAdmissionController(controller)
+				.withListenPort(port);
+		server.listen();
+
+		int firstCode = await(client.request(HttpRequest.get(url + "/first"))
+				.map(HttpResponse::getCode)
+				.whenComplete(server::close));
+
+		assertEquals(200, firstCode);
+		assertEquals(503, secondCode.get());
+		assertEquals(1, controller.getAdmitted());
+		assertEquals(1, controller.getRejected());
+		assertEquals(0, controller.getInFlight());
+	}
+
+	private static void runConcurrently(AdmissionController controller, long latencyNanos) {
+		int limit = controller.getLimit();
+		for (int i = 0; i < limit; i++) {
+			assertTrue(controller.tryAcquire());
+		}
+		assertFalse(controller.tryAcquire());
+		for (int i = 0; i < limit; i++) {
+			controller.release(latencyNanos);
+		}
+	}
+}
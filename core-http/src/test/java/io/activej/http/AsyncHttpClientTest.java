@@ -6,6 +6,7 @@ import io.activej.common.exception.AsyncTimeoutException;
 import io.activej.common.exception.parse.InvalidSizeException;
 import io.activej.common.exception.parse.UnknownFormatException;
 import io.activej.common.ref.Ref;
+import io.activej.common.ref.RefInt;
 import io.activej.csp.ChannelSupplier;
 import io.activej.csp.binary.BinaryChannelSupplier;
 import io.activej.csp.binary.ByteBufsDecoder;
@@ -44,6 +45,7 @@ import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
 import static io.activej.test.TestUtils.*;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.*;
 
@@ -286,6 +288,103 @@ public final class AsyncHttpClientTest {
 		assertEquals(200, code);
 	}
 
+	@Test
+	public void testMaxConnectionsPerAddress() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		RefInt serving = new RefInt(0);
+		RefInt maxServing = new RefInt(0);
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					maxServing.set(Math.max(maxServing.get(), serving.inc()));
+					return Promises.delay(10, HttpResponse.ok200().withBody(encodeAscii(request.getUrl().getPathAndQuery())))
+							.whenComplete(serving::dec);
+				})
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withMaxConnectionsPerAddress(2)
+				.withInspector(inspector);
+
+		List<String> bodies = await(Promises.toList(IntStream.range(0, 6)
+				.mapToObj(i -> client.request(HttpRequest.get("http://127.0.0.1:" + PORT + "/" + i))
+						.then(response -> response.loadBody()
+								.map(body -> body.getString(UTF_8)))))
+				.whenComplete(() -> {
+					assertEquals(0, client.getPendingRequestsCount());
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(asList("/0", "/1", "/2", "/3", "/4", "/5"), bodies);
+		assertEquals(2, maxServing.get());
+		assertEquals(4, inspector.getQueued().getTotalCount());
+	}
+
+	@Test
+	public void testQueueTimeout() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		SettablePromise<HttpResponse> response = new SettablePromise<>();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> response)
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withMaxConnectionsPerAddress(1)
+				.withQueueTimeout(Duration.ofMillis(20))
+				.withInspector(inspector);
+
+		Promise<HttpResponse> first = client.request(HttpRequest.get("http://127.0.0.1:" + PORT));
+		Exception e = awaitException(client.request(HttpRequest.get("http://127.0.0.1:" + PORT))
+				.whenComplete(() -> {
+					assertEquals(0, client.getPendingRequestsCount());
+					server.close();
+					response.set(HttpResponse.ok200());
+				}));
+
+		assertSame(AsyncHttpClient.QUEUE_TIMEOUT_ERROR, e);
+		assertEquals(200, first.getResult().getCode());
+		assertEquals(1, inspector.getQueueTimeouts().getTotalCount());
+		assertEquals(0, inspector.getActiveRequests());
+	}
+
+	@Test
+	public void testPipeliningOverKeepAliveConnection() throws IOException {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> HttpResponse.ok200().withBody(encodeAscii(request.getUrl().getPathAndQuery())))
+				.withListenPort(PORT);
+		server.listen();
+
+		JmxInspector inspector = new JmxInspector();
+		AsyncHttpClient client = AsyncHttpClient.create(eventloop)
+				.withKeepAliveTimeout(Duration.ofSeconds(30))
+				.withPipelining(4)
+				.withInspector(inspector);
+
+		String url = "http://127.0.0.1:" + PORT;
+		List<String> bodies = await(client.request(HttpRequest.get(url + "/warmup"))
+				.then(response -> response.loadBody().async())
+				.then(() -> Promises.toList(IntStream.range(0, 3)
+						.mapToObj(i -> client.request(HttpRequest.get(url + "/" + i))
+								.then(response -> response.loadBody()
+										.map(body -> body.getString(UTF_8))))))
+				.whenComplete(() -> {
+					server.close();
+					client.stop();
+				}));
+
+		assertEquals(asList("/0", "/1", "/2"), bodies);
+		assertEquals(2, inspector.getPipelined().getTotalCount());
+	}
+
 	@Test
 	public void testResponseWithoutReasonPhrase() throws IOException {
 		ByteBuf req = ByteBuf.wrapForReading(encodeAscii("HTTP/1.1 200\n" +
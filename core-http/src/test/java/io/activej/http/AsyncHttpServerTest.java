@@ -2,6 +2,7 @@ package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.ref.RefInt;
 import io.activej.csp.ChannelSupplier;
 import io.activej.eventloop.Eventloop;
 import io.activej.promise.Promise;
@@ -284,6 +285,25 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testPipeliningConcurrentRequests() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		RefInt serving = new RefInt(0);
+		RefInt maxServing = new RefInt(0);
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					maxServing.set(Math.max(maxServing.get(), serving.inc()));
+					return Promises.delay(RANDOM.nextInt(3),
+							HttpResponse.ok200().withBody(encodeAscii(request.getUrl().getPathAndQuery())))
+							.whenComplete(serving::dec);
+				})
+				.withMaxPipelineDepth(4);
+		doTestPipelining(eventloop, server, port);
+		assertTrue(maxServing.get() > 1);
+		assertTrue(maxServing.get() <= 4);
+	}
+
 	@Test
 	@Ignore("does not work")
 	public void testPipelining2() throws Exception {
@@ -394,6 +414,47 @@ public final class AsyncHttpServerTest {
 		thread.join();
 	}
 
+	@Test
+	public void testManyHeaders() throws Exception {
+		Eventloop eventloop = Eventloop.create().withFatalErrorHandler(rethrowOnAnyError()).withCurrentThread();
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(eventloop,
+				request -> {
+					StringBuilder sb = new StringBuilder();
+					for (int i = 0; i < 20; i++) {
+						sb.append(request.getHeader(HttpHeaders.of("X-Header-" + i)));
+					}
+					sb.append(request.getHeader(HttpHeaders.of("X-Folded")));
+					return HttpResponse.ok200().withBody(encodeAscii(sb.toString()));
+				})
+				.withListenPort(port);
+
+		server.listen();
+		Thread thread = new Thread(eventloop);
+		thread.start();
+
+		Socket socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.connect(new InetSocketAddress("localhost", port));
+
+		StringBuilder request = new StringBuilder("GET /abc HTTP/1.0\r\nHost: localhost\r\n");
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			request.append("x-header-").append(i).append(":  ").append((char) ('a' + i)).append("\r\n");
+			expected.append((char) ('a' + i));
+		}
+		request.append("X-Folded: first,\r\n second\r\n\r\n");
+		expected.append("first,   second");
+		writeByRandomParts(socket, request.toString());
+		readAndAssert(socket.getInputStream(), "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: " + expected.length() + "\r\n\r\n" + expected);
+
+		assertEquals(0, toByteArray(socket.getInputStream()).length);
+		socket.close();
+
+		server.closeFuture().get();
+		thread.join();
+	}
+
 	@Test
 	public void testBodyRecycledOnce() throws IOException, InterruptedException {
 		int port = getFreePort();
@@ -0,0 +1,260 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.bytebuf.ByteBufPool;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.csp.ChannelSupplier;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static io.activej.bytebuf.ByteBufStrings.decodeAscii;
+import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.nCopies;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public final class Http2Test {
+	private static final String KEYSTORE_PATH = "./src/test/resources/keystore.jks";
+	private static final String TRUSTSTORE_PATH = "./src/test/resources/truststore.jks";
+	private static final String PASSWORD = "testtest";
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	// RFC 7541, C.4. Request Examples with Huffman Coding
+	@Test
+	public void testHpackRequestExamples() throws ParseException {
+		Hpack.Encoder encoder = new Hpack.Encoder();
+		Hpack.Decoder decoder = new Hpack.Decoder(Hpack.DEFAULT_HEADER_TABLE_SIZE);
+
+		ByteBuf first = ByteBufPool.allocate(64);
+		encoder.startBlock(first);
+		encoder.encode(first, encodeAscii(":method"), encodeAscii("GET"), false);
+		encoder.encode(first, encodeAscii(":scheme"), encodeAscii("http"), false);
+		encoder.encode(first, encodeAscii(":path"), encodeAscii("/"), false);
+		encoder.encode(first, encodeAscii(":authority"), encodeAscii("www.example.com"), false);
+		assertEquals("828684418cf1e3c2e5f23a6ba0ab90f4ff", toHex(first));
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com"),
+				decode(decoder, first));
+
+		ByteBuf second = ByteBufPool.allocate(64);
+		encoder.startBlock(second);
+		encoder.encode(second, encodeAscii(":method"), encodeAscii("GET"), false);
+		encoder.encode(second, encodeAscii(":scheme"), encodeAscii("http"), false);
+		encoder.encode(second, encodeAscii(":path"), encodeAscii("/"), false);
+		encoder.encode(second, encodeAscii(":authority"), encodeAscii("www.example.com"), false);
+		encoder.encode(second, encodeAscii("cache-control"), encodeAscii("no-cache"), false);
+		assertEquals("828684be5886a8eb10649cbf", toHex(second));
+		assertEquals(asList(":method", "GET", ":scheme", "http", ":path", "/", ":authority", "www.example.com",
+				"cache-control", "no-cache"),
+				decode(decoder, second));
+	}
+
+	@Test
+	public void testHuffmanRoundTrip() throws ParseException {
+		Random random = new Random(0);
+		for (int i = 0; i < 1000; i++) {
+			byte[] bytes = new byte[random.nextInt(100)];
+			random.nextBytes(bytes);
+			ByteBuf encoded = ByteBufPool.allocate(Hpack.huffmanEncodedLength(bytes));
+			Hpack.huffmanEncode(encoded, bytes);
+			assertEquals(Hpack.huffmanEncodedLength(bytes), encoded.readRemaining());
+			assertArrayEquals(bytes, Hpack.huffmanDecode(encoded.array(), encoded.head(), encoded.readRemaining()));
+			encoded.recycle();
+		}
+	}
+
+	@Test
+	public void testConcurrentRequests() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> Promise.ofCallback(cb -> Eventloop.getCurrentEventloop().delay(10,
+						() -> cb.set(HttpResponse.ok200().withPlainText(request.getPath())))))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		// more requests than the default limit of concurrent streams
+		int requests = AbstractHttp2Connection.MAX_CONCURRENT_STREAMS * 3 / 2;
+		List<String> bodies = await(Promises.toList(IntStream.range(0, requests)
+				.mapToObj(i -> client.request(HttpRequest.get("http://127.0.0.1:" + port + "/" + i))
+						.then(response -> {
+							assertEquals(200, response.getCode());
+							return response.loadBody();
+						})
+						.map(body -> body.getString(UTF_8))))
+				.whenComplete(server::close));
+
+		assertEquals(IntStream.range(0, requests).mapToObj(i -> "/" + i).collect(toList()), bodies);
+	}
+
+	@Test
+	public void testStreamingBodies() throws IOException {
+		int port = getFreePort();
+		// larger than the flow control windows
+		byte[] bytes = new byte[AbstractHttp2Connection.CONNECTION_WINDOW_SIZE.toInt() * 3];
+		new Random(0).nextBytes(bytes);
+
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200()
+						.withHeader(HttpHeaders.of("X-Request-Header"), request.getHeader(HttpHeaders.of("X-Request-Header")))
+						.withBodyStream(request.getBodyStream()))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		byte[] body = await(client.request(HttpRequest.post("http://127.0.0.1:" + port + "/echo")
+				.withHeader(HttpHeaders.of("X-Request-Header"), "value")
+				.withBodyStream(ChannelSupplier.ofStream(IntStream.range(0, 3)
+						.mapToObj(i -> ByteBuf.wrap(bytes, i * bytes.length / 3, (i + 1) * bytes.length / 3)))))
+				.then(response -> {
+					assertEquals("value", response.getHeader(HttpHeaders.of("X-Request-Header")));
+					return response.loadBody(bytes.length);
+				})
+				.map(ByteBuf::getArray)
+				.whenComplete(server::close));
+
+		assertArrayEquals(bytes, body);
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		int port = getFreePort();
+		String text = String.join(" ", nCopies(1000, "Hello, World!"));
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200().withBodyGzipCompression().withPlainText(text))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withHttp2(true);
+
+		String body = await(client.request(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(response -> response.loadBody())
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(server::close));
+
+		assertEquals(text, body);
+	}
+
+	@Test
+	public void testHttp1WhenHttp2Enabled() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200().withPlainText("Hello"))
+				.withListenPort(port)
+				.withHttp2(true);
+		server.listen();
+
+		String body = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(response -> response.loadBody())
+				.map(buf -> buf.getString(UTF_8))
+				.whenComplete(server::close));
+
+		assertEquals("Hello", body);
+	}
+
+	@Test
+	public void testSsl() throws IOException {
+		int port = getFreePort();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> HttpResponse.ok200().withPlainText(request.getPath()))
+				.withSslListenAddress(createSslContext(), executor, new InetSocketAddress(port))
+				.withHttp2(true);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withSslEnabled(createSslContext(), executor)
+				.withHttp2(true);
+
+		List<String> bodies = await(Promises.toList(IntStream.range(0, 10)
+				.mapToObj(i -> client.request(HttpRequest.get("https://127.0.0.1:" + port + "/" + i))
+						.then(response -> response.loadBody())
+						.map(buf -> buf.getString(UTF_8))))
+				.whenComplete(server::close)
+				.whenComplete(executor::shutdown));
+
+		assertEquals(IntStream.range(0, 10).mapToObj(i -> "/" + i).collect(toList()), bodies);
+	}
+
+	private static List<String> decode(Hpack.Decoder decoder, ByteBuf block) throws ParseException {
+		List<String> fields = new ArrayList<>();
+		decoder.decode(block, (name, value) -> {
+			fields.add(decodeAscii(name));
+			fields.add(decodeAscii(value));
+		});
+		block.recycle();
+		return fields;
+	}
+
+	private static String toHex(ByteBuf buf) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = buf.head(); i < buf.tail(); i++) {
+			sb.append(String.format("%02x", buf.at(i)));
+		}
+		return sb.toString();
+	}
+
+	private static SSLContext createSslContext() {
+		try {
+			SSLContext instance = SSLContext.getInstance("TLSv1.2");
+
+			KeyStore keyStore = KeyStore.getInstance("JKS");
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+			try (InputStream input = new FileInputStream(new File(KEYSTORE_PATH))) {
+				keyStore.load(input, PASSWORD.toCharArray());
+			}
+			kmf.init(keyStore, PASSWORD.toCharArray());
+
+			KeyStore trustStore = KeyStore.getInstance("JKS");
+			TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			try (InputStream input = new FileInputStream(new File(TRUSTSTORE_PATH))) {
+				trustStore.load(input, PASSWORD.toCharArray());
+			}
+			tmf.init(trustStore);
+
+			instance.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new SecureRandom());
+			return instance;
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package io.activej.http;
+
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static io.activej.http.HttpHeaders.*;
+import static io.activej.promise.TestUtils.await;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.nCopies;
+import static org.junit.Assert.*;
+
+public final class HttpCompressionTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	private static final String JSON = "[" + String.join(",", nCopies(100, "{\"id\":12345,\"name\":\"test\"}")) + "]";
+
+	@Test
+	public void testNegotiate() {
+		HttpCompression compression = HttpCompression.create(ContentEncoder.GZIP, ContentEncoder.DEFLATE);
+
+		assertSame(ContentEncoder.GZIP, compression.negotiate("gzip, deflate, br"));
+		assertSame(ContentEncoder.GZIP, compression.negotiate("deflate, GZIP"));
+		assertSame(ContentEncoder.DEFLATE, compression.negotiate("gzip;q=0.5, deflate"));
+		assertSame(ContentEncoder.DEFLATE, compression.negotiate("br, deflate;q=0.1"));
+		assertSame(ContentEncoder.GZIP, compression.negotiate("*"));
+		assertSame(ContentEncoder.DEFLATE, compression.negotiate("gzip;q=0, *;q=0.3"));
+		assertNull(compression.negotiate("gzip;q=0, deflate;q=0"));
+		assertNull(compression.negotiate("identity"));
+		assertNull(compression.negotiate(""));
+		assertNull(compression.negotiate(null));
+	}
+
+	@Test
+	public void testAdaptiveLevel() {
+		HttpCompression compression = HttpCompression.create()
+				.withAdaptiveLevel(0.5);
+
+		assertEquals(6, compression.getLevel(ContentEncoder.GZIP, 0.0));
+		assertEquals(6, compression.getLevel(ContentEncoder.GZIP, 0.5));
+		assertEquals(4, compression.getLevel(ContentEncoder.GZIP, 0.7));
+		assertEquals(1, compression.getLevel(ContentEncoder.GZIP, 1.0));
+
+		assertEquals(6, HttpCompression.create().getLevel(ContentEncoder.GZIP, 1.0));
+	}
+
+	@Test
+	public void testServerCompression() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				request -> request.getPath().equals("/small") ?
+						HttpResponse.ok200().withJson("{}") :
+						HttpResponse.ok200().withJson(JSON))
+				.withCompression(HttpCompression.create()
+						.withMinSize(MemSize.bytes(100)))
+				.withListenPort(port);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop());
+		String url = "http://127.0.0.1:" + port;
+
+		List<Response> responses = await(Promises.toList(
+				request(client, HttpRequest.get(url)
+						.withHeader(ACCEPT_ENCODING, "gzip, deflate")),
+				request(client, HttpRequest.get(url)
+						.withHeader(ACCEPT_ENCODING, "gzip;q=0.5, deflate")),
+				request(client, HttpRequest.get(url)),
+				request(client, HttpRequest.get(url + "/small")
+						.withHeader(ACCEPT_ENCODING, "gzip")))
+				.whenComplete(server::close));
+
+		// gzip is decoded by the client
+		Response gzipped = responses.get(0);
+		assertEquals("gzip", gzipped.contentEncoding);
+		assertEquals("Accept-Encoding", gzipped.vary);
+		assertEquals(JSON, gzipped.body);
+
+		Response deflated = responses.get(1);
+		assertEquals("deflate", deflated.contentEncoding);
+		assertEquals(JSON, deflated.body);
+
+		Response identity = responses.get(2);
+		assertNull(identity.contentEncoding);
+		assertEquals("Accept-Encoding", identity.vary);
+		assertEquals(JSON, identity.body);
+
+		Response small = responses.get(3);
+		assertNull(small.contentEncoding);
+		assertNull(small.vary);
+		assertEquals("{}", small.body);
+
+		assertEquals(2, server.getCompressedResponses());
+	}
+
+	private static Promise<Response> request(AsyncHttpClient client, HttpRequest request) {
+		return client.request(request)
+				.then(response -> response.loadBody()
+						.map(body -> {
+							String contentEncoding = response.getHeader(CONTENT_ENCODING);
+							String text = "deflate".equals(contentEncoding) ?
+									inflate(body.getArray()) :
+									body.getString(UTF_8);
+							return new Response(contentEncoding, response.getHeader(VARY), text);
+						}));
+	}
+
+	private static String inflate(byte[] bytes) {
+		Inflater inflater = new Inflater();
+		inflater.setInput(bytes);
+		byte[] result = new byte[JSON.length() * 2];
+		try {
+			int size = inflater.inflate(result);
+			assertTrue(inflater.finished());
+			return new String(result, 0, size, UTF_8);
+		} catch (DataFormatException e) {
+			throw new AssertionError(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static final class Response {
+		final String contentEncoding;
+		final String vary;
+		final String body;
+
+		Response(String contentEncoding, String vary, String body) {
+			this.contentEncoding = contentEncoding;
+			this.vary = vary;
+			this.body = body;
+		}
+	}
+}
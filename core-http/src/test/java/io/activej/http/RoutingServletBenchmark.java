@@ -0,0 +1,91 @@
+package io.activej.http;
+
+import io.activej.promise.Promise;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.activej.http.HttpMethod.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Threads(1)
+public class RoutingServletBenchmark {
+	private static final int RESOURCES = 200;
+
+	private static final Promise<HttpResponse> RESPONSE = Promise.of(HttpResponse.ok200());
+	private static final AsyncServlet SERVLET = request -> RESPONSE;
+
+	private RoutingServlet routingServlet;
+	private CompiledRoutingServlet compiledServlet;
+
+	private HttpRequest[] requests;
+	private int[] positions;
+
+	@Setup
+	public void setup() {
+		// 10 routes per resource, 2000 routes in total
+		routingServlet = RoutingServlet.create();
+		for (int i = 0; i < RESOURCES; i++) {
+			String resource = "/api/v1/resource" + i;
+			routingServlet
+					.map(GET, resource, SERVLET)
+					.map(POST, resource, SERVLET)
+					.map(GET, resource + "/:id", SERVLET)
+					.map(PUT, resource + "/:id", SERVLET)
+					.map(DELETE, resource + "/:id", SERVLET)
+					.map(GET, resource + "/:id/items", SERVLET)
+					.map(GET, resource + "/:id/items/:itemId", SERVLET)
+					.map(GET, resource + "/search/recent", SERVLET)
+					.map(GET, resource + "/search/popular", SERVLET)
+					.map(resource + "/static/*", SERVLET);
+		}
+		compiledServlet = routingServlet.compile();
+
+		requests = new HttpRequest[]{
+				HttpRequest.get("http://example.com/api/v1/resource17"),
+				HttpRequest.get("http://example.com/api/v1/resource42/12345"),
+				HttpRequest.get("http://example.com/api/v1/resource199/12345/items/678"),
+				HttpRequest.get("http://example.com/api/v1/resource73/search/popular"),
+				HttpRequest.get("http://example.com/api/v1/resource101/static/css/main.css"),
+				HttpRequest.get("http://example.com/api/v1/resource7/12345/unknown"),
+		};
+		positions = new int[requests.length];
+		for (int i = 0; i < requests.length; i++) {
+			positions[i] = requests[i].getPos();
+		}
+	}
+
+	@Benchmark
+	public void routingServlet(Blackhole bh) {
+		for (int i = 0; i < requests.length; i++) {
+			requests[i].setPos(positions[i]);
+			bh.consume(routingServlet.serve(requests[i]));
+		}
+	}
+
+	@Benchmark
+	public void compiledRoutingServlet(Blackhole bh) {
+		for (int i = 0; i < requests.length; i++) {
+			requests[i].setPos(positions[i]);
+			bh.consume(compiledServlet.serve(requests[i]));
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(RoutingServletBenchmark.class.getSimpleName())
+				.warmupIterations(3)
+				.measurementIterations(5)
+				.build();
+
+		new Runner(opt).run();
+	}
+}
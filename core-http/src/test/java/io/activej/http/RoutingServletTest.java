@@ -8,6 +8,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.TreeMap;
+
 import static io.activej.bytebuf.ByteBufStrings.wrapUtf8;
 import static io.activej.http.HttpMethod.*;
 import static io.activej.test.TestUtils.assertComplete;
@@ -343,4 +345,46 @@ public final class RoutingServletTest {
 		check(main.serve(HttpRequest.get(TEMPLATE + "/method/yumgn?query=string")), "Success: ", 200);
 		check(main.serve(HttpRequest.get(TEMPLATE + "/method/yumgn/first?query=string")), "Success: first", 200);
 	}
+
+	@Test
+	public void testCompiled() {
+		AsyncServlet printParameters = request -> HttpResponse.ofCode(200)
+				.withBody(wrapUtf8(new TreeMap<>(request.getPathParameters()) + " " + request.getRelativePath()));
+
+		CompiledRoutingServlet compiled = RoutingServlet.create()
+				.map(GET, "/", printParameters)
+				.map(GET, "/users", printParameters)
+				.map(GET, "/user", printParameters)
+				.map(GET, "/usage/:id", printParameters)
+				.map(POST, "/users/:id/orders", printParameters)
+				.map(GET, "/users/:id/orders/:oid", printParameters)
+				.map(GET, "/users/admin/orders", printParameters)
+				.map("/static/*", printParameters)
+				.compile();
+
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/")), "{} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users")), "{} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/user")), "{} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/use")), "", 404);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/usersx")), "", 404);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/usage/42")), "{id=42} ", 200);
+		check(compiled.serve(HttpRequest.post(TEMPLATE + "/users/42/orders")), "{id=42} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users/42/orders")), "", 404);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users/42/orders/7")), "{id=42, oid=7} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users/admin/orders")), "{} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users/admin/orders/7")), "{id=admin, oid=7} ", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/users/a%20b/orders/7")), "{id=a b, oid=7} ", 200);
+		check(compiled.serve(HttpRequest.post(TEMPLATE + "/static/css/main.css")), "{} css/main.css", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/static")), "{} ", 200);
+	}
+
+	@Test
+	public void testCompiledShadowedParameter() {
+		CompiledRoutingServlet compiled = RoutingServlet.create()
+				.map(GET, "/:id/a/:id", request -> HttpResponse.ofCode(200).withBody(wrapUtf8(request.getPathParameter("id"))))
+				.compile();
+
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/first/a/second")), "second", 200);
+		check(compiled.serve(HttpRequest.get(TEMPLATE + "/first/b/second")), "", 404);
+	}
 }
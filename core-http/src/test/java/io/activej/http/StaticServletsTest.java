@@ -1,7 +1,11 @@
 package io.activej.http;
 
 import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.common.exception.parse.ParseException;
+import io.activej.eventloop.Eventloop;
 import io.activej.http.loader.StaticLoader;
+import io.activej.http.loader.StaticResourceCache;
 import io.activej.test.rules.ByteBufRule;
 import io.activej.test.rules.EventloopRule;
 import org.junit.BeforeClass;
@@ -14,15 +18,19 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static io.activej.bytebuf.ByteBufStrings.encodeAscii;
 import static io.activej.http.loader.StaticLoader.ofClassPath;
 import static io.activej.http.loader.StaticLoader.ofPath;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.Executors.newCachedThreadPool;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 public final class StaticServletsTest {
 	public static final String EXPECTED_CONTENT = "Test";
@@ -113,4 +121,85 @@ public final class StaticServletsTest {
 
 		assertEquals(404, e.getCode());
 	}
+
+	@Test
+	public void testPathLoaderOverNetwork() throws IOException {
+		byte[] data = new byte[1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(data);
+		Files.write(resourcesPath.resolve("large.bin"), data);
+
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				StaticServlet.create(ofPath(newCachedThreadPool(), resourcesPath)))
+				.withListenPort(port)
+				.withAcceptOnce();
+		server.listen();
+
+		byte[] body = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port + "/large.bin"))
+				.then(response -> {
+					assertEquals(String.valueOf(data.length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+					return response.loadBody();
+				})
+				.map(ByteBuf::getArray)
+				.whenComplete(server::close));
+
+		assertArrayEquals(data, body);
+	}
+
+	@Test
+	public void testCachedLoaderRevalidation() {
+		StaticResourceCache cache = ofPath(newCachedThreadPool(), resourcesPath).cached(MemSize.kilobytes(1));
+		StaticServlet staticServlet = StaticServlet.create(cache);
+
+		HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+		assertEquals(EXPECTED_CONTENT, response.getBody().asString(UTF_8));
+		String etag = response.getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+		assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+
+		HttpResponse notModified = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, etag)));
+		assertEquals(304, notModified.getCode());
+		assertEquals(etag, notModified.getHeader(HttpHeaders.ETAG));
+
+		HttpResponse modified = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")
+				.withHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"")));
+		assertEquals(200, modified.getCode());
+		assertEquals(EXPECTED_CONTENT, modified.getBody().asString(UTF_8));
+
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testCachedLoaderGzip() throws ParseException {
+		StaticResourceCache cache = ofPath(newCachedThreadPool(), resourcesPath).cached(MemSize.kilobytes(1));
+		StaticServlet staticServlet = StaticServlet.create(cache)
+				.withResponse(() -> HttpResponse.ok200().withBodyGzipCompression());
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse response = await(staticServlet.serve(HttpRequest.get("http://test.com:8080/index.html")));
+			assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+			assertEquals(EXPECTED_CONTENT, GzipProcessorUtils.fromGzip(response.getBody(), 1024).asString(UTF_8));
+		}
+
+		assertEquals(1, cache.getCompressions());
+	}
+
+	@Test
+	public void testCachedLoaderEviction() throws IOException {
+		Files.write(resourcesPath.resolve("a.bin"), new byte[600]);
+		Files.write(resourcesPath.resolve("b.bin"), new byte[600]);
+		StaticResourceCache cache = ofPath(newCachedThreadPool(), resourcesPath).cached(MemSize.kilobytes(1));
+
+		await(cache.load("a.bin")).recycle();
+		await(cache.load("b.bin")).recycle();
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.getResourcesCount());
+		assertEquals(600, cache.getSize());
+
+		await(cache.load("b.bin")).recycle();
+		assertEquals(1, cache.getHits());
+	}
 }
@@ -0,0 +1,198 @@
+package io.activej.http;
+
+import io.activej.bytebuf.ByteBuf;
+import io.activej.common.MemSize;
+import io.activej.eventloop.Eventloop;
+import io.activej.http.WebSocket.Message;
+import io.activej.test.rules.ByteBufRule;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static io.activej.test.TestUtils.getFreePort;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public final class WebSocketTest {
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@ClassRule
+	public static final ByteBufRule byteBufRule = new ByteBufRule();
+
+	// RFC 6455, section 1.3
+	@Test
+	public void testAcceptKey() {
+		assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketImpl.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+	}
+
+	@Test
+	public void testMaskIsInvolution() {
+		Random random = new Random(0);
+		for (int size = 0; size < 20; size++) {
+			byte[] bytes = new byte[size];
+			random.nextBytes(bytes);
+			ByteBuf buf = ByteBuf.wrapForReading(bytes.clone());
+			int mask = random.nextInt();
+			WebSocketImpl.mask(buf, mask);
+			for (int i = 0; i < size; i++) {
+				assertEquals(bytes[i] ^ (byte) (mask >>> (24 - 8 * (i % 4))), buf.at(i));
+			}
+			WebSocketImpl.mask(buf, mask);
+			assertArrayEquals(bytes, buf.asArray());
+		}
+	}
+
+	@Test
+	public void testEchoTextMessages() throws IOException {
+		List<String> messages = IntStream.range(0, 100).mapToObj(i -> "message " + i).collect(toList());
+
+		assertEquals(messages, echo(false, false, messages));
+	}
+
+	@Test
+	public void testEchoDeflatedMessages() throws IOException {
+		List<String> messages = IntStream.range(0, 100)
+				.mapToObj(i -> IntStream.range(0, i * 10).mapToObj(String::valueOf).collect(joining(",")))
+				.collect(toList());
+
+		assertEquals(messages, echo(true, true, messages));
+		assertEquals(messages, echo(true, false, messages));
+		assertEquals(messages, echo(false, true, messages));
+	}
+
+	@Test
+	public void testLargeBinaryMessage() throws IOException {
+		byte[] bytes = new byte[300_000];
+		new Random(0).nextBytes(bytes);
+
+		int port = getFreePort();
+		AsyncHttpServer server = echoServer(port, false);
+		server.listen();
+
+		byte[] received = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.webSocketRequest(HttpRequest.get("http://127.0.0.1:" + port + "/echo"))
+				.then(webSocket -> webSocket.writeMessage(Message.binary(ByteBuf.wrapForReading(bytes.clone())))
+						.then(webSocket::readMessage)
+						.then(message -> {
+							assertEquals(Message.MessageType.BINARY, message.getType());
+							byte[] array = message.getBuf().asArray();
+							return webSocket.writeMessage(null)
+									.then(webSocket::readMessage)
+									.map(end -> {
+										assertNull(end);
+										return array;
+									});
+						}))
+				.whenComplete(server::close));
+
+		assertArrayEquals(bytes, received);
+	}
+
+	@Test
+	public void testTooBigMessage() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				WebSocketServlet.create(echo())
+						.withMaxMessageSize(MemSize.kilobytes(1)))
+				.withListenPort(port);
+		server.listen();
+
+		Throwable e = awaitException(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.webSocketRequest(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(webSocket -> webSocket.writeMessage(Message.binary(ByteBuf.wrapForReading(new byte[2000])))
+						.then(webSocket::readMessage))
+				.whenComplete(server::close));
+
+		assertTrue(e instanceof WebSocketException);
+		assertEquals(WebSocketImpl.CLOSE_MESSAGE_TOO_BIG, ((WebSocketException) e).getCode());
+	}
+
+	@Test
+	public void testCloseWithCode() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				RoutingServlet.create()
+						.mapWebSocket("/", webSocket -> webSocket.readMessage()
+								.whenResult(message -> {
+									message.recycle();
+									webSocket.closeEx(new WebSocketException(WebSocketTest.class, 4000, "Bye"));
+								})))
+				.withListenPort(port);
+		server.listen();
+
+		Throwable e = awaitException(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.webSocketRequest(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(webSocket -> webSocket.writeMessage(Message.text("Hello"))
+						.then(webSocket::readMessage))
+				.whenComplete(server::close));
+
+		assertTrue(e instanceof WebSocketException);
+		assertEquals(4000, ((WebSocketException) e).getCode());
+		assertEquals("Bye", e.getMessage());
+	}
+
+	@Test
+	public void testNotWebSocketRequest() throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				RoutingServlet.create()
+						.mapWebSocket("/", echo()))
+				.withListenPort(port);
+		server.listen();
+
+		int code = await(AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.request(HttpRequest.get("http://127.0.0.1:" + port))
+				.then(response -> response.loadBody().map($ -> response.getCode()))
+				.whenComplete(server::close));
+
+		assertEquals(400, code);
+	}
+
+	private static List<String> echo(boolean serverDeflate, boolean clientDeflate, List<String> messages) throws IOException {
+		int port = getFreePort();
+		AsyncHttpServer server = echoServer(port, serverDeflate);
+		server.listen();
+
+		AsyncHttpClient client = AsyncHttpClient.create(Eventloop.getCurrentEventloop())
+				.withWebSocketDeflate(clientDeflate);
+		HttpRequest request = HttpRequest.get("http://127.0.0.1:" + port + "/echo");
+		return await(client.webSocketRequest(request)
+				.then(webSocket -> {
+					for (String message : messages) {
+						webSocket.writeMessage(Message.text(message));
+					}
+					webSocket.writeMessage(null);
+					return webSocket.messageReadChannel()
+							.map(message -> {
+								String text = message.getText();
+								message.recycle();
+								return text;
+							})
+							.toList();
+				})
+				.whenComplete(server::close));
+	}
+
+	private static AsyncHttpServer echoServer(int port, boolean deflate) {
+		return AsyncHttpServer.create(Eventloop.getCurrentEventloop(),
+				RoutingServlet.create()
+						.map(HttpMethod.GET, "/echo", WebSocketServlet.create(echo())
+								.withMessageDeflate(deflate)))
+				.withListenPort(port);
+	}
+
+	private static Consumer<WebSocket> echo() {
+		return webSocket -> webSocket.messageReadChannel()
+				.streamTo(webSocket.messageWriteChannel());
+	}
+}
@@ -28,6 +28,7 @@ import io.activej.jmx.stats.EventStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio.Inspector;
+import io.activej.net.socket.tcp.AsyncTcpSocketSsl;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
@@ -35,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -46,6 +48,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.activej.common.Checks.checkState;
 import static io.activej.eventloop.net.ServerSocketSettings.DEFAULT_BACKLOG;
@@ -91,7 +94,12 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	// ssl
 	private SSLContext sslContext;
 	private Executor sslExecutor;
+	@Nullable
+	protected String[] sslApplicationProtocols;
 	protected List<InetSocketAddress> sslListenAddresses = new ArrayList<>();
+	private int sslSessionCacheSize = -1;
+	@Nullable
+	private Duration sslSessionTimeout;
 
 	private boolean running = false;
 	private List<ServerSocketChannel> serverSocketChannels;
@@ -105,10 +113,15 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 	private Inspector socketInspector;
 	@Nullable
 	private Inspector socketSslInspector;
+	@Nullable
+	private AsyncTcpSocketSsl.Inspector sslInspector = new AsyncTcpSocketSsl.JmxInspector();
 	private final EventStats accepts = EventStats.create(SMOOTHING_WINDOW);
 	private final EventStats acceptsSsl = EventStats.create(SMOOTHING_WINDOW);
 	private final EventStats filteredAccepts = EventStats.create(SMOOTHING_WINDOW);
 
+	// may be incremented by a primary server in its own thread when a connection is dispatched to this server
+	private final AtomicInteger activeConnections = new AtomicInteger();
+
 	// region creators & builder methods
 	protected AbstractServer(@NotNull Eventloop eventloop) {
 		this.eventloop = eventloop;
@@ -126,6 +139,21 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return (Self) this;
 	}
 
+	/**
+	 * Sets SO_REUSEPORT option for listening sockets of this server.
+	 * <p>
+	 * For a {@link PrimaryServer} it also enables multi-acceptor mode: instead of accepting
+	 * all of the connections in the primary eventloop, each worker server binds its own
+	 * listening socket to the same addresses and accepts connections in its own eventloop,
+	 * while the kernel balances incoming connections between them.
+	 * This mode can not be combined with {@link #withAcceptOnce()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withReusePort(boolean reusePort) {
+		this.serverSocketSettings = serverSocketSettings.withReusePort(reusePort);
+		return (Self) this;
+	}
+
 	@SuppressWarnings("unchecked")
 	public final Self withSocketSettings(SocketSettings socketSettings) {
 		this.socketSettings = socketSettings;
@@ -170,6 +198,40 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return withSslListenAddress(sslContext, sslExecutor, new InetSocketAddress(port));
 	}
 
+	/**
+	 * Sets application protocols, which are negotiated with clients over SSL with ALPN, in the order of preference
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withSslApplicationProtocols(String... protocols) {
+		this.sslApplicationProtocols = protocols;
+		return (Self) this;
+	}
+
+	/**
+	 * Sets the size and the timeout of the server session cache of the SSL context.
+	 * <p>
+	 * The cache belongs to the SSL context, so it is shared by all of the servers which use the same context.
+	 * Worker servers of a {@link PrimaryServer} which have no SSL context of their own use the context of the primary server,
+	 * so sessions established by one worker eventloop may be resumed by another one.
+	 *
+	 * @param size maximum number of cached sessions, 0 means no limit
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withSslSessionCache(int size, Duration timeout) {
+		this.sslSessionCacheSize = size;
+		this.sslSessionTimeout = timeout;
+		return (Self) this;
+	}
+
+	/**
+	 * Sets an inspector of SSL handshakes, by default handshakes are collected by {@link AsyncTcpSocketSsl.JmxInspector}
+	 */
+	@SuppressWarnings("unchecked")
+	public final Self withSslInspector(@Nullable AsyncTcpSocketSsl.Inspector sslInspector) {
+		this.sslInspector = sslInspector;
+		return (Self) this;
+	}
+
 	public final Self withAcceptOnce() {
 		return withAcceptOnce(true);
 	}
@@ -234,12 +296,17 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 			logger.info("Listening on {}: {}", listenAddresses, this);
 		}
 		if (sslListenAddresses != null && !sslListenAddresses.isEmpty()) {
+			if (sslSessionTimeout != null) {
+				SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+				sessionContext.setSessionCacheSize(sslSessionCacheSize);
+				sessionContext.setSessionTimeout((int) sslSessionTimeout.getSeconds());
+			}
 			listenAddresses(sslListenAddresses, true);
 			logger.info("Listening with SSL on {}: {}", sslListenAddresses, this);
 		}
 	}
 
-	private void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
+	protected void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
 		for (InetSocketAddress address : addresses) {
 			try {
 				serverSocketChannels.add(eventloop.listen(address, serverSocketSettings, channel -> doAccept(channel, address, ssl)));
@@ -293,6 +360,46 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return this;
 	}
 
+	/**
+	 * Registers a listening socket of the {@code acceptServer} in this server's eventloop,
+	 * so that connections are accepted directly by this server.
+	 * The socket is closed if it can not be registered.
+	 */
+	final void listenAcceptor(ServerSocketChannel serverSocketChannel, InetSocketAddress address, boolean ssl,
+			AbstractServer<?> acceptServer) throws IOException {
+		if (CHECK) checkState(eventloop.inEventloopThread(), "Not in eventloop thread");
+		if (serverSocketChannels == null) {
+			serverSocketChannels = new ArrayList<>();
+		}
+		try {
+			eventloop.listen(serverSocketChannel, channel -> doAcceptFrom(acceptServer, channel, address, ssl));
+		} catch (IOException e) {
+			eventloop.closeChannel(serverSocketChannel, null);
+			throw e;
+		}
+		serverSocketChannels.add(serverSocketChannel);
+	}
+
+	private void doAcceptFrom(AbstractServer<?> acceptServer, SocketChannel channel, InetSocketAddress localAddress, boolean ssl) {
+		InetAddress remoteAddress;
+		try {
+			remoteAddress = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+		} catch (IOException e) {
+			eventloop.closeChannel(channel, null);
+			return;
+		}
+
+		AcceptFilter acceptFilter = acceptServer.acceptFilter;
+		if (acceptFilter != null && acceptFilter.filterAccept(channel, localAddress, remoteAddress, ssl)) {
+			filteredAccepts.recordEvent();
+			onFilteredAccept(channel, localAddress, remoteAddress, ssl);
+			return;
+		}
+
+		activeConnections.incrementAndGet();
+		doAccept(channel, localAddress, remoteAddress, ssl, acceptServer.socketSettings);
+	}
+
 	protected Inspector getSocketInspector(InetAddress remoteAddress, InetSocketAddress localAddress, boolean ssl) {
 		return ssl ? socketSslInspector : socketInspector;
 	}
@@ -314,6 +421,9 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 
 		WorkerServer workerServer = getWorkerServer();
 		Eventloop workerServerEventloop = workerServer.getEventloop();
+		if (workerServer != this && workerServer instanceof AbstractServer) {
+			((AbstractServer<?>) workerServer).activeConnections.incrementAndGet();
+		}
 
 		if (workerServerEventloop == eventloop) {
 			workerServer.doAccept(channel, localAddress, remoteAddress, ssl, socketSettings);
@@ -339,8 +449,16 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		accepts.recordEvent();
 		if (ssl) acceptsSsl.recordEvent();
 		onAccept(socketChannel, localAddress, remoteAddress, ssl);
-		AsyncTcpSocket asyncTcpSocket = wrapChannel(eventloop, socketChannel, socketSettings);
-		asyncTcpSocket = ssl ? wrapServerSocket(asyncTcpSocket, sslContext, sslExecutor) : asyncTcpSocket;
+		if (acceptServer == this) activeConnections.incrementAndGet();
+		AsyncTcpSocket asyncTcpSocket = wrapChannel(eventloop, socketChannel, socketSettings)
+				.withCloseListener(activeConnections::decrementAndGet);
+		if (ssl) {
+			// worker servers may share SSL settings (along with the session cache) of their primary server
+			AbstractServer<?> sslServer = sslContext != null ? this : acceptServer;
+			asyncTcpSocket = wrapServerSocket(asyncTcpSocket, sslServer.sslContext, sslServer.sslExecutor,
+					sslApplicationProtocols != null ? sslApplicationProtocols : acceptServer.sslApplicationProtocols)
+					.withInspector(sslInspector);
+		}
 		serve(asyncTcpSocket, remoteAddress);
 	}
 
@@ -384,6 +502,16 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 		return acceptFilter == null ? null : filteredAccepts;
 	}
 
+	/**
+	 * Returns the number of connections which are accepted by this server (or dispatched to it) and are not closed yet.
+	 * May be called from any thread.
+	 */
+	@Override
+	@JmxAttribute
+	public final int getActiveConnections() {
+		return activeConnections.get();
+	}
+
 	@JmxAttribute
 	@Nullable
 	public final AsyncTcpSocketNio.JmxInspector getSocketStats() {
@@ -398,6 +526,13 @@ public abstract class AbstractServer<Self extends AbstractServer<Self>> implemen
 				BaseInspector.lookup(socketSslInspector, AsyncTcpSocketNio.JmxInspector.class);
 	}
 
+	@JmxAttribute
+	@Nullable
+	public final AsyncTcpSocketSsl.JmxInspector getSslStats() {
+		return this instanceof PrimaryServer || acceptServer.sslListenAddresses.isEmpty() ? null :
+				BaseInspector.lookup(sslInspector, AsyncTcpSocketSsl.JmxInspector.class);
+	}
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + '{' +
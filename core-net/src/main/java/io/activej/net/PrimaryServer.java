@@ -16,24 +16,100 @@
 
 package io.activej.net;
 
+import io.activej.common.exception.UncheckedException;
 import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.inspector.EventloopStats;
 import io.activej.net.socket.tcp.AsyncTcpSocket;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+import static io.activej.common.Checks.checkState;
+import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
 /**
  * It is a simple balancer server, which dispatches its connections to its {@link WorkerServer WorkerServers}.
  * <p>
- * When an incoming connection takes place, it forwards the request to one of them with a round-robin algorithm.
+ * When an incoming connection takes place, it forwards the request to one of them,
+ * which is chosen by a {@link DispatchPolicy} (round-robin by default, see {@link #withDispatchPolicy(DispatchPolicy)}).
+ * <p>
+ * If SO_REUSEPORT is enabled (see {@link #withReusePort(boolean)}), primary server does not accept connections itself.
+ * Instead, each of the worker servers gets its own listening socket bound to the same address,
+ * and the connections are balanced between worker eventloops by the kernel.
  */
 public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 
 	private final WorkerServer[] workerServers;
 
-	private int currentAcceptor = -1; // first server index is currentAcceptor + 1
+	private DispatchPolicy dispatchPolicy = DispatchPolicy.roundRobin();
+
+	/**
+	 * A policy which chooses a worker server for each incoming connection.
+	 * <p>
+	 * It is called from the primary eventloop thread only,
+	 * while load metrics of worker servers are updated in their own threads,
+	 * so load-aware policies make their decisions on approximate values.
+	 */
+	@FunctionalInterface
+	public interface DispatchPolicy {
+		/**
+		 * Returns an index of a worker server, which should serve the next connection
+		 */
+		int dispatch(WorkerServer[] workerServers);
+
+		static DispatchPolicy roundRobin() {
+			return new RoundRobin();
+		}
+
+		/**
+		 * Chooses a worker server with the fewest {@link WorkerServer#getActiveConnections() active connections}
+		 */
+		static DispatchPolicy leastConnections() {
+			return leastBy(WorkerServer::getActiveConnections);
+		}
+
+		/**
+		 * Chooses a worker server which eventloop is the least busy, according to {@link EventloopStats#getLoad()}.
+		 * Eventloops without {@link EventloopStats} are considered to be idle.
+		 */
+		static DispatchPolicy leastLoaded() {
+			return leastBy(PrimaryServer::getEventloopLoad);
+		}
+
+		/**
+		 * Chooses a worker server with the minimal load, scanning all of the worker servers.
+		 * Ties are broken in a round-robin manner.
+		 */
+		static DispatchPolicy leastBy(ToDoubleFunction<WorkerServer> loadFn) {
+			return new LeastBy(loadFn);
+		}
+
+		/**
+		 * Picks two random worker servers and chooses the one with fewer active connections
+		 */
+		static DispatchPolicy powerOfTwoChoices() {
+			return powerOfTwoChoices(WorkerServer::getActiveConnections);
+		}
+
+		/**
+		 * Picks two random worker servers and chooses the less loaded one.
+		 * Unlike {@link #leastBy(ToDoubleFunction)}, it does not scan all of the worker servers
+		 * and does not herd connections to a single worker when load metrics are stale.
+		 */
+		static DispatchPolicy powerOfTwoChoices(ToDoubleFunction<WorkerServer> loadFn) {
+			return new PowerOfTwoChoices(loadFn);
+		}
+	}
 
 	// region builders
 	private PrimaryServer(Eventloop primaryEventloop, WorkerServer[] workerServers) {
@@ -59,6 +135,15 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 	public static PrimaryServer create(Eventloop primaryEventloop, WorkerServer... workerServer) {
 		return new PrimaryServer(primaryEventloop, workerServer);
 	}
+
+	/**
+	 * Sets a policy which chooses a worker server for each incoming connection.
+	 * It is not used in SO_REUSEPORT mode, where connections are balanced by the kernel.
+	 */
+	public PrimaryServer withDispatchPolicy(DispatchPolicy dispatchPolicy) {
+		this.dispatchPolicy = dispatchPolicy;
+		return this;
+	}
 	// endregion
 
 	@Override
@@ -66,10 +151,160 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * In SO_REUSEPORT mode, binds a listening socket per worker server and waits
+	 * until all of them are registered in worker eventloops. If any of the sockets
+	 * can not be bound or registered, the sockets which are already listening are closed.
+	 */
+	@Override
+	protected void listenAddresses(List<InetSocketAddress> addresses, boolean ssl) throws IOException {
+		if (!isReusePort()) {
+			super.listenAddresses(addresses, ssl);
+			return;
+		}
+		if (acceptOnce) {
+			close();
+			throw new IllegalStateException("Accepting a single connection is not supported in SO_REUSEPORT mode");
+		}
+		List<CompletableFuture<Void>> registrations = new ArrayList<>();
+		IOException exception = null;
+		listen:
+		for (InetSocketAddress address : addresses) {
+			for (WorkerServer workerServer : workerServers) {
+				checkState(workerServer instanceof AbstractServer, "SO_REUSEPORT mode requires worker servers to extend AbstractServer");
+				AbstractServer<?> worker = (AbstractServer<?>) workerServer;
+				try {
+					ServerSocketChannel serverSocketChannel = Eventloop.createServerSocketChannel(serverSocketSettings, address);
+					Eventloop workerEventloop = worker.getEventloop();
+					if (workerEventloop == eventloop) {
+						worker.listenAcceptor(serverSocketChannel, address, ssl, this);
+					} else {
+						registrations.add(workerEventloop.submit(wrapContext(worker, () -> {
+							try {
+								worker.listenAcceptor(serverSocketChannel, address, ssl, this);
+							} catch (IOException e) {
+								throw new UncheckedException(e);
+							}
+						})));
+					}
+				} catch (IOException e) {
+					exception = e;
+					break listen;
+				}
+			}
+		}
+		for (CompletableFuture<Void> registration : registrations) {
+			try {
+				registration.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (exception == null) {
+					exception = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+				} else {
+					exception.addSuppressed(cause);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (exception == null) {
+					exception = new InterruptedIOException("Interrupted while registering listening sockets");
+				}
+			}
+		}
+		if (exception != null) {
+			logger.error("Can't listen on " + addresses + ": " + this, exception);
+			close();
+			throw exception;
+		}
+	}
+
+	@Override
+	protected void closeServerSockets() {
+		super.closeServerSockets();
+		if (!isReusePort()) return;
+		for (WorkerServer workerServer : workerServers) {
+			if (workerServer instanceof AbstractServer) {
+				AbstractServer<?> worker = (AbstractServer<?>) workerServer;
+				onWorker(worker, worker::closeServerSockets);
+			}
+		}
+	}
+
+	private boolean isReusePort() {
+		return serverSocketSettings.hasReusePort() && serverSocketSettings.getReusePort();
+	}
+
+	private void onWorker(AbstractServer<?> worker, Runnable runnable) {
+		Eventloop workerEventloop = worker.getEventloop();
+		if (workerEventloop == eventloop) {
+			runnable.run();
+		} else {
+			workerEventloop.execute(wrapContext(worker, runnable));
+		}
+	}
+
 	@Override
 	protected WorkerServer getWorkerServer() {
-		currentAcceptor = (currentAcceptor + 1) % workerServers.length;
-		return workerServers[currentAcceptor];
+		return workerServers[dispatchPolicy.dispatch(workerServers)];
+	}
+
+	static double getEventloopLoad(WorkerServer workerServer) {
+		EventloopStats stats = workerServer.getEventloop().getStats();
+		return stats != null ? stats.getLoad() : 0.0;
+	}
+
+	private static final class RoundRobin implements DispatchPolicy {
+		private int currentAcceptor = -1; // first server index is currentAcceptor + 1
+
+		@Override
+		public int dispatch(WorkerServer[] workerServers) {
+			currentAcceptor = (currentAcceptor + 1) % workerServers.length;
+			return currentAcceptor;
+		}
+	}
+
+	private static final class LeastBy implements DispatchPolicy {
+		private final ToDoubleFunction<WorkerServer> loadFn;
+		private int start = -1;
+
+		LeastBy(ToDoubleFunction<WorkerServer> loadFn) {
+			this.loadFn = loadFn;
+		}
+
+		@Override
+		public int dispatch(WorkerServer[] workerServers) {
+			int length = workerServers.length;
+			start = (start + 1) % length;
+			int best = start;
+			double bestLoad = loadFn.applyAsDouble(workerServers[best]);
+			for (int i = 1; i < length; i++) {
+				int index = (start + i) % length;
+				double load = loadFn.applyAsDouble(workerServers[index]);
+				if (load < bestLoad) {
+					best = index;
+					bestLoad = load;
+				}
+			}
+			return best;
+		}
+	}
+
+	private static final class PowerOfTwoChoices implements DispatchPolicy {
+		private final ToDoubleFunction<WorkerServer> loadFn;
+
+		PowerOfTwoChoices(ToDoubleFunction<WorkerServer> loadFn) {
+			this.loadFn = loadFn;
+		}
+
+		@Override
+		public int dispatch(WorkerServer[] workerServers) {
+			int length = workerServers.length;
+			if (length == 1) return 0;
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(length);
+			int second = random.nextInt(length - 1);
+			if (second >= first) second++;
+			return loadFn.applyAsDouble(workerServers[second]) < loadFn.applyAsDouble(workerServers[first]) ? second : first;
+		}
 	}
 
 	@Override
@@ -79,6 +314,7 @@ public final class PrimaryServer extends AbstractServer<PrimaryServer> {
 				(listenAddresses.isEmpty() ? "" : ", listenAddresses=" + listenAddresses) +
 				(sslListenAddresses.isEmpty() ? "" : ", sslListenAddresses=" + sslListenAddresses) +
 				(acceptOnce ? ", acceptOnce" : "") +
+				(isReusePort() ? ", reusePort" : "") +
 				", workerServers=" + Arrays.toString(workerServers) +
 				'}';
 	}
@@ -33,4 +33,13 @@ public interface WorkerServer {
 
 	void doAccept(SocketChannel socketChannel, InetSocketAddress localAddress, InetAddress remoteAddress,
 			boolean ssl, SocketSettings socketSettings);
+
+	/**
+	 * Returns the number of currently open connections of this server.
+	 * It is used by load-aware {@link PrimaryServer.DispatchPolicy dispatch policies}
+	 * and may be called from any thread.
+	 */
+	default int getActiveConnections() {
+		return 0;
+	}
 }
@@ -18,8 +18,10 @@ package io.activej.net.socket.tcp;
 
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
+import io.activej.bytebuf.ByteBufQueue;
 import io.activej.common.ApplicationSettings;
 import io.activej.common.Checks;
+import io.activej.common.MemSize;
 import io.activej.common.exception.AsyncTimeoutException;
 import io.activej.common.inspector.AbstractInspector;
 import io.activej.common.inspector.BaseInspector;
@@ -35,17 +37,23 @@ import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import static io.activej.common.Checks.checkArgument;
 import static io.activej.common.Checks.checkState;
 import static io.activej.common.MemSize.kilobytes;
+import static io.activej.common.MemSize.megabytes;
 import static io.activej.common.Utils.nullify;
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
@@ -55,6 +63,9 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	private static final boolean CHECK = Checks.isEnabled(AsyncTcpSocketNio.class);
 
 	public static final int DEFAULT_READ_BUFFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "readBufferSize", kilobytes(16)).toInt();
+	public static final int DEFAULT_MAX_WRITE_BUFS = ApplicationSettings.getInt(AsyncTcpSocketNio.class, "maxWriteBufs", 64);
+	public static final int DEFAULT_MAX_WRITE_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxWriteSize", kilobytes(256)).toInt();
+	public static final long DEFAULT_MAX_TRANSFER_SIZE = ApplicationSettings.getMemSize(AsyncTcpSocketNio.class, "maxTransferSize", megabytes(1)).toLong();
 
 	public static final AsyncTimeoutException TIMEOUT_EXCEPTION = new AsyncTimeoutException(AsyncTcpSocketNio.class, "timed out");
 	public static final int NO_TIMEOUT = 0;
@@ -67,21 +78,35 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	@Nullable
 	private ByteBuf readBuf;
 	private boolean readEndOfStream;
+	private final ByteBufQueue writeQueue = new ByteBufQueue();
 	@Nullable
-	private ByteBuf writeBuf;
+	private ByteBuffer[] writeBuffers;
 	private boolean writeEndOfStream;
 
+	// a file region which is sent after the pending bufs
+	@Nullable
+	private FileChannel transferFile;
+	private long transferPosition;
+	private long transferRemaining;
+	// bufs which are written while the file region is being sent
+	private final ByteBufQueue transferWriteQueue = new ByteBufQueue();
+
 	@Nullable
 	private SettablePromise<ByteBuf> read;
 	@Nullable
 	private SettablePromise<Void> write;
 
+	private final Consumer<@NotNull Throwable> cancelHandler = this::onCancel;
+
 	private SelectionKey key;
 	private byte ops;
 
 	private int readTimeout = NO_TIMEOUT;
 	private int writeTimeout = NO_TIMEOUT;
 	private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+	private int maxWriteBufs = DEFAULT_MAX_WRITE_BUFS;
+	private int maxWriteSize = DEFAULT_MAX_WRITE_SIZE;
+	private long maxTransferSize = DEFAULT_MAX_TRANSFER_SIZE;
 
 	@Nullable
 	private ScheduledRunnable scheduledReadTimeout;
@@ -91,6 +116,9 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 	@Nullable
 	private Inspector inspector;
 
+	@Nullable
+	private Runnable closeListener;
+
 	public interface Inspector extends BaseInspector<Inspector> {
 		void onReadTimeout();
 
@@ -104,7 +132,27 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 		void onWrite(ByteBuf buf, int bytes);
 
+		/**
+		 * Called after a gathering write of the first {@code bufs} bufs of a given queue,
+		 * before written bytes are skipped from the queue. The queue must not be modified.
+		 * <p>
+		 * By default, calls {@link #onWrite(ByteBuf, int)} for each buf which has been written
+		 * either fully or partially, with the number of bytes written from that buf.
+		 */
+		default void onWrite(ByteBufQueue queue, int bufs, int bytesWritten) {
+			for (int i = 0; i < bufs; i++) {
+				ByteBuf buf = queue.peekBuf(i);
+				int bytes = Math.min(bytesWritten, buf.readRemaining());
+				onWrite(buf, bytes);
+				bytesWritten -= bytes;
+				if (bytesWritten == 0) return;
+			}
+		}
+
 		void onWriteError(IOException e);
+
+		default void onTransfer(long bytesRequested, long bytesTransferred) {
+		}
 	}
 
 	public static class JmxInspector extends AbstractInspector<Inspector> implements Inspector {
@@ -115,9 +163,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		private final EventStats readErrors = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats readTimeouts = EventStats.create(SMOOTHING_WINDOW);
 		private final ValueStats writes = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes").withRate();
+		private final ValueStats writeBufs = ValueStats.create(SMOOTHING_WINDOW).withUnit("bufs");
 		private final EventStats writeErrors = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats writeTimeouts = EventStats.create(SMOOTHING_WINDOW);
 		private final EventStats writeOverloaded = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats transfers = ValueStats.create(SMOOTHING_WINDOW).withUnit("bytes").withRate();
 
 		@Override
 		public void onReadTimeout() {
@@ -147,15 +197,33 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		@Override
 		public void onWrite(ByteBuf buf, int bytes) {
 			writes.recordValue(bytes);
+			writeBufs.recordValue(1);
 			if (buf.readRemaining() != bytes)
 				writeOverloaded.recordEvent();
 		}
 
+		@Override
+		public void onWrite(ByteBufQueue queue, int bufs, int bytesWritten) {
+			int bytesRequested = 0;
+			for (int i = 0; i < bufs; i++) {
+				bytesRequested += queue.peekBuf(i).readRemaining();
+			}
+			writes.recordValue(bytesWritten);
+			writeBufs.recordValue(bufs);
+			if (bytesRequested != bytesWritten)
+				writeOverloaded.recordEvent();
+		}
+
 		@Override
 		public void onWriteError(IOException e) {
 			writeErrors.recordEvent();
 		}
 
+		@Override
+		public void onTransfer(long bytesRequested, long bytesTransferred) {
+			transfers.recordValue(bytesTransferred);
+		}
+
 		@JmxAttribute
 		public EventStats getReadTimeouts() {
 			return readTimeouts;
@@ -186,6 +254,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return writes;
 		}
 
+		@JmxAttribute
+		public ValueStats getWriteBufs() {
+			return writeBufs;
+		}
+
 		@JmxAttribute
 		public EventStats getWriteErrors() {
 			return writeErrors;
@@ -195,6 +268,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		public EventStats getWriteOverloaded() {
 			return writeOverloaded;
 		}
+
+		@JmxAttribute(description = "bytes of file regions sent with zero copy")
+		public ValueStats getTransfers() {
+			return transfers;
+		}
 	}
 
 	public static AsyncTcpSocketNio wrapChannel(Eventloop eventloop, SocketChannel socketChannel, @Nullable SocketSettings socketSettings) {
@@ -235,6 +313,36 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		return this;
 	}
 
+	/**
+	 * Sets a listener which is called once in the eventloop thread, when this socket is closed
+	 */
+	public AsyncTcpSocketNio withCloseListener(@Nullable Runnable closeListener) {
+		this.closeListener = closeListener;
+		return this;
+	}
+
+	/**
+	 * Limits a single gathering write of pending {@link ByteBuf ByteBufs} to the socket channel
+	 * to at most {@code maxWriteBufs} buffers and (unless the first buffer is bigger) {@code maxWriteSize} bytes.
+	 */
+	public AsyncTcpSocketNio withMaxWriteBatch(int maxWriteBufs, MemSize maxWriteSize) {
+		checkArgument(maxWriteBufs > 0, "Max number of bufs per write should be positive");
+		this.maxWriteBufs = maxWriteBufs;
+		this.maxWriteSize = maxWriteSize.toInt();
+		this.writeBuffers = null;
+		return this;
+	}
+
+	/**
+	 * Limits the number of bytes of a file region which are sent with {@link FileChannel#transferTo}
+	 * in a single eventloop iteration, so that a transfer from a slow disk does not stall the eventloop for too long.
+	 */
+	public AsyncTcpSocketNio withMaxTransferSize(MemSize maxTransferSize) {
+		checkArgument(maxTransferSize.toLong() > 0, "Max transfer size should be positive");
+		this.maxTransferSize = maxTransferSize.toLong();
+		return this;
+	}
+
 	private AsyncTcpSocketNio(Eventloop eventloop, @NotNull SocketChannel socketChannel) {
 		this.eventloop = eventloop;
 		this.channel = socketChannel;
@@ -266,7 +374,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void updateInterests() {
 		assert !isClosed() && ops >= 0;
-		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (writeBuf == null || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
+		byte newOps = (byte) (((readBuf == null && !readEndOfStream) ? SelectionKey.OP_READ : 0) | (isWriteDone() || writeEndOfStream ? 0 : SelectionKey.OP_WRITE));
 		if (key == null) {
 			ops = newOps;
 			try {
@@ -295,6 +403,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return Promise.of(readBuf);
 		}
 		SettablePromise<ByteBuf> read = new SettablePromise<>();
+		read.setCancelHandler(cancelHandler);
 		this.read = read;
 		if (scheduledReadTimeout == null && readTimeout != NO_TIMEOUT) {
 			scheduleReadTimeout();
@@ -353,7 +462,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			buf.recycle();
 			if (inspector != null) inspector.onReadEndOfStream();
 			readEndOfStream = true;
-			if (writeEndOfStream && writeBuf == null) {
+			if (writeEndOfStream && writeQueue.isEmpty()) {
 				doClose();
 			}
 			return;
@@ -384,22 +493,50 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 		writeEndOfStream |= buf == null;
 
-		if (writeBuf == null) {
-			if (buf != null && !buf.canRead()) {
-				buf.recycle();
-				return Promise.complete();
-			}
-			writeBuf = buf;
-		} else {
-			if (buf != null) {
-				writeBuf = ByteBufPool.ensureWriteRemaining(this.writeBuf, buf.readRemaining());
-				writeBuf.put(buf.array(), buf.head(), buf.readRemaining());
+		if (buf != null) {
+			if (buf.canRead()) {
+				(transferFile == null ? writeQueue : transferWriteQueue).add(buf);
+			} else {
 				buf.recycle();
+				if (isWriteDone()) return Promise.complete();
 			}
 		}
 
 		if (write != null) return write;
+		return flush();
+	}
+
+	/**
+	 * Sends a region of a file with {@link FileChannel#transferTo}, so that its bytes go
+	 * from the page cache to the socket without being copied into heap bufs.
+	 * <p>
+	 * The region is sent after the bufs which have already been written,
+	 * bufs which are written before the returned promise is complete are sent after the region.
+	 * Only one region may be transferred at a time.
+	 * The file channel is not closed by this socket.
+	 * <p>
+	 * Note that the transfer is performed in the eventloop thread, so the file
+	 * is expected to be in the page cache for the eventloop not to block on disk reads.
+	 * At most {@link #withMaxTransferSize maxTransferSize} bytes are sent per eventloop iteration.
+	 */
+	public Promise<Void> transferFrom(FileChannel file, long position, long count) {
+		if (CHECK) {
+			checkState(eventloop.inEventloopThread());
+			checkState(!writeEndOfStream, "End of stream has already been sent");
+		}
+		checkState(transferFile == null, "A file region is being transferred");
+		if (isClosed()) return Promise.ofException(CLOSE_EXCEPTION);
+		if (count == 0) return write != null ? write : Promise.complete();
+
+		transferFile = file;
+		transferPosition = position;
+		transferRemaining = count;
 
+		if (write != null) return write;
+		return flush();
+	}
+
+	private Promise<Void> flush() {
 		try {
 			doWrite();
 		} catch (IOException e) {
@@ -407,10 +544,11 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			return Promise.ofException(e);
 		}
 
-		if (this.writeBuf == null) {
+		if (isWriteDone()) {
 			return Promise.complete();
 		}
 		SettablePromise<Void> write = new SettablePromise<>();
+		write.setCancelHandler(cancelHandler);
 		this.write = write;
 		if (scheduledWriteTimeout == null && writeTimeout != NO_TIMEOUT) {
 			scheduleWriteTimeout();
@@ -431,7 +569,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 			closeEx(e);
 			return;
 		}
-		if (writeBuf == null) {
+		if (isWriteDone()) {
 			SettablePromise<@Nullable Void> write = this.write;
 			this.write = null;
 			write.set(null);
@@ -443,26 +581,37 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 
 	private void doWrite() throws IOException {
 		assert channel != null;
-		if (writeBuf != null) {
-			ByteBuf buf = this.writeBuf;
-			ByteBuffer buffer = buf.toReadByteBuffer();
-
+		if (!writeQueue.isEmpty()) {
 			try {
-				channel.write(buffer);
+				doWriteGathering();
 			} catch (IOException e) {
 				if (inspector != null) inspector.onWriteError(e);
 				throw e;
 			}
 
-			if (inspector != null) inspector.onWrite(buf, buffer.position() - buf.head());
+			if (!writeQueue.isEmpty()) {
+				return;
+			}
+		}
+
+		if (transferFile != null) {
+			try {
+				doTransfer();
+			} catch (IOException e) {
+				if (inspector != null) inspector.onWriteError(e);
+				throw e;
+			}
 
-			buf.ofReadByteBuffer(buffer);
+			if (transferFile != null) {
+				return;
+			}
 
-			if (buf.canRead()) {
+			if (!transferWriteQueue.isEmpty()) {
+				while (transferWriteQueue.hasRemaining()) {
+					writeQueue.add(transferWriteQueue.take());
+				}
+				doWrite();
 				return;
-			} else {
-				buf.recycle();
-				writeBuf = null;
 			}
 		}
 
@@ -477,13 +626,91 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		}
 	}
 
+	/**
+	 * Writes pending bufs with as few gathering writes as possible,
+	 * each of them is limited by {@link #maxWriteBufs} and {@link #maxWriteSize}
+	 */
+	private void doWriteGathering() throws IOException {
+		assert channel != null;
+		if (writeBuffers == null) {
+			writeBuffers = new ByteBuffer[maxWriteBufs];
+		}
+		ByteBuffer[] buffers = writeBuffers;
+		while (true) {
+			int count = 0;
+			int bytes = 0;
+			for (int n = Math.min(writeQueue.remainingBufs(), buffers.length); count < n; count++) {
+				ByteBuf buf = writeQueue.peekBuf(count);
+				if (count != 0 && bytes + buf.readRemaining() > maxWriteSize) break;
+				buffers[count] = buf.toReadByteBuffer();
+				bytes += buf.readRemaining();
+			}
+
+			int numWritten;
+			try {
+				numWritten = count == 1 ?
+						channel.write(buffers[0]) :
+						(int) channel.write(buffers, 0, count);
+			} finally {
+				Arrays.fill(buffers, 0, count, null);
+			}
+
+			if (inspector != null) inspector.onWrite(writeQueue, count, numWritten);
+
+			writeQueue.skip(numWritten);
+
+			if (numWritten != bytes || writeQueue.isEmpty()) {
+				return;
+			}
+		}
+	}
+
+	private void doTransfer() throws IOException {
+		assert channel != null && transferFile != null;
+		long limit = maxTransferSize;
+		while (transferRemaining != 0) {
+			if (limit == 0) return;
+			long requested = Math.min(transferRemaining, limit);
+			long transferred = transferFile.transferTo(transferPosition, requested, channel);
+
+			if (inspector != null) inspector.onTransfer(requested, transferred);
+
+			if (transferred == 0) {
+				if (transferPosition >= transferFile.size()) {
+					throw new EOFException("File region is beyond the end of file");
+				}
+				return;
+			}
+			transferPosition += transferred;
+			transferRemaining -= transferred;
+			limit -= transferred;
+		}
+		transferFile = null;
+	}
+
+	private boolean isWriteDone() {
+		return writeQueue.isEmpty() && transferFile == null;
+	}
+
+	// a cancelled read or write can not be resumed, so the socket is closed
+	private void onCancel(@NotNull Throwable e) {
+		eventloop.recordCancellation(this);
+		closeEx(e);
+	}
+
 	@Override
 	public void closeEx(@NotNull Throwable e) {
 		if (CHECK) checkState(eventloop.inEventloopThread());
 		if (isClosed()) return;
 		doClose();
 		readBuf = nullify(readBuf, ByteBuf::recycle);
-		writeBuf = nullify(writeBuf, ByteBuf::recycle);
+		while (writeQueue.hasRemaining()) {
+			writeQueue.take().recycle();
+		}
+		while (transferWriteQueue.hasRemaining()) {
+			transferWriteQueue.take().recycle();
+		}
+		transferFile = null;
 		scheduledReadTimeout = nullify(scheduledReadTimeout, ScheduledRunnable::cancel);
 		scheduledWriteTimeout = nullify(scheduledWriteTimeout, ScheduledRunnable::cancel);
 		read = nullify(read, SettablePromise::setException, e);
@@ -494,6 +721,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		eventloop.closeChannel(channel, key);
 		channel = null;
 		CONNECTION_COUNT.decrementAndGet();
+		closeListener = nullify(closeListener, Runnable::run);
 	}
 
 	@Override
@@ -511,7 +739,7 @@ public final class AsyncTcpSocketNio implements AsyncTcpSocket, NioChannelEventH
 		return "AsyncTcpSocketImpl{" +
 				"channel=" + (channel != null ? channel : "") +
 				", readBuf=" + readBuf +
-				", writeBuf=" + writeBuf +
+				", writeQueue=" + writeQueue +
 				", readEndOfStream=" + readEndOfStream +
 				", writeEndOfStream=" + writeEndOfStream +
 				", read=" + read +
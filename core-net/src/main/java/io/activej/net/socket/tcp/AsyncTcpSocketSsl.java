@@ -19,7 +19,12 @@ package io.activej.net.socket.tcp;
 import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufPool;
 import io.activej.common.ApplicationSettings;
+import io.activej.common.inspector.AbstractInspector;
+import io.activej.common.inspector.BaseInspector;
 import io.activej.eventloop.net.CloseWithoutNotifyException;
+import io.activej.jmx.api.attribute.JmxAttribute;
+import io.activej.jmx.stats.EventStats;
+import io.activej.jmx.stats.ValueStats;
 import io.activej.promise.Promise;
 import io.activej.promise.SettablePromise;
 import org.jetbrains.annotations.NotNull;
@@ -30,7 +35,13 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.Executor;
 
 import static io.activej.common.api.Recyclable.tryRecycle;
@@ -42,9 +53,26 @@ import static javax.net.ssl.SSLEngineResult.Status.CLOSED;
  * This is an SSL proxy around {@link AsyncTcpSocket}.
  * <p>
  * It allows SSL connections using Java {@link SSLEngine}.
+ * <p>
+ * Sessions are cached and resumed by the {@link SSLContext} of an engine,
+ * so sockets which are wrapped with the same context share a session cache
+ * (and session ticket keys, if tickets are enabled by the JVM), regardless of their eventloops.
  */
 public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	public static final boolean ERROR_ON_CLOSE_WITHOUT_NOTIFY = ApplicationSettings.getBoolean(AsyncTcpSocketSsl.class, "errorOnCloseWithoutNotify", false);
+
+	// a session value which marks a session that has been established by a previous handshake
+	private static final String ESTABLISHED_SESSION = AsyncTcpSocketSsl.class.getName() + ".establishedSession";
+
+	// ids of sessions established by previous handshakes, per session context
+	private static final Map<SSLSessionContext, SessionIds> ESTABLISHED_SESSION_IDS = new WeakHashMap<>();
+
+	// ALPN API is available since Java 9 and Java 8u252
+	@Nullable
+	private static final Method SET_APPLICATION_PROTOCOLS = getMethod(SSLParameters.class, "setApplicationProtocols", String[].class);
+	@Nullable
+	private static final Method GET_APPLICATION_PROTOCOL = getMethod(SSLEngine.class, "getApplicationProtocol");
+
 	private final SSLEngine engine;
 	private final Executor executor;
 	private final AsyncTcpSocket upstream;
@@ -61,6 +89,74 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	@Nullable
 	private Promise<Void> pendingUpstreamWrite;
 
+	// time of the handshake start, which is reset once the handshake is finished
+	private long handshakeStartNanos;
+
+	@Nullable
+	private Inspector inspector;
+
+	// region inspector
+	public interface Inspector extends BaseInspector<Inspector> {
+		/**
+		 * Called once the initial handshake is finished
+		 *
+		 * @param resumed whether a session has been resumed instead of being established with a full handshake,
+		 *                which is only detected for sessions established by inspected sockets.
+		 *                A TLS 1.3 session which a server recreates from a session ticket is not detected as resumed
+		 */
+		void onHandshake(long durationNanos, boolean resumed);
+
+		void onHandshakeError(Throwable e);
+	}
+
+	public static class JmxInspector extends AbstractInspector<Inspector> implements Inspector {
+		public static final Duration SMOOTHING_WINDOW = Duration.ofMinutes(1);
+
+		private final EventStats handshakes = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats resumedHandshakes = EventStats.create(SMOOTHING_WINDOW);
+		private final EventStats handshakeErrors = EventStats.create(SMOOTHING_WINDOW);
+		private final ValueStats handshakeDuration = ValueStats.create(SMOOTHING_WINDOW).withUnit("microseconds");
+
+		@Override
+		public void onHandshake(long durationNanos, boolean resumed) {
+			handshakes.recordEvent();
+			if (resumed) resumedHandshakes.recordEvent();
+			handshakeDuration.recordValue(durationNanos / 1000);
+		}
+
+		@Override
+		public void onHandshakeError(Throwable e) {
+			handshakeErrors.recordEvent();
+		}
+
+		@JmxAttribute
+		public EventStats getHandshakes() {
+			return handshakes;
+		}
+
+		@JmxAttribute
+		public EventStats getResumedHandshakes() {
+			return resumedHandshakes;
+		}
+
+		@JmxAttribute
+		public EventStats getHandshakeErrors() {
+			return handshakeErrors;
+		}
+
+		@JmxAttribute
+		public ValueStats getHandshakeDuration() {
+			return handshakeDuration;
+		}
+
+		@JmxAttribute(description = "share of handshakes which resumed a session")
+		public double getResumptionRatio() {
+			long total = handshakes.getTotalCount();
+			return total == 0 ? 0.0 : (double) resumedHandshakes.getTotalCount() / total;
+		}
+	}
+	// endregion
+
 	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
 			String host, int port,
 			SSLContext sslContext, Executor executor) {
@@ -69,6 +165,19 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		return create(asyncTcpSocket, sslEngine, executor);
 	}
 
+	/**
+	 * Wraps a client socket, offering the given application protocols with ALPN.
+	 * If ALPN is not supported by the running JVM, the protocols are not offered.
+	 */
+	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
+			String host, int port,
+			SSLContext sslContext, Executor executor, @Nullable String[] applicationProtocols) {
+		SSLEngine sslEngine = sslContext.createSSLEngine(host, port);
+		sslEngine.setUseClientMode(true);
+		setApplicationProtocols(sslEngine, applicationProtocols);
+		return create(asyncTcpSocket, sslEngine, executor);
+	}
+
 	public static AsyncTcpSocketSsl wrapClientSocket(AsyncTcpSocket asyncTcpSocket,
 			SSLContext sslContext, Executor executor) {
 		SSLEngine sslEngine = sslContext.createSSLEngine();
@@ -83,6 +192,39 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		return create(asyncTcpSocket, sslEngine, executor);
 	}
 
+	/**
+	 * Wraps a server socket, selecting the first of the given application protocols,
+	 * which is supported by a client, with ALPN.
+	 * If ALPN is not supported by the running JVM, no protocol is selected.
+	 */
+	public static AsyncTcpSocketSsl wrapServerSocket(AsyncTcpSocket asyncTcpSocket,
+			SSLContext sslContext, Executor executor, @Nullable String[] applicationProtocols) {
+		SSLEngine sslEngine = sslContext.createSSLEngine();
+		sslEngine.setUseClientMode(false);
+		setApplicationProtocols(sslEngine, applicationProtocols);
+		return create(asyncTcpSocket, sslEngine, executor);
+	}
+
+	private static void setApplicationProtocols(SSLEngine sslEngine, @Nullable String[] applicationProtocols) {
+		if (applicationProtocols == null || SET_APPLICATION_PROTOCOLS == null) return;
+		SSLParameters parameters = sslEngine.getSSLParameters();
+		try {
+			SET_APPLICATION_PROTOCOLS.invoke(parameters, (Object) applicationProtocols);
+		} catch (ReflectiveOperationException e) {
+			return;
+		}
+		sslEngine.setSSLParameters(parameters);
+	}
+
+	@Nullable
+	private static Method getMethod(Class<?> cls, String name, Class<?>... parameterTypes) {
+		try {
+			return cls.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
 	private AsyncTcpSocketSsl(AsyncTcpSocket asyncTcpSocket, SSLEngine engine, Executor executor) {
 		this.engine = engine;
 		this.executor = executor;
@@ -95,6 +237,25 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		return new AsyncTcpSocketSsl(asyncTcpSocket, engine, executor);
 	}
 
+	public AsyncTcpSocketSsl withInspector(@Nullable Inspector inspector) {
+		this.inspector = inspector;
+		return this;
+	}
+
+	/**
+	 * Returns an application protocol, which has been negotiated with ALPN,
+	 * an empty string if none has been negotiated, or {@code null} if the handshake has not been completed yet
+	 */
+	@Nullable
+	public String getApplicationProtocol() {
+		if (GET_APPLICATION_PROTOCOL == null) return "";
+		try {
+			return (String) GET_APPLICATION_PROTOCOL.invoke(engine);
+		} catch (ReflectiveOperationException e) {
+			return "";
+		}
+	}
+
 	@NotNull
 	private <T> Promise<T> sanitize(T value, @Nullable Throwable e) {
 		if (e == null) {
@@ -205,7 +366,8 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	}
 
 	private SSLEngineResult tryToUnwrap() throws SSLException {
-		ByteBuf dstBuf = ByteBufPool.allocate(engine.getSession().getPacketBufferSize());
+		// a single record is unwrapped at a time, so an application buffer size is enough
+		ByteBuf dstBuf = ByteBufPool.allocate(engine.getSession().getApplicationBufferSize());
 		ByteBuffer srcBuffer = net2engine.toReadByteBuffer();
 		ByteBuffer dstBuffer = dstBuf.toWriteByteBuffer();
 
@@ -231,6 +393,9 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 			dstBuf.recycle();
 		}
 
+		if (result.getHandshakeStatus() == FINISHED) {
+			onHandshakeFinished();
+		}
 		return result;
 	}
 
@@ -260,6 +425,10 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		} else {
 			dstBuf.recycle();
 		}
+
+		if (result.getHandshakeStatus() == FINISHED) {
+			onHandshakeFinished();
+		}
 		return result;
 	}
 
@@ -293,20 +462,67 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 		}
 	}
 
+	private void onHandshakeFinished() {
+		if (handshakeStartNanos == 0) return;
+		long duration = System.nanoTime() - handshakeStartNanos;
+		handshakeStartNanos = 0;
+		if (inspector != null) {
+			inspector.onHandshake(duration, isResumed(engine.getSession()));
+		}
+	}
+
+	/**
+	 * A session is resumed if it is the same {@link SSLSession} which has been established by a previous handshake,
+	 * or if it has the id of such a session, as TLS 1.2 sessions which a server recreates from session tickets do
+	 */
+	private static boolean isResumed(SSLSession session) {
+		boolean resumed = session.getValue(ESTABLISHED_SESSION) != null;
+		if (!resumed) {
+			session.putValue(ESTABLISHED_SESSION, Boolean.TRUE);
+		}
+		SSLSessionContext sessionContext = session.getSessionContext();
+		byte[] id = session.getId();
+		if (sessionContext == null || id.length == 0) return resumed;
+		synchronized (ESTABLISHED_SESSION_IDS) {
+			SessionIds sessionIds = ESTABLISHED_SESSION_IDS.computeIfAbsent(sessionContext,
+					$ -> new SessionIds(sessionContext.getSessionCacheSize()));
+			return sessionIds.put(ByteBuffer.wrap(id), Boolean.TRUE) != null || resumed;
+		}
+	}
+
+	// the most recently established session ids, at most as many as a session cache holds
+	private static final class SessionIds extends LinkedHashMap<ByteBuffer, Boolean> {
+		private final int maxSize;
+
+		SessionIds(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+			return maxSize != 0 && size() > maxSize;
+		}
+	}
+
+	/**
+	 * Runs all of the pending delegated tasks in a single executor call,
+	 * and resumes the handshake only after all of them are completed
+	 */
 	private void executeTasks() {
-		while (!isClosed()) {
-			Runnable task = engine.getDelegatedTask();
-			if (task == null) break;
-			Promise.ofBlockingRunnable(executor, task::run)
-					.whenResult(() -> {
-						if (isClosed()) return;
-						try {
-							doHandshake();
-						} catch (SSLException e) {
-							closeEx(e);
-						}
-					});
+		List<Runnable> tasks = new ArrayList<>();
+		Runnable task;
+		while ((task = engine.getDelegatedTask()) != null) {
+			tasks.add(task);
 		}
+		Promise.ofBlockingRunnable(executor, () -> tasks.forEach(Runnable::run))
+				.whenComplete(($, e) -> {
+					if (isClosed()) return;
+					if (e == null) {
+						sync();
+					} else {
+						closeEx(e);
+					}
+				});
 	}
 
 	private void sync() {
@@ -377,6 +593,7 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	}
 
 	private void startHandShake() {
+		handshakeStartNanos = System.nanoTime();
 		try {
 			engine.beginHandshake();
 			sync();
@@ -403,6 +620,9 @@ public final class AsyncTcpSocketSsl implements AsyncTcpSocket {
 	@Override
 	public void closeEx(@NotNull Throwable e) {
 		if (isClosed()) return;
+		if (handshakeStartNanos != 0 && inspector != null) {
+			inspector.onHandshakeError(e);
+		}
 		tryRecycle(net2engine);
 		tryRecycle(engine2app);
 		net2engine = engine2app = null;
@@ -4,7 +4,9 @@ import io.activej.bytebuf.ByteBuf;
 import io.activej.bytebuf.ByteBufQueue;
 import io.activej.bytebuf.ByteBufStrings;
 import io.activej.common.ref.RefLong;
+import io.activej.eventloop.Eventloop;
 import io.activej.eventloop.net.SocketSettings;
+import io.activej.net.socket.tcp.AsyncTcpSocket;
 import io.activej.net.socket.tcp.AsyncTcpSocketNio;
 import io.activej.promise.Promise;
 import io.activej.promise.Promises;
@@ -15,14 +17,19 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.promise.TestUtils.await;
 import static io.activej.test.TestUtils.getFreePort;
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static org.junit.Assert.assertEquals;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
 
 public final class AbstractServerTest {
 	@ClassRule
@@ -75,4 +82,137 @@ public final class AbstractServerTest {
 
 		assertEquals(message, response.asString(UTF_8));
 	}
+
+	@Test
+	public void testReusePort() throws Exception {
+		int workers = 2;
+		int connections = 20;
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+
+		List<Eventloop> workerEventloops = new ArrayList<>();
+		List<Thread> workerThreads = new ArrayList<>();
+		List<SimpleServer> workerServers = new ArrayList<>();
+		for (int i = 0; i < workers; i++) {
+			Eventloop workerEventloop = Eventloop.create();
+			workerEventloop.keepAlive(true);
+			String workerId = String.valueOf(i);
+			workerServers.add(SimpleServer.create(workerEventloop, socket ->
+					socket.write(ByteBufStrings.wrapAscii(workerId))
+							.whenComplete(socket::close)));
+			Thread thread = new Thread(workerEventloop);
+			thread.start();
+			workerEventloops.add(workerEventloop);
+			workerThreads.add(thread);
+		}
+
+		PrimaryServer primaryServer = PrimaryServer.create(getCurrentEventloop(), workerServers)
+				.withListenAddress(address)
+				.withReusePort(true);
+		primaryServer.listen();
+
+		List<String> responses = await(Promises.toList(IntStream.range(0, connections)
+				.mapToObj($ -> AsyncTcpSocketNio.connect(address)
+						.then(socket -> socket.read()
+								.map(buf -> {
+									socket.close();
+									return buf.asString(UTF_8);
+								})))));
+		primaryServer.close();
+
+		for (int i = 0; i < workers; i++) {
+			Eventloop workerEventloop = workerEventloops.get(i);
+			workerEventloop.execute(() -> workerEventloop.keepAlive(false));
+			workerThreads.get(i).join();
+		}
+
+		assertEquals(connections, responses.size());
+		long total = 0;
+		for (SimpleServer workerServer : workerServers) {
+			long accepts = workerServer.getAccepts().getTotalCount();
+			assertTrue(accepts > 0);
+			total += accepts;
+		}
+		assertEquals(connections, total);
+		assertEquals(0, primaryServer.getAccepts().getTotalCount());
+	}
+
+	@Test
+	public void testReusePortFailsToListen() throws IOException {
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+		SimpleServer workerServer = SimpleServer.create(AsyncTcpSocket::close);
+		PrimaryServer primaryServer = PrimaryServer.create(getCurrentEventloop(), workerServer, SimpleServer.create(AsyncTcpSocket::close))
+				.withListenAddress(address)
+				.withReusePort(true);
+
+		// the address is already taken by a socket without SO_REUSEPORT
+		try (ServerSocketChannel taken = ServerSocketChannel.open()) {
+			taken.bind(address);
+			primaryServer.listen();
+			fail();
+		} catch (IOException ignored) {
+		}
+
+		assertFalse(primaryServer.isRunning());
+		try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+			channel.bind(address);
+		}
+	}
+
+	@Test
+	public void testReusePortWithAcceptOnce() throws IOException {
+		PrimaryServer primaryServer = PrimaryServer.create(getCurrentEventloop(), SimpleServer.create(AsyncTcpSocket::close))
+				.withListenAddress(new InetSocketAddress("localhost", getFreePort()))
+				.withReusePort(true)
+				.withAcceptOnce();
+
+		try {
+			primaryServer.listen();
+			fail();
+		} catch (IllegalStateException ignored) {
+		}
+		assertFalse(primaryServer.isRunning());
+	}
+
+	@Test
+	public void testLeastConnectionsDispatch() throws IOException {
+		int connections = 5;
+		InetSocketAddress address = new InetSocketAddress("localhost", getFreePort());
+
+		List<AsyncTcpSocket> heldSockets = new ArrayList<>();
+		SimpleServer holdingServer = SimpleServer.create(socket -> {
+			heldSockets.add(socket);
+			socket.write(ByteBufStrings.wrapAscii("0"));
+		});
+		SimpleServer closingServer = SimpleServer.create(socket ->
+				socket.write(ByteBufStrings.wrapAscii("1"))
+						.whenComplete(socket::close));
+
+		PrimaryServer primaryServer = PrimaryServer.create(getCurrentEventloop(), holdingServer, closingServer)
+				.withDispatchPolicy(PrimaryServer.DispatchPolicy.leastConnections())
+				.withListenAddress(address);
+		primaryServer.listen();
+
+		List<String> responses = new ArrayList<>();
+		Promise<Void> connect = Promise.complete();
+		for (int i = 0; i < connections; i++) {
+			connect = connect.then(() -> AsyncTcpSocketNio.connect(address))
+					.then(socket -> socket.read()
+							.map(buf -> {
+								socket.close();
+								return buf.asString(UTF_8);
+							}))
+					.whenResult(responses::add)
+					.toVoid();
+		}
+		await(connect.whenComplete(() -> {
+			heldSockets.forEach(AsyncTcpSocket::close);
+			primaryServer.close();
+		}));
+
+		assertEquals(asList("0", "1", "1", "1", "1"), responses);
+		assertEquals(1, holdingServer.getAccepts().getTotalCount());
+		assertEquals(connections - 1, closingServer.getAccepts().getTotalCount());
+		assertEquals(0, holdingServer.getActiveConnections());
+		assertEquals(0, closingServer.getActiveConnections());
+	}
 }
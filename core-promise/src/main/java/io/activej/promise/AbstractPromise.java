@@ -35,6 +35,8 @@ import java.util.regex.Pattern;
 
 import static io.activej.common.Checks.checkState;
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
+import static io.activej.eventloop.trace.Tracing.unwrapTrace;
+import static io.activej.eventloop.trace.Tracing.wrapTrace;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
 @SuppressWarnings({"unchecked", "WeakerAccess", "unused"})
@@ -160,6 +162,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 	@Async.Schedule
 	protected void subscribe(@NotNull Callback<? super T> callback) {
 		if (CHECK) checkState(!isComplete(), "Promise has already been completed");
+		callback = wrapTrace(callback);
 		if (next == null) {
 			next = callback;
 		} else if (next instanceof CallbackList) {
@@ -169,6 +172,22 @@ abstract class AbstractPromise<T> implements Promise<T> {
 		}
 	}
 
+	/**
+	 * Removes a callback of this promise, so that it will not be called.
+	 *
+	 * @return {@code true} if the callback has been the only one
+	 */
+	boolean unsubscribe(@NotNull Callback<?> callback) {
+		if (next != null && unwrapTrace(next) == callback) {
+			next = null;
+			return true;
+		}
+		if (next instanceof CallbackList) {
+			((CallbackList<T>) next).remove(callback);
+		}
+		return false;
+	}
+
 	@NotNull
 	@Override
 	public <U> Promise<U> map(@NotNull Function<? super T, ? extends U> fn) {
@@ -196,6 +215,11 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".map(" + formatToString(fn) + ')';
@@ -239,6 +263,11 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".mapEx(" + formatToString(fn) + ')';
@@ -258,7 +287,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				return Promise.ofException(u.getCause());
 			}
 		}
-		NextPromise<T, U> resultPromise = new NextPromise<T, U>() {
+		ThenPromise<T, U> resultPromise = new ThenPromise<T, U>() {
 			@Override
 			public void accept(T result, @Nullable Throwable e) {
 				if (e == null) {
@@ -269,12 +298,17 @@ abstract class AbstractPromise<T> implements Promise<T> {
 						completeExceptionally(u.getCause());
 						return;
 					}
-					promise.whenComplete(this::complete);
+					completeWith(promise);
 				} else {
 					completeExceptionally(e);
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".then(" + formatToString(fn) + ')';
@@ -293,7 +327,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				return Promise.ofException(u.getCause());
 			}
 		}
-		NextPromise<T, U> resultPromise = new NextPromise<T, U>() {
+		ThenPromise<T, U> resultPromise = new ThenPromise<T, U>() {
 			@Override
 			public void accept(T result, @Nullable Throwable e) {
 				if (e == null) {
@@ -304,12 +338,17 @@ abstract class AbstractPromise<T> implements Promise<T> {
 						completeExceptionally(u.getCause());
 						return;
 					}
-					promise.whenComplete(this::complete);
+					completeWith(promise);
 				} else {
 					completeExceptionally(e);
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".then(" + formatToString(fn) + ')';
@@ -329,7 +368,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				return Promise.ofException(u.getCause());
 			}
 		}
-		NextPromise<T, U> resultPromise = new NextPromise<T, U>() {
+		ThenPromise<T, U> resultPromise = new ThenPromise<T, U>() {
 			@Override
 			public void accept(T result, @Nullable Throwable e) {
 				if (e == null) {
@@ -340,7 +379,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 						completeExceptionally(u.getCause());
 						return;
 					}
-					promise.whenComplete(this::complete);
+					completeWith(promise);
 				} else {
 					Promise<? extends U> promise;
 					try {
@@ -349,10 +388,15 @@ abstract class AbstractPromise<T> implements Promise<T> {
 						completeExceptionally(u.getCause());
 						return;
 					}
-					promise.whenComplete(this::complete);
+					completeWith(promise);
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".thenEx(" + formatToString(fn) + ')';
@@ -655,6 +699,11 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".toTry()";
@@ -680,6 +729,11 @@ abstract class AbstractPromise<T> implements Promise<T> {
 				}
 			}
 
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return AbstractPromise.this;
+			}
+
 			@Override
 			public String describe() {
 				return ".toVoid()";
@@ -720,6 +774,59 @@ abstract class AbstractPromise<T> implements Promise<T> {
 		return future;
 	}
 
+	/**
+	 * A {@code NextPromise} which is completed with a promise returned by a function.
+	 * Keeps track of that promise while waiting for it, so that a cancellation could be propagated to it
+	 */
+	private abstract static class ThenPromise<T, U> extends NextPromise<T, U> {
+		@Nullable
+		private InnerCallback<U> inner;
+
+		void completeWith(@NotNull Promise<? extends U> promise) {
+			if (promise.isComplete() || !(promise instanceof AbstractPromise)) {
+				promise.whenComplete(this::complete);
+				return;
+			}
+			inner = new InnerCallback<>(this, (AbstractPromise<? extends U>) promise);
+			promise.whenComplete(inner);
+		}
+
+		@Override
+		public boolean cancel(@NotNull Throwable e) {
+			InnerCallback<U> inner = this.inner;
+			if (inner == null) return super.cancel(e);
+			this.inner = null;
+			return cancel(inner.promise, inner, e);
+		}
+	}
+
+	private static final class InnerCallback<U> implements Callback<U> {
+		private final ThenPromise<?, U> resultPromise;
+		private final AbstractPromise<? extends U> promise;
+
+		InnerCallback(ThenPromise<?, U> resultPromise, AbstractPromise<? extends U> promise) {
+			this.resultPromise = resultPromise;
+			this.promise = promise;
+		}
+
+		@Override
+		public void accept(U result, @Nullable Throwable e) {
+			resultPromise.inner = null;
+			resultPromise.complete(result, e);
+		}
+	}
+
+	private static final Callback<Object> REMOVED_CALLBACK = new SimpleCallback<Object>() {
+		@Override
+		public void accept(Object result, @Nullable Throwable e) {
+		}
+
+		@Override
+		public String toString() {
+			return ".removed()";
+		}
+	};
+
 	private static class CallbackList<T> implements Callback<T> {
 		private int index = 2;
 		private Callback<? super T>[] callbacks = new Callback[4];
@@ -736,6 +843,16 @@ abstract class AbstractPromise<T> implements Promise<T> {
 			callbacks[index++] = callback;
 		}
 
+		// the callback is replaced rather than removed, as callbacks may be being called right now
+		public void remove(Callback<?> callback) {
+			for (int i = 0; i < index; i++) {
+				if (unwrapTrace(callbacks[i]) == callback) {
+					callbacks[i] = REMOVED_CALLBACK;
+					return;
+				}
+			}
+		}
+
 		@Override
 		public void accept(T result, @Nullable Throwable e) {
 			for (int i = 0; i < index; i++) {
@@ -751,6 +868,7 @@ abstract class AbstractPromise<T> implements Promise<T> {
 		if (callback == null) {
 			return;
 		}
+		callback = (Callback<T>) unwrapTrace(callback);
 		if (callback instanceof CallbackList) {
 			CallbackList<? super T> callbackList = (CallbackList<? super T>) callback;
 			for (int i = 0; i < callbackList.index; i++) {
@@ -16,9 +16,42 @@
 
 package io.activej.promise;
 
+import io.activej.async.callback.Callback;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 /**
  * Helps to create sequent chains of {@code Promise}s.
+ * <p>
+ * A cancellation of this promise is propagated up the chain
+ * to a promise it waits for, if that promise is known.
  */
 public abstract class NextPromise<T, R> extends AbstractPromise<R> implements SimpleCallback<T> {
+	/**
+	 * Returns a promise this promise is subscribed to, if it is known,
+	 * so that a cancellation of this promise could be propagated to it
+	 */
+	@Nullable
+	AbstractPromise<?> getUpstream() {
+		return null;
+	}
+
+	/**
+	 * Completes this promise exceptionally and cancels the promise it waits for,
+	 * unless someone else waits for that promise too
+	 */
+	@Override
+	public boolean cancel(@NotNull Throwable e) {
+		AbstractPromise<?> upstream = getUpstream();
+		return upstream != null && cancel(upstream, this, e);
+	}
 
+	final boolean cancel(@NotNull AbstractPromise<?> upstream, @NotNull Callback<?> callback, @NotNull Throwable e) {
+		if (isComplete() || upstream.isComplete()) return false;
+		if (upstream.unsubscribe(callback)) {
+			upstream.cancel(e);
+		}
+		completeExceptionally(e);
+		return true;
+	}
 }
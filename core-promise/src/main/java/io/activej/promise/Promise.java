@@ -29,12 +29,15 @@ import org.jetbrains.annotations.Nullable;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static io.activej.common.Checks.checkArgument;
+import static io.activej.common.api.Recyclable.tryRecycle;
+import static io.activej.eventloop.trace.Tracing.wrapTrace;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
 /**
@@ -197,7 +200,7 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 			Eventloop eventloop = Eventloop.getCurrentEventloop();
 			eventloop.startExternalTask();
 			try {
-				executor.execute(wrapContext(cb, () -> {
+				executor.execute(wrapTrace(wrapContext(cb, () -> {
 					try {
 						T value = future.get();
 						eventloop.execute(wrapContext(cb, () -> cb.set(value)));
@@ -210,7 +213,7 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 					} finally {
 						eventloop.completeExternalTask();
 					}
-				}));
+				})));
 			} catch (RejectedExecutionException e) {
 				eventloop.completeExternalTask();
 				cb.setException(e);
@@ -227,6 +230,10 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 	 * Runs some task in another thread (executed by a given {@code Executor})
 	 * and returns a {@code Promise} for it. Also manages external task count
 	 * for current eventloop, so it won't shut down until the task is complete.
+	 * <p>
+	 * If the returned {@code Promise} is {@link #cancel(Throwable) cancelled}
+	 * before the task is started, the task is skipped. A task which is already running
+	 * is not interrupted, its result is discarded (and recycled, if it is recyclable).
 	 *
 	 * @param executor executor to execute the task concurrently
 	 * @param callable the task itself
@@ -235,24 +242,33 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 	static <T> Promise<T> ofBlockingCallable(@NotNull Executor executor, @NotNull BlockingCallable<? extends T> callable) {
 		return ofCallback(cb -> {
 			Eventloop eventloop = Eventloop.getCurrentEventloop();
+			AtomicBoolean started = new AtomicBoolean();
+			cb.setCancelHandler(e -> {
+				if (started.compareAndSet(false, true)) {
+					eventloop.recordCancellation(callable);
+				}
+			});
 			eventloop.startExternalTask();
 			try {
-				executor.execute(wrapContext(cb, () -> {
+				executor.execute(wrapTrace(wrapContext(cb, () -> {
 					try {
+						if (!started.compareAndSet(false, true)) return;
 						T result = callable.call();
-						eventloop.execute(wrapContext(cb, () -> cb.set(result)));
+						eventloop.execute(wrapContext(cb, () -> {
+							if (!cb.trySet(result)) tryRecycle(result);
+						}));
 					} catch (UncheckedException u) {
-						eventloop.execute(wrapContext(cb, () -> cb.setException(u.getCause())));
+						eventloop.execute(wrapContext(cb, () -> cb.trySetException(u.getCause())));
 					} catch (RuntimeException e) {
 						eventloop.execute(() -> eventloop.recordFatalError(e, callable));
 					} catch (Exception e) {
-						eventloop.execute(wrapContext(cb, () -> cb.setException(e)));
+						eventloop.execute(wrapContext(cb, () -> cb.trySetException(e)));
 					} catch (Throwable e) {
 						eventloop.execute(() -> eventloop.recordFatalError(e, callable));
 					} finally {
 						eventloop.completeExternalTask();
 					}
-				}));
+				})));
 			} catch (RejectedExecutionException e) {
 				eventloop.completeExternalTask();
 				cb.setException(e);
@@ -273,24 +289,33 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 	static Promise<Void> ofBlockingRunnable(@NotNull Executor executor, @NotNull BlockingRunnable runnable) {
 		return ofCallback(cb -> {
 			Eventloop eventloop = Eventloop.getCurrentEventloop();
+			AtomicBoolean started = new AtomicBoolean();
+			cb.setCancelHandler(e -> {
+				if (started.compareAndSet(false, true)) {
+					eventloop.recordCancellation(runnable);
+				}
+			});
 			eventloop.startExternalTask();
 			try {
-				executor.execute(wrapContext(cb, () -> {
+				executor.execute(wrapTrace(wrapContext(cb, () -> {
 					try {
+						if (!started.compareAndSet(false, true)) return;
 						runnable.run();
-						eventloop.execute(wrapContext(cb, () -> cb.set(null)));
+						eventloop.execute(wrapContext(cb, () -> {
+							cb.trySet(null);
+						}));
 					} catch (UncheckedException u) {
-						eventloop.execute(wrapContext(cb, () -> cb.setException(u.getCause())));
+						eventloop.execute(wrapContext(cb, () -> cb.trySetException(u.getCause())));
 					} catch (RuntimeException e) {
 						eventloop.execute(() -> eventloop.recordFatalError(e, runnable));
 					} catch (Exception e) {
-						eventloop.execute(wrapContext(cb, () -> cb.setException(e)));
+						eventloop.execute(wrapContext(cb, () -> cb.trySetException(e)));
 					} catch (Throwable e) {
 						eventloop.execute(() -> eventloop.recordFatalError(e, runnable));
 					} finally {
 						eventloop.completeExternalTask();
 					}
-				}));
+				})));
 			} catch (RejectedExecutionException e) {
 				eventloop.completeExternalTask();
 				cb.setException(e);
@@ -323,6 +348,33 @@ public interface Promise<T> extends Promisable<T>, AsyncComputation<T> {
 	@Contract(pure = true)
 	Try<T> getTry();
 
+	/**
+	 * Cancels this {@code Promise} if it is not complete yet,
+	 * completing it exceptionally with a given exception.
+	 * <p>
+	 * Cancellation propagates to a source of this {@code Promise}
+	 * through {@code map}/{@code then} chains and {@link Promises#timeoutAndCancel},
+	 * as long as this {@code Promise} is the only one which waits for the source.
+	 * A source is cancelled if it is a {@link SettablePromise} with a
+	 * {@link SettablePromise#setCancelHandler cancel handler}, which stops the work
+	 * that would complete it, for example closes a socket. Other promises are not cancellable.
+	 *
+	 * @param e exception that is used to complete this {@code Promise}
+	 * @return {@code true} if this {@code Promise} has been cancelled
+	 */
+	default boolean cancel(@NotNull Throwable e) {
+		return false;
+	}
+
+	/**
+	 * Cancels this {@code Promise} with {@link Promises#CANCEL_EXCEPTION}
+	 *
+	 * @see #cancel(Throwable)
+	 */
+	default boolean cancel() {
+		return cancel(Promises.CANCEL_EXCEPTION);
+	}
+
 	/**
 	 * Ensures that {@code Promise} completes asynchronously:
 	 * if this {@code Promise} is already completed, its
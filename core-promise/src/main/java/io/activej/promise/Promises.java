@@ -20,6 +20,7 @@ import io.activej.async.AsyncAccumulator;
 import io.activej.async.AsyncBuffer;
 import io.activej.async.function.AsyncSupplier;
 import io.activej.common.exception.AsyncTimeoutException;
+import io.activej.common.exception.CancelException;
 import io.activej.common.exception.StacklessException;
 import io.activej.common.tuple.*;
 import io.activej.eventloop.Eventloop;
@@ -51,6 +52,7 @@ import static java.util.Collections.emptyList;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public final class Promises {
 	public static final AsyncTimeoutException TIMEOUT_EXCEPTION = new AsyncTimeoutException(Promises.class, "Promise timeout");
+	public static final CancelException CANCEL_EXCEPTION = new CancelException(Promises.class, "Promise has been cancelled");
 
 	/**
 	 * @see #timeout(long, Promise)
@@ -94,6 +96,61 @@ public final class Promises {
 		});
 	}
 
+	/**
+	 * @see #timeoutAndCancel(long, Promise)
+	 */
+	@Contract(pure = true)
+	@NotNull
+	public static <T> Promise<T> timeoutAndCancel(@NotNull Duration delay, @NotNull Promise<T> promise) {
+		return timeoutAndCancel(delay.toMillis(), promise);
+	}
+
+	/**
+	 * Same as {@link #timeout(long, Promise)}, but also {@link Promise#cancel(Throwable) cancels}
+	 * the tracked {@code Promise} with {@code TIMEOUT_EXCEPTION} when the delay passes,
+	 * so that the work behind it is stopped, unless someone else waits for it too.
+	 *
+	 * @param delay   time of delay
+	 * @param promise the Promise to be tracked
+	 * @return {@code Promise}
+	 */
+	@Contract(pure = true)
+	@NotNull
+	public static <T> Promise<T> timeoutAndCancel(long delay, @NotNull Promise<T> promise) {
+		if (promise.isComplete()) return promise;
+		return promise.next(new NextPromise<T, T>() {
+			@Nullable
+			ScheduledRunnable schedule = getCurrentEventloop().delay(delay,
+					wrapContext(this, () -> {
+						schedule = null;
+						if (!cancel(TIMEOUT_EXCEPTION)) {
+							tryCompleteExceptionally(TIMEOUT_EXCEPTION);
+						}
+					}));
+
+			@Override
+			AbstractPromise<?> getUpstream() {
+				return promise instanceof AbstractPromise ? (AbstractPromise<?>) promise : null;
+			}
+
+			@Override
+			public boolean cancel(@NotNull Throwable e) {
+				schedule = nullify(schedule, ScheduledRunnable::cancel);
+				return super.cancel(e);
+			}
+
+			@Override
+			public void accept(T result, @Nullable Throwable e) {
+				schedule = nullify(schedule, ScheduledRunnable::cancel);
+				if (e == null) {
+					tryComplete(result);
+				} else {
+					tryCompleteExceptionally(e);
+				}
+			}
+		});
+	}
+
 	@Contract(pure = true)
 	@NotNull
 	public static Promise<Void> delay(@NotNull Duration delay) {
@@ -21,6 +21,8 @@ import org.jetbrains.annotations.Async;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.function.Consumer;
+
 import static io.activej.eventloop.Eventloop.getCurrentEventloop;
 import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
 
@@ -34,6 +36,9 @@ import static io.activej.eventloop.util.RunnableWithContext.wrapContext;
  * @param <T> result type
  */
 public final class SettablePromise<T> extends AbstractPromise<T> implements Callback<T> {
+	@Nullable
+	private Consumer<@NotNull Throwable> cancelHandler;
+
 	/**
 	 * Accepts the provided values and performs this operation
 	 * on them. If the {@code Throwable e} is {@code null},
@@ -125,6 +130,28 @@ public final class SettablePromise<T> extends AbstractPromise<T> implements Call
 		return false;
 	}
 
+	/**
+	 * Sets a handler which is called if this {@code SettablePromise} is
+	 * {@link #cancel(Throwable) cancelled}, so that the work which would complete it is stopped.
+	 * A {@code SettablePromise} without a cancel handler is not cancellable.
+	 * <p>
+	 * A cancelled {@code SettablePromise} is already complete, so once a cancel handler is set,
+	 * the promise should be completed with {@code trySet*} methods.
+	 */
+	public void setCancelHandler(@Nullable Consumer<@NotNull Throwable> cancelHandler) {
+		this.cancelHandler = cancelHandler;
+	}
+
+	@Override
+	public boolean cancel(@NotNull Throwable e) {
+		Consumer<@NotNull Throwable> cancelHandler = this.cancelHandler;
+		if (isComplete() || cancelHandler == null) return false;
+		this.cancelHandler = null;
+		cancelHandler.accept(e);
+		tryCompleteExceptionally(e);
+		return true;
+	}
+
 	public void post(T result) {
 		getCurrentEventloop().post(wrapContext(this, () -> set(result)));
 	}
@@ -0,0 +1,140 @@
+package io.activej.promise;
+
+import io.activej.common.exception.ExpectedException;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.activej.promise.Promises.CANCEL_EXCEPTION;
+import static io.activej.promise.Promises.TIMEOUT_EXCEPTION;
+import static io.activej.promise.TestUtils.awaitException;
+import static org.junit.Assert.*;
+
+public final class PromiseCancelTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@Test
+	public void testCancelPropagatesThroughChain() {
+		List<Throwable> cancellations = new ArrayList<>();
+		SettablePromise<Integer> source = new SettablePromise<>();
+		source.setCancelHandler(cancellations::add);
+
+		Promise<String> promise = source
+				.map(i -> i + 1)
+				.then(i -> Promise.of("" + i));
+
+		assertTrue(promise.cancel());
+		assertEquals(1, cancellations.size());
+		assertSame(CANCEL_EXCEPTION, cancellations.get(0));
+		assertSame(CANCEL_EXCEPTION, source.getException());
+		assertSame(CANCEL_EXCEPTION, promise.getException());
+		assertFalse(promise.cancel());
+	}
+
+	@Test
+	public void testCancelPropagatesToInnerPromise() {
+		List<Throwable> cancellations = new ArrayList<>();
+		SettablePromise<Integer> source = new SettablePromise<>();
+		SettablePromise<String> inner = new SettablePromise<>();
+		inner.setCancelHandler(cancellations::add);
+
+		Promise<String> promise = source.then(i -> inner);
+		source.set(1);
+
+		ExpectedException expectedException = new ExpectedException();
+		assertTrue(promise.cancel(expectedException));
+		assertEquals(1, cancellations.size());
+		assertSame(expectedException, inner.getException());
+		assertSame(expectedException, promise.getException());
+	}
+
+	@Test
+	public void testCancelDoesNotPropagateToSharedPromise() {
+		List<Throwable> cancellations = new ArrayList<>();
+		SettablePromise<Integer> source = new SettablePromise<>();
+		source.setCancelHandler(cancellations::add);
+
+		Promise<Integer> first = source.map(i -> i + 1);
+		Promise<Integer> second = source.map(i -> i + 2);
+
+		assertTrue(first.cancel());
+		assertTrue(cancellations.isEmpty());
+		assertFalse(source.isComplete());
+
+		source.set(1);
+		assertSame(CANCEL_EXCEPTION, first.getException());
+		assertEquals(3, (int) second.getResult());
+	}
+
+	@Test
+	public void testNotCancellable() {
+		assertFalse(Promise.of(1).cancel());
+		assertFalse(new SettablePromise<Integer>().cancel());
+		assertFalse(Promise.complete().map($ -> 1).cancel());
+	}
+
+	@Test
+	public void testTimeoutDoesNotCancelPromise() {
+		List<Throwable> cancellations = new ArrayList<>();
+		SettablePromise<Integer> source = new SettablePromise<>();
+		source.setCancelHandler(cancellations::add);
+
+		Throwable e = awaitException(Promises.timeout(10, source));
+
+		assertSame(TIMEOUT_EXCEPTION, e);
+		assertTrue(cancellations.isEmpty());
+		assertFalse(source.isComplete());
+	}
+
+	@Test
+	public void testTimeoutAndCancelCancelsPromise() {
+		List<Throwable> cancellations = new ArrayList<>();
+		SettablePromise<Integer> source = new SettablePromise<>();
+		source.setCancelHandler(cancellations::add);
+
+		Throwable e = awaitException(Promises.timeoutAndCancel(10, source));
+
+		assertSame(TIMEOUT_EXCEPTION, e);
+		assertEquals(1, cancellations.size());
+		assertSame(TIMEOUT_EXCEPTION, source.getException());
+	}
+
+	@Test
+	public void testCancelBlockingCallable() {
+		List<Runnable> tasks = new ArrayList<>();
+		Executor executor = tasks::add;
+		AtomicBoolean called = new AtomicBoolean();
+
+		Promise<Integer> promise = Promise.ofBlockingCallable(executor, () -> {
+			called.set(true);
+			return 1;
+		});
+		assertTrue(promise.cancel());
+		assertSame(CANCEL_EXCEPTION, promise.getException());
+
+		// the task has not been started, so it is skipped
+		assertEquals(1, tasks.size());
+		tasks.get(0).run();
+		assertFalse(called.get());
+	}
+
+	@Test
+	public void testCancelRunningBlockingCallable() {
+		List<Runnable> tasks = new ArrayList<>();
+		Executor executor = tasks::add;
+
+		Promise<Integer> promise = Promise.ofBlockingCallable(executor, () -> 1);
+		tasks.get(0).run();
+		assertTrue(promise.cancel());
+
+		// the result of a task, which has been already running, is discarded
+		assertSame(CANCEL_EXCEPTION, awaitException(promise));
+	}
+}
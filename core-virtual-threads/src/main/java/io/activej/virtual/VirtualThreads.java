@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 ActiveJ LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.activej.virtual;
+
+import io.activej.eventloop.Eventloop;
+import io.activej.eventloop.executor.EventloopExecutor;
+import io.activej.promise.Promise;
+import io.activej.promise.Promise.BlockingCallable;
+import io.activej.promise.Promise.BlockingRunnable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+import static io.activej.common.Checks.checkState;
+
+/**
+ * A bridge between blocking code and eventloops.
+ * <p>
+ * Blocking tasks are run by an executor, which starts a virtual thread per task,
+ * so there is no thread pool to be sized for JDBC, file I/O or legacy clients.
+ * The executor may be passed to any of {@code ofBlocking*} methods, such as
+ * {@link Promise#ofBlockingCallable}, {@link io.activej.async.file.ExecutorAsyncFileService} or servlets.
+ * <p>
+ * A blocking task may in turn {@link #await} a promise of an eventloop, for example a response of
+ * an HTTP or RPC client, so that a handler is written as a straight-line blocking code.
+ * A virtual thread is parked while awaiting, without holding a platform thread.
+ * <p>
+ * This module is a multi-release jar: virtual threads are used on Java 21+,
+ * while on older versions tasks are run by a cached pool of platform threads, see {@link #isVirtual()}.
+ */
+public final class VirtualThreads {
+	private static final ExecutorService EXECUTOR = ThreadSupport.newExecutor("activej-virtual");
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Returns {@code true} if tasks are run by virtual threads
+	 */
+	public static boolean isVirtual() {
+		return ThreadSupport.isVirtual();
+	}
+
+	/**
+	 * Returns a shared executor, which runs each task in a new virtual thread
+	 */
+	public static Executor getExecutor() {
+		return EXECUTOR;
+	}
+
+	/**
+	 * Creates a new executor, which runs each task in a new virtual thread named after a given name.
+	 * It should be shut down once it is not needed.
+	 */
+	public static ExecutorService newExecutor(@NotNull String name) {
+		return ThreadSupport.newExecutor(name);
+	}
+
+	/**
+	 * Same as {@link Promise#ofBlockingCallable(Executor, BlockingCallable)} with a virtual thread executor
+	 */
+	public static <T> Promise<T> ofBlockingCallable(@NotNull BlockingCallable<? extends T> callable) {
+		return Promise.ofBlockingCallable(EXECUTOR, callable);
+	}
+
+	/**
+	 * Same as {@link Promise#ofBlockingRunnable(Executor, BlockingRunnable)} with a virtual thread executor
+	 */
+	public static Promise<Void> ofBlockingRunnable(@NotNull BlockingRunnable runnable) {
+		return Promise.ofBlockingRunnable(EXECUTOR, runnable);
+	}
+
+	/**
+	 * Blocks the current thread until a promise, which is supplied in an eventloop, is complete.
+	 * <p>
+	 * The promise is supplied in the eventloop thread, as promises are not thread-safe.
+	 * The current thread should not be the thread of that eventloop, as it would be blocked forever.
+	 *
+	 * @param eventloop       an eventloop or another {@link EventloopExecutor} to supply the promise in
+	 * @param promiseSupplier a supplier of the promise, such as a request of a client
+	 * @return a result of the promise
+	 * @throws Exception an exception of the promise, or {@link InterruptedException} if the thread is interrupted
+	 */
+	public static <T> T await(@NotNull EventloopExecutor eventloop, @NotNull Supplier<? extends Promise<T>> promiseSupplier) throws Exception {
+		checkState(!(eventloop instanceof Eventloop) || ((Eventloop) eventloop).getEventloopThread() != Thread.currentThread(),
+				"Awaiting in the eventloop thread would block it forever");
+		try {
+			return eventloop.submit(promiseSupplier).get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) throw (Exception) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package io.activej.virtual;
+
+import io.activej.common.exception.ExpectedException;
+import io.activej.eventloop.Eventloop;
+import io.activej.promise.Promise;
+import io.activej.promise.Promises;
+import io.activej.test.rules.EventloopRule;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.activej.promise.TestUtils.await;
+import static io.activej.promise.TestUtils.awaitException;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public final class VirtualThreadsTest {
+
+	@ClassRule
+	public static final EventloopRule eventloopRule = new EventloopRule();
+
+	@Test
+	public void testAwaitPromiseOfEventloop() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		int result = await(VirtualThreads.ofBlockingCallable(() -> {
+			int first = VirtualThreads.await(eventloop, () -> Promises.delay(10, 1));
+			int second = VirtualThreads.await(eventloop, () -> Promise.of(first + 1));
+			return first + second;
+		}));
+
+		assertEquals(3, result);
+	}
+
+	@Test
+	public void testAwaitException() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		ExpectedException expectedException = new ExpectedException();
+
+		Throwable e = awaitException(VirtualThreads.ofBlockingRunnable(() ->
+				VirtualThreads.await(eventloop, () -> Promise.ofException(expectedException))));
+
+		assertSame(expectedException, e);
+	}
+
+	@Test
+	public void testManyBlockingTasks() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+		List<Promise<Integer>> promises = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			int value = i;
+			promises.add(VirtualThreads.ofBlockingCallable(() -> VirtualThreads.await(eventloop, () -> Promises.delay(10, value))));
+		}
+
+		List<Integer> results = await(Promises.toList(promises));
+
+		assertEquals(100, results.size());
+		assertEquals(asList(0, 1, 2), results.subList(0, 3));
+	}
+
+	@Test
+	public void testAwaitInEventloopThread() {
+		Eventloop eventloop = Eventloop.getCurrentEventloop();
+
+		boolean rejected = await(Promise.<Boolean>ofCallback(cb -> eventloop.post(() -> {
+			try {
+				VirtualThreads.await(eventloop, Promise::complete);
+				cb.set(false);
+			} catch (IllegalStateException e) {
+				cb.set(true);
+			} catch (Exception e) {
+				cb.setException(e);
+			}
+		})));
+
+		assertTrue(rejected);
+	}
+}